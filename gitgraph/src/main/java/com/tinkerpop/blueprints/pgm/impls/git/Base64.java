@@ -0,0 +1,93 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.util.Arrays;
+
+/**
+ * Standard (RFC 4648) Base64 encoding of byte arrays, with padding and without line breaks.
+ */
+final class Base64 {
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+    }
+
+    private Base64() {
+    }
+
+    public static String encode(final byte[] bytes) {
+        char[] chars = new char[(bytes.length + 2) / 3 * 4];
+        int c = 0;
+        for (int i = 0; i < bytes.length; i += 3) {
+            int remaining = bytes.length - i;
+            int b = (bytes[i] & 0xFF) << 16;
+            if (remaining > 1) {
+                b |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            if (remaining > 2) {
+                b |= bytes[i + 2] & 0xFF;
+            }
+
+            chars[c++] = ALPHABET[(b >> 18) & 0x3F];
+            chars[c++] = ALPHABET[(b >> 12) & 0x3F];
+            chars[c++] = remaining > 1 ? ALPHABET[(b >> 6) & 0x3F] : '=';
+            chars[c++] = remaining > 2 ? ALPHABET[b & 0x3F] : '=';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not valid Base64
+     */
+    public static byte[] decode(final CharSequence text) {
+        int n = text.length();
+        if (0 != n % 4) {
+            throw new IllegalArgumentException("Base64 text length is not a multiple of 4: " + n);
+        }
+
+        int padding = 0;
+        if (n > 0 && '=' == text.charAt(n - 1)) {
+            padding++;
+            if ('=' == text.charAt(n - 2)) {
+                padding++;
+            }
+        }
+
+        byte[] bytes = new byte[n / 4 * 3 - padding];
+        int b = 0;
+        for (int i = 0; i < n; i += 4) {
+            int v = (value(text, i) << 18) | (value(text, i + 1) << 12);
+            boolean last = i + 4 == n;
+            if (!(last && padding == 2)) {
+                v |= value(text, i + 2) << 6;
+            }
+            if (!(last && padding >= 1)) {
+                v |= value(text, i + 3);
+            }
+
+            bytes[b++] = (byte) (v >> 16);
+            if (b < bytes.length) {
+                bytes[b++] = (byte) (v >> 8);
+            }
+            if (b < bytes.length) {
+                bytes[b++] = (byte) v;
+            }
+        }
+        return bytes;
+    }
+
+    private static int value(final CharSequence text,
+                             final int i) {
+        char c = text.charAt(i);
+        int v = c < 128 ? VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException("invalid Base64 character at position " + i + ": " + c);
+        }
+        return v;
+    }
+}
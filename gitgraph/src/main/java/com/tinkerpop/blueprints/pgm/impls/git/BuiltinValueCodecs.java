@@ -0,0 +1,608 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.util.Date;
+
+/**
+ * The codecs which are registered by default with each <code>ValueCodecRegistry</code>.
+ * The tags and formats of the String, Integer, Long, Boolean, Double and Float codecs are those of the original GitGraph
+ * format.
+ * Numbers are parsed directly from the characters of a row, without creating intermediate strings or boxed values,
+ * except for floating-point numbers which are too long or too large to be parsed exactly on the fast path.
+ */
+final class BuiltinValueCodecs {
+    private BuiltinValueCodecs() {
+    }
+
+    public static final ValueCodec<String> STRING = new ValueCodec<String>() {
+        public String getTag() {
+            return "String";
+        }
+
+        public Class<String> getValueClass() {
+            return String.class;
+        }
+
+        public String encode(final String value) {
+            return value;
+        }
+
+        public String decode(final CharSequence text) {
+            return text.toString();
+        }
+    };
+
+    public static final ValueCodec<Integer> INTEGER = new ValueCodec<Integer>() {
+        public String getTag() {
+            return "Integer";
+        }
+
+        public Class<Integer> getValueClass() {
+            return Integer.class;
+        }
+
+        public String encode(final Integer value) {
+            return value.toString();
+        }
+
+        public Integer decode(final CharSequence text) {
+            return parseInt(text, 0, text.length());
+        }
+    };
+
+    public static final ValueCodec<Long> LONG = new ValueCodec<Long>() {
+        public String getTag() {
+            return "Long";
+        }
+
+        public Class<Long> getValueClass() {
+            return Long.class;
+        }
+
+        public String encode(final Long value) {
+            return value.toString();
+        }
+
+        public Long decode(final CharSequence text) {
+            return parseLong(text, 0, text.length());
+        }
+    };
+
+    public static final ValueCodec<Boolean> BOOLEAN = new ValueCodec<Boolean>() {
+        public String getTag() {
+            return "Boolean";
+        }
+
+        public Class<Boolean> getValueClass() {
+            return Boolean.class;
+        }
+
+        public String encode(final Boolean value) {
+            return value.toString();
+        }
+
+        public Boolean decode(final CharSequence text) {
+            return parseBoolean(text, 0, text.length());
+        }
+    };
+
+    public static final ValueCodec<Double> DOUBLE = new ValueCodec<Double>() {
+        public String getTag() {
+            return "Double";
+        }
+
+        public Class<Double> getValueClass() {
+            return Double.class;
+        }
+
+        public String encode(final Double value) {
+            return value.toString();
+        }
+
+        public Double decode(final CharSequence text) {
+            return parseDouble(text, 0, text.length());
+        }
+    };
+
+    public static final ValueCodec<Float> FLOAT = new ValueCodec<Float>() {
+        public String getTag() {
+            return "Float";
+        }
+
+        public Class<Float> getValueClass() {
+            return Float.class;
+        }
+
+        public String encode(final Float value) {
+            return value.toString();
+        }
+
+        public Float decode(final CharSequence text) {
+            return parseFloat(text, 0, text.length());
+        }
+    };
+
+    public static final ValueCodec<Short> SHORT = new ValueCodec<Short>() {
+        public String getTag() {
+            return "Short";
+        }
+
+        public Class<Short> getValueClass() {
+            return Short.class;
+        }
+
+        public String encode(final Short value) {
+            return value.toString();
+        }
+
+        public Short decode(final CharSequence text) {
+            long l = parseLong(text, 0, text.length());
+            if (l < Short.MIN_VALUE || l > Short.MAX_VALUE) {
+                throw new NumberFormatException("short value out of range: " + l);
+            }
+            return (short) l;
+        }
+    };
+
+    public static final ValueCodec<Byte> BYTE = new ValueCodec<Byte>() {
+        public String getTag() {
+            return "Byte";
+        }
+
+        public Class<Byte> getValueClass() {
+            return Byte.class;
+        }
+
+        public String encode(final Byte value) {
+            return value.toString();
+        }
+
+        public Byte decode(final CharSequence text) {
+            long l = parseLong(text, 0, text.length());
+            if (l < Byte.MIN_VALUE || l > Byte.MAX_VALUE) {
+                throw new NumberFormatException("byte value out of range: " + l);
+            }
+            return (byte) l;
+        }
+    };
+
+    public static final ValueCodec<Character> CHARACTER = new ValueCodec<Character>() {
+        public String getTag() {
+            return "Character";
+        }
+
+        public Class<Character> getValueClass() {
+            return Character.class;
+        }
+
+        public String encode(final Character value) {
+            return value.toString();
+        }
+
+        public Character decode(final CharSequence text) {
+            if (1 != text.length()) {
+                throw new IllegalArgumentException("not a single character: " + text);
+            }
+            return text.charAt(0);
+        }
+    };
+
+    public static final ValueCodec<Date> DATE = new ValueCodec<Date>() {
+        public String getTag() {
+            return "Date";
+        }
+
+        public Class<Date> getValueClass() {
+            return Date.class;
+        }
+
+        public String encode(final Date value) {
+            return Long.toString(value.getTime());
+        }
+
+        public Date decode(final CharSequence text) {
+            return new Date(parseLong(text, 0, text.length()));
+        }
+    };
+
+    public static final ValueCodec<byte[]> BYTE_ARRAY = new ValueCodec<byte[]>() {
+        public String getTag() {
+            return "byte[]";
+        }
+
+        public Class<byte[]> getValueClass() {
+            return byte[].class;
+        }
+
+        public String encode(final byte[] value) {
+            return Base64.encode(value);
+        }
+
+        public byte[] decode(final CharSequence text) {
+            return Base64.decode(text);
+        }
+    };
+
+    public static final ValueCodec<int[]> INT_ARRAY = new ValueCodec<int[]>() {
+        public String getTag() {
+            return "int[]";
+        }
+
+        public Class<int[]> getValueClass() {
+            return int[].class;
+        }
+
+        public String encode(final int[] value) {
+            StringBuilder sb = new StringBuilder(value.length * 4);
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(value[i]);
+            }
+            return sb.toString();
+        }
+
+        public int[] decode(final CharSequence text) {
+            int[] result = new int[countElements(text)];
+            int start = 0;
+            for (int i = 0; i < result.length; i++) {
+                int end = elementEnd(text, start);
+                result[i] = parseInt(text, start, end);
+                start = end + 1;
+            }
+            return result;
+        }
+    };
+
+    public static final ValueCodec<long[]> LONG_ARRAY = new ValueCodec<long[]>() {
+        public String getTag() {
+            return "long[]";
+        }
+
+        public Class<long[]> getValueClass() {
+            return long[].class;
+        }
+
+        public String encode(final long[] value) {
+            StringBuilder sb = new StringBuilder(value.length * 8);
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(value[i]);
+            }
+            return sb.toString();
+        }
+
+        public long[] decode(final CharSequence text) {
+            long[] result = new long[countElements(text)];
+            int start = 0;
+            for (int i = 0; i < result.length; i++) {
+                int end = elementEnd(text, start);
+                result[i] = parseLong(text, start, end);
+                start = end + 1;
+            }
+            return result;
+        }
+    };
+
+    public static final ValueCodec<double[]> DOUBLE_ARRAY = new ValueCodec<double[]>() {
+        public String getTag() {
+            return "double[]";
+        }
+
+        public Class<double[]> getValueClass() {
+            return double[].class;
+        }
+
+        public String encode(final double[] value) {
+            StringBuilder sb = new StringBuilder(value.length * 12);
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(value[i]);
+            }
+            return sb.toString();
+        }
+
+        public double[] decode(final CharSequence text) {
+            double[] result = new double[countElements(text)];
+            int start = 0;
+            for (int i = 0; i < result.length; i++) {
+                int end = elementEnd(text, start);
+                result[i] = parseDouble(text, start, end);
+                start = end + 1;
+            }
+            return result;
+        }
+    };
+
+    public static final ValueCodec<float[]> FLOAT_ARRAY = new ValueCodec<float[]>() {
+        public String getTag() {
+            return "float[]";
+        }
+
+        public Class<float[]> getValueClass() {
+            return float[].class;
+        }
+
+        public String encode(final float[] value) {
+            StringBuilder sb = new StringBuilder(value.length * 10);
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(value[i]);
+            }
+            return sb.toString();
+        }
+
+        public float[] decode(final CharSequence text) {
+            float[] result = new float[countElements(text)];
+            int start = 0;
+            for (int i = 0; i < result.length; i++) {
+                int end = elementEnd(text, start);
+                result[i] = parseFloat(text, start, end);
+                start = end + 1;
+            }
+            return result;
+        }
+    };
+
+    public static final ValueCodec<boolean[]> BOOLEAN_ARRAY = new ValueCodec<boolean[]>() {
+        public String getTag() {
+            return "boolean[]";
+        }
+
+        public Class<boolean[]> getValueClass() {
+            return boolean[].class;
+        }
+
+        public String encode(final boolean[] value) {
+            StringBuilder sb = new StringBuilder(value.length * 6);
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(value[i]);
+            }
+            return sb.toString();
+        }
+
+        public boolean[] decode(final CharSequence text) {
+            boolean[] result = new boolean[countElements(text)];
+            int start = 0;
+            for (int i = 0; i < result.length; i++) {
+                int end = elementEnd(text, start);
+                result[i] = parseBoolean(text, start, end);
+                start = end + 1;
+            }
+            return result;
+        }
+    };
+
+    /**
+     * All built-in codecs, with the most common types first
+     */
+    public static final ValueCodec<?>[] ALL = {
+            STRING, INTEGER, LONG, BOOLEAN, DOUBLE, FLOAT,
+            SHORT, BYTE, CHARACTER, DATE,
+            BYTE_ARRAY, INT_ARRAY, LONG_ARRAY, DOUBLE_ARRAY, FLOAT_ARRAY, BOOLEAN_ARRAY};
+
+    // Powers of ten which are exactly representable as doubles and as floats, respectively.
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15, MAX_EXACT_FLOAT_DIGITS = 7;
+
+    /**
+     * @return the number of comma-separated elements in an array (zero for an empty string)
+     */
+    static int countElements(final CharSequence text) {
+        int n = text.length();
+        if (0 == n) {
+            return 0;
+        }
+
+        int count = 1;
+        for (int i = 0; i < n; i++) {
+            if (',' == text.charAt(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int elementEnd(final CharSequence text,
+                                  final int start) {
+        int i = start;
+        int n = text.length();
+        while (i < n && ',' != text.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    static int parseInt(final CharSequence text,
+                        final int start,
+                        final int end) {
+        long l = parseLong(text, start, end);
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            throw new NumberFormatException("integer value out of range: " + l);
+        }
+        return (int) l;
+    }
+
+    static long parseLong(final CharSequence text,
+                          final int start,
+                          final int end) {
+        if (start == end) {
+            throw new NumberFormatException("empty number");
+        }
+
+        boolean negative = '-' == text.charAt(start);
+        int i = negative || '+' == text.charAt(start) ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            // Let Long handle the edge cases, including overflow.
+            return Long.parseLong(text.subSequence(start, end).toString());
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("for input string: \"" + text.subSequence(start, end) + "\"");
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    static boolean parseBoolean(final CharSequence text,
+                                final int start,
+                                final int end) {
+        // As Boolean.valueOf: true if and only if the text is "true", ignoring case.
+        return 4 == end - start
+                && 't' == Character.toLowerCase(text.charAt(start))
+                && 'r' == Character.toLowerCase(text.charAt(start + 1))
+                && 'u' == Character.toLowerCase(text.charAt(start + 2))
+                && 'e' == Character.toLowerCase(text.charAt(start + 3));
+    }
+
+    /**
+     * Parses a double with the same result as Double.parseDouble.
+     * Decimals with at most 15 significant digits and a small exponent are computed exactly, with a single, correctly
+     * rounded multiplication or division of two exactly representable doubles.  Anything else is left to the JDK.
+     */
+    static double parseDouble(final CharSequence text,
+                              final int start,
+                              final int end) {
+        long[] parsed = parseDecimal(text, start, end, MAX_EXACT_DOUBLE_DIGITS);
+        if (null != parsed) {
+            long mantissa = parsed[0];
+            int exponent = (int) parsed[1];
+            boolean negative = 0 != parsed[2];
+            if (0 == mantissa) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (exponent >= -22 && exponent <= 22) {
+                double d = exponent < 0
+                        ? mantissa / DOUBLE_POWERS_OF_TEN[-exponent]
+                        : mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+                return negative ? -d : d;
+            }
+        }
+
+        return Double.parseDouble(text.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parses a float with the same result as Float.parseFloat, by analogy with <code>parseDouble</code>.
+     */
+    static strictfp float parseFloat(final CharSequence text,
+                                     final int start,
+                                     final int end) {
+        long[] parsed = parseDecimal(text, start, end, MAX_EXACT_FLOAT_DIGITS);
+        if (null != parsed) {
+            float mantissa = parsed[0];
+            int exponent = (int) parsed[1];
+            boolean negative = 0 != parsed[2];
+            if (0 == parsed[0]) {
+                return negative ? -0.0f : 0.0f;
+            }
+            if (exponent >= -10 && exponent <= 10) {
+                float f = exponent < 0
+                        ? mantissa / FLOAT_POWERS_OF_TEN[-exponent]
+                        : mantissa * FLOAT_POWERS_OF_TEN[exponent];
+                return negative ? -f : f;
+            }
+        }
+
+        return Float.parseFloat(text.subSequence(start, end).toString());
+    }
+
+    /**
+     * Splits a simple decimal number, such as <code>-12.5E-3</code>, into an integer mantissa and a power of ten.
+     *
+     * @return the mantissa, the exponent, and 1 if the number is negative (otherwise 0),
+     *         or null if the text is not a simple decimal with at most the given number of significant digits
+     */
+    private static long[] parseDecimal(final CharSequence text,
+                                       final int start,
+                                       final int end,
+                                       final int maxDigits) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && ('-' == text.charAt(i) || '+' == text.charAt(i))) {
+            negative = '-' == text.charAt(i);
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        for (; i < end; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            any = true;
+            if (0 != mantissa || 0 != d) {
+                if (++digits > maxDigits) {
+                    return null;
+                }
+                mantissa = mantissa * 10 + d;
+            }
+        }
+
+        if (i < end && '.' == text.charAt(i)) {
+            for (i++; i < end; i++) {
+                int d = text.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                any = true;
+                if (0 != mantissa || 0 != d) {
+                    if (++digits > maxDigits) {
+                        return null;
+                    }
+                    mantissa = mantissa * 10 + d;
+                }
+                exponent--;
+            }
+        }
+
+        if (!any) {
+            return null;
+        }
+
+        if (i < end && ('e' == text.charAt(i) || 'E' == text.charAt(i))) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && ('-' == text.charAt(i) || '+' == text.charAt(i))) {
+                negativeExponent = '-' == text.charAt(i);
+                i++;
+            }
+            if (i == end || end - i > 4) {
+                return null;
+            }
+
+            int e = 0;
+            for (; i < end; i++) {
+                int d = text.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    return null;
+                }
+                e = e * 10 + d;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        // Anything else (e.g. "NaN", "Infinity", or a type suffix) is left to the JDK.
+        return i == end ? new long[]{mantissa, exponent, negative ? 1 : 0} : null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A record of the vertices and edges which have been added, removed or modified since a <code>GitGraph</code> was
+ * last loaded or saved, grouped by the directory (path segment) in which each element is stored.
+ * Only the directories named in a change set need to be rewritten on save.
+ * <p/>
+ * While a save is in progress, the changes being saved are held as pending changes, apart from those made since the
+ * save began.  An element with pending changes still counts as changed, since its files have not yet been rewritten.
+ */
+class ChangeSet {
+    private Map<String, Set<String>> vertexNamesByPath = new HashMap<String, Set<String>>();
+    private Map<String, Set<String>> edgeNamesByPath = new HashMap<String, Set<String>>();
+
+    // The changes being saved, if a save is in progress.
+    private ChangeSet pending = null;
+
+    public void vertexChanged(final String id) {
+        add(id, vertexNamesByPath);
+    }
+
+    public void edgeChanged(final String id) {
+        add(id, edgeNamesByPath);
+    }
+
+    public boolean isVertexChanged(final String id) {
+        return contains(id, vertexNamesByPath) || (null != pending && pending.isVertexChanged(id));
+    }
+
+    public boolean isEdgeChanged(final String id) {
+        return contains(id, edgeNamesByPath) || (null != pending && pending.isEdgeChanged(id));
+    }
+
+    /**
+     * @return the paths of all directories containing at least one changed element, in lexicographic order
+     */
+    public Set<String> getPaths() {
+        Set<String> paths = new TreeSet<String>();
+        paths.addAll(vertexNamesByPath.keySet());
+        paths.addAll(edgeNamesByPath.keySet());
+        return paths;
+    }
+
+    /**
+     * @param path the path of a directory, relative to the graph root
+     * @return the local names of all changed vertices in the given directory
+     */
+    public Set<String> getVertexNames(final String path) {
+        Set<String> names = vertexNamesByPath.get(path);
+        return null == names ? Collections.<String>emptySet() : names;
+    }
+
+    /**
+     * @param path the path of a directory, relative to the graph root
+     * @return the local names of all changed edges in the given directory
+     */
+    public Set<String> getEdgeNames(final String path) {
+        Set<String> names = edgeNamesByPath.get(path);
+        return null == names ? Collections.<String>emptySet() : names;
+    }
+
+    public boolean isEmpty() {
+        return vertexNamesByPath.isEmpty() && edgeNamesByPath.isEmpty();
+    }
+
+    /**
+     * @return the number of changed elements, not counting pending changes
+     */
+    public int size() {
+        return count(vertexNamesByPath) + count(edgeNamesByPath);
+    }
+
+    public void clear() {
+        vertexNamesByPath.clear();
+        edgeNamesByPath.clear();
+    }
+
+    /**
+     * Begins a save, moving all current changes into a new change set which is held as pending.
+     *
+     * @return the changes to save
+     */
+    public ChangeSet beginSave() {
+        if (null != pending) {
+            throw new IllegalStateException("a save is already in progress");
+        }
+
+        pending = new ChangeSet();
+        pending.vertexNamesByPath = vertexNamesByPath;
+        pending.edgeNamesByPath = edgeNamesByPath;
+        vertexNamesByPath = new HashMap<String, Set<String>>();
+        edgeNamesByPath = new HashMap<String, Set<String>>();
+        return pending;
+    }
+
+    /**
+     * Ends a save, discarding the pending changes if the save succeeded, or otherwise restoring them.
+     *
+     * @param succeeded whether the pending changes were saved
+     */
+    public void endSave(final boolean succeeded) {
+        if (!succeeded && null != pending) {
+            merge(pending.vertexNamesByPath, vertexNamesByPath);
+            merge(pending.edgeNamesByPath, edgeNamesByPath);
+        }
+        pending = null;
+    }
+
+    private void merge(final Map<String, Set<String>> from,
+                       final Map<String, Set<String>> to) {
+        for (Map.Entry<String, Set<String>> entry : from.entrySet()) {
+            Set<String> names = to.get(entry.getKey());
+            if (null == names) {
+                to.put(entry.getKey(), entry.getValue());
+            } else {
+                names.addAll(entry.getValue());
+            }
+        }
+    }
+
+    private int count(final Map<String, Set<String>> namesByPath) {
+        int count = 0;
+        for (Set<String> names : namesByPath.values()) {
+            count += names.size();
+        }
+        return count;
+    }
+
+    private void add(final String id,
+                     final Map<String, Set<String>> namesByPath) {
+        GitGraphHelper.RelativeId r = new GitGraphHelper.RelativeId(id, "");
+        Set<String> names = namesByPath.get(r.getPath());
+        if (null == names) {
+            names = new HashSet<String>();
+            namesByPath.put(r.getPath(), names);
+        }
+        names.add(r.getName());
+    }
+
+    private boolean contains(final String id,
+                             final Map<String, Set<String>> namesByPath) {
+        GitGraphHelper.RelativeId r = new GitGraphHelper.RelativeId(id, "");
+        Set<String> names = namesByPath.get(r.getPath());
+        return null != names && names.contains(r.getName());
+    }
+}
@@ -0,0 +1,118 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+/**
+ * Statistics of the checkpoints (saves) of a <code>GitGraph</code>, whether made in the background, by an explicit call
+ * to <code>checkpoint</code>, or on shutdown.
+ */
+public class CheckpointMetrics {
+    private long checkpointCount = 0;
+    private long failureCount = 0;
+    private long lastDuration = 0;
+    private long totalDuration = 0;
+    private long maxDuration = 0;
+    private long lastBytesWritten = 0;
+    private long totalBytesWritten = 0;
+    private int lastDirtyCount = 0;
+    private long totalDirtyCount = 0;
+    private Throwable lastFailure = null;
+
+    /**
+     * @return the number of checkpoints which have completed successfully
+     */
+    public synchronized long getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * @return the number of checkpoints which have failed
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the cause of the most recent failed checkpoint, or null if no checkpoint has failed
+     */
+    public synchronized Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * @return the duration of the most recent successful checkpoint, in milliseconds.
+     *         This is the time spent writing files; the graph is locked only while a checkpoint takes a snapshot of
+     *         the changed elements.
+     */
+    public synchronized long getLastDuration() {
+        return lastDuration;
+    }
+
+    /**
+     * @return the total duration of all successful checkpoints, in milliseconds
+     */
+    public synchronized long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return the longest duration of any successful checkpoint, in milliseconds
+     */
+    public synchronized long getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * @return the number of bytes written by the most recent successful checkpoint
+     */
+    public synchronized long getLastBytesWritten() {
+        return lastBytesWritten;
+    }
+
+    /**
+     * @return the number of bytes written by all successful checkpoints
+     */
+    public synchronized long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    /**
+     * @return the number of changed (dirty) vertices and edges saved by the most recent successful checkpoint
+     */
+    public synchronized int getLastDirtyCount() {
+        return lastDirtyCount;
+    }
+
+    /**
+     * @return the number of changed vertices and edges saved by all successful checkpoints
+     */
+    public synchronized long getTotalDirtyCount() {
+        return totalDirtyCount;
+    }
+
+    synchronized void checkpointSucceeded(final long duration,
+                                          final long bytesWritten,
+                                          final int dirtyCount) {
+        checkpointCount++;
+        lastDuration = duration;
+        totalDuration += duration;
+        maxDuration = Math.max(maxDuration, duration);
+        lastBytesWritten = bytesWritten;
+        totalBytesWritten += bytesWritten;
+        lastDirtyCount = dirtyCount;
+        totalDirtyCount += dirtyCount;
+    }
+
+    synchronized void checkpointFailed(final Throwable cause) {
+        failureCount++;
+        lastFailure = cause;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "checkpoints: " + checkpointCount
+                + ", failures: " + failureCount
+                + ", last duration: " + lastDuration + "ms"
+                + ", total duration: " + totalDuration + "ms"
+                + ", bytes written: " + totalBytesWritten
+                + ", dirty elements: " + totalDirtyCount;
+    }
+}
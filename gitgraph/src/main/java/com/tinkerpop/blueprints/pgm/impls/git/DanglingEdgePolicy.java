@@ -0,0 +1,25 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+/**
+ * Determines what becomes of cross-partition edges when only some partitions of a <code>GitGraph</code> are loaded.
+ * A cross-partition edge is an edge in a parent directory of the loaded partitions which connects a loaded vertex to a
+ * vertex outside of the loaded partitions.
+ */
+public enum DanglingEdgePolicy {
+    /**
+     * Cross-partition edges are not loaded.  The graph contains only the loaded partitions.
+     */
+    DROP,
+
+    /**
+     * Cross-partition edges are loaded, and each vertex outside of the loaded partitions is represented by a stub
+     * vertex, without properties.  Stub vertices may be connected to new edges, but may not be modified or removed.
+     */
+    STUB,
+
+    /**
+     * As with STUB, but the properties of a vertex outside of the loaded partitions are loaded on demand, the first
+     * time they are accessed.  Such a vertex may then be modified, but not removed.
+     */
+    LAZY
+}
@@ -0,0 +1,217 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a stream of strings in bounded memory.
+ * Strings are buffered until the memory budget is exceeded, at which point the buffer is sorted and spilled to a
+ * temporary file as a sorted run.  The runs are then combined with a k-way merge.
+ * If all strings fit within the budget, no temporary files are written.
+ * <p/>
+ * Usage: <code>add()</code> any number of strings, then call <code>next()</code> until it returns null,
+ * then <code>close()</code>.
+ */
+class ExternalSorter {
+    // The approximate number of bytes, besides its characters, used by a buffered string.
+    private static final int STRING_OVERHEAD = 64;
+
+    // The maximum number of runs which are merged at once.
+    private static final int MAX_MERGE_WIDTH = 64;
+
+    private final long memoryBudget;
+    private final File tmpDirectory;
+
+    private final List<String> buffer = new ArrayList<String>();
+    private long bufferedBytes = 0;
+    private final LinkedList<File> runs = new LinkedList<File>();
+
+    private boolean sorted = false;
+    private int bufferPosition;
+    private PriorityQueue<Run> merging;
+
+    /**
+     * @param memoryBudget the approximate number of bytes of strings to hold in memory before spilling to disk
+     * @param tmpDirectory the directory in which to create temporary files, or null for the system default
+     */
+    public ExternalSorter(final long memoryBudget,
+                          final File tmpDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.tmpDirectory = tmpDirectory;
+    }
+
+    public void add(final String s) throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("strings cannot be added once sorting has begun");
+        }
+
+        buffer.add(s);
+        bufferedBytes += STRING_OVERHEAD + 2L * s.length();
+        if (bufferedBytes > memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of sorted runs which have been spilled to disk
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * @return the next string in sorted order, or null if there are no more strings
+     */
+    public String next() throws IOException {
+        if (!sorted) {
+            sort();
+        }
+
+        if (null == merging) {
+            return bufferPosition < buffer.size() ? buffer.get(bufferPosition++) : null;
+        } else {
+            return next(merging);
+        }
+    }
+
+    /**
+     * Releases any temporary files.
+     */
+    public void close() throws IOException {
+        if (null != merging) {
+            for (Run r : merging) {
+                r.reader.close();
+            }
+            merging = null;
+        }
+
+        for (File f : runs) {
+            f.delete();
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void sort() throws IOException {
+        sorted = true;
+
+        if (runs.isEmpty()) {
+            Collections.sort(buffer);
+            bufferPosition = 0;
+            return;
+        }
+
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+
+        // Reduce the number of runs until they can be merged at once.
+        while (runs.size() > MAX_MERGE_WIDTH) {
+            List<File> group = new LinkedList<File>();
+            for (int i = 0; i < MAX_MERGE_WIDTH; i++) {
+                group.add(runs.removeFirst());
+            }
+
+            PriorityQueue<Run> queue = open(group);
+            File merged = createRunFile();
+            RowWriter writer = new RowWriter(new FileOutputStream(merged));
+            try {
+                String s;
+                while (null != (s = next(queue))) {
+                    writer.writeEscaped(s);
+                    writer.endRow();
+                }
+            } finally {
+                writer.close();
+                for (File f : group) {
+                    f.delete();
+                }
+            }
+            runs.addLast(merged);
+        }
+
+        merging = open(runs);
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+
+        File run = createRunFile();
+        RowWriter writer = new RowWriter(new FileOutputStream(run));
+        try {
+            for (String s : buffer) {
+                writer.writeEscaped(s);
+                writer.endRow();
+            }
+        } finally {
+            writer.close();
+        }
+        runs.add(run);
+
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private File createRunFile() throws IOException {
+        File f = File.createTempFile("gitgraph-sort-", ".run", tmpDirectory);
+        f.deleteOnExit();
+        return f;
+    }
+
+    private PriorityQueue<Run> open(final List<File> files) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<Run>(files.size(), RUN_COMPARATOR);
+        for (File f : files) {
+            Run r = new Run(new RowReader(new FileInputStream(f)));
+            if (r.advance()) {
+                queue.add(r);
+            } else {
+                r.reader.close();
+            }
+        }
+        return queue;
+    }
+
+    private String next(final PriorityQueue<Run> queue) throws IOException {
+        Run r = queue.poll();
+        if (null == r) {
+            return null;
+        }
+
+        String s = r.current;
+        if (r.advance()) {
+            queue.add(r);
+        } else {
+            r.reader.close();
+        }
+        return s;
+    }
+
+    private static class Run {
+        public final RowReader reader;
+        public String current;
+
+        public Run(final RowReader reader) {
+            this.reader = reader;
+        }
+
+        public boolean advance() throws IOException {
+            current = reader.next(1) ? reader.getField(0) : null;
+            return null != current;
+        }
+    }
+
+    private static final Comparator<Run> RUN_COMPARATOR = new Comparator<Run>() {
+        public int compare(final Run first,
+                           final Run second) {
+            return first.current.compareTo(second.current);
+        }
+    };
+}
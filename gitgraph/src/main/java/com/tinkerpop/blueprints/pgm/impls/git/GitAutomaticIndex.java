@@ -0,0 +1,20 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.AutomaticIndex;
+import com.tinkerpop.blueprints.pgm.Element;
+
+import java.util.Set;
+
+/**
+ * An automatic index of a <code>GitGraph</code>, which wraps an automatic index of the base graph.
+ */
+class GitAutomaticIndex<T extends Element> extends GitIndex<T> implements AutomaticIndex<T> {
+    public GitAutomaticIndex(final GitGraph graph,
+                             final AutomaticIndex<T> base) {
+        super(graph, base);
+    }
+
+    public Set<String> getAutoIndexKeys() {
+        return ((AutomaticIndex<T>) base).getAutoIndexKeys();
+    }
+}
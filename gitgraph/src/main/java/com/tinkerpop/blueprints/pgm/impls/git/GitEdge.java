@@ -0,0 +1,37 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * An edge of a <code>GitGraph</code>, which wraps an edge of the base graph.
+ */
+class GitEdge extends GitElement implements Edge {
+    private final Edge base;
+
+    public GitEdge(final GitGraph graph,
+                   final Edge base) {
+        super(graph);
+        this.base = base;
+    }
+
+    public Edge getBase() {
+        return base;
+    }
+
+    protected void touch() {
+        graph.edgeChanged(base.getId());
+    }
+
+    public Vertex getOutVertex() {
+        return graph.wrap(base.getOutVertex());
+    }
+
+    public Vertex getInVertex() {
+        return graph.wrap(base.getInVertex());
+    }
+
+    public String getLabel() {
+        return base.getLabel();
+    }
+}
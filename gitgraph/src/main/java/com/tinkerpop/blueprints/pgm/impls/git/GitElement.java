@@ -0,0 +1,68 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Element;
+
+import java.util.Set;
+
+/**
+ * An element of a <code>GitGraph</code>, which wraps an element of the base graph in order to keep track of changes.
+ */
+abstract class GitElement implements Element {
+    protected final GitGraph graph;
+
+    public GitElement(final GitGraph graph) {
+        this.graph = graph;
+    }
+
+    protected abstract Element getBase();
+
+    /**
+     * Marks this element as changed, so that its directory is rewritten on the next save.
+     */
+    protected abstract void touch();
+
+    /**
+     * Ensures that the properties of this element are present in the base element.
+     */
+    protected void resolve() {
+    }
+
+    public Object getId() {
+        return getBase().getId();
+    }
+
+    public Object getProperty(final String key) {
+        resolve();
+        return getBase().getProperty(key);
+    }
+
+    public Set<String> getPropertyKeys() {
+        resolve();
+        return getBase().getPropertyKeys();
+    }
+
+    public void setProperty(final String key,
+                            final Object value) {
+        graph.setProperty(this, key, value);
+    }
+
+    public Object removeProperty(final String key) {
+        return graph.removeProperty(this, key);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof GitElement
+                && ((GitElement) other).getBase().equals(getBase());
+    }
+
+    @Override
+    public int hashCode() {
+        return getBase().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getBase().toString();
+    }
+}
@@ -0,0 +1,37 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Element;
+
+import java.util.Iterator;
+
+/**
+ * An iterable over base graph elements which wraps each element as it is retrieved.
+ */
+class GitElementIterable<T extends Element> implements Iterable<T> {
+    private final GitGraph graph;
+    private final Iterable<T> base;
+
+    public GitElementIterable(final GitGraph graph,
+                              final Iterable<T> base) {
+        this.graph = graph;
+        this.base = base;
+    }
+
+    public Iterator<T> iterator() {
+        final Iterator<T> iter = base.iterator();
+
+        return new Iterator<T>() {
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            public T next() {
+                return (T) graph.wrap(iter.next());
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.CloseableSequence;
+import com.tinkerpop.blueprints.pgm.Element;
+
+import java.util.Iterator;
+
+/**
+ * A sequence of index results which wraps each base graph element as it is retrieved.
+ */
+class GitElementSequence<T extends Element> implements CloseableSequence<T> {
+    private final GitGraph graph;
+    private final CloseableSequence<T> base;
+
+    public GitElementSequence(final GitGraph graph,
+                              final CloseableSequence<T> base) {
+        this.graph = graph;
+        this.base = base;
+    }
+
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    public boolean hasNext() {
+        return base.hasNext();
+    }
+
+    public T next() {
+        return (T) graph.wrap(base.next());
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+        base.close();
+    }
+}
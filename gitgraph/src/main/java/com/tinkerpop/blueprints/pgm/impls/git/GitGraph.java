@@ -3,6 +3,7 @@ package com.tinkerpop.blueprints.pgm.impls.git;
 import com.tinkerpop.blueprints.pgm.AutomaticIndex;
 import com.tinkerpop.blueprints.pgm.Edge;
 import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Graph;
 import com.tinkerpop.blueprints.pgm.Index;
 import com.tinkerpop.blueprints.pgm.IndexableGraph;
 import com.tinkerpop.blueprints.pgm.Vertex;
@@ -10,7 +11,17 @@ import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Blueprints Graph which stores its data in a hierarchy of plain text files which plays well with version control
@@ -26,6 +37,29 @@ import java.util.Set;
  * either cities or people, one of the subdirectories.  Even if he only loads the graph about cities, he can make
  * local changes to it and push them back to you without invalidating the top-level graph.
  * <p/>
+ * GitGraph keeps track of the vertices and edges which have changed since the graph was loaded, and on shutdown
+ * rewrites only the files of those directories which contain changed elements.
+ * The files of all other directories are left untouched.
+ * <p/>
+ * In lazy mode (see <code>GitGraphSettings</code>), nothing is loaded when the graph is opened.
+ * Instead, the files of each directory are memory-mapped, and vertices and edges are found by binary search and loaded
+ * only when they are first requested.
+ * Retrieving the edges of a vertex loads the edges of the directories containing that vertex (or only its out-edges,
+ * where a directory has an adjacency file), while iterating over all vertices or edges, or using an index, loads the
+ * entire graph.
+ * <p/>
+ * Alternatively, only some partitions of a graph may be loaded, by giving the path prefixes of those partitions in
+ * <code>GitGraphSettings</code>.  Edges which connect the loaded partitions with the rest of the graph are dropped or
+ * loaded according to a <code>DanglingEdgePolicy</code>.
+ * <p/>
+ * Saving is atomic: if it is interrupted, the graph is found either in its previous state or, once it is next loaded,
+ * in its new state.  To bound the loss of data when a graph is not shut down, mutations may also be written to a
+ * journal, which is replayed when the graph is next loaded, and the graph may be saved periodically with
+ * <code>checkpoint</code>, or in the background (see <code>GitGraphSettings</code>).
+ * <p/>
+ * The methods of GitGraph are synchronized, so that a background checkpoint may take a consistent snapshot of the
+ * changed elements.  The graph is locked only while the snapshot is taken, not while files are written.
+ * <p/>
  * User: josh
  * Date: 4/13/11
  * Time: 1:39 PM
@@ -34,17 +68,64 @@ public class GitGraph implements IndexableGraph {
     private final File directory;
     private final IndexableGraph base;
     private final GitGraphHelper helper;
+    private final ChangeSet changes;
+    private final LazyLoader loader;
+
+    // For partially loaded graphs: stub vertices outside of the loaded partitions, and a loader for the rest of the graph.
+    private final Set<String> stubs;
+    private final DanglingEdgePolicy danglingEdgePolicy;
+    private final LazyLoader outside;
+
+    // The journal of mutations since the last save, if journaling is enabled.
+    private final Journal journal;
+    private final int checkpointInterval;
+    private boolean replaying = false;
+
+    // Whether a save is in progress.  Only one save may write files at a time.
+    private boolean saving = false;
+    private final CheckpointMetrics metrics = new CheckpointMetrics();
+    private final ScheduledExecutorService checkpointer;
+    // Whether a background checkpoint has been requested by the checkpoint interval, and has not yet begun
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean(false);
+
+    private final Runnable backgroundCheckpoint = new Runnable() {
+        public void run() {
+            // Cleared before saving, so that mutations during the save may request the next checkpoint.
+            checkpointQueued.set(false);
+            try {
+                save();
+            } catch (IOException e) {
+                // The failure is recorded in the metrics, and the changes are saved by the next checkpoint.
+            } catch (RuntimeException e) {
+                // As above.
+            }
+        }
+    };
 
     /**
      * Creates a new GitGraph in the specified directory.
      *
      * @param directory the directory to use for data storage.
      *                  If this directory already exists, GitGraph will attempt to load previously saved data.
-     *                  Data will be saved to this directory (over-writing any previous contents) when this Graph is shutdown.
+     *                  Changes will be saved to this directory when this Graph is shutdown.
      * @throws IOException if the graph cannot be loaded
      */
     public GitGraph(final File directory) throws IOException {
-        this(directory, new TinkerGraph());
+        this(directory, new GitGraphSettings());
+    }
+
+    /**
+     * Creates a new GitGraph in the specified directory.
+     *
+     * @param directory the directory to use for data storage.
+     *                  If this directory already exists, GitGraph will attempt to load previously saved data.
+     *                  Changes will be saved to this directory when this Graph is shutdown.
+     * @param settings  settings which control how the graph is loaded and saved
+     * @throws IOException if the graph cannot be loaded
+     */
+    public GitGraph(final File directory,
+                    final GitGraphSettings settings) throws IOException {
+        this(directory, new TinkerGraph(), settings);
     }
 
     /**
@@ -52,100 +133,221 @@ public class GitGraph implements IndexableGraph {
      *                  If this directory already exists, GitGraph will attempt to load previously saved data.
      *                  Data will be saved to this directory when this Graph is shutdown.
      * @param base      a graph for temporary storage.  Note: this graph will be cleared of any pre-existing data.
+     * @param settings  settings which control how the graph is loaded and saved
      * @throws IOException if loading fails
      */
     private GitGraph(final File directory,
-                     final IndexableGraph base) throws IOException {
+                     final IndexableGraph base,
+                     final GitGraphSettings settings) throws IOException {
         this.directory = directory;
         this.base = base;
 
-        this.helper = new GitGraphHelper();
-        helper.load(directory, base);
+        this.helper = new GitGraphHelper(settings);
+        this.changes = new ChangeSet();
+        this.danglingEdgePolicy = settings.getDanglingEdgePolicy();
+        this.checkpointInterval = settings.getCheckpointInterval();
+
+        helper.recover(directory);
+        if (settings.isLazy()) {
+            if (helper.isPartial()) {
+                throw new IllegalArgumentException("partial loading cannot be combined with lazy mode");
+            }
+
+            base.clear();
+            this.loader = new LazyLoader(directory, base, changes, helper);
+            this.stubs = new HashSet<String>();
+            this.outside = null;
+        } else {
+            this.loader = null;
+            this.stubs = helper.load(directory, base);
+            this.outside = helper.isPartial() ? new LazyLoader(directory, base, changes, helper) : null;
+        }
+
+        // Replay any mutations which were made after the graph was last saved, including those of a failed save.
+        File journalFile = new File(directory, GitGraphHelper.JOURNAL);
+        int replayed = 0;
+        replaying = true;
+        try {
+            for (File f : new File[]{new File(directory, GitGraphHelper.OLD_JOURNAL), journalFile}) {
+                if (f.exists()) {
+                    replayed += Journal.replay(f, this, helper);
+                }
+            }
+        } finally {
+            replaying = false;
+        }
+
+        this.journal = settings.getJournal()
+                ? new Journal(journalFile, settings.getJournalSync(), replayed)
+                : null;
+
+        if (settings.getCheckpointPeriod() > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    Thread t = new Thread(r, "GitGraph checkpointer: " + directory);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            long period = settings.getCheckpointPeriod();
+            checkpointer.scheduleWithFixedDelay(backgroundCheckpoint, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            checkpointer = null;
+        }
     }
 
     @Override
-    public <T extends Element> Index<T> createManualIndex(final String indexName,
-                                                          final Class<T> indexClass) {
-        return base.createManualIndex(indexName, indexClass);
+    public synchronized <T extends Element> Index<T> createManualIndex(final String indexName,
+                                                                       final Class<T> indexClass) {
+        return wrap(base.createManualIndex(indexName, indexClass));
     }
 
     @Override
-    public <T extends Element> AutomaticIndex<T> createAutomaticIndex(final String indexName,
-                                                                      final Class<T> indexClass,
-                                                                      final Set<String> indexKeys) {
-        return base.createAutomaticIndex(indexName, indexClass, indexKeys);
+    public synchronized <T extends Element> AutomaticIndex<T> createAutomaticIndex(final String indexName,
+                                                                                   final Class<T> indexClass,
+                                                                                   final Set<String> indexKeys) {
+        loadAll();
+        return new GitAutomaticIndex<T>(this, base.createAutomaticIndex(indexName, indexClass, indexKeys));
     }
 
     @Override
-    public <T extends Element> Index<T> getIndex(final String indexName,
-                                                 final Class<T> indexClass) {
-        return base.getIndex(indexName, indexClass);
+    public synchronized <T extends Element> Index<T> getIndex(final String indexName,
+                                                              final Class<T> indexClass) {
+        loadAll();
+        return wrap(base.getIndex(indexName, indexClass));
     }
 
     @Override
-    public Iterable<Index<? extends Element>> getIndices() {
-        return base.getIndices();
+    public synchronized Iterable<Index<? extends Element>> getIndices() {
+        loadAll();
+        List<Index<? extends Element>> indices = new LinkedList<Index<? extends Element>>();
+        for (Index<? extends Element> i : base.getIndices()) {
+            indices.add(wrap(i));
+        }
+        return indices;
     }
 
     @Override
-    public void dropIndex(final String indexName) {
+    public synchronized void dropIndex(final String indexName) {
         base.dropIndex(indexName);
     }
 
     @Override
-    public Vertex addVertex(final Object id) {
+    public synchronized Vertex addVertex(final Object id) {
         validateElementId(id);
-        return base.addVertex(id);
+        if (helper.isPartial() && (null == id || !helper.isLoaded((String) id))) {
+            throw new IllegalArgumentException("vertex '" + id + "' is outside of the loaded partitions");
+        }
+        if (null != id) {
+            // Load any existing vertex with the same id, so that the base graph will reject the new one.
+            loadVertex(id);
+        }
+        Vertex v = base.addVertex(id);
+        vertexChanged(v.getId());
+        journal(Journal.ADD_VERTEX, (String) v.getId());
+        return wrap(v);
     }
 
     @Override
-    public Vertex getVertex(final Object id) {
-        return base.getVertex(id);
+    public synchronized Vertex getVertex(final Object id) {
+        return wrap(loadVertex(id));
     }
 
     @Override
-    public void removeVertex(final Vertex vertex) {
-        base.removeVertex(vertex);
+    public synchronized void removeVertex(final Vertex vertex) {
+        Vertex v = unwrap(vertex);
+        loadIncidentEdges(v);
+        if (helper.isPartial()) {
+            checkRemovable(v);
+        }
+
+        // The base graph removes incident edges along with the vertex, so these are changed as well.
+        for (Edge e : v.getOutEdges()) {
+            edgeChanged(e.getId());
+        }
+        for (Edge e : v.getInEdges()) {
+            edgeChanged(e.getId());
+        }
+        vertexChanged(v.getId());
+
+        base.removeVertex(v);
+        journal(Journal.REMOVE_VERTEX, (String) v.getId());
     }
 
     @Override
-    public Iterable<Vertex> getVertices() {
-        return base.getVertices();
+    public synchronized Iterable<Vertex> getVertices() {
+        loadAll();
+        return new GitElementIterable<Vertex>(this, base.getVertices());
     }
 
     @Override
-    public Edge addEdge(final Object id,
-                        final Vertex outVertex,
-                        final Vertex inVertex,
-                        final String label) {
+    public synchronized Edge addEdge(final Object id,
+                                     final Vertex outVertex,
+                                     final Vertex inVertex,
+                                     final String label) {
         validateElementId(id);
         validateEdgeVertexId((String) id, (String) outVertex.getId());
         validateEdgeVertexId((String) id, (String) inVertex.getId());
-        return base.addEdge(id, outVertex, inVertex, label);
+        if (null != id) {
+            loadEdge(id);
+            if (null != outside && !helper.isLoaded((String) id)
+                    && null == base.getEdge(id) && !changes.isEdgeChanged((String) id)) {
+                checkNotOutside((String) id);
+            }
+        }
+        Edge e = base.addEdge(id, unwrap(outVertex), unwrap(inVertex), label);
+        edgeChanged(e.getId());
+        journal(Journal.ADD_EDGE, (String) e.getId(), (String) outVertex.getId(), (String) inVertex.getId(), label);
+        return wrap(e);
     }
 
     @Override
-    public Edge getEdge(final Object id) {
-        return base.getEdge(id);
+    public synchronized Edge getEdge(final Object id) {
+        return wrap(loadEdge(id));
     }
 
     @Override
-    public void removeEdge(final Edge edge) {
-        base.removeEdge(edge);
+    public synchronized void removeEdge(final Edge edge) {
+        Edge e = unwrap(edge);
+        edgeChanged(e.getId());
+        base.removeEdge(e);
+        journal(Journal.REMOVE_EDGE, (String) e.getId());
     }
 
     @Override
-    public Iterable<Edge> getEdges() {
-        return base.getEdges();
+    public synchronized Iterable<Edge> getEdges() {
+        loadAll();
+        return new GitElementIterable<Edge>(this, base.getEdges());
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
+        if (helper.isPartial()) {
+            throw new UnsupportedOperationException("a partially loaded graph cannot be cleared");
+        }
+        loadAll();
+        for (Vertex v : base.getVertices()) {
+            vertexChanged(v.getId());
+        }
+        for (Edge e : base.getEdges()) {
+            edgeChanged(e.getId());
+        }
         base.clear();
+        journal(Journal.CLEAR);
     }
 
     @Override
     public void shutdown() {
+        if (null != checkpointer) {
+            // Wait for any background checkpoint to finish.
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
         try {
             save();
         } catch (IOException e) {
@@ -155,8 +357,416 @@ public class GitGraph implements IndexableGraph {
         base.shutdown();
     }
 
+    /**
+     * Saves all changes made since the graph was loaded or last saved, and clears the journal.
+     * The graph remains open, and may continue to be used, even by other threads while the files are written.
+     *
+     * @throws IOException if saving fails.  The graph's files and journal are then left in their previous state.
+     */
+    public void checkpoint() throws IOException {
+        save();
+    }
+
+    /**
+     * Runs a checkpoint in the background thread, as the checkpoint period or interval would.
+     *
+     * @return a future which is done once the checkpoint has finished
+     */
+    Future<?> checkpointInBackground() {
+        if (null == checkpointer) {
+            throw new IllegalStateException("background checkpoints are not enabled");
+        }
+
+        return checkpointer.submit(backgroundCheckpoint);
+    }
+
+    /**
+     * @return statistics of the checkpoints of this graph
+     */
+    public CheckpointMetrics getCheckpointMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the number of vertices and edges which have changed since the last checkpoint began
+     */
+    public synchronized int getDirtyCount() {
+        return changes.size();
+    }
+
+    /**
+     * Saves the changes to the graph, recording the outcome in the checkpoint metrics.
+     */
     private void save() throws IOException {
-        helper.save(base, directory);
+        try {
+            saveChanges();
+        } catch (IOException e) {
+            metrics.checkpointFailed(e);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.checkpointFailed(e);
+            throw e;
+        } catch (Error e) {
+            metrics.checkpointFailed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the changed elements while the graph is locked, then writes the files of the graph from the
+     * snapshot, so that the graph may be used while the files are written.
+     */
+    private void saveChanges() throws IOException {
+        Graph snapshot;
+        ChangeSet pending;
+        synchronized (this) {
+            while (saving) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for a checkpoint");
+                }
+            }
+
+            boolean journaled = new File(directory, GitGraphHelper.JOURNAL).exists()
+                    || new File(directory, GitGraphHelper.OLD_JOURNAL).exists();
+            if (changes.isEmpty() && !journaled) {
+                return;
+            }
+
+            // Files are rewritten during the save, so must be mapped again afterwards.
+            if (null != loader) {
+                loader.close();
+            }
+            if (null != outside) {
+                outside.close();
+            }
+
+            // Further mutations are written to a new journal.
+            if (null != journal) {
+                journal.close();
+                journal.reset();
+            }
+            Journal.rotate(new File(directory, GitGraphHelper.JOURNAL), new File(directory, GitGraphHelper.OLD_JOURNAL));
+
+            pending = changes.beginSave();
+            snapshot = snapshot(pending);
+            saving = true;
+        }
+
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            long bytes = helper.save(snapshot, directory, pending);
+            succeeded = true;
+            metrics.checkpointSucceeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), bytes, pending.size());
+        } finally {
+            synchronized (this) {
+                // Elements which were saved may now be loaded from the new files.
+                if (null != loader) {
+                    loader.close();
+                }
+                if (null != outside) {
+                    outside.close();
+                }
+                changes.endSave(succeeded);
+                saving = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Copies the changed elements of the base graph, together with the vertices of changed edges, into a new graph.
+     */
+    private Graph snapshot(final ChangeSet pending) {
+        TinkerGraph copy = new TinkerGraph();
+        copy.dropIndex(Index.VERTICES);
+        copy.dropIndex(Index.EDGES);
+
+        for (String path : pending.getPaths()) {
+            for (String name : pending.getVertexNames(path)) {
+                Vertex v = base.getVertex(path + name);
+                if (null != v) {
+                    copyProperties(v, copyVertex(copy, v.getId()));
+                }
+            }
+        }
+
+        for (String path : pending.getPaths()) {
+            for (String name : pending.getEdgeNames(path)) {
+                Edge e = base.getEdge(path + name);
+                if (null != e) {
+                    Edge c = copy.addEdge(e.getId(),
+                            copyVertex(copy, e.getOutVertex().getId()),
+                            copyVertex(copy, e.getInVertex().getId()),
+                            e.getLabel());
+                    copyProperties(e, c);
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    private Vertex copyVertex(final Graph copy,
+                              final Object id) {
+        Vertex v = copy.getVertex(id);
+        return null == v ? copy.addVertex(id) : v;
+    }
+
+    private void copyProperties(final Element from,
+                                final Element to) {
+        for (String key : from.getPropertyKeys()) {
+            to.setProperty(key, from.getProperty(key));
+        }
+    }
+
+    synchronized void vertexChanged(final Object id) {
+        validateElementId(id);
+        if (stubs.contains(id)) {
+            throw new UnsupportedOperationException("vertex '" + id + "' is a stub outside of the loaded partitions");
+        }
+        changes.vertexChanged((String) id);
+    }
+
+    synchronized void edgeChanged(final Object id) {
+        validateElementId(id);
+        changes.edgeChanged((String) id);
+    }
+
+    /**
+     * Sets a property of an element, marking the element as changed and recording the change in the journal.
+     */
+    synchronized void setProperty(final GitElement element,
+                                  final String key,
+                                  final Object value) {
+        element.resolve();
+        element.touch();
+
+        // Find the codec of the value first, so that an unsupported value is rejected before the element is modified.
+        ValueCodec<?> codec = null == journal || replaying ? null : helper.getCodec(value);
+        Element e = element.getBase();
+        e.setProperty(key, value);
+        if (null != codec) {
+            journal(e instanceof Vertex ? Journal.SET_VERTEX_PROPERTY : Journal.SET_EDGE_PROPERTY,
+                    (String) e.getId(), key, codec.getTag(), GitGraphHelper.encode(codec, value));
+        }
+    }
+
+    /**
+     * Removes a property of an element, marking the element as changed and recording the change in the journal.
+     */
+    synchronized Object removeProperty(final GitElement element,
+                                       final String key) {
+        element.resolve();
+        element.touch();
+
+        Element e = element.getBase();
+        Object value = e.removeProperty(key);
+        journal(e instanceof Vertex ? Journal.REMOVE_VERTEX_PROPERTY : Journal.REMOVE_EDGE_PROPERTY,
+                (String) e.getId(), key);
+        return value;
+    }
+
+    /**
+     * Appends a record to the journal, if journaling is enabled, and saves the graph if enough records have
+     * accumulated.
+     */
+    private void journal(final String... fields) {
+        if (null == journal || replaying) {
+            return;
+        }
+
+        try {
+            journal.append(fields);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to write to journal", e);
+        }
+
+        if (checkpointInterval > 0 && journal.getRecordCount() >= checkpointInterval) {
+            if (null != checkpointer) {
+                // Every mutation past the interval would otherwise queue another checkpoint.
+                if (checkpointQueued.compareAndSet(false, true)) {
+                    checkpointer.execute(backgroundCheckpoint);
+                }
+            } else {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    throw new RuntimeException("failed to save graph", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a vertex together with all vertices which can be reached from it by following at most a given number of
+     * out-edges, and all edges along the way.
+     * This allows a small neighborhood of a large, lazily loaded graph to be explored without loading the rest of the
+     * graph.  Unless the graph is lazy, the entire graph is already loaded, and this is equivalent to getVertex.
+     *
+     * @param vertexId the id of the vertex at the center of the neighborhood
+     * @param depth    the maximum number of out-edges to follow from the vertex
+     * @return the vertex, or null if there is no such vertex
+     * @throws IOException if the neighborhood cannot be loaded
+     */
+    public synchronized Vertex loadNeighborhood(final String vertexId,
+                                                final int depth) throws IOException {
+        return null == loader
+                ? getVertex(vertexId)
+                : wrap(loader.loadNeighborhood(vertexId, depth));
+    }
+
+    /**
+     * Loads the properties of a stub vertex, if the dangling edge policy allows it.
+     */
+    synchronized void resolveStub(final Vertex v) {
+        if (DanglingEdgePolicy.LAZY == danglingEdgePolicy && stubs.contains(v.getId())) {
+            try {
+                outside.loadProperties(v);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to load properties of vertex " + v.getId(), e);
+            }
+            stubs.remove(v.getId());
+        }
+    }
+
+    /**
+     * Ensures that all out-edges of a vertex of the base graph have been loaded.
+     */
+    synchronized void loadOutEdges(final Vertex v) {
+        if (null != loader) {
+            try {
+                loader.loadOutEdges(v);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to load edges of vertex " + v.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Ensures that all edges incident on a vertex of the base graph have been loaded.
+     */
+    synchronized void loadIncidentEdges(final Vertex v) {
+        if (null != loader) {
+            try {
+                loader.loadIncidentEdges(v);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to load edges of vertex " + v.getId(), e);
+            }
+        }
+    }
+
+    private Vertex loadVertex(final Object id) {
+        if (null == loader) {
+            return base.getVertex(id);
+        }
+
+        try {
+            return loader.getVertex(id);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to load vertex " + id, e);
+        }
+    }
+
+    private Edge loadEdge(final Object id) {
+        if (null == loader) {
+            return base.getEdge(id);
+        }
+
+        try {
+            return loader.getEdge(id);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to load edge " + id, e);
+        }
+    }
+
+    private void loadAll() {
+        if (null != loader) {
+            try {
+                loader.loadAll();
+            } catch (IOException e) {
+                throw new RuntimeException("failed to load graph", e);
+            }
+        }
+    }
+
+    Element wrap(final Element e) {
+        return e instanceof Vertex
+                ? wrap((Vertex) e)
+                : wrap((Edge) e);
+    }
+
+    Vertex wrap(final Vertex v) {
+        return null == v ? null : new GitVertex(this, v);
+    }
+
+    Edge wrap(final Edge e) {
+        return null == e ? null : new GitEdge(this, e);
+    }
+
+    <T extends Element> Index<T> wrap(final Index<T> i) {
+        return null == i
+                ? null
+                : i instanceof AutomaticIndex
+                ? new GitAutomaticIndex<T>(this, (AutomaticIndex<T>) i)
+                : new GitIndex<T>(this, i);
+    }
+
+    Element unwrap(final Element e) {
+        return e instanceof GitElement ? ((GitElement) e).getBase() : e;
+    }
+
+    Vertex unwrap(final Vertex v) {
+        return v instanceof GitVertex ? ((GitVertex) v).getBase() : v;
+    }
+
+    Edge unwrap(final Edge e) {
+        return e instanceof GitEdge ? ((GitEdge) e).getBase() : e;
+    }
+
+    /**
+     * Checks that a vertex lies within the loaded partitions, and marks any edges of the vertex which were not loaded,
+     * so that removing the vertex also removes them.
+     */
+    private void checkRemovable(final Vertex v) {
+        String id = (String) v.getId();
+        if (!helper.isLoaded(id)) {
+            throw new UnsupportedOperationException("vertex '" + id + "' is outside of the loaded partitions");
+        }
+
+        if (DanglingEdgePolicy.DROP == danglingEdgePolicy) {
+            try {
+                // Dropped edges may only be found in parent directories of the loaded partitions.
+                int i = -1;
+                do {
+                    String path = id.substring(0, i + 1);
+                    if (helper.isAncestor(path)) {
+                        for (String edgeId : outside.getEdgeIds(path, id)) {
+                            edgeChanged(edgeId);
+                        }
+                    }
+                    i = id.indexOf('/', i + 1);
+                } while (i >= 0);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to find edges of vertex " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Checks that a new edge would not replace an existing edge outside of the loaded partitions.
+     */
+    private void checkNotOutside(final String id) {
+        try {
+            if (outside.containsEdge(id)) {
+                throw new IllegalArgumentException("edge '" + id + "' already exists outside of the loaded partitions");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed to look up edge " + id, e);
+        }
     }
 
     private void validateElementId(final Object id) {
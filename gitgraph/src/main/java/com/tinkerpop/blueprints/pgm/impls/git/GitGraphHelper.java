@@ -5,24 +5,26 @@ import com.tinkerpop.blueprints.pgm.Element;
 import com.tinkerpop.blueprints.pgm.Graph;
 import com.tinkerpop.blueprints.pgm.Vertex;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.Serializable;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * An object to read and write <code>GitGraph</code>s from the file system.
@@ -32,23 +34,135 @@ import java.util.Map;
  * Time: 2:00 PM
  */
 class GitGraphHelper {
-    private static final String
+    static final String
             VERTICES = "vertices",
             EDGES = "edges",
             VERTEX_PROPERTIES = "vprops",
-            EDGE_PROPERTIES = "eprops";
+            EDGE_PROPERTIES = "eprops",
+            ADJACENCY = "adjacency",
+            TMP_SUFFIX = ".tmp",
+            GIT_IGNORE = ".gitignore",
+            JOURNAL = ".gitgraph-journal",
+            OLD_JOURNAL = ".gitgraph-journal.old",
+            COMMIT = ".gitgraph-commit";
+
+    // The operations of a commit file: replace a file with its staged copy, or delete it.
+    private static final String
+            REPLACE = "R",
+            DELETE = "D";
 
+    private final ValueCodecRegistry codecs;
     private final ObjectSerializer serializer;
     private final ObjectDeserializer deserializer;
 
+    private final int loaderThreads;
+    private final long sortMemory;
+    private final boolean offsetIndices;
+    private final boolean adjacencyFiles;
+    private final List<String> prefixes;
+    private final DanglingEdgePolicy danglingEdgePolicy;
+    private final boolean journal;
+
     public GitGraphHelper() throws IOException {
+        this(new GitGraphSettings());
+    }
+
+    /**
+     * @param settings settings which control how graphs are loaded and saved
+     */
+    public GitGraphHelper(final GitGraphSettings settings) throws IOException {
+        this.loaderThreads = settings.getLoaderThreads();
+        this.sortMemory = settings.getSortMemory();
+        this.offsetIndices = settings.getOffsetIndices();
+        this.adjacencyFiles = settings.getAdjacencyFiles();
+        this.prefixes = settings.getPrefixes();
+        this.danglingEdgePolicy = settings.getDanglingEdgePolicy();
+        this.journal = settings.getJournal();
+        codecs = settings.getCodecRegistry();
         serializer = new ObjectSerializer();
         deserializer = new ObjectDeserializer();
     }
 
-    public void save(final Graph graph,
-                     final File directory) throws IOException {
-        saveNonRecursive(graph, directory);
+    /**
+     * Saves those parts of a graph which have changed.
+     * Only the files of directories containing changed elements are rewritten; all other files are left untouched.
+     * <p/>
+     * Saving is atomic.  The new version of each file is first written alongside the old one, and forced to disk.
+     * Then a commit file listing all of the new files is written, and only then are the old files replaced.
+     * If saving is interrupted before the commit file is complete, the graph keeps its previous state; if it is
+     * interrupted afterwards, the replacement of files is completed when the graph is next loaded (see
+     * <code>recover</code>).  The journal records of the changes, which are moved to an old journal file when the
+     * save begins, are deleted as part of the same commit.
+     *
+     * @param graph     the graph to save, which need only contain the changed elements and their edges' vertices
+     * @param directory the root directory of the graph
+     * @param changes   the elements which have been added, removed or modified since the graph was last loaded or saved
+     * @return the number of bytes written to the graph's files, including generated files
+     * @throws IOException if saving fails
+     */
+    public long save(final Graph graph,
+                     final File directory,
+                     final ChangeSet changes) throws IOException {
+        boolean journaled = new File(directory, OLD_JOURNAL).exists();
+        if (changes.isEmpty() && !journaled) {
+            return 0;
+        }
+
+        directory.mkdirs();
+
+        long bytes = 0;
+        List<String[]> operations = new LinkedList<String[]>();
+        for (String path : changes.getPaths()) {
+            bytes += stageDirectory(graph, directory, path, changes, operations);
+        }
+        if (journaled) {
+            operations.add(new String[]{DELETE, OLD_JOURNAL});
+        }
+
+        writeCommitFile(directory, operations);
+        bytes += commit(directory, operations);
+
+        if (offsetIndices) {
+            ignore(directory, OffsetIndex.FILE_NAME);
+        }
+        if (adjacencyFiles) {
+            ignore(directory, ADJACENCY);
+        }
+        if (journal) {
+            ignore(directory, JOURNAL);
+            ignore(directory, OLD_JOURNAL);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Completes any save which was interrupted after its commit file was written, so that the graph is left in the
+     * state of that save.  This must be called before a graph is loaded.
+     *
+     * @param directory the root directory of the graph
+     * @throws IOException if the interrupted save cannot be completed
+     */
+    public void recover(final File directory) throws IOException {
+        File commitFile = new File(directory, COMMIT);
+        if (!commitFile.exists()) {
+            return;
+        }
+
+        List<String[]> operations = new LinkedList<String[]>();
+        RowReader reader = new RowReader(new FileInputStream(commitFile));
+        try {
+            while (reader.next(2)) {
+                if (reader.getFieldCount() < 2) {
+                    throw new IOException("badly-formatted commit file: " + commitFile);
+                }
+                operations.add(new String[]{reader.getField(0), reader.getField(1)});
+            }
+        } finally {
+            reader.close();
+        }
+
+        commit(directory, operations);
     }
 
     /**
@@ -56,164 +170,548 @@ class GitGraphHelper {
      *
      * @param directory
      * @param graph
+     * @return the ids of any stub vertices which were created for the outside ends of cross-partition edges
      * @throws IOException
      */
-    public void load(final File directory,
-                     final Graph graph) throws IOException {
+    public Set<String> load(final File directory,
+                            final Graph graph) throws IOException {
         graph.clear();
 
-        if (directory.exists()) {
-            loadRecursive(graph, directory, "");
+        Set<String> stubs = new HashSet<String>();
+        if (!directory.exists()) {
+            return stubs;
+        }
+
+        List<StagedDirectory> dirs = new LinkedList<StagedDirectory>();
+        listDirectories(directory, "", dirs);
+
+        if (loaderThreads <= 1) {
+            for (StagedDirectory d : dirs) {
+                d.call().addTo(graph, stubs);
+            }
+        } else {
+            loadConcurrently(dirs, graph, stubs);
         }
+
+        return stubs;
     }
 
-    private void saveNonRecursive(final Graph graph,
-                                  final File directory) throws IOException {
-        // Since this is non-recursive, we always use the local graph root.
-        String parentPath = "";
+    /**
+     * @return whether only some partitions of the graph are loaded
+     */
+    public boolean isPartial() {
+        return null != prefixes;
+    }
 
-        // Clear the directory
-        if (directory.exists()) {
-            deleteDirectory(directory);
+    /**
+     * @return whether the given element id lies within the loaded partitions
+     */
+    public boolean isLoaded(final String id) {
+        if (null == prefixes) {
+            return true;
         }
-        directory.mkdirs();
 
-        String curPath;
-        OutputStream elOut;
-        OutputStream propsOut;
-
-        // Write vertices and vertex properties.
-        List<String> allVertexIds = new LinkedList<String>();
-        for (Vertex v : graph.getVertices()) {
-            Object id = v.getId();
-            if (!(id instanceof String)) {
-                throw new IOException("vertex ID is not a string: " + id);
-            }
-            allVertexIds.add((String) id);
-        }
-        Collections.sort(allVertexIds);
-        curPath = null;
-        elOut = null;
-        propsOut = null;
-        for (String id : allVertexIds) {
-            RelativeId p = new RelativeId(id, parentPath);
-            if (null == curPath || !curPath.equals(p.getPath())) {
-                if (null != elOut) {
-                    elOut.close();
-                    propsOut.close();
+        for (String prefix : prefixes) {
+            if (id.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the given directory path is a parent of any loaded partition
+     */
+    public boolean isAncestor(final String path) {
+        if (null == prefixes) {
+            return false;
+        }
+
+        for (String prefix : prefixes) {
+            if (prefix.startsWith(path) && !prefix.equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses directories on a pool of worker threads, while adding parsed directories to the graph, in order, on the
+     * calling thread.  Only a bounded number of directories are parsed ahead of those which have been added.
+     */
+    private void loadConcurrently(final List<StagedDirectory> dirs,
+                                  final Graph graph,
+                                  final Set<String> stubs) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(loaderThreads);
+        try {
+            Iterator<StagedDirectory> toParse = dirs.iterator();
+            LinkedList<Future<StagedDirectory>> parsing = new LinkedList<Future<StagedDirectory>>();
+
+            while (toParse.hasNext() || !parsing.isEmpty()) {
+                while (toParse.hasNext() && parsing.size() < loaderThreads * 2) {
+                    parsing.add(executor.submit(toParse.next()));
                 }
 
-                File dir;
-                if (p.getPath().length() > 0) {
-                    dir = new File(directory, p.getPath());
-                    if (!dir.exists()) {
-                        dir.mkdirs();
+                StagedDirectory d;
+                try {
+                    d = parsing.removeFirst().get();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
                     }
-                } else {
-                    dir = directory;
+                    throw new IOException(e.getCause());
                 }
 
-                elOut = new FileOutputStream(new File(dir, VERTICES));
-                propsOut = new FileOutputStream(new File(dir, VERTEX_PROPERTIES));
+                d.addTo(graph, stubs);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                curPath = p.getPath();
+    /**
+     * Writes the new files of a directory alongside its old ones, adding an operation for each file to those of the
+     * commit.
+     *
+     * @return the number of bytes written
+     */
+    private long stageDirectory(final Graph graph,
+                                final File root,
+                                final String path,
+                                final ChangeSet changes,
+                                final List<String[]> operations) throws IOException {
+        File dir = path.length() > 0 ? new File(root, path) : root;
+        dir.mkdirs();
+
+        // For each file, find the changed elements which still exist, generate their rows in sorted order, and merge
+        // these into the existing file, replacing any old rows of the changed elements.
+        Set<String> vertexNames = changes.getVertexNames(path);
+        Set<String> edgeNames = changes.getEdgeNames(path);
+        long bytes = 0;
+        ExternalSorter sorter;
+
+        sorter = createSorter();
+        try {
+            for (String name : vertexNames) {
+                if (null != graph.getVertex(path + name)) {
+                    sorter.add(name);
+                }
             }
+            bytes += stage(new File(dir, VERTICES), vertexRows(sorter), vertexNames, true, path, operations);
+        } finally {
+            sorter.close();
+        }
 
-            writeVertex(p, elOut);
-            writeProperties(graph.getVertex(id), p, propsOut);
+        sorter = createSorter();
+        try {
+            for (String name : vertexNames) {
+                Vertex v = graph.getVertex(path + name);
+                if (null != v) {
+                    addPropertyRows(v, name, sorter);
+                }
+            }
+            bytes += stage(new File(dir, VERTEX_PROPERTIES), propertyRows(sorter), vertexNames, false, path, operations);
+        } finally {
+            sorter.close();
         }
-        if (null != elOut) {
-            elOut.close();
+
+        sorter = createSorter();
+        try {
+            for (String name : edgeNames) {
+                if (null != graph.getEdge(path + name)) {
+                    sorter.add(name);
+                }
+            }
+            bytes += stage(new File(dir, EDGES), edgeRows(sorter, graph, path), edgeNames, true, path, operations);
+        } finally {
+            sorter.close();
         }
-        if (null != propsOut) {
-            propsOut.close();
+
+        sorter = createSorter();
+        try {
+            for (String name : edgeNames) {
+                Edge e = graph.getEdge(path + name);
+                if (null != e) {
+                    addPropertyRows(e, name, sorter);
+                }
+            }
+            bytes += stage(new File(dir, EDGE_PROPERTIES), propertyRows(sorter), edgeNames, false, path, operations);
+        } finally {
+            sorter.close();
+        }
+
+        // The generated files of the directory are out of date, and are rebuilt once the new files are in place.
+        if (!edgeNames.isEmpty()) {
+            new File(dir, ADJACENCY).delete();
         }
+        new File(dir, OffsetIndex.FILE_NAME).delete();
+
+        return bytes;
+    }
+
+    private long stage(final File file,
+                       final RowSource newRows,
+                       final Set<String> changedNames,
+                       final boolean byName,
+                       final String path,
+                       final List<String[]> operations) throws IOException {
+        boolean replace = mergeRows(file, newRows, changedNames, byName);
+        operations.add(new String[]{replace ? REPLACE : DELETE, path + file.getName()});
+        return replace ? new File(file.getParentFile(), file.getName() + TMP_SUFFIX).length() : 0;
+    }
+
+    /**
+     * Writes and forces to disk the commit file of a save, which lists the operations needed to complete it.
+     */
+    private void writeCommitFile(final File directory,
+                                 final List<String[]> operations) throws IOException {
+        File commitFile = new File(directory, COMMIT);
+        File tmp = new File(directory, COMMIT + TMP_SUFFIX);
 
-        // Write edges and edge properties.
-        List<String> allEdgeIds = new LinkedList<String>();
-        for (Edge e : graph.getEdges()) {
-            Object id = e.getId();
-            if (!(id instanceof String)) {
-                throw new IOException("edge ID is not a string: " + id);
+        FileOutputStream out = new FileOutputStream(tmp);
+        RowWriter writer = new RowWriter(out);
+        try {
+            for (String[] op : operations) {
+                writer.writeEscaped(op[0]);
+                writer.writeTab();
+                writer.writeEscaped(op[1]);
+                writer.endRow();
             }
-            allEdgeIds.add((String) id);
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            writer.close();
         }
-        Collections.sort(allEdgeIds);
-        curPath = null;
-        elOut = null;
-        propsOut = null;
-        for (String id : allEdgeIds) {
-            //System.out.println("writing edge " + id);
-            RelativeId p = new RelativeId(id, parentPath);
-            if (null == curPath || !curPath.equals(p.getPath())) {
-                //System.out.println("\tp.getPath() = " + p.getPath());
-                if (null != elOut) {
-                    elOut.close();
-                    propsOut.close();
-                }
 
-                File dir;
-                if (p.getPath().length() > 0) {
-                    dir = new File(directory, p.getPath());
-                    if (!dir.exists()) {
-                        dir.mkdirs();
+        commitFile.delete();
+        if (!tmp.renameTo(commitFile)) {
+            throw new IOException("failed to write commit file: " + commitFile);
+        }
+    }
+
+    /**
+     * Replaces or deletes the files named in a commit, then rebuilds the generated files of the affected directories
+     * and removes the commit file.  Each operation may safely be repeated, so an interrupted commit may simply be
+     * committed again.
+     *
+     * @return the number of bytes written to generated files
+     */
+    private long commit(final File root,
+                        final List<String[]> operations) throws IOException {
+        // Directories in reverse order, so that children are visited before their parents.
+        Set<String> paths = new TreeSet<String>(Collections.reverseOrder());
+        Set<String> edgePaths = new HashSet<String>();
+
+        for (String[] op : operations) {
+            File file = new File(root, op[1]);
+            if (REPLACE.equals(op[0])) {
+                File staged = new File(file.getParentFile(), file.getName() + TMP_SUFFIX);
+                // A staged file which no longer exists has already been moved into place.
+                if (staged.exists()) {
+                    file.delete();
+                    if (!staged.renameTo(file)) {
+                        throw new IOException("failed to replace file: " + file);
                     }
-                } else {
-                    dir = directory;
                 }
+            } else if (DELETE.equals(op[0])) {
+                file.delete();
+            } else {
+                throw new IOException("unknown commit operation: " + op[0]);
+            }
 
-                // Note: these are opened in append mode, as the ordering of IDs does not guarantee that a file will not
-                //       have to be opened more than once.  E.g. for {"a", "dir/x", "z"}
-                elOut = new FileOutputStream(new File(dir, EDGES), true);
-                propsOut = new FileOutputStream(new File(dir, EDGE_PROPERTIES), true);
+            if (!op[1].equals(OLD_JOURNAL)) {
+                int i = op[1].lastIndexOf('/');
+                String path = op[1].substring(0, i + 1);
+                paths.add(path);
+                if (file.getName().equals(EDGES)) {
+                    edgePaths.add(path);
+                }
+            }
+        }
 
-                curPath = p.getPath();
+        long bytes = 0;
+        for (String path : paths) {
+            File dir = path.length() > 0 ? new File(root, path) : root;
+            if (dir.exists()) {
+                bytes += finishDirectory(root, dir, edgePaths.contains(path));
             }
+        }
+
+        new File(root, COMMIT).delete();
+        return bytes;
+    }
 
-            Edge e = graph.getEdge(id);
-            writeEdge(e, p, elOut);
-            writeProperties(e, p, propsOut);
+    /**
+     * Rebuilds the generated files of a directory whose files have been replaced, and removes it if it is empty.
+     *
+     * @return the number of bytes written
+     */
+    private long finishDirectory(final File root,
+                                 final File directory,
+                                 final boolean edgesChanged) throws IOException {
+        File dir = directory;
+        long bytes = 0;
+
+        // The adjacency file of the directory is regenerated whenever its edges change.
+        if (edgesChanged) {
+            if (adjacencyFiles) {
+                writeAdjacency(dir);
+                bytes += new File(dir, ADJACENCY).length();
+            } else {
+                new File(dir, ADJACENCY).delete();
+            }
         }
-        if (null != elOut) {
-            elOut.close();
+
+        // The offset index of the directory is rebuilt whenever its files change.
+        new File(dir, OffsetIndex.FILE_NAME).delete();
+        if (offsetIndices && containsGraphFiles(dir)) {
+            OffsetIndex.write(dir);
+            bytes += new File(dir, OffsetIndex.FILE_NAME).length();
         }
-        if (null != propsOut) {
-            propsOut.close();
+
+        // Remove any directories which are left empty.
+        while (!dir.equals(root) && 0 == dir.list().length) {
+            dir.delete();
+            dir = dir.getParentFile();
         }
 
-        // TODO: this is a hack
-        sortProperties(directory);
+        return bytes;
     }
 
-    private void sortProperties(final File directory) throws IOException {
-        for (File f : directory.listFiles()) {
-            if (f.isDirectory()) {
-                sortProperties(f);
-            } else if (f.getName().equals(VERTEX_PROPERTIES)
-                    || f.getName().equals(EDGE_PROPERTIES)) {
-                List<String> rows = new LinkedList<String>();
-                BufferedReader reader = new BufferedReader(new FileReader(f));
-                try {
-                    String s;
-                    while ((s = reader.readLine()) != null) {
-                        rows.add(s);
+    private boolean containsGraphFiles(final File dir) {
+        for (String name : new String[]{VERTICES, EDGES, VERTEX_PROPERTIES, EDGE_PROPERTIES}) {
+            if (new File(dir, name).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the adjacency file of a directory from its edges file.
+     * The adjacency file has a row for each edge, giving its out vertex, label, name and in vertex, and is sorted by
+     * out vertex and then by label, so that the out-edges of a vertex can be found without reading every edge.
+     */
+    private void writeAdjacency(final File dir) throws IOException {
+        File edges = new File(dir, EDGES);
+        File adjacency = new File(dir, ADJACENCY);
+        if (!edges.exists()) {
+            adjacency.delete();
+            return;
+        }
+
+        ExternalSorter sorter = createSorter();
+        try {
+            RowReader reader = new RowReader(new FileInputStream(edges));
+            try {
+                while (reader.next(4)) {
+                    if (reader.getFieldCount() < 4) {
+                        throw new IOException("badly-formatted '" + EDGES + "' file: " + edges);
+                    }
+
+                    sorter.add(escape(reader.getField(1))
+                            + "\t" + escape(reader.getField(3))
+                            + "\t" + escape(reader.getField(0))
+                            + "\t" + escape(reader.getField(2)));
+                }
+            } finally {
+                reader.close();
+            }
+
+            File tmp = new File(dir, ADJACENCY + TMP_SUFFIX);
+            RowWriter writer = new RowWriter(new FileOutputStream(tmp));
+            try {
+                String row;
+                while (null != (row = sorter.next())) {
+                    writer.write(row);
+                    writer.endRow();
+                }
+            } finally {
+                writer.close();
+            }
+
+            adjacency.delete();
+            if (!tmp.renameTo(adjacency)) {
+                throw new IOException("failed to replace file: " + adjacency);
+            }
+        } finally {
+            sorter.close();
+        }
+    }
+
+    /**
+     * Ensures that files which are generated for a working copy, such as offset indices, are not checked in.
+     */
+    private void ignore(final File directory,
+                        final String fileName) throws IOException {
+        File gitIgnore = new File(directory, GIT_IGNORE);
+        if (gitIgnore.exists()) {
+            RowReader reader = new RowReader(new FileInputStream(gitIgnore));
+            try {
+                while (reader.next(1)) {
+                    if (reader.fieldEquals(0, fileName)) {
+                        return;
                     }
-                } finally {
-                    reader.close();
                 }
+            } finally {
+                reader.close();
+            }
+        }
 
-                Collections.sort(rows);
+        boolean newline = gitIgnore.length() > 0 && !endsWithNewline(gitIgnore);
+        RowWriter writer = new RowWriter(new FileOutputStream(gitIgnore, true));
+        try {
+            if (newline) {
+                writer.endRow();
+            }
+            writer.write(fileName);
+            writer.endRow();
+        } finally {
+            writer.close();
+        }
+    }
 
-                FileWriter writer = new FileWriter(f);
+    private boolean endsWithNewline(final File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(raf.length() - 1);
+            return '\n' == raf.read();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the new version of a vertices, edges or properties file alongside the old one, dropping the rows of all
+     * changed elements and merging in their new rows.  Both the existing rows and the new rows are expected to be in
+     * sorted order.  The new file is forced to disk before this method returns.
+     *
+     * @param file         the file to rewrite
+     * @param newRows      the sorted rows of those changed elements which still exist
+     * @param changedNames the local names of all changed elements
+     * @param byName       whether rows are ordered by element name (vertices and edges) rather than by the full row
+     *                     (properties)
+     * @return whether any rows remain, in which case the new file has been staged.
+     *         Otherwise, the file is to be deleted.
+     */
+    private boolean mergeRows(final File file,
+                           final RowSource newRows,
+                           final Set<String> changedNames,
+                           final boolean byName) throws IOException {
+        String newRow = newRows.next();
+        File tmp = new File(file.getParentFile(), file.getName() + TMP_SUFFIX);
+        if (!file.exists() && null == newRow) {
+            tmp.delete();
+            return false;
+        }
+
+        int count = 0;
+        FileOutputStream out = new FileOutputStream(tmp);
+        RowWriter writer = new RowWriter(out);
+        try {
+            if (file.exists()) {
+                RowReader reader = new RowReader(new FileInputStream(file));
                 try {
-                    for (String cur : rows) {
-                        writer.write(cur + "\n");
+                    while (reader.next(2)) {
+                        String name = reader.getField(0);
+                        if (changedNames.contains(name)) {
+                            continue;
+                        }
+
+                        while (null != newRow && precedes(newRow, reader, name, byName)) {
+                            writer.write(newRow);
+                            writer.endRow();
+                            count++;
+                            newRow = newRows.next();
+                        }
+
+                        reader.copyTo(writer);
+                        count++;
                     }
                 } finally {
-                    writer.close();
+                    reader.close();
                 }
             }
+
+            while (null != newRow) {
+                writer.write(newRow);
+                writer.endRow();
+                count++;
+                newRow = newRows.next();
+            }
+
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            writer.close();
+        }
+
+        if (0 == count) {
+            tmp.delete();
+            return false;
         }
+        return true;
+    }
+
+    private boolean precedes(final String newRow,
+                             final RowReader oldRow,
+                             final String oldName,
+                             final boolean byName) {
+        return byName
+                ? rowName(newRow).compareTo(oldName) < 0
+                : oldRow.compareTo(newRow) > 0;
+    }
+
+    /**
+     * @return the unescaped local name of the element described by a row of any of the four files
+     */
+    private String rowName(final String row) {
+        int i = row.indexOf('\t');
+        return RowReader.unescape(i < 0 ? row : row.substring(0, i));
+    }
+
+    private ExternalSorter createSorter() {
+        return new ExternalSorter(sortMemory, null);
+    }
+
+    /**
+     * A sequence of rows, in sorted order.
+     */
+    private interface RowSource {
+        /**
+         * @return the next row, or null if there are no more rows
+         */
+        String next() throws IOException;
+    }
+
+    private RowSource vertexRows(final ExternalSorter sortedNames) {
+        return new RowSource() {
+            public String next() throws IOException {
+                String name = sortedNames.next();
+                return null == name ? null : escape(name);
+            }
+        };
+    }
+
+    private RowSource edgeRows(final ExternalSorter sortedNames,
+                               final Graph graph,
+                               final String path) {
+        return new RowSource() {
+            public String next() throws IOException {
+                String name = sortedNames.next();
+                return null == name ? null : edgeRow(graph.getEdge(path + name), name, path);
+            }
+        };
+    }
+
+    private RowSource propertyRows(final ExternalSorter sortedRows) {
+        return new RowSource() {
+            public String next() throws IOException {
+                return sortedRows.next();
+            }
+        };
     }
 
     public static boolean deleteDirectory(final File dir) {
@@ -230,21 +728,10 @@ class GitGraphHelper {
         return dir.delete();
     }
 
-    private void writeVertex(final RelativeId r,
-                             final OutputStream out) throws IOException {
-        out.write(escape(r.getName()).getBytes());
-        out.write('\n');
-    }
-
-    private void writeEdge(final Edge e,
-                           final RelativeId r,
-                           final OutputStream out) throws IOException {
-        //System.out.println("writing edge " + r.getPath() + ":" + r.getName());
-        // ID first...
-        out.write(escape(r.getName()).getBytes());
-        out.write('\t');
-
-        // ...then tail vertex, then head vertex...
+    private String edgeRow(final Edge e,
+                           final String name,
+                           final String path) throws IOException {
+        // ID first, then tail vertex, then head vertex, finally label.
         Object outId = e.getOutVertex().getId();
         Object inId = e.getInVertex().getId();
         if (!(outId instanceof String)) {
@@ -253,40 +740,29 @@ class GitGraphHelper {
         if (!(inId instanceof String)) {
             throw new IOException("vertex ID is not a string: " + inId);
         }
-        RelativeId outR = new RelativeId((String) outId, r.getPath());
-        RelativeId inR = new RelativeId((String) inId, r.getPath());
-        //System.out.println("\t" + outR.getPath() + ":" + outR.getName() + ", " + inR.getPath() + ":" + inR.getName());
-        out.write(escape(outR.getPath() + outR.getName()).getBytes());
-        out.write('\t');
-        out.write(escape(inR.getPath() + inR.getName()).getBytes());
-        out.write('\t');
+        RelativeId outR = new RelativeId((String) outId, path);
+        RelativeId inR = new RelativeId((String) inId, path);
 
-        // ...finally, label
-        out.write(escape(e.getLabel()).getBytes());
-        out.write('\n');
+        return escape(name)
+                + "\t" + escape(outR.getPath() + outR.getName())
+                + "\t" + escape(inR.getPath() + inR.getName())
+                + "\t" + escape(e.getLabel());
     }
 
-    private void writeProperties(final Element e,
-                                 final RelativeId r,
-                                 final OutputStream out) throws IOException {
+    private void addPropertyRows(final Element e,
+                                 final String name,
+                                 final ExternalSorter rows) throws IOException {
         for (String key : e.getPropertyKeys()) {
-            Object value = e.getProperty(key);
-            if (!(value instanceof Serializable)) {
-                throw new IOException("value for property '" + key + "' is not serializable");
-            }
-
-            out.write(escape(r.getName()).getBytes());
-            out.write('\t');
-            out.write(escape(key).getBytes());
-            out.write('\t');
-            out.write(serializer.serialize((Serializable) value));
-            out.write('\n');
+            rows.add(escape(name) + "\t" + escape(key) + "\t" + serializer.serialize(e.getProperty(key)));
         }
     }
 
-    private void loadRecursive(final Graph graph,
-                               final File directory,
-                               final String parentPath) throws IOException {
+    /**
+     * Finds the directories of a graph and all of its child graphs, children before parents.
+     */
+    private void listDirectories(final File directory,
+                                 final String parentPath,
+                                 final List<StagedDirectory> results) throws IOException {
         //System.out.println("loading from: " + directory + " using parentPath " + parentPath);
         if (!directory.isDirectory()) {
             throw new IOException("file is not a directory: " + directory);
@@ -299,174 +775,251 @@ class GitGraphHelper {
             files.put(child.getName(), child);
         }
 
-        File vertices = files.get(VERTICES);
-        //if (null == vertices) {
-        //    throw new IOException("missing '" + VERTICES + "' file in " + directory);
-        //}
-        files.remove(VERTICES);
+        File vertices = files.remove(VERTICES);
+        File edges = files.remove(EDGES);
+        File vprops = files.remove(VERTEX_PROPERTIES);
+        File eprops = files.remove(EDGE_PROPERTIES);
 
-        File edges = files.get(EDGES);
-        //if (null == edges) {
-        //    throw new IOException("missing '" + EDGES + "' file in " + directory);
-        //}
-        files.remove(EDGES);
+        // Skip any directory which is neither within nor a parent of the loaded partitions.
+        boolean loaded = isLoaded(parentPath);
+        if (!loaded && !isAncestor(parentPath)) {
+            return;
+        }
 
-        File vprops = files.get(VERTEX_PROPERTIES);
-        //if (null == vprops) {
-        //    throw new IOException("missing '" + VERTEX_PROPERTIES + "' file in " + directory);
-        //}
-        files.remove(VERTEX_PROPERTIES);
+        StagedDirectory staged;
+        if (loaded) {
+            staged = new StagedDirectory(parentPath, vertices, edges, vprops, eprops, false);
+        } else {
+            // Only the cross-partition edges of a parent directory are loaded, and only if they are not to be dropped.
+            boolean drop = DanglingEdgePolicy.DROP == danglingEdgePolicy;
+            staged = new StagedDirectory(parentPath, null, drop ? null : edges, null, drop ? null : eprops, true);
+        }
 
-        File eprops = files.get(EDGE_PROPERTIES);
-        //if (null == eprops) {
-        //    throw new IOException("missing '" + EDGE_PROPERTIES + "' file in " + directory);
-        //}
-        files.remove(EDGE_PROPERTIES);
+        // Neither the generated files of a directory, nor a .gitignore file, nor the journal of the graph are part
+        // of the graph.  Staged files are left behind by a save which was interrupted before it could be committed.
+        files.remove(ADJACENCY);
+        files.remove(OffsetIndex.FILE_NAME);
+        files.remove(GIT_IGNORE);
+        files.remove(JOURNAL);
+        files.remove(OLD_JOURNAL);
+        for (Iterator<String> names = files.keySet().iterator(); names.hasNext(); ) {
+            if (names.next().endsWith(TMP_SUFFIX)) {
+                names.remove();
+            }
+        }
 
-        // Load children first, so that all vertices are defined prior to edges being read.
+        // List children first, so that all vertices are defined prior to edges being read.
         for (File child : files.values()) {
             if (child.getName().contains("/")) {
                 throw new IOException("file name contains the reserved '/' character");
             }
 
-            loadRecursive(graph, child, parentPath + child.getName() + "/");
+            listDirectories(child, parentPath + child.getName() + "/", results);
         }
 
-        if (null != vertices) {
-            readVertices(vertices, graph, parentPath);
+        results.add(staged);
+    }
+
+    /**
+     * The parsed contents of a single graph directory, which are held until they can be added to the graph.
+     * Parsing is independent of the graph and of other directories, so directories may be parsed concurrently.
+     */
+    private class StagedDirectory implements Callable<StagedDirectory> {
+        private final String parentPath;
+        private final File vertices, edges, vprops, eprops;
+        // Whether this is a parent of the loaded partitions, of which only cross-partition edges are loaded.
+        private final boolean crossPartition;
+
+        private final List<String> vertexIds = new ArrayList<String>();
+        // id, out vertex id, in vertex id, label
+        private final List<String[]> edgeRows = new ArrayList<String[]>();
+        private final List<PropertyRow> vertexPropertyRows = new ArrayList<PropertyRow>();
+        private final List<PropertyRow> edgePropertyRows = new ArrayList<PropertyRow>();
+
+        public StagedDirectory(final String parentPath,
+                               final File vertices,
+                               final File edges,
+                               final File vprops,
+                               final File eprops,
+                               final boolean crossPartition) {
+            this.parentPath = parentPath;
+            this.crossPartition = crossPartition;
+            this.vertices = vertices;
+            this.edges = edges;
+            this.vprops = vprops;
+            this.eprops = eprops;
         }
 
-        if (null != edges) {
-            readEdges(edges, graph, parentPath);
+        public StagedDirectory call() throws IOException {
+            if (null != vertices) {
+                readVertices(vertices, parentPath, vertexIds);
+            }
+
+            if (null != edges) {
+                readEdges(edges, parentPath, edgeRows);
+            }
+
+            if (null != vprops) {
+                readProperties(vprops, parentPath, false, vertexPropertyRows);
+            }
+
+            if (null != eprops) {
+                readProperties(eprops, parentPath, true, edgePropertyRows);
+            }
+
+            return this;
+        }
+
+        public void addTo(final Graph graph,
+                          final Set<String> stubs) throws IOException {
+            for (String id : vertexIds) {
+                graph.addVertex(id);
+            }
+
+            for (String[] row : edgeRows) {
+                if (crossPartition && !isLoaded(row[1]) && !isLoaded(row[2])) {
+                    continue;
+                }
+
+                Vertex outV = getEdgeVertex(graph, row[1], stubs);
+                Vertex inV = getEdgeVertex(graph, row[2], stubs);
+
+                graph.addEdge(row[0], outV, inV, row[3]);
+            }
+
+            for (PropertyRow row : vertexPropertyRows) {
+                graph.getVertex(row.id).setProperty(row.key, row.value);
+            }
+
+            for (PropertyRow row : edgePropertyRows) {
+                Edge e = graph.getEdge(row.id);
+                // Edges which connect two vertices outside of the loaded partitions are skipped.
+                if (null != e) {
+                    e.setProperty(row.key, row.value);
+                } else if (!crossPartition) {
+                    throw new IOException("property of missing edge " + row.id);
+                }
+            }
         }
 
-        if (null != vprops) {
-            readProperties(vprops, graph, parentPath, false);
+        private Vertex getEdgeVertex(final Graph graph,
+                                     final String id,
+                                     final Set<String> stubs) throws IOException {
+            Vertex v = graph.getVertex(id);
+            if (null == v) {
+                if (isLoaded(id)) {
+                    throw new IOException("vertex not found: " + id);
+                }
+
+                // The outside end of a cross-partition edge.
+                v = graph.addVertex(id);
+                stubs.add(id);
+            }
+            return v;
         }
+    }
 
-        if (null != eprops) {
-            readProperties(eprops, graph, parentPath, true);
+    private static class PropertyRow {
+        public final String id;
+        public final String key;
+        public final Object value;
+
+        public PropertyRow(final String id,
+                           final String key,
+                           final Object value) {
+            this.id = id;
+            this.key = key;
+            this.value = value;
         }
     }
 
     private void readVertices(final File file,
-                              final Graph graph,
-                              final String parentPath) throws IOException {
-        InputStream is = new FileInputStream(file);
+                              final String parentPath,
+                              final List<String> results) throws IOException {
+        RowReader reader = new RowReader(new FileInputStream(file));
         try {
-            InputStreamReader r = new InputStreamReader(is, "UTF-8");
-            BufferedReader br = new BufferedReader(r);
-            String l;
-            while ((l = br.readLine()) != null) {
-                graph.addVertex(parentPath + unescape(l));
+            while (reader.next(1)) {
+                results.add(parentPath + reader.getField(0));
             }
         } finally {
-            is.close();
+            reader.close();
         }
     }
 
     private void readEdges(final File file,
-                           final Graph graph,
-                           final String parentPath) throws IOException {
+                           final String parentPath,
+                           final List<String[]> results) throws IOException {
         //System.out.println("parent path: " + parentPath);
-        InputStream is = new FileInputStream(file);
+        RowReader reader = new RowReader(new FileInputStream(file));
         try {
-            InputStreamReader r = new InputStreamReader(is, "UTF-8");
-            BufferedReader br = new BufferedReader(r);
-            String l;
-            while ((l = br.readLine()) != null) {
-                int t1 = l.indexOf('\t');
-                int t2 = l.indexOf('\t', t1 + 1);
-                int t3 = l.indexOf('\t', t2 + 1);
-                if (t1 < 1 || t2 < 3 || t3 < 5) {
+            while (reader.next(4)) {
+                if (reader.getFieldCount() < 4 || reader.isEmpty(0) || reader.isEmpty(1) || reader.isEmpty(2)) {
                     throw new IOException("badly-formatted '" + EDGES + "' file: " + file);
                 }
 
-                String idStr = l.substring(0, t1);
-                String outStr = l.substring(t1 + 1, t2);
-                String inStr = l.substring(t2 + 1, t3);
-                String labelStr = l.substring(t3 + 1);
-
-                //System.out.println("looking for vertex: " + parentPath + ":" + outStr);
-                Vertex outV = graph.getVertex(parentPath + unescape(outStr));
-                if (null == outV) {
-                    throw new IOException("vertex not found: " + parentPath + unescape(outStr));
-                }
-                Vertex inV = graph.getVertex(parentPath + unescape(inStr));
-                if (null == inV) {
-                    throw new IOException("vertex not found: " + parentPath + unescape(inStr));
-                }
-
-                String label = unescape(labelStr);
-                graph.addEdge(parentPath + unescape(idStr), outV, inV, label);
+                results.add(new String[]{
+                        parentPath + reader.getField(0),
+                        parentPath + reader.getField(1),
+                        parentPath + reader.getField(2),
+                        reader.getField(3)});
             }
         } finally {
-            is.close();
+            reader.close();
         }
     }
 
     private void readProperties(final File file,
-                                final Graph graph,
                                 final String parentPath,
-                                final boolean edgesVsVertices) throws IOException {
-        InputStream is = new FileInputStream(file);
+                                final boolean edgesVsVertices,
+                                final List<PropertyRow> results) throws IOException {
+        RowReader reader = new RowReader(new FileInputStream(file));
         try {
-            InputStreamReader r = new InputStreamReader(is, "UTF-8");
-            BufferedReader br = new BufferedReader(r);
-            String l;
-            while ((l = br.readLine()) != null) {
-                //System.out.println("l = " + l);
-                int t1 = l.indexOf('\t');
-                int t2 = l.indexOf('\t', t1 + 1);
-                if (t1 < 1 || t2 < 3) {
+            while (reader.next(4)) {
+                if (reader.getFieldCount() < 4 || reader.isEmpty(0) || reader.isEmpty(1) || reader.isEmpty(2)) {
                     throw new IOException("badly-formatted '" + (edgesVsVertices ? EDGE_PROPERTIES : VERTEX_PROPERTIES) + "' file");
                 }
 
-                String idStr = l.substring(0, t1);
-                String keyStr = l.substring(t1 + 1, t2);
-                String valStr = l.substring(t2 + 1);
-
-                String id = parentPath + unescape(idStr);
-                Element e = edgesVsVertices
-                        ? graph.getEdge(id)
-                        : graph.getVertex(id);
-
-                String key = unescape(keyStr);
-
-                Object val = deserializer.deserialize(valStr);
-
-                e.setProperty(key, val);
+                results.add(new PropertyRow(parentPath + reader.getField(0), reader.getField(1), deserializer.deserialize(reader, 2, 3)));
             }
-        } catch (ClassNotFoundException e) {
-            throw new IOException(e);
         } finally {
-            is.close();
+            reader.close();
         }
     }
 
-    private static String escape(final String s) {
-        return s.replaceAll("\\\\", "\\\\")
-                .replaceAll("\\n", "\\\\n")   // Line breaks need to be escaped
-                .replaceAll("\\t", "\\\\t");  // So do tabs, which delimit fields in the files.
+    /**
+     * @return the codec with which a property value is stored
+     * @throws IllegalArgumentException if no codec supports the class of the value
+     */
+    ValueCodec<?> getCodec(final Object value) {
+        ValueCodec<?> codec = codecs.getCodec(value.getClass());
+        if (null == codec) {
+            throw new IllegalArgumentException("property value is of an unsupported class (" + value.getClass() + "): " + value);
+        }
+        return codec;
     }
 
-    private static String unescape(final String s) {
-        return s.replaceAll("\\\\t", "\t")
-                .replaceAll("\\\\n", "\n")
-                .replaceAll("\\\\", "\\");
+    /**
+     * Encodes a value with a codec for its class, or for a superclass or interface of it.
+     */
+    static <T> String encode(final ValueCodec<T> codec,
+                             final Object value) {
+        return codec.encode(codec.getValueClass().cast(value));
     }
 
-    /*
-    public static void main(final String[] args) throws Exception {
-        show("weird\tlabel");
+    /**
+     * Parses a property value from the type and value fields of the current row.
+     */
+    Object readValue(final RowReader reader,
+                     final int typeField,
+                     final int valueField) throws IOException {
+        return deserializer.deserialize(reader, typeField, valueField);
     }
 
-    private static void show(String s) {
-        System.out.println(s + " -- " + escape(s) + " -- " + unescape(escape(s)));
+    static String escape(final String s) {
+        return RowWriter.escape(s);
     }
-    */
 
-    private class RelativeId {
+    static class RelativeId {
         private final String path;
         private final String name;
 
@@ -541,63 +1094,42 @@ class GitGraphHelper {
     } */
 
     private class ObjectSerializer {
-        public byte[] serialize(final Serializable obj) throws IOException {
-            Type t = findType(obj);
-            if (null == t) {
+        public String serialize(final Object obj) throws IOException {
+            ValueCodec<?> codec = codecs.getCodec(obj.getClass());
+            if (null == codec) {
                 throw new IOException("property value is of an unsupported class (" + obj.getClass() + "): " + obj);
             }
 
-            return ("" + t + "\t" + escape("" + obj)).getBytes();
+            return codec.getTag() + "\t" + escape(encode(codec, obj));
         }
     }
 
     private class ObjectDeserializer {
-        public Object deserialize(final String data) throws IOException, ClassNotFoundException {
-            int i = data.indexOf("\t");
-            if (i < 1) {
-                throw new IOException("badly-formatted properties file");
-            }
-
-            Type t = Type.valueOf(data.substring(0, i));
-            String val = unescape(data.substring(i + 1));
-
-            switch (t) {
-                case String:
-                    return val;
-                case Integer:
-                    return Integer.valueOf(val);
-                case Long:
-                    return Long.valueOf(val);
-                case Boolean:
-                    return Boolean.valueOf(val);
-                case Double:
-                    return Double.valueOf(val);
-                case Float:
-                    return Float.valueOf(val);
-                default:
-                    throw new IllegalStateException("unexpected type " + t);
-            }
-        }
-    }
-
-    private Type findType(final Object obj) {
-        return obj instanceof String
-                ? Type.String
-                : obj instanceof Integer
-                ? Type.Integer
-                : obj instanceof Long
-                ? Type.Long
-                : obj instanceof Boolean
-                ? Type.Boolean
-                : obj instanceof Float
-                ? Type.Float
-                : obj instanceof Double
-                ? Type.Double
-                : null;
-
-    }
-
-    private enum Type {
-        String, Integer, Long, Boolean, Double, Float
+        private final ValueCodec<?>[] all = codecs.getCodecs().toArray(new ValueCodec<?>[0]);
+
+        /**
+         * Parses a value from the type and value fields of the current row, without copying the value field unless
+         * it contains escape sequences.
+         */
+        public Object deserialize(final RowReader reader,
+                                  final int typeField,
+                                  final int valueField) throws IOException {
+            ValueCodec<?> codec = null;
+            for (ValueCodec<?> c : all) {
+                if (reader.fieldEquals(typeField, c.getTag())) {
+                    codec = c;
+                    break;
+                }
+            }
+            if (null == codec) {
+                throw new IOException("unknown property type: " + reader.getField(typeField));
+            }
+
+            try {
+                return codec.decode(reader.getFieldChars(valueField));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("invalid " + codec.getTag() + " value: " + reader.getField(valueField), e);
+            }
+        }
     }
 }
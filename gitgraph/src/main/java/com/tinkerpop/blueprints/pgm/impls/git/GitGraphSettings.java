@@ -0,0 +1,276 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Optional settings which control how a <code>GitGraph</code> is loaded and saved.
+ * The default settings reproduce the behavior of a <code>GitGraph</code> created without settings.
+ */
+public class GitGraphSettings {
+    /**
+     * The default memory budget for sorting while saving: 64MB
+     */
+    public static final long DEFAULT_SORT_MEMORY = 64L * 1024 * 1024;
+
+    private int loaderThreads = 1;
+    private long sortMemory = DEFAULT_SORT_MEMORY;
+    private boolean lazy = false;
+    private boolean offsetIndices = false;
+    private boolean adjacencyFiles = false;
+    private List<String> prefixes = null;
+    private DanglingEdgePolicy danglingEdgePolicy = DanglingEdgePolicy.DROP;
+    private ValueCodecRegistry codecRegistry = new ValueCodecRegistry();
+    private boolean journal = false;
+    private boolean journalSync = false;
+    private int checkpointInterval = 0;
+    private long checkpointPeriod = 0;
+
+    /**
+     * @return the number of threads with which graph directories are parsed while loading
+     */
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    /**
+     * @param loaderThreads the number of threads with which graph directories are parsed while loading.
+     *                      If greater than one, child directories are parsed concurrently, and the parsed data is then
+     *                      added to the graph in the same order (children before parents) as in serial loading.
+     */
+    public void setLoaderThreads(final int loaderThreads) {
+        if (loaderThreads < 1) {
+            throw new IllegalArgumentException("loader thread count must be positive: " + loaderThreads);
+        }
+
+        this.loaderThreads = loaderThreads;
+    }
+
+    /**
+     * @return the approximate number of bytes used to sort the rows of each file while saving
+     */
+    public long getSortMemory() {
+        return sortMemory;
+    }
+
+    /**
+     * @param sortMemory the approximate number of bytes used to sort the rows of each file while saving.
+     *                   Rows beyond this budget are spilled to temporary files as sorted runs and then merged,
+     *                   so that graphs larger than the heap can be saved.
+     */
+    public void setSortMemory(final long sortMemory) {
+        if (sortMemory < 1) {
+            throw new IllegalArgumentException("sort memory must be positive: " + sortMemory);
+        }
+
+        this.sortMemory = sortMemory;
+    }
+
+    /**
+     * @return whether elements are loaded on demand, rather than all at once when the graph is opened
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @param lazy whether to load elements on demand, rather than all at once when the graph is opened.
+     *             In lazy mode, the files of the graph are memory-mapped, and vertices and edges are found by binary
+     *             search and loaded only when they are first requested.
+     *             This allows a large graph to be opened immediately, and used with a small heap, provided that only
+     *             a small part of it is accessed.
+     */
+    public void setLazy(final boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * @return whether a binary offset index is kept in each graph directory
+     */
+    public boolean getOffsetIndices() {
+        return offsetIndices;
+    }
+
+    /**
+     * @param offsetIndices whether to keep a binary offset index in each graph directory.
+     *                      The index maps element names to the positions of their rows in the text files of the
+     *                      directory, speeding up lookups in lazy mode.  Indices are rebuilt for those directories
+     *                      which change when the graph is saved, and are excluded from version control with a
+     *                      generated <code>.gitignore</code> entry.
+     *                      An index which is missing or out of date is simply ignored.
+     */
+    public void setOffsetIndices(final boolean offsetIndices) {
+        this.offsetIndices = offsetIndices;
+    }
+
+    /**
+     * @return whether an adjacency file, listing edges by out vertex, is kept in each graph directory
+     */
+    public boolean getAdjacencyFiles() {
+        return adjacencyFiles;
+    }
+
+    /**
+     * @param adjacencyFiles whether to keep an adjacency file in each graph directory.
+     *                       This file lists the edges of the directory sorted by out vertex and then by label, so that
+     *                       in lazy mode the out-edges of a vertex may be loaded without loading all edges.
+     *                       Adjacency files are regenerated for those directories whose edges change when the graph is
+     *                       saved, and are excluded from version control with a generated <code>.gitignore</code>
+     *                       entry.  An adjacency file which is older than its edges file is ignored.
+     */
+    public void setAdjacencyFiles(final boolean adjacencyFiles) {
+        this.adjacencyFiles = adjacencyFiles;
+    }
+
+    /**
+     * @return the path prefixes of the partitions to load, or null if the entire graph is loaded
+     */
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @param prefixes the path prefixes of the partitions to load, e.g. <code>cities/</code> and
+     *                 <code>people/europe/</code>, or null to load the entire graph.
+     *                 Each prefix is a directory path, ending in '/'.
+     *                 Only the directories under these prefixes are loaded, and vertices may only be added or removed
+     *                 within them.  Edges in parent directories which connect the loaded partitions to the rest of the
+     *                 graph are handled according to the dangling edge policy.
+     *                 Partial loading cannot be combined with lazy mode.
+     */
+    public void setPrefixes(final Collection<String> prefixes) {
+        if (null == prefixes) {
+            this.prefixes = null;
+            return;
+        }
+
+        List<String> l = new LinkedList<String>();
+        for (String prefix : prefixes) {
+            if (null == prefix || (prefix.length() > 0 && !prefix.endsWith("/")) || prefix.startsWith("/")) {
+                throw new IllegalArgumentException("not a directory path: " + prefix);
+            }
+            l.add(prefix);
+        }
+
+        this.prefixes = Collections.unmodifiableList(l);
+    }
+
+    /**
+     * @return the treatment of edges which connect the loaded partitions to the rest of the graph
+     */
+    public DanglingEdgePolicy getDanglingEdgePolicy() {
+        return danglingEdgePolicy;
+    }
+
+    /**
+     * @param danglingEdgePolicy the treatment of edges which connect the loaded partitions to the rest of the graph,
+     *                           when only some partitions are loaded
+     */
+    public void setDanglingEdgePolicy(final DanglingEdgePolicy danglingEdgePolicy) {
+        if (null == danglingEdgePolicy) {
+            throw new IllegalArgumentException("null dangling edge policy");
+        }
+
+        this.danglingEdgePolicy = danglingEdgePolicy;
+    }
+
+    /**
+     * @return the codecs with which property values are stored.
+     *         Codecs for additional types of values may be registered here before the graph is created.
+     */
+    public ValueCodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    /**
+     * @param codecRegistry the codecs with which property values are stored
+     */
+    public void setCodecRegistry(final ValueCodecRegistry codecRegistry) {
+        if (null == codecRegistry) {
+            throw new IllegalArgumentException("null codec registry");
+        }
+
+        this.codecRegistry = codecRegistry;
+    }
+
+    /**
+     * @return whether mutations are written to a journal, which is replayed if the graph is not shut down
+     */
+    public boolean getJournal() {
+        return journal;
+    }
+
+    /**
+     * @param journal whether to write mutations to a journal in the root directory of the graph.
+     *                Each mutation is appended to the journal before it returns, and the journal is deleted each time
+     *                the graph is saved.  If the graph is not shut down, the journal is replayed when it is next
+     *                loaded, so that no mutations are lost.  The journal is excluded from version control with a
+     *                generated <code>.gitignore</code> entry.
+     */
+    public void setJournal(final boolean journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return whether each journal record is forced to disk before the mutation returns
+     */
+    public boolean getJournalSync() {
+        return journalSync;
+    }
+
+    /**
+     * @param journalSync whether to force each journal record to disk before the mutation returns.
+     *                    Otherwise, records are only flushed to the operating system, which protects them from a
+     *                    crash of the application, but not of the machine.
+     */
+    public void setJournalSync(final boolean journalSync) {
+        this.journalSync = journalSync;
+    }
+
+    /**
+     * @return the number of journal records after which the graph is saved, or 0 if the graph is saved only on
+     *         shutdown
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * @param checkpointInterval the number of journal records after which the graph is saved, clearing the journal,
+     *                           or 0 to save only on shutdown.
+     *                           This bounds both the size of the journal and the amount of work done by each save.
+     *                           It has no effect unless journaling is enabled.
+     */
+    public void setCheckpointInterval(final int checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("checkpoint interval must not be negative: " + checkpointInterval);
+        }
+
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @return the period, in milliseconds, with which the graph is saved in the background, or 0 if it is not
+     */
+    public long getCheckpointPeriod() {
+        return checkpointPeriod;
+    }
+
+    /**
+     * @param checkpointPeriod the period, in milliseconds, with which to save the graph in the background, or 0 to
+     *                         save only on shutdown or on request.
+     *                         Each checkpoint locks the graph only while it copies the elements which have changed; the
+     *                         files are then written on a background thread while the graph remains in use.
+     *                         If the number of journal records reaches the checkpoint interval, a background
+     *                         checkpoint is made immediately.
+     */
+    public void setCheckpointPeriod(final long checkpointPeriod) {
+        if (checkpointPeriod < 0) {
+            throw new IllegalArgumentException("checkpoint period must not be negative: " + checkpointPeriod);
+        }
+
+        this.checkpointPeriod = checkpointPeriod;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.CloseableSequence;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Index;
+
+/**
+ * An index of a <code>GitGraph</code>, which wraps an index of the base graph so that retrieved elements are tracked
+ * for changes in the same way as elements retrieved from the graph itself.
+ */
+class GitIndex<T extends Element> implements Index<T> {
+    protected final GitGraph graph;
+    protected final Index<T> base;
+
+    public GitIndex(final GitGraph graph,
+                    final Index<T> base) {
+        this.graph = graph;
+        this.base = base;
+    }
+
+    public String getIndexName() {
+        return base.getIndexName();
+    }
+
+    public Class<T> getIndexClass() {
+        return base.getIndexClass();
+    }
+
+    public Type getIndexType() {
+        return base.getIndexType();
+    }
+
+    public void put(final String key,
+                    final Object value,
+                    final T element) {
+        base.put(key, value, (T) graph.unwrap(element));
+    }
+
+    public CloseableSequence<T> get(final String key,
+                                    final Object value) {
+        return new GitElementSequence<T>(graph, base.get(key, value));
+    }
+
+    public long count(final String key,
+                      final Object value) {
+        return base.count(key, value);
+    }
+
+    public void remove(final String key,
+                       final Object value,
+                       final T element) {
+        base.remove(key, value, (T) graph.unwrap(element));
+    }
+}
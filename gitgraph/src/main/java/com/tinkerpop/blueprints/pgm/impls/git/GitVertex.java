@@ -0,0 +1,41 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * A vertex of a <code>GitGraph</code>, which wraps a vertex of the base graph.
+ */
+class GitVertex extends GitElement implements Vertex {
+    private final Vertex base;
+
+    public GitVertex(final GitGraph graph,
+                     final Vertex base) {
+        super(graph);
+        this.base = base;
+    }
+
+    public Vertex getBase() {
+        return base;
+    }
+
+    protected void touch() {
+        graph.vertexChanged(base.getId());
+    }
+
+    @Override
+    protected void resolve() {
+        graph.resolveStub(base);
+    }
+
+    public Iterable<Edge> getOutEdges(final String... labels) {
+        graph.loadOutEdges(base);
+        return new GitElementIterable<Edge>(graph, base.getOutEdges(labels));
+    }
+
+    public Iterable<Edge> getInEdges(final String... labels) {
+        graph.loadIncidentEdges(base);
+        return new GitElementIterable<Edge>(graph, base.getInEdges(labels));
+    }
+}
@@ -0,0 +1,272 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * An append-only log of the mutations made to a <code>GitGraph</code> since it was last saved.
+ * Each mutation is appended to the journal file as a single row, which is flushed to the operating system (and
+ * optionally forced to disk) before the mutation returns.  When a graph is loaded, any journal left behind by a graph
+ * which was not shut down is replayed, so that the mutations are not lost.
+ * When a save begins, the records of the journal are moved to an old journal file, which is deleted as part of the
+ * save, while the mutations which follow are written to a new journal file.
+ * <p/>
+ * Rows are tab-delimited and escaped like the rows of the graph files.  The first field of each row identifies the
+ * mutation, and the remaining fields give element ids, labels, property keys, and the types and values of properties.
+ */
+class Journal {
+    static final String
+            ADD_VERTEX = "+V",
+            REMOVE_VERTEX = "-V",
+            ADD_EDGE = "+E",
+            REMOVE_EDGE = "-E",
+            SET_VERTEX_PROPERTY = "+VP",
+            REMOVE_VERTEX_PROPERTY = "-VP",
+            SET_EDGE_PROPERTY = "+EP",
+            REMOVE_EDGE_PROPERTY = "-EP",
+            CLEAR = "CLEAR";
+
+    private final File file;
+    private final boolean sync;
+
+    private FileOutputStream out;
+    private RowWriter writer;
+    private int recordCount;
+
+    /**
+     * @param file        the journal file
+     * @param sync        whether to force each record to disk before returning
+     * @param recordCount the number of records already in the journal
+     */
+    public Journal(final File file,
+                   final boolean sync,
+                   final int recordCount) {
+        this.file = file;
+        this.sync = sync;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Appends a record to the journal.
+     *
+     * @param fields the unescaped fields of the record
+     */
+    public void append(final String... fields) throws IOException {
+        if (null == writer) {
+            file.getParentFile().mkdirs();
+            out = new FileOutputStream(file, true);
+            writer = new RowWriter(out, 4096);
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.writeTab();
+            }
+            writer.writeEscaped(fields[i]);
+        }
+        writer.endRow();
+        writer.flush();
+        if (sync) {
+            out.getFD().sync();
+        }
+
+        recordCount++;
+    }
+
+    /**
+     * @return the number of records written since the graph was last saved
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Closes the journal file, which is reopened when the next record is appended.
+     * This must be called before the graph is saved.
+     */
+    public void close() throws IOException {
+        if (null != writer) {
+            writer.close();
+            writer = null;
+            out = null;
+        }
+    }
+
+    /**
+     * Records that the graph has been saved, and the journal file deleted.
+     */
+    public void reset() {
+        recordCount = 0;
+    }
+
+    /**
+     * Moves the records of a journal file to the end of an old journal file, which holds the records of the changes
+     * being saved, and which is deleted once they have been saved.  If a save fails, its old journal file is left in
+     * place, and the records of the next save are appended to it.
+     *
+     * @param file    the journal file
+     * @param oldFile the old journal file
+     */
+    public static void rotate(final File file,
+                              final File oldFile) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        if (!oldFile.exists()) {
+            if (!file.renameTo(oldFile)) {
+                throw new IOException("failed to move journal to " + oldFile);
+            }
+            return;
+        }
+
+        FileOutputStream out = new FileOutputStream(oldFile, true);
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        if (!file.delete()) {
+            throw new IOException("failed to delete journal " + file);
+        }
+    }
+
+    /**
+     * Applies the records of a journal file to a graph.
+     * A final record which was only partially written, when the graph was interrupted, is discarded.
+     *
+     * @param file   the journal file
+     * @param graph  the graph to which to apply the records.  Mutations of this graph must not themselves be journaled.
+     * @param helper the helper with which property values are parsed
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read, or refers to missing elements
+     */
+    public static int replay(final File file,
+                             final Graph graph,
+                             final GitGraphHelper helper) throws IOException {
+        truncateIncompleteRecord(file);
+
+        int count = 0;
+        RowReader reader = new RowReader(new FileInputStream(file));
+        try {
+            while (reader.next(6)) {
+                apply(reader, graph, helper);
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    private static void apply(final RowReader reader,
+                              final Graph graph,
+                              final GitGraphHelper helper) throws IOException {
+        String op = reader.getField(0);
+        if (op.equals(ADD_VERTEX)) {
+            checkFields(reader, 2);
+            graph.addVertex(reader.getField(1));
+        } else if (op.equals(REMOVE_VERTEX)) {
+            checkFields(reader, 2);
+            graph.removeVertex(getVertex(graph, reader.getField(1)));
+        } else if (op.equals(ADD_EDGE)) {
+            checkFields(reader, 5);
+            graph.addEdge(reader.getField(1),
+                    getVertex(graph, reader.getField(2)),
+                    getVertex(graph, reader.getField(3)),
+                    reader.getField(4));
+        } else if (op.equals(REMOVE_EDGE)) {
+            checkFields(reader, 2);
+            graph.removeEdge(getEdge(graph, reader.getField(1)));
+        } else if (op.equals(SET_VERTEX_PROPERTY)) {
+            checkFields(reader, 5);
+            setProperty(getVertex(graph, reader.getField(1)), reader, helper);
+        } else if (op.equals(REMOVE_VERTEX_PROPERTY)) {
+            checkFields(reader, 3);
+            getVertex(graph, reader.getField(1)).removeProperty(reader.getField(2));
+        } else if (op.equals(SET_EDGE_PROPERTY)) {
+            checkFields(reader, 5);
+            setProperty(getEdge(graph, reader.getField(1)), reader, helper);
+        } else if (op.equals(REMOVE_EDGE_PROPERTY)) {
+            checkFields(reader, 3);
+            getEdge(graph, reader.getField(1)).removeProperty(reader.getField(2));
+        } else if (op.equals(CLEAR)) {
+            graph.clear();
+        } else {
+            throw new IOException("unknown journal record: " + op);
+        }
+    }
+
+    private static void setProperty(final Element e,
+                                    final RowReader reader,
+                                    final GitGraphHelper helper) throws IOException {
+        e.setProperty(reader.getField(2), helper.readValue(reader, 3, 4));
+    }
+
+    private static Vertex getVertex(final Graph graph,
+                                    final String id) throws IOException {
+        Vertex v = graph.getVertex(id);
+        if (null == v) {
+            throw new IOException("journal refers to missing vertex: " + id);
+        }
+        return v;
+    }
+
+    private static Edge getEdge(final Graph graph,
+                                final String id) throws IOException {
+        Edge e = graph.getEdge(id);
+        if (null == e) {
+            throw new IOException("journal refers to missing edge: " + id);
+        }
+        return e;
+    }
+
+    private static void checkFields(final RowReader reader,
+                                    final int count) throws IOException {
+        if (reader.getFieldCount() < count) {
+            throw new IOException("badly-formatted journal record: " + reader.getField(0));
+        }
+    }
+
+    /**
+     * Since every complete record ends with a line break, anything after the last line break is the remains of a
+     * record which was interrupted.
+     */
+    private static void truncateIncompleteRecord(final File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long p = raf.length();
+            while (p > 0) {
+                raf.seek(p - 1);
+                if ('\n' == raf.read()) {
+                    break;
+                }
+                p--;
+            }
+            if (p < raf.length()) {
+                raf.setLength(p);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the elements of a GitGraph into its base graph on demand, rather than all at once.
+ * The files of each directory are memory-mapped, and individual vertices and edges, together with their properties,
+ * are found using the offset index of the directory, if it has a valid one, or otherwise by binary search over the
+ * sorted rows of those files.
+ * An element is added to the base graph only when it is first requested.
+ * <p/>
+ * An element which has been changed since the graph was last saved is never loaded from the files: if it is not in the
+ * base graph, then it has been removed.
+ */
+class LazyLoader {
+    private final File directory;
+    private final Graph base;
+    private final ChangeSet changes;
+    private final GitGraphHelper helper;
+
+    // Mapped files by path, or null for files which do not exist.
+    private final Map<String, MappedFile> files = new HashMap<String, MappedFile>();
+    // Offset indices by path, or null for directories without a valid index.
+    private final Map<String, OffsetIndex> indices = new HashMap<String, OffsetIndex>();
+
+    // The directories whose edges have all been loaded.
+    private final Set<String> edgesLoaded = new HashSet<String>();
+    // The vertices whose out-edges have all been loaded.
+    private final Set<String> outEdgesLoaded = new HashSet<String>();
+    private boolean allLoaded = false;
+
+    /**
+     * @param directory the root directory of the graph
+     * @param base      the graph into which to load elements
+     * @param changes   the elements which have been changed since the graph was last saved
+     * @param helper    the helper with which the graph is saved
+     */
+    public LazyLoader(final File directory,
+                      final Graph base,
+                      final ChangeSet changes,
+                      final GitGraphHelper helper) {
+        this.directory = directory;
+        this.base = base;
+        this.changes = changes;
+        this.helper = helper;
+    }
+
+    /**
+     * @return the vertex with the given id, which is loaded from the files if it is not already in the base graph
+     */
+    public Vertex getVertex(final Object id) throws IOException {
+        Vertex v = base.getVertex(id);
+        if (null != v || allLoaded || !(id instanceof String)) {
+            return v;
+        }
+
+        GitGraphHelper.RelativeId r = relativeId((String) id);
+        if (null == r || changes.isVertexChanged((String) id)) {
+            return null;
+        }
+
+        MappedFile vertices = getFile(r.getPath(), GitGraphHelper.VERTICES);
+        if (null == vertices) {
+            return null;
+        }
+        if (findRow(vertices, r, GitGraphHelper.VERTICES, new NameKey(r.getName())) < 0) {
+            return null;
+        }
+
+        v = base.addVertex(id);
+        loadProperties(v, r, GitGraphHelper.VERTEX_PROPERTIES);
+        return v;
+    }
+
+    /**
+     * @return the edge with the given id, which is loaded from the files, together with its vertices, if it is not
+     *         already in the base graph
+     */
+    public Edge getEdge(final Object id) throws IOException {
+        Edge e = base.getEdge(id);
+        if (null != e || allLoaded || !(id instanceof String)) {
+            return e;
+        }
+
+        GitGraphHelper.RelativeId r = relativeId((String) id);
+        if (null == r || changes.isEdgeChanged((String) id)) {
+            return null;
+        }
+
+        MappedFile edges = getFile(r.getPath(), GitGraphHelper.EDGES);
+        if (null == edges) {
+            return null;
+        }
+        long offset = findRow(edges, r, GitGraphHelper.EDGES, new NameKey(r.getName()));
+        if (offset < 0) {
+            return null;
+        }
+
+        RowReader reader = edges.readRows(offset, 1024);
+        reader.next(4);
+        checkEdgeRow(reader, r.getPath());
+        return loadEdge(r.getPath(), r.getName(), reader.getField(1), reader.getField(2), reader.getField(3));
+    }
+
+    /**
+     * Loads the properties of a vertex which is already present in the base graph, such as a stub vertex.
+     */
+    public void loadProperties(final Vertex v) throws IOException {
+        GitGraphHelper.RelativeId r = relativeId((String) v.getId());
+        if (null != r) {
+            loadProperties(v, r, GitGraphHelper.VERTEX_PROPERTIES);
+        }
+    }
+
+    /**
+     * @return whether the files of the graph contain an edge with the given id, regardless of whether it has been
+     *         loaded
+     */
+    public boolean containsEdge(final String id) throws IOException {
+        GitGraphHelper.RelativeId r = relativeId(id);
+        if (null == r) {
+            return false;
+        }
+
+        MappedFile edges = getFile(r.getPath(), GitGraphHelper.EDGES);
+        return null != edges && findRow(edges, r, GitGraphHelper.EDGES, new NameKey(r.getName())) >= 0;
+    }
+
+    /**
+     * Finds the edges of a directory which are incident on a vertex, without loading them.
+     *
+     * @param path     a directory containing the vertex
+     * @param vertexId the id of the vertex
+     * @return the ids of all edges in the files of the directory which have the vertex as their out or in vertex
+     */
+    public Set<String> getEdgeIds(final String path,
+                                  final String vertexId) throws IOException {
+        Set<String> results = new HashSet<String>();
+        MappedFile edges = getFile(path, GitGraphHelper.EDGES);
+        if (null == edges) {
+            return results;
+        }
+
+        String name = vertexId.substring(path.length());
+        RowReader reader = edges.readRows(0);
+        while (reader.next(4)) {
+            checkEdgeRow(reader, path);
+            if (reader.getField(1).equals(name) || reader.getField(2).equals(name)) {
+                results.add(path + reader.getField(0));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Ensures that all edges incident on a vertex are present in the base graph.
+     * An edge may only connect vertices in its own directory or below, so the edges of a vertex are found in the
+     * directories which contain it.
+     */
+    public void loadIncidentEdges(final Vertex v) throws IOException {
+        if (allLoaded || !(v.getId() instanceof String)) {
+            return;
+        }
+
+        String id = (String) v.getId();
+        int i = -1;
+        do {
+            loadEdges(id.substring(0, i + 1));
+            i = id.indexOf('/', i + 1);
+        } while (i >= 0);
+    }
+
+    /**
+     * Ensures that all out-edges of a vertex are present in the base graph.
+     * Where a directory containing the vertex has an up-to-date adjacency file, only the out-edges of the vertex are
+     * loaded from that directory; otherwise, all of its edges are loaded.
+     */
+    public void loadOutEdges(final Vertex v) throws IOException {
+        if (allLoaded || !(v.getId() instanceof String) || !outEdgesLoaded.add((String) v.getId())) {
+            return;
+        }
+
+        String id = (String) v.getId();
+        int i = -1;
+        do {
+            String path = id.substring(0, i + 1);
+            if (!edgesLoaded.contains(path)) {
+                MappedFile adjacency = getAdjacencyFile(path);
+                if (null == adjacency) {
+                    loadEdges(path);
+                } else {
+                    loadOutEdges(adjacency, path, id.substring(path.length()));
+                }
+            }
+            i = id.indexOf('/', i + 1);
+        } while (i >= 0);
+    }
+
+    /**
+     * Loads a vertex together with all vertices which can be reached from it by following at most a given number of
+     * out-edges, and all edges along the way.
+     *
+     * @return the vertex, or null if there is no such vertex
+     */
+    public Vertex loadNeighborhood(final String id,
+                                   final int depth) throws IOException {
+        Vertex start = getVertex(id);
+        if (null == start) {
+            return null;
+        }
+
+        Set<Object> visited = new HashSet<Object>();
+        visited.add(start.getId());
+        List<Vertex> frontier = new LinkedList<Vertex>();
+        frontier.add(start);
+        for (int d = 0; d < depth && !frontier.isEmpty(); d++) {
+            List<Vertex> next = new LinkedList<Vertex>();
+            for (Vertex v : frontier) {
+                loadOutEdges(v);
+                for (Edge e : v.getOutEdges()) {
+                    Vertex inV = e.getInVertex();
+                    if (visited.add(inV.getId())) {
+                        next.add(inV);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        return start;
+    }
+
+    /**
+     * Loads all elements which are not already in the base graph.
+     */
+    public void loadAll() throws IOException {
+        if (!allLoaded) {
+            if (directory.exists()) {
+                loadAll(directory, "");
+            }
+
+            allLoaded = true;
+            close();
+        }
+    }
+
+    /**
+     * Releases all mapped files.  Files are mapped again as they are needed.
+     * This must be called before the files of the graph are rewritten.
+     */
+    public void close() {
+        // Mapped buffers are unmapped when they are garbage-collected.
+        files.clear();
+        indices.clear();
+    }
+
+    private void loadAll(final File dir,
+                         final String path) throws IOException {
+        MappedFile vertices = getFile(path, GitGraphHelper.VERTICES);
+        if (null != vertices) {
+            RowReader reader = vertices.readRows(0);
+            while (reader.next(1)) {
+                getVertex(path + reader.getField(0));
+            }
+        }
+
+        File[] children = dir.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    loadAll(child, path + child.getName() + "/");
+                }
+            }
+        }
+
+        loadEdges(path);
+    }
+
+    private void loadEdges(final String path) throws IOException {
+        if (!edgesLoaded.add(path)) {
+            return;
+        }
+
+        MappedFile edges = getFile(path, GitGraphHelper.EDGES);
+        if (null == edges) {
+            return;
+        }
+
+        RowReader reader = edges.readRows(0);
+        while (reader.next(4)) {
+            checkEdgeRow(reader, path);
+            String name = reader.getField(0);
+            if (null == base.getEdge(path + name) && !changes.isEdgeChanged(path + name)) {
+                loadEdge(path, name, reader.getField(1), reader.getField(2), reader.getField(3));
+            }
+        }
+    }
+
+    private void loadOutEdges(final MappedFile adjacency,
+                              final String path,
+                              final String outName) throws IOException {
+        String escapedName = GitGraphHelper.escape(outName);
+        RowReader reader = adjacency.readRows(adjacency.search(new PrefixKey(escapedName + "\t")), 4096);
+        while (reader.next(4) && reader.fieldEquals(0, escapedName)) {
+            if (reader.getFieldCount() < 4 || reader.isEmpty(2) || reader.isEmpty(3)) {
+                throw new IOException("badly-formatted '" + GitGraphHelper.ADJACENCY + "' file in directory '" + path + "'");
+            }
+
+            String name = reader.getField(2);
+            if (null == base.getEdge(path + name) && !changes.isEdgeChanged(path + name)) {
+                loadEdge(path, name, outName, reader.getField(3), reader.getField(1));
+            }
+        }
+    }
+
+    private Edge loadEdge(final String path,
+                          final String name,
+                          final String outName,
+                          final String inName,
+                          final String label) throws IOException {
+        String outId = path + outName;
+        String inId = path + inName;
+
+        Vertex outV = getVertex(outId);
+        if (null == outV) {
+            throw new IOException("vertex not found: " + outId);
+        }
+        Vertex inV = getVertex(inId);
+        if (null == inV) {
+            throw new IOException("vertex not found: " + inId);
+        }
+
+        Edge e = base.addEdge(path + name, outV, inV, label);
+        loadProperties(e, new GitGraphHelper.RelativeId(path + name, ""), GitGraphHelper.EDGE_PROPERTIES);
+        return e;
+    }
+
+    private void loadProperties(final Element e,
+                                final GitGraphHelper.RelativeId r,
+                                final String fileName) throws IOException {
+        MappedFile properties = getFile(r.getPath(), fileName);
+        if (null == properties) {
+            return;
+        }
+
+        // Property rows are sorted as they appear in the file, so the rows of an element are contiguous.
+        String escapedName = GitGraphHelper.escape(r.getName());
+        long offset = findRow(properties, r, fileName, new PrefixKey(escapedName + "\t"));
+        if (offset < 0) {
+            return;
+        }
+
+        RowReader reader = properties.readRows(offset, 1024);
+        while (reader.next(4) && reader.fieldEquals(0, escapedName)) {
+            if (reader.getFieldCount() < 4 || reader.isEmpty(1) || reader.isEmpty(2)) {
+                throw new IOException("badly-formatted '" + fileName + "' file in directory '" + r.getPath() + "'");
+            }
+
+            e.setProperty(reader.getField(1), helper.readValue(reader, 2, 3));
+        }
+    }
+
+    /**
+     * Finds the first row of an element in one of the files of a directory.
+     *
+     * @param key a search key for a binary search of the file, which is used if the directory has no valid index
+     * @return the offset of the row, or -1 if the element has no rows in the file
+     */
+    private long findRow(final MappedFile file,
+                         final GitGraphHelper.RelativeId r,
+                         final String fileName,
+                         final MappedFile.RowKey key) throws IOException {
+        OffsetIndex index = getOffsetIndex(r.getPath());
+        if (null != index) {
+            // Check each candidate row, as names may share a hash code.
+            for (long offset : index.getOffsets(fileName, r.getName())) {
+                if (offset < file.length() && nameAt(file, offset).equals(r.getName())) {
+                    return offset;
+                }
+            }
+            return -1;
+        }
+
+        long offset = file.search(key);
+        return offset < file.length() && nameAt(file, offset).equals(r.getName()) ? offset : -1;
+    }
+
+    private void checkEdgeRow(final RowReader reader,
+                              final String path) throws IOException {
+        if (reader.getFieldCount() < 4 || reader.isEmpty(0) || reader.isEmpty(1) || reader.isEmpty(2)) {
+            throw new IOException("badly-formatted '" + GitGraphHelper.EDGES + "' file in directory '" + path + "'");
+        }
+    }
+
+    private String nameAt(final MappedFile file,
+                          final long offset) throws IOException {
+        RowReader reader = file.readRows(offset, 512);
+        reader.next(2);
+        return reader.getField(0);
+    }
+
+    private MappedFile getFile(final String path,
+                               final String name) throws IOException {
+        String key = path + name;
+        if (files.containsKey(key)) {
+            return files.get(key);
+        }
+
+        File f = new File(path.length() > 0 ? new File(directory, path) : directory, name);
+        MappedFile mapped = f.exists() ? new MappedFile(f) : null;
+        files.put(key, mapped);
+        return mapped;
+    }
+
+    private MappedFile getAdjacencyFile(final String path) throws IOException {
+        String key = path + GitGraphHelper.ADJACENCY;
+        if (!files.containsKey(key)) {
+            File dir = path.length() > 0 ? new File(directory, path) : directory;
+            File adjacency = new File(dir, GitGraphHelper.ADJACENCY);
+            File edges = new File(dir, GitGraphHelper.EDGES);
+
+            // An adjacency file which is older than the edges file (for instance, after a checkout) is out of date.
+            boolean valid = adjacency.exists() && edges.exists() && adjacency.lastModified() >= edges.lastModified();
+            files.put(key, valid ? new MappedFile(adjacency) : null);
+        }
+
+        return files.get(key);
+    }
+
+    private OffsetIndex getOffsetIndex(final String path) {
+        if (indices.containsKey(path)) {
+            return indices.get(path);
+        }
+
+        OffsetIndex index = OffsetIndex.read(path.length() > 0 ? new File(directory, path) : directory);
+        indices.put(path, index);
+        return index;
+    }
+
+    private GitGraphHelper.RelativeId relativeId(final String id) {
+        // No element may have an empty local name.
+        return 0 == id.length() || id.endsWith("/") ? null : new GitGraphHelper.RelativeId(id, "");
+    }
+
+    /**
+     * Compares rows, by the unescaped element name in their first field, with a given name.
+     */
+    private static class NameKey implements MappedFile.RowKey {
+        private final String name;
+
+        public NameKey(final String name) {
+            this.name = name;
+        }
+
+        public int getMaxFields() {
+            return 2;
+        }
+
+        public int compareRow(final RowReader reader) {
+            return reader.getField(0).compareTo(name);
+        }
+    }
+
+    /**
+     * Compares rows, as they appear in the file, with a given prefix.
+     */
+    private static class PrefixKey implements MappedFile.RowKey {
+        private final String prefix;
+
+        public PrefixKey(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        public int getMaxFields() {
+            return 1;
+        }
+
+        public int compareRow(final RowReader reader) {
+            return reader.compareTo(prefix);
+        }
+    }
+}
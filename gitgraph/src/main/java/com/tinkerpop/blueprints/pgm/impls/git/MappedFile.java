@@ -0,0 +1,188 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only, memory-mapped view of a GitGraph file, providing random access to its rows.
+ * Files larger than a single mapping may address are mapped as a sequence of segments.
+ * Since the rows of each GitGraph file are kept in sorted order, a row may be found with a binary search over byte
+ * offsets, without reading or indexing the rest of the file.
+ */
+class MappedFile {
+    private static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    // A small buffer suffices for probing individual rows.
+    private static final int PROBE_BUFFER_SIZE = 512;
+
+    private final int segmentShift;
+    private final long segmentMask;
+    private final MappedByteBuffer[] segments;
+    private final long length;
+
+    public MappedFile(final File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * @param file         the file to map
+     * @param segmentShift the base-2 logarithm of the size of each mapped segment
+     */
+    MappedFile(final File file,
+               final int segmentShift) throws IOException {
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            length = channel.size();
+
+            // Mappings remain valid after the channel is closed.
+            int n = (int) ((length + segmentMask) >>> segmentShift);
+            segments = new MappedByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long start = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentMask + 1, length - start));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return the byte at the given position, as an unsigned value
+     */
+    public int get(final long position) {
+        return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask)) & 0xFF;
+    }
+
+    /**
+     * @return the offset of the start of the row containing the given position
+     */
+    public long rowStart(final long position) {
+        long p = position;
+        while (p > 0 && '\n' != get(p - 1)) {
+            p--;
+        }
+        return p;
+    }
+
+    /**
+     * @return the offset of the start of the row following the row containing the given position,
+     *         or the length of the file if there is no such row
+     */
+    public long nextRow(final long position) {
+        long p = position;
+        while (p < length && '\n' != get(p)) {
+            p++;
+        }
+        return p < length ? p + 1 : length;
+    }
+
+    /**
+     * Finds the first row which does not precede a search key, in a file whose rows are sorted with respect to that
+     * key.
+     *
+     * @param key a comparison of rows with the search key
+     * @return the offset of the first row which does not precede the key,
+     *         or the length of the file if all rows precede the key
+     */
+    public long search(final RowKey key) throws IOException {
+        long low = 0, high = length;
+        while (low < high) {
+            long start = rowStart(low + (high - low) / 2);
+            RowReader reader = readRows(start, PROBE_BUFFER_SIZE);
+            if (!reader.next(key.getMaxFields())) {
+                break;
+            }
+
+            if (key.compareRow(reader) < 0) {
+                low = nextRow(start);
+            } else {
+                high = start;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param start the offset of the first row to read
+     * @return a reader of the rows of this file, beginning with the row at the given offset.
+     *         Row offsets reported by the reader are relative to that row.
+     */
+    public RowReader readRows(final long start) {
+        return new RowReader(new MappedInputStream(start));
+    }
+
+    /**
+     * @param start      the offset of the first row to read
+     * @param bufferSize the number of bytes for the reader to buffer at a time.
+     *                   Use a small buffer when only a few rows will be read.
+     */
+    public RowReader readRows(final long start,
+                              final int bufferSize) {
+        return new RowReader(new MappedInputStream(start), bufferSize);
+    }
+
+    /**
+     * A comparison of rows with a search key.
+     */
+    interface RowKey {
+        /**
+         * @return the number of fields into which to split each row before comparing it
+         */
+        int getMaxFields();
+
+        /**
+         * @param reader a reader positioned at the row to compare
+         * @return a negative number if the row precedes the key, zero if it matches the key,
+         *         or a positive number if it follows the key
+         */
+        int compareRow(RowReader reader);
+    }
+
+    private class MappedInputStream extends InputStream {
+        private long position;
+
+        public MappedInputStream(final long position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < length ? get(position++) : -1;
+        }
+
+        @Override
+        public int read(final byte[] b,
+                        final int off,
+                        final int len) throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+
+            // Read no further than the end of the current segment.
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)].duplicate();
+            segment.position((int) (position & segmentMask));
+            int n = Math.min(len, segment.remaining());
+            segment.get(b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A binary sidecar file which maps the names of the elements in a GitGraph directory to the byte offsets of their rows,
+ * so that an element may be found without searching the text files of the directory.
+ * For each of the four files of the directory, the index holds the hash code of each element name, paired with the
+ * offset of the element's row (for vertices and edges) or of its first property row (for properties).
+ * Since hash codes may collide, the row at each offset must be checked against the requested name.
+ * <p/>
+ * The index records the length and modification time of each file it describes, and is ignored if any of the files
+ * has since changed.  A checksum guards against a damaged index.  An index is never required: if it is missing or
+ * invalid, the text files are searched instead.
+ */
+class OffsetIndex {
+    /**
+     * The name of the index file in each directory
+     */
+    static final String FILE_NAME = ".gitgraph-offsets";
+
+    private static final int MAGIC = 0x4747494F, VERSION = 1;
+
+    private static final String[] FILES = {
+            GitGraphHelper.VERTICES,
+            GitGraphHelper.EDGES,
+            GitGraphHelper.VERTEX_PROPERTIES,
+            GitGraphHelper.EDGE_PROPERTIES};
+
+    // For each file: element name hash codes in ascending order, and the corresponding row offsets.
+    private final int[][] hashes = new int[FILES.length][];
+    private final long[][] offsets = new long[FILES.length][];
+
+    private OffsetIndex() {
+    }
+
+    /**
+     * @param fileName the file to search, e.g. <code>vertices</code>
+     * @param name     the local name of an element
+     * @return the offsets of all rows in the file which may belong to the element
+     */
+    public long[] getOffsets(final String fileName,
+                             final String name) {
+        int f = fileIndex(fileName);
+        int[] h = hashes[f];
+        int hash = name.hashCode();
+
+        int i = Arrays.binarySearch(h, hash);
+        if (i < 0) {
+            return new long[0];
+        }
+
+        int start = i, end = i + 1;
+        while (start > 0 && h[start - 1] == hash) {
+            start--;
+        }
+        while (end < h.length && h[end] == hash) {
+            end++;
+        }
+
+        long[] results = new long[end - start];
+        System.arraycopy(offsets[f], start, results, 0, results.length);
+        return results;
+    }
+
+    /**
+     * Reads the index of a directory.
+     *
+     * @param dir a graph directory
+     * @return the index of the directory, or null if there is no index, or if it is out of date or damaged
+     */
+    public static OffsetIndex read(final File dir) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(new FileInputStream(file)), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            try {
+                if (MAGIC != in.readInt() || VERSION != in.readInt()) {
+                    return null;
+                }
+
+                OffsetIndex index = new OffsetIndex();
+                for (int f = 0; f < FILES.length; f++) {
+                    File data = new File(dir, FILES[f]);
+                    long length = in.readLong();
+                    long lastModified = in.readLong();
+                    if (length != (data.exists() ? data.length() : -1) || lastModified != data.lastModified()) {
+                        return null;
+                    }
+
+                    int count = in.readInt();
+                    int[] h = new int[count];
+                    long[] o = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        h[i] = in.readInt();
+                    }
+                    for (int i = 0; i < count; i++) {
+                        o[i] = in.readLong();
+                    }
+                    index.hashes[f] = h;
+                    index.offsets[f] = o;
+                }
+
+                long expected = checked.getChecksum().getValue();
+                return expected == in.readLong() ? index : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // The index is truncated or otherwise unreadable.
+            return null;
+        }
+    }
+
+    /**
+     * Creates or replaces the index of a directory, from the current contents of its files.
+     *
+     * @param dir a graph directory
+     */
+    public static void write(final File dir) throws IOException {
+        File file = new File(dir, FILE_NAME);
+        File tmp = new File(dir, FILE_NAME + GitGraphHelper.TMP_SUFFIX);
+
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)), new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (String fileName : FILES) {
+                File data = new File(dir, fileName);
+                out.writeLong(data.exists() ? data.length() : -1);
+                out.writeLong(data.lastModified());
+                writeOffsets(data, !fileName.equals(GitGraphHelper.VERTICES) && !fileName.equals(GitGraphHelper.EDGES), out);
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        } finally {
+            out.close();
+        }
+
+        if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+            throw new IOException("could not replace offset index " + file);
+        }
+    }
+
+    private static void writeOffsets(final File data,
+                                     final boolean firstRowOnly,
+                                     final DataOutputStream out) throws IOException {
+        long[] rowOffsets = new long[64];
+        int[] rowHashes = new int[64];
+        int count = 0;
+
+        if (data.exists()) {
+            RowReader reader = new RowReader(new FileInputStream(data));
+            try {
+                String last = null;
+                while (reader.next(2)) {
+                    String name = reader.getField(0);
+                    if (firstRowOnly && name.equals(last)) {
+                        continue;
+                    }
+                    last = name;
+
+                    if (count == rowOffsets.length) {
+                        rowOffsets = Arrays.copyOf(rowOffsets, count * 2);
+                        rowHashes = Arrays.copyOf(rowHashes, count * 2);
+                    }
+                    rowOffsets[count] = reader.getRowOffset();
+                    rowHashes[count] = name.hashCode();
+                    count++;
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        // Sort by hash code, then by row, by packing the two into a single key.
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) rowHashes[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        out.writeInt(count);
+        for (long key : keys) {
+            out.writeInt((int) (key >> 32));
+        }
+        for (long key : keys) {
+            out.writeLong(rowOffsets[(int) key]);
+        }
+    }
+
+    private static int fileIndex(final String fileName) {
+        for (int i = 0; i < FILES.length; i++) {
+            if (FILES[i].equals(fileName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not a graph file: " + fileName);
+    }
+}
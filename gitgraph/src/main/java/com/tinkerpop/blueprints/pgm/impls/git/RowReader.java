@@ -0,0 +1,335 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the tab-delimited rows of GitGraph files.
+ * Bytes are decoded from UTF-8 directly into a reusable character buffer, and the fields of each row are located in
+ * place, so that a string is only created for a field when it is actually needed.
+ * A carriage return before a line break is ignored, so that files checked out with Windows line endings are read
+ * correctly.
+ */
+class RowReader {
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final InputStream in;
+    private final byte[] bytes;
+    private int bytePosition = 0, byteLimit = 0;
+    private long rowOffset = 0, offset = 0;
+
+    private char[] chars = new char[256];
+    private int length;
+
+    private final FieldChars fieldChars = new FieldChars();
+
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private int fieldCount;
+
+    public RowReader(final InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public RowReader(final InputStream in,
+                     final int bufferSize) {
+        this.in = in;
+        this.bytes = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @param maxFields the maximum number of fields to split the row into.
+     *                  Any additional tabs are considered part of the last field.
+     * @return whether a row was read (false at the end of the input)
+     */
+    public boolean next(final int maxFields) throws IOException {
+        length = 0;
+        fieldCount = 0;
+        rowOffset = offset;
+
+        int b;
+        while ((b = read()) != '\n') {
+            if (-1 == b) {
+                if (0 == length && offset == rowOffset) {
+                    return false;
+                }
+                break;
+            }
+
+            if (b < 0x80) {
+                append((char) b);
+            } else if ((b & 0xE0) == 0xC0) {
+                append((char) (((b & 0x1F) << 6) | continuation()));
+            } else if ((b & 0xF0) == 0xE0) {
+                int c = ((b & 0x0F) << 12) | (continuation() << 6);
+                append((char) (c | continuation()));
+            } else if ((b & 0xF8) == 0xF0) {
+                int cp = ((b & 0x07) << 18) | (continuation() << 12);
+                cp |= continuation() << 6;
+                cp |= continuation();
+                append((char) (0xD7C0 + (cp >> 10)));
+                append((char) (0xDC00 | (cp & 0x3FF)));
+            } else {
+                append('\uFFFD');
+            }
+        }
+
+        if (length > 0 && '\r' == chars[length - 1]) {
+            length--;
+        }
+
+        split(maxFields);
+        return true;
+    }
+
+    /**
+     * @return the byte offset, in the input, of the current row
+     */
+    public long getRowOffset() {
+        return rowOffset;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return whether the given field of the current row is empty
+     */
+    public boolean isEmpty(final int field) {
+        return fieldStarts[field] == fieldEnds[field];
+    }
+
+    /**
+     * @return the unescaped value of the given field of the current row
+     */
+    public String getField(final int field) {
+        return unescape(chars, fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * @return the unescaped value of the given field of the current row, as a sequence of characters.
+     *         If the field contains no escape sequences, this is a view of the row buffer, which is only valid until
+     *         the next row is read, and only until this method is called again.
+     */
+    public CharSequence getFieldChars(final int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        for (int i = start; i < end; i++) {
+            if ('\\' == chars[i]) {
+                return unescape(chars, start, end);
+            }
+        }
+
+        fieldChars.start = start;
+        fieldChars.end = end;
+        return fieldChars;
+    }
+
+    /**
+     * @return whether the given field of the current row, as it appears in the file, is equal to the given string
+     */
+    public boolean fieldEquals(final int field,
+                               final String s) {
+        int start = fieldStarts[field];
+        int len = fieldEnds[field] - start;
+        if (len != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (chars[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the given field of the current row as a decimal integer, without creating an intermediate string.
+     *
+     * @throws NumberFormatException if the field is not a valid decimal integer
+     */
+    public long parseLong(final int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (start == end) {
+            throw new NumberFormatException("empty field");
+        }
+
+        boolean negative = '-' == chars[start];
+        int i = negative || '+' == chars[start] ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            // Let Long handle the edge cases, including overflow.
+            return Long.parseLong(new String(chars, start, end - start));
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int d = chars[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("for input string: \"" + new String(chars, start, end - start) + "\"");
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Compares the current row, as it appears in the file, with the given (escaped) row.
+     */
+    public int compareTo(final String row) {
+        int n = Math.min(length, row.length());
+        for (int i = 0; i < n; i++) {
+            int d = chars[i] - row.charAt(i);
+            if (0 != d) {
+                return d;
+            }
+        }
+        return length - row.length();
+    }
+
+    /**
+     * Copies the current row, as it appears in the file, to the given writer.
+     */
+    public void copyTo(final RowWriter writer) throws IOException {
+        writer.write(chars, 0, length);
+        writer.endRow();
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return the unescaped form of a field
+     */
+    public static String unescape(final String s) {
+        return s.indexOf('\\') < 0 ? s : unescape(s.toCharArray(), 0, s.length());
+    }
+
+    /**
+     * @return the unescaped form of the field in the given range of characters
+     */
+    public static String unescape(final char[] chars,
+                                  final int start,
+                                  final int end) {
+        int i = start;
+        while (i < end && '\\' != chars[i]) {
+            i++;
+        }
+        if (i == end) {
+            return new String(chars, start, end - start);
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(chars, start, i - start);
+        for (; i < end; i++) {
+            char c = chars[i];
+            if ('\\' == c && i + 1 < end) {
+                switch (chars[i + 1]) {
+                    case 't':
+                        sb.append('\t');
+                        i++;
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        i++;
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        i++;
+                        break;
+                    case '\\':
+                        sb.append('\\');
+                        i++;
+                        break;
+                    default:
+                        // Not a valid escape sequence; keep the backslash as it is.
+                        sb.append(c);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private class FieldChars implements CharSequence {
+        private int start, end;
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(final int index) {
+            return chars[start + index];
+        }
+
+        public CharSequence subSequence(final int s,
+                                        final int e) {
+            return new String(chars, start + s, e - s);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, end - start);
+        }
+    }
+
+    private void split(final int maxFields) {
+        int start = 0;
+        for (int i = 0; i < length && fieldCount < maxFields - 1; i++) {
+            if ('\t' == chars[i]) {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, length);
+    }
+
+    private void addField(final int start,
+                          final int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = grow(fieldStarts);
+            fieldEnds = grow(fieldEnds);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private int[] grow(final int[] a) {
+        int[] b = new int[a.length * 2];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private void append(final char c) {
+        if (length == chars.length) {
+            char[] c2 = new char[chars.length * 2];
+            System.arraycopy(chars, 0, c2, 0, length);
+            chars = c2;
+        }
+        chars[length++] = c;
+    }
+
+    private int continuation() throws IOException {
+        int b = read();
+        return -1 == b ? 0 : b & 0x3F;
+    }
+
+    private int read() throws IOException {
+        if (bytePosition == byteLimit) {
+            byteLimit = in.read(bytes, 0, bytes.length);
+            bytePosition = 0;
+            if (byteLimit <= 0) {
+                byteLimit = 0;
+                return -1;
+            }
+        }
+        offset++;
+        return bytes[bytePosition++] & 0xFF;
+    }
+}
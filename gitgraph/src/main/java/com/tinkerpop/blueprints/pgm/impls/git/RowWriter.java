@@ -0,0 +1,204 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the tab-delimited rows of GitGraph files, escaping and UTF-8-encoding fields in a single pass directly into
+ * a reusable byte buffer.
+ * Within a field, backslashes, line breaks, carriage returns and tabs are escaped as <code>\\</code>,
+ * <code>\n</code>, <code>\r</code> and <code>\t</code>, respectively.
+ */
+class RowWriter {
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position = 0;
+    private long bytesWritten = 0;
+
+    public RowWriter(final OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public RowWriter(final OutputStream out,
+                     final int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return the number of bytes written so far, including any which are still buffered
+     */
+    public long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    /**
+     * Writes an escaped field.
+     */
+    public void writeEscaped(final String s) throws IOException {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    put((byte) '\\');
+                    put((byte) '\\');
+                    break;
+                case '\n':
+                    put((byte) '\\');
+                    put((byte) 'n');
+                    break;
+                case '\r':
+                    put((byte) '\\');
+                    put((byte) 'r');
+                    break;
+                case '\t':
+                    put((byte) '\\');
+                    put((byte) 't');
+                    break;
+                default:
+                    i = encode(s, i, c);
+            }
+        }
+    }
+
+    /**
+     * Writes a string which is already escaped, such as a field delimiter or an entire row.
+     */
+    public void write(final String s) throws IOException {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            i = encode(s, i, s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a range of already-escaped characters.
+     */
+    public void write(final char[] chars,
+                      final int start,
+                      final int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                putCodePoint(Character.toCodePoint(c, chars[++i]));
+            } else {
+                putChar(c);
+            }
+        }
+    }
+
+    public void writeTab() throws IOException {
+        put((byte) '\t');
+    }
+
+    public void endRow() throws IOException {
+        put((byte) '\n');
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+    /**
+     * @return the escaped form of the given string, as it appears in a field
+     */
+    public static String escape(final String s) {
+        int len = s.length();
+        int i = 0;
+        while (i < len) {
+            char c = s.charAt(i);
+            if ('\\' == c || '\n' == c || '\r' == c || '\t' == c) {
+                break;
+            }
+            i++;
+        }
+        if (i == len) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(len + 8);
+        sb.append(s, 0, i);
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Encodes the character at index i, returning the index of the last character consumed.
+    private int encode(final String s,
+                       final int i,
+                       final char c) throws IOException {
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            putCodePoint(Character.toCodePoint(c, s.charAt(i + 1)));
+            return i + 1;
+        } else {
+            putChar(c);
+        }
+        return i;
+    }
+
+    private void putChar(final char c) throws IOException {
+        if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+            // An unpaired surrogate cannot be encoded; substitute as String.getBytes() does.
+            put((byte) '?');
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void putCodePoint(final int cp) throws IOException {
+        put((byte) (0xF0 | (cp >> 18)));
+        put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+        put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+        put((byte) (0x80 | (cp & 0x3F)));
+    }
+
+    private void put(final byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+/**
+ * Converts property values of a particular class to and from the text which represents them in GitGraph files.
+ * Each value is stored together with the tag of its codec, so that it can be decoded again.
+ * Codecs for additional classes may be registered with a <code>ValueCodecRegistry</code>.
+ */
+public interface ValueCodec<T> {
+    /**
+     * @return a short, unique name for the type of value handled by this codec, which is stored alongside each value.
+     *         A tag may not contain tabs, line breaks or backslashes.
+     */
+    String getTag();
+
+    /**
+     * @return the class of values handled by this codec.  Instances of subclasses are also handled, unless a more
+     *         specific codec has been registered for them.
+     */
+    Class<T> getValueClass();
+
+    /**
+     * @param value a value to encode
+     * @return the text representation of the value.  The text may contain any characters; it is escaped as necessary.
+     */
+    String encode(T value);
+
+    /**
+     * @param text the unescaped text representation of a value.
+     *             This may be a temporary view of a row which is only valid until this method returns.
+     * @return the decoded value
+     * @throws IllegalArgumentException if the text is not a valid representation of a value
+     */
+    T decode(CharSequence text);
+}
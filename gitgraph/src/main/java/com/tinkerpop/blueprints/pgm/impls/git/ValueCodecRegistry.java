@@ -0,0 +1,97 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The codecs with which the property values of a <code>GitGraph</code> are stored.
+ * A new registry contains codecs for strings, the primitive wrapper types, arrays of primitive numbers and booleans,
+ * byte arrays (as Base64) and dates (as milliseconds since the epoch).  Codecs for further types may be added with
+ * <code>register</code>.
+ */
+public class ValueCodecRegistry {
+    private final Map<String, ValueCodec<?>> codecsByTag = new LinkedHashMap<String, ValueCodec<?>>();
+    private final Map<Class<?>, ValueCodec<?>> codecsByClass = new HashMap<Class<?>, ValueCodec<?>>();
+
+    // Codecs for classes without a codec of their own, found by searching for a codec of a superclass or interface.
+    private final Map<Class<?>, ValueCodec<?>> inheritedCodecs = new HashMap<Class<?>, ValueCodec<?>>();
+
+    public ValueCodecRegistry() {
+        for (ValueCodec<?> codec : BuiltinValueCodecs.ALL) {
+            register(codec);
+        }
+    }
+
+    /**
+     * Adds a codec, replacing any codec previously registered for the same class.
+     *
+     * @param codec the codec to add
+     * @throws IllegalArgumentException if the tag of the codec is invalid, or is already used by a codec for another
+     *                                  class
+     */
+    public synchronized void register(final ValueCodec<?> codec) {
+        String tag = codec.getTag();
+        if (null == tag || 0 == tag.length()
+                || tag.indexOf('\t') >= 0 || tag.indexOf('\n') >= 0 || tag.indexOf('\r') >= 0 || tag.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("invalid codec tag: " + tag);
+        }
+
+        ValueCodec<?> existing = codecsByTag.get(tag);
+        if (null != existing && existing.getValueClass() != codec.getValueClass()) {
+            throw new IllegalArgumentException("tag '" + tag + "' is already used for " + existing.getValueClass());
+        }
+
+        ValueCodec<?> replaced = codecsByClass.put(codec.getValueClass(), codec);
+        if (null != replaced) {
+            codecsByTag.remove(replaced.getTag());
+        }
+        codecsByTag.put(tag, codec);
+        inheritedCodecs.clear();
+    }
+
+    /**
+     * @return the codec with the given tag, or null if there is none
+     */
+    public synchronized ValueCodec<?> getCodec(final String tag) {
+        return codecsByTag.get(tag);
+    }
+
+    /**
+     * @return the codec for values of the given class, or null if there is none.  This may be the codec of a
+     *         superclass or interface of the class.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> ValueCodec<? super T> getCodec(final Class<T> c) {
+        // The codec found handles values of the class, or of a superclass or interface of it.
+        return (ValueCodec<? super T>) findCodec(c);
+    }
+
+    private ValueCodec<?> findCodec(final Class<?> c) {
+        ValueCodec<?> codec = codecsByClass.get(c);
+        if (null != codec) {
+            return codec;
+        }
+
+        if (inheritedCodecs.containsKey(c)) {
+            return inheritedCodecs.get(c);
+        }
+        for (ValueCodec<?> candidate : codecsByTag.values()) {
+            if (candidate.getValueClass().isAssignableFrom(c)
+                    && (null == codec || codec.getValueClass().isAssignableFrom(candidate.getValueClass()))) {
+                codec = candidate;
+            }
+        }
+        inheritedCodecs.put(c, codec);
+        return codec;
+    }
+
+    /**
+     * @return all registered codecs, in order of registration
+     */
+    public synchronized Collection<ValueCodec<?>> getCodecs() {
+        return new ArrayList<ValueCodec<?>>(codecsByTag.values());
+    }
+}
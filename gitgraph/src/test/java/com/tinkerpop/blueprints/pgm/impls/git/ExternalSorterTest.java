@@ -0,0 +1,83 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests of the sorting of rows, both in memory and in runs on disk.
+ */
+public class ExternalSorterTest extends TestCase {
+    public void testInMemory() throws Exception {
+        ExternalSorter sorter = new ExternalSorter(1024 * 1024, null);
+        try {
+            List<String> expected = addRandomStrings(sorter, 1000);
+            assertEquals(0, sorter.getRunCount());
+            assertSorted(expected, sorter);
+        } finally {
+            sorter.close();
+        }
+    }
+
+    public void testSpilledRuns() throws Exception {
+        ExternalSorter sorter = new ExternalSorter(1024, null);
+        try {
+            List<String> expected = addRandomStrings(sorter, 1000);
+            assertTrue(sorter.getRunCount() > 1);
+            assertSorted(expected, sorter);
+        } finally {
+            sorter.close();
+        }
+    }
+
+    public void testMultiPassMerge() throws Exception {
+        // Roughly one string per run, so that runs must be merged in more than one pass.
+        ExternalSorter sorter = new ExternalSorter(1, null);
+        try {
+            List<String> expected = addRandomStrings(sorter, 1000);
+            assertTrue(sorter.getRunCount() > 64);
+            assertSorted(expected, sorter);
+        } finally {
+            sorter.close();
+        }
+    }
+
+    public void testEmpty() throws Exception {
+        ExternalSorter sorter = new ExternalSorter(1, null);
+        try {
+            assertNull(sorter.next());
+        } finally {
+            sorter.close();
+        }
+    }
+
+    private List<String> addRandomStrings(final ExternalSorter sorter,
+                                          final int count) throws Exception {
+        Random random = new Random(42);
+        char[] alphabet = {'a', 'b', 'c', '\t', '\n', '\\', '\u00E9', '\u4E2D'};
+        List<String> strings = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String s = sb.toString();
+            strings.add(s);
+            sorter.add(s);
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+
+    private void assertSorted(final List<String> expected,
+                              final ExternalSorter sorter) throws Exception {
+        for (String s : expected) {
+            assertEquals(s, sorter.next());
+        }
+        assertNull(sorter.next());
+    }
+}
@@ -0,0 +1,77 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
+
+import java.io.File;
+
+/**
+ * Compares serial and parallel loading of a generated, multi-directory GitGraph.
+ * Usage: GitGraphLoadBenchmark [directories] [vertices per directory] [loader threads]
+ */
+public class GitGraphLoadBenchmark {
+    private static final int TRIALS = 5;
+
+    public static void main(final String[] args) throws Exception {
+        int directories = args.length > 0 ? Integer.valueOf(args[0]) : 200;
+        int verticesPerDirectory = args.length > 1 ? Integer.valueOf(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.valueOf(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        File dir = new File(System.getProperty("java.io.tmpdir"), "gitgraph-load-benchmark");
+        if (dir.exists()) {
+            GitGraphHelper.deleteDirectory(dir);
+        }
+
+        System.out.println("generating " + directories + " directories of " + verticesPerDirectory + " vertices each");
+        generate(dir, directories, verticesPerDirectory);
+
+        GitGraphSettings parallelSettings = new GitGraphSettings();
+        parallelSettings.setLoaderThreads(threads);
+        GitGraphHelper serial = new GitGraphHelper();
+        GitGraphHelper parallel = new GitGraphHelper(parallelSettings);
+
+        // Warm up
+        time(serial, dir);
+        time(parallel, dir);
+
+        long serialTotal = 0, parallelTotal = 0;
+        for (int i = 0; i < TRIALS; i++) {
+            serialTotal += time(serial, dir);
+            parallelTotal += time(parallel, dir);
+        }
+
+        System.out.println("serial load:   " + serialTotal / TRIALS + " ms");
+        System.out.println("parallel load: " + parallelTotal / TRIALS + " ms (" + threads + " threads)");
+
+        GitGraphHelper.deleteDirectory(dir);
+    }
+
+    private static long time(final GitGraphHelper helper,
+                             final File dir) throws Exception {
+        Graph g = new TinkerGraph();
+        long before = System.currentTimeMillis();
+        helper.load(dir, g);
+        return System.currentTimeMillis() - before;
+    }
+
+    private static void generate(final File dir,
+                                 final int directories,
+                                 final int verticesPerDirectory) throws Exception {
+        Graph g = new GitGraph(dir);
+        for (int d = 0; d < directories; d++) {
+            String path = "group" + (d % 10) + "/part" + d + "/";
+            Vertex prev = null;
+            for (int v = 0; v < verticesPerDirectory; v++) {
+                Vertex cur = g.addVertex(path + "v" + v);
+                cur.setProperty("name", "vertex " + v + " of partition " + d);
+                cur.setProperty("rank", v);
+                if (null != prev) {
+                    g.addEdge(path + "e" + v, prev, cur, "next").setProperty("weight", 1.0 / v);
+                }
+                prev = cur;
+            }
+        }
+        g.shutdown();
+    }
+}
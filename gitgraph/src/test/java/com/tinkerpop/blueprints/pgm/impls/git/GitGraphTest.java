@@ -6,6 +6,16 @@ import com.tinkerpop.blueprints.pgm.Vertex;
 import junit.framework.TestCase;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.Future;
 
 /**
  * User: josh
@@ -137,6 +147,673 @@ public class GitGraphTest extends TestCase {
         g.shutdown();
     }
 
+    public void testIncrementalSave() throws Exception {
+        Graph g;
+        Vertex v1, v2, v3;
+
+        File baseDir = createTempDirectory("gitgraph-test-incremental");
+
+        g = new GitGraph(baseDir);
+        v1 = g.addVertex("cities/berlin");
+        v1.setProperty("name", "Berlin");
+        v2 = g.addVertex("people/leon");
+        v2.setProperty("name", "Leon");
+        v3 = g.addVertex("people/melaney");
+        v3.setProperty("name", "Melaney");
+        g.addEdge("people/A", v2, v3, "knows");
+        g.shutdown();
+
+        File cities = new File(baseDir, "cities");
+        File people = new File(baseDir, "people");
+        String citiesBefore = read(new File(cities, "vprops"));
+        assertEquals("berlin\tname\tString\tBerlin\n", citiesBefore);
+
+        // Change a property in one directory only.  The file of the other is backdated, so that a rewrite would show.
+        long citiesModified = (new File(cities, "vprops").lastModified() / 1000 - 10) * 1000;
+        assertTrue(new File(cities, "vprops").setLastModified(citiesModified));
+        g = new GitGraph(baseDir);
+        g.getVertex("people/leon").setProperty("age", 0.5);
+        g.shutdown();
+
+        assertEquals(citiesBefore, read(new File(cities, "vprops")));
+        assertEquals(citiesModified, new File(cities, "vprops").lastModified());
+        assertEquals("leon\tage\tDouble\t0.5\n"
+                + "leon\tname\tString\tLeon\n"
+                + "melaney\tname\tString\tMelaney\n", read(new File(people, "vprops")));
+
+        // Removing a vertex also removes its edges.
+        g = new GitGraph(baseDir);
+        g.removeVertex(g.getVertex("people/melaney"));
+        g.shutdown();
+
+        assertEquals("leon\n", read(new File(people, "vertices")));
+        assertFalse(new File(people, "edges").exists());
+        assertFalse(new File(people, "eprops").exists());
+
+        // Directories which are left empty are removed.
+        g = new GitGraph(baseDir);
+        g.removeVertex(g.getVertex("people/leon"));
+        g.shutdown();
+
+        assertFalse(people.exists());
+        assertEquals(citiesBefore, read(new File(cities, "vprops")));
+
+        g = new GitGraph(baseDir);
+        assertEquals(1, count(g.getVertices()));
+        assertEquals("Berlin", g.getVertex("cities/berlin").getProperty("name"));
+        g.shutdown();
+    }
+
+    public void testParallelLoad() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-parallel");
+
+        g = new GitGraph(baseDir);
+        for (int i = 0; i < 10; i++) {
+            Vertex hub = g.addVertex("part" + i + "/hub");
+            hub.setProperty("index", i);
+            for (int j = 0; j < 10; j++) {
+                Vertex v = g.addVertex("part" + i + "/sub" + j + "/v");
+                g.addEdge("part" + i + "/e" + j, hub, v, "contains").setProperty("weight", j);
+            }
+            if (i > 0) {
+                g.addEdge("e" + i, g.getVertex("part" + (i - 1) + "/hub"), hub, "next");
+            }
+        }
+        g.shutdown();
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setLoaderThreads(4);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(110, count(g.getVertices()));
+        assertEquals(109, count(g.getEdges()));
+        assertEquals(7, g.getVertex("part7/hub").getProperty("index"));
+        assertEquals(11, count(g.getVertex("part7/hub").getOutEdges()));
+        assertEquals(3, g.getEdge("part7/e3").getProperty("weight"));
+        assertEquals("part6/hub", g.getEdge("e7").getOutVertex().getId());
+        g.shutdown();
+    }
+
+    public void testSaveWithSmallSortMemory() throws Exception {
+        File root = createTempDirectory("gitgraph-test-sort");
+        File inMemoryDir = new File(root, "in-memory");
+        File onDiskDir = new File(root, "on-disk");
+
+        GitGraphSettings settings = new GitGraphSettings();
+        // Small enough that every file is sorted in many runs.
+        settings.setSortMemory(256);
+
+        Graph inMemory = new GitGraph(inMemoryDir);
+        Graph onDisk = new GitGraph(onDiskDir, settings);
+        for (Graph g : new Graph[]{inMemory, onDisk}) {
+            for (int i = 0; i < 500; i++) {
+                Vertex v = g.addVertex("things/v" + ((i * 7919) % 500));
+                v.setProperty("n", i);
+                v.setProperty("name", "thing number " + i);
+            }
+            for (int i = 0; i < 499; i++) {
+                g.addEdge("things/e" + i, g.getVertex("things/v" + i), g.getVertex("things/v" + (i + 1)), "next")
+                        .setProperty("weight", (double) i);
+            }
+            g.shutdown();
+        }
+
+        for (String name : new String[]{"vertices", "edges", "vprops", "eprops"}) {
+            String expected = read(new File(inMemoryDir, "things/" + name));
+            assertTrue(expected.length() > 0);
+            assertEquals(expected, read(new File(onDiskDir, "things/" + name)));
+        }
+
+        onDisk = new GitGraph(onDiskDir, settings);
+        assertEquals(500, count(onDisk.getVertices()));
+        assertEquals(499, count(onDisk.getEdges()));
+        assertEquals("things/v42", onDisk.getEdge("things/e41").getInVertex().getId());
+        onDisk.shutdown();
+    }
+
+    public void testLazyLoad() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-lazy");
+
+        g = new GitGraph(baseDir);
+        for (int i = 0; i < 200; i++) {
+            Vertex v = g.addVertex("people/p" + i);
+            v.setProperty("name", "person\t" + i);
+            v.setProperty("age", i);
+        }
+        for (int i = 0; i < 199; i++) {
+            g.addEdge("people/knows" + i, g.getVertex("people/p" + i), g.getVertex("people/p" + (i + 1)), "knows")
+                    .setProperty("since", 2000 + i);
+        }
+        Vertex berlin = g.addVertex("cities/berlin");
+        berlin.setProperty("name", "Berlin");
+        g.addEdge("livesIn", g.getVertex("people/p7"), berlin, "livesIn");
+        g.shutdown();
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setLazy(true);
+
+        g = new GitGraph(baseDir, settings);
+        for (int i = 0; i < 200; i++) {
+            Vertex v = g.getVertex("people/p" + i);
+            assertNotNull(v);
+            assertEquals("person\t" + i, v.getProperty("name"));
+            assertEquals(i, v.getProperty("age"));
+        }
+        assertNull(g.getVertex("people/p200"));
+        assertNull(g.getVertex("people/"));
+        assertNull(g.getVertex("nobody/p1"));
+        assertNull(g.getEdge("people/knows199"));
+
+        Edge e = g.getEdge("people/knows42");
+        assertEquals("people/p42", e.getOutVertex().getId());
+        assertEquals("people/p43", e.getInVertex().getId());
+        assertEquals(2042, e.getProperty("since"));
+
+        // Edges of a vertex are found in the directories which contain it.
+        Vertex p7 = g.getVertex("people/p7");
+        assertEquals(2, count(p7.getOutEdges()));
+        assertEquals(1, count(p7.getInEdges()));
+        assertEquals(1, count(g.getVertex("cities/berlin").getInEdges()));
+
+        // Removed and changed elements are not loaded again from the files.
+        g.removeVertex(g.getVertex("people/p100"));
+        assertNull(g.getVertex("people/p100"));
+        assertNull(g.getEdge("people/knows99"));
+        g.getVertex("people/p101").setProperty("age", -1);
+        g.shutdown();
+
+        g = new GitGraph(baseDir, settings);
+        assertNull(g.getVertex("people/p100"));
+        assertEquals(-1, g.getVertex("people/p101").getProperty("age"));
+        assertEquals(200, count(g.getVertices()));
+        assertEquals(198, count(g.getEdges()));
+        g.shutdown();
+
+        g = new GitGraph(baseDir);
+        assertEquals(200, count(g.getVertices()));
+        assertEquals(198, count(g.getEdges()));
+        g.shutdown();
+    }
+
+    public void testOffsetIndices() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-offsets");
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setOffsetIndices(true);
+
+        g = new GitGraph(baseDir, settings);
+        for (int i = 0; i < 100; i++) {
+            Vertex v = g.addVertex("people/p" + i);
+            v.setProperty("name", "person " + i);
+            if (i > 0) {
+                g.addEdge("people/knows" + i, g.getVertex("people/p" + (i - 1)), v, "knows").setProperty("since", i);
+            }
+        }
+        g.addVertex("cities/berlin").setProperty("name", "Berlin");
+        g.shutdown();
+
+        File people = new File(baseDir, "people");
+        assertTrue(new File(people, OffsetIndex.FILE_NAME).exists());
+        assertTrue(new File(baseDir, "cities/" + OffsetIndex.FILE_NAME).exists());
+        assertEquals(OffsetIndex.FILE_NAME + "\n", read(new File(baseDir, ".gitignore")));
+
+        OffsetIndex index = OffsetIndex.read(people);
+        assertNotNull(index);
+        assertEquals(1, index.getOffsets("vertices", "p42").length);
+        assertEquals(0, index.getOffsets("edges", "p42").length);
+
+        // Lookups use the index.
+        settings.setLazy(true);
+        g = new GitGraph(baseDir, settings);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("person " + i, g.getVertex("people/p" + i).getProperty("name"));
+        }
+        assertNull(g.getVertex("people/p100"));
+        assertEquals(42, g.getEdge("people/knows42").getProperty("since"));
+        g.getVertex("cities/berlin").setProperty("name", "Berlin, Germany");
+        g.shutdown();
+
+        // Only changed directories are indexed again, and the .gitignore entry is not repeated.
+        assertEquals(OffsetIndex.FILE_NAME + "\n", read(new File(baseDir, ".gitignore")));
+        assertNotNull(OffsetIndex.read(new File(baseDir, "cities")));
+
+        // An index is ignored once its files have changed, or if it has been damaged.
+        File vertices = new File(people, "vertices");
+        vertices.setLastModified(vertices.lastModified() - 10000);
+        assertNull(OffsetIndex.read(people));
+        OffsetIndex.write(people);
+        assertNotNull(OffsetIndex.read(people));
+        RandomAccessFile raf = new RandomAccessFile(new File(people, OffsetIndex.FILE_NAME), "rw");
+        try {
+            raf.seek(raf.length() - 20);
+            int b = raf.read();
+            raf.seek(raf.length() - 20);
+            raf.write(b ^ 1);
+        } finally {
+            raf.close();
+        }
+        assertNull(OffsetIndex.read(people));
+
+        g = new GitGraph(baseDir, settings);
+        assertEquals("person 7", g.getVertex("people/p7").getProperty("name"));
+        assertEquals(7, g.getEdge("people/knows7").getProperty("since"));
+        g.shutdown();
+
+        // Indices are ignored when loading, and removed along with their directories.
+        settings.setLazy(false);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(101, count(g.getVertices()));
+        assertEquals("Berlin, Germany", g.getVertex("cities/berlin").getProperty("name"));
+        g.removeVertex(g.getVertex("cities/berlin"));
+        g.shutdown();
+        assertFalse(new File(baseDir, "cities").exists());
+    }
+
+    public void testAdjacencyFiles() throws Exception {
+        GitGraph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-adjacency");
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setAdjacencyFiles(true);
+
+        // A binary tree of depth 6.
+        g = new GitGraph(baseDir, settings);
+        g.addVertex("tree/n1");
+        for (int i = 2; i < 128; i++) {
+            g.addVertex("tree/n" + i);
+            g.addEdge("tree/e" + i, g.getVertex("tree/n" + (i / 2)), g.getVertex("tree/n" + i), 0 == i % 2 ? "left" : "right")
+                    .setProperty("weight", i);
+        }
+        g.addVertex("root");
+        g.addEdge("top", g.getVertex("root"), g.getVertex("tree/n1"), "top");
+        g.shutdown();
+
+        File tree = new File(baseDir, "tree");
+        String adjacency = read(new File(tree, "adjacency"));
+        assertTrue(adjacency.startsWith("n1\tleft\te2\tn2\nn1\tright\te3\tn3\n"));
+        assertEquals("adjacency\n", read(new File(baseDir, ".gitignore")));
+
+        // Out-edges are loaded from the adjacency file alone, so a damaged edges file goes unnoticed.
+        File edges = new File(tree, "edges");
+        String edgesBefore = read(edges);
+        long adjacencyModified = new File(tree, "adjacency").lastModified();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(edges), "UTF-8");
+        try {
+            writer.write("bad\n");
+        } finally {
+            writer.close();
+        }
+        edges.setLastModified(adjacencyModified);
+
+        settings.setLazy(true);
+        g = new GitGraph(baseDir, settings);
+        Vertex n2 = g.loadNeighborhood("tree/n2", 2);
+        assertEquals(2, count(n2.getOutEdges()));
+        int grandchildren = 0;
+        for (Edge e : n2.getOutEdges()) {
+            assertEquals(e.getId().toString().substring(6), e.getProperty("weight").toString());
+            grandchildren += count(e.getInVertex().getOutEdges());
+        }
+        assertEquals(4, grandchildren);
+        assertEquals(1, count(g.getVertex("root").getOutEdges("top")));
+        assertNull(g.loadNeighborhood("tree/n128", 1));
+
+        try {
+            n2.getInEdges();
+            fail();
+        } catch (RuntimeException e) {
+            // expected: in-edges require the edges file
+        }
+        g.shutdown();
+
+        // An adjacency file which is older than its edges file is ignored.
+        Writer restore = new OutputStreamWriter(new FileOutputStream(edges), "UTF-8");
+        try {
+            restore.write(edgesBefore);
+        } finally {
+            restore.close();
+        }
+        edges.setLastModified(adjacencyModified + 10000);
+        new File(tree, "adjacency").setLastModified(adjacencyModified);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(2, count(g.loadNeighborhood("tree/n5", 1).getOutEdges()));
+        assertEquals(1, count(g.getVertex("tree/n5").getInEdges()));
+        g.removeEdge(g.getEdge("tree/e10"));
+        g.shutdown();
+
+        assertFalse(read(new File(tree, "adjacency")).contains("\te10\t"));
+        assertEquals(125, read(new File(tree, "adjacency")).split("\n").length);
+    }
+
+    public void testPartialLoad() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-partial");
+
+        g = new GitGraph(baseDir);
+        Vertex berlin = g.addVertex("cities/berlin");
+        berlin.setProperty("name", "Berlin");
+        Vertex paris = g.addVertex("cities/paris");
+        Vertex leon = g.addVertex("people/europe/leon");
+        leon.setProperty("name", "Leon");
+        Vertex melaney = g.addVertex("people/europe/melaney");
+        Vertex bob = g.addVertex("people/america/bob");
+        g.addEdge("people/europe/knows", leon, melaney, "knows");
+        g.addEdge("people/knows", bob, leon, "knows");
+        g.addEdge("livesIn1", leon, berlin, "livesIn");
+        g.addEdge("livesIn2", bob, paris, "visited").setProperty("year", 2010);
+        g.addEdge("cities/near", berlin, paris, "near");
+        g.shutdown();
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setPrefixes(Arrays.asList("people/europe/"));
+
+        // Dropped edges
+        g = new GitGraph(baseDir, settings);
+        assertEquals(2, count(g.getVertices()));
+        assertEquals(1, count(g.getEdges()));
+        assertNull(g.getVertex("cities/berlin"));
+        try {
+            g.addVertex("cities/london");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            g.addEdge("livesIn1", g.getVertex("people/europe/leon"), g.getVertex("people/europe/melaney"), "x");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        g.shutdown();
+
+        // Stub vertices
+        settings.setDanglingEdgePolicy(DanglingEdgePolicy.STUB);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(4, count(g.getVertices()));
+        assertEquals(3, count(g.getEdges()));
+        Vertex stub = g.getVertex("cities/berlin");
+        assertEquals(0, stub.getPropertyKeys().size());
+        assertEquals(1, count(stub.getInEdges()));
+        assertNull(g.getVertex("cities/paris"));
+        try {
+            stub.setProperty("name", "Berlin, Germany");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        g.addEdge("visited", g.getVertex("people/europe/melaney"), stub, "visited");
+        g.shutdown();
+
+        // Lazily-resolved vertices
+        settings.setDanglingEdgePolicy(DanglingEdgePolicy.LAZY);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(4, count(g.getEdges()));
+        Vertex lazy = g.getVertex("cities/berlin");
+        assertEquals("Berlin", lazy.getProperty("name"));
+        lazy.setProperty("population", 3400000);
+        try {
+            g.removeVertex(lazy);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        g.shutdown();
+
+        // Removing a vertex also removes edges which were dropped.
+        settings.setDanglingEdgePolicy(DanglingEdgePolicy.DROP);
+        g = new GitGraph(baseDir, settings);
+        g.removeVertex(g.getVertex("people/europe/leon"));
+        g.shutdown();
+
+        g = new GitGraph(baseDir);
+        assertEquals(4, count(g.getVertices()));
+        assertEquals(3, count(g.getEdges()));
+        assertEquals("Berlin", g.getVertex("cities/berlin").getProperty("name"));
+        assertEquals(3400000, g.getVertex("cities/berlin").getProperty("population"));
+        assertEquals(2010, g.getEdge("livesIn2").getProperty("year"));
+        assertNull(g.getEdge("people/knows"));
+        assertNotNull(g.getEdge("visited"));
+        g.shutdown();
+    }
+
+    public void testJournal() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-journal");
+        File journal = new File(baseDir, GitGraphHelper.JOURNAL);
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setJournal(true);
+
+        g = new GitGraph(baseDir, settings);
+        Vertex leon = g.addVertex("people/leon");
+        leon.setProperty("name", "Leon\tthe\nProfessional");
+        Vertex berlin = g.addVertex("berlin");
+        berlin.setProperty("population", 3400000);
+        Edge e = g.addEdge("livesIn", leon, berlin, "livesIn");
+        e.setProperty("since", new float[]{2009f});
+        Vertex temp = g.addVertex("temp");
+        temp.setProperty("x", 1);
+        temp.removeProperty("x");
+        g.removeVertex(temp);
+        ((GitGraph) g).checkpoint();
+        assertFalse(journal.exists());
+        assertTrue(new File(baseDir, "vertices").exists());
+
+        Vertex melaney = g.addVertex("people/melaney");
+        g.addEdge("knows", leon, melaney, "knows").setProperty("weight", 0.5);
+        berlin.removeProperty("population");
+        g.removeEdge(e);
+        assertTrue(journal.exists());
+
+        // Abandon the graph without shutting it down, and append part of a record, as if interrupted while writing.
+        Writer w = new OutputStreamWriter(new FileOutputStream(journal, true), "UTF-8");
+        w.write("+V\tpeople/bo");
+        w.close();
+
+        g = new GitGraph(baseDir, settings);
+        assertEquals(3, count(g.getVertices()));
+        assertEquals(1, count(g.getEdges()));
+        assertEquals("Leon\tthe\nProfessional", g.getVertex("people/leon").getProperty("name"));
+        assertNull(g.getVertex("berlin").getProperty("population"));
+        assertNull(g.getEdge("livesIn"));
+        assertEquals(0.5, g.getEdge("knows").getProperty("weight"));
+        assertNull(g.getVertex("people/bo"));
+        g.shutdown();
+        assertFalse(journal.exists());
+        assertTrue(read(new File(baseDir, ".gitignore")).contains(GitGraphHelper.JOURNAL));
+
+        // Periodic checkpoints.  The graph is left open while the journal is replayed by another instance.
+        settings.setCheckpointInterval(10);
+        Graph periodic = new GitGraph(baseDir, settings);
+        try {
+            for (int i = 0; i < 25; i++) {
+                periodic.addVertex("v" + i);
+            }
+            assertEquals(5, read(journal).split("\n").length);
+            Graph replayed = new GitGraph(baseDir);
+            try {
+                assertEquals(28, count(replayed.getVertices()));
+                assertTrue(journal.exists());
+            } finally {
+                replayed.shutdown();
+            }
+            assertFalse(journal.exists());
+            Graph saved = new GitGraph(baseDir);
+            try {
+                assertEquals(28, count(saved.getVertices()));
+            } finally {
+                saved.shutdown();
+            }
+        } finally {
+            periodic.shutdown();
+        }
+    }
+
+    public void testInterruptedSave() throws Exception {
+        Graph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-interrupted");
+
+        g = new GitGraph(baseDir);
+        g.addVertex("a/x");
+        g.addVertex("b/y").setProperty("name", "y");
+        g.shutdown();
+
+        // A save which was interrupted before it was committed leaves only staged files, which are ignored.
+        write(new File(baseDir, "a/vertices.tmp"), "x\nz\n");
+        g = new GitGraph(baseDir);
+        assertEquals(2, count(g.getVertices()));
+        assertNull(g.getVertex("a/z"));
+        g.shutdown();
+
+        // A save which was interrupted after it was committed is completed on load.
+        write(new File(baseDir, "a/vertices.tmp"), "x\nz\n");
+        write(new File(baseDir, "b/vprops.tmp"), "y\tname\tString\tY\n");
+        write(new File(baseDir, GitGraphHelper.COMMIT), "R\ta/vertices\nR\tb/vprops\nD\tb/eprops\n");
+        new File(baseDir, "a/vertices.tmp").renameTo(new File(baseDir, "a/vertices"));
+        write(new File(baseDir, "a/vertices.tmp"), "x\nz\n");
+        g = new GitGraph(baseDir);
+        assertFalse(new File(baseDir, GitGraphHelper.COMMIT).exists());
+        assertFalse(new File(baseDir, "b/vprops.tmp").exists());
+        assertEquals(3, count(g.getVertices()));
+        assertNotNull(g.getVertex("a/z"));
+        assertEquals("Y", g.getVertex("b/y").getProperty("name"));
+        g.shutdown();
+    }
+
+    public void testBackgroundCheckpoints() throws Exception {
+        GitGraph g;
+
+        File baseDir = createTempDirectory("gitgraph-test-checkpoints");
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.setJournal(true);
+        // Long enough that only the checkpoints run explicitly by the test take place.
+        settings.setCheckpointPeriod(3600000);
+
+        g = new GitGraph(baseDir, settings);
+        for (int i = 0; i < 100; i++) {
+            Vertex v = g.addVertex("people/" + i);
+            v.setProperty("age", i);
+            if (i > 0) {
+                g.addEdge("people/knows" + i, g.getVertex("people/" + (i - 1)), v, "knows");
+            }
+        }
+        g.checkpointInBackground().get();
+        CheckpointMetrics metrics = g.getCheckpointMetrics();
+        assertEquals(1, metrics.getCheckpointCount());
+        assertTrue(metrics.getTotalBytesWritten() > 0);
+        assertEquals(199, metrics.getTotalDirtyCount());
+        assertEquals(0, metrics.getFailureCount());
+        assertEquals(0, g.getDirtyCount());
+        assertFalse(new File(baseDir, GitGraphHelper.OLD_JOURNAL).exists());
+
+        // Mutate the graph while it is being saved.
+        Future<?> checkpoint = g.checkpointInBackground();
+        for (int i = 0; i < 1000; i++) {
+            Vertex v = g.getVertex("people/" + (i % 100));
+            v.setProperty("age", i);
+            if (0 == i % 10) {
+                g.removeVertex(g.addVertex("temp" + i));
+            }
+        }
+        checkpoint.get();
+        // Changes made after the snapshot was taken are saved by the next checkpoint.
+        g.checkpointInBackground().get();
+        assertEquals(0, g.getDirtyCount());
+        assertEquals(0, metrics.getFailureCount());
+
+        // A failure before the files are written, here in moving the journal aside, is also recorded.
+        File oldJournal = new File(baseDir, GitGraphHelper.OLD_JOURNAL);
+        assertTrue(oldJournal.mkdir());
+        g.getVertex("people/0").setProperty("age", 900);
+        g.checkpointInBackground().get();
+        assertEquals(1, metrics.getFailureCount());
+        assertTrue(metrics.getLastFailure() instanceof IOException);
+        assertEquals(1, g.getDirtyCount());
+        assertTrue(oldJournal.delete());
+        g.checkpointInBackground().get();
+        assertEquals(0, g.getDirtyCount());
+        assertEquals(1, metrics.getFailureCount());
+        g.shutdown();
+
+        settings.setLazy(true);
+        settings.setCheckpointPeriod(0);
+        g = new GitGraph(baseDir, settings);
+        assertEquals(999, g.getVertex("people/99").getProperty("age"));
+        assertEquals(900, g.getVertex("people/0").getProperty("age"));
+        assertNull(g.getVertex("temp10"));
+        assertEquals(99, count(g.getEdges()));
+
+        // In lazy mode, changed elements are not reloaded from files which are being rewritten.
+        settings.setCheckpointPeriod(3600000);
+        g.shutdown();
+        g = new GitGraph(baseDir, settings);
+        g.removeVertex(g.getVertex("people/50"));
+        checkpoint = g.checkpointInBackground();
+        while (!checkpoint.isDone()) {
+            assertNull(g.getVertex("people/50"));
+        }
+        checkpoint.get();
+        assertNull(g.getVertex("people/50"));
+        assertEquals(1, g.getCheckpointMetrics().getCheckpointCount());
+        g.shutdown();
+
+        // Mutations past the checkpoint interval request a single background checkpoint at a time.
+        settings.setCheckpointInterval(10);
+        g = new GitGraph(baseDir, settings);
+        for (int i = 0; i < 1000; i++) {
+            g.getVertex("people/" + (i % 50)).setProperty("age", -i);
+        }
+        g.checkpointInBackground().get();
+        assertEquals(0, g.getDirtyCount());
+        assertTrue(g.getCheckpointMetrics().getCheckpointCount() <= 100);
+        g.shutdown();
+    }
+
+    // A fresh directory of the given name in the platform's temp directory.
+    private File createTempDirectory(final String name) {
+        File dir = System.getProperty("os.name").toUpperCase().contains("WINDOWS")
+                ? new File("C:/temp/" + name)
+                : new File("/tmp/" + name);
+        if (dir.exists()) {
+            GitGraphHelper.deleteDirectory(dir);
+        }
+        return dir;
+    }
+
+    private void write(final File file,
+                       final String s) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(s);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private String read(final File file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            int c;
+            while ((c = reader.read()) != -1) {
+                sb.append((char) c);
+            }
+        } finally {
+            reader.close();
+        }
+        return sb.toString();
+    }
+
     private int count(final Iterable i) {
         int c = 0;
         for (Object o : i) {
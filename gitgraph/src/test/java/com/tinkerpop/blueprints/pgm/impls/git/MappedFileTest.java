@@ -0,0 +1,84 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/**
+ * Tests of reading GitGraph files through memory-mapped buffers.
+ */
+public class MappedFileTest extends TestCase {
+    private File file;
+
+    @Override
+    public void setUp() throws Exception {
+        file = File.createTempFile("gitgraph-mapped-", ".test");
+        RowWriter writer = new RowWriter(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                writer.writeEscaped(name(i));
+                writer.writeTab();
+                writer.writeEscaped("value\t\u00E9" + i);
+                writer.endRow();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testSearch() throws Exception {
+        // Small segments, so that many rows span two of them.
+        for (int shift : new int[]{5, 8, 30}) {
+            MappedFile mapped = new MappedFile(file, shift);
+            assertEquals(file.length(), mapped.length());
+
+            for (int i = 0; i < 1000; i++) {
+                long offset = mapped.search(key(name(i)));
+                RowReader reader = mapped.readRows(offset);
+                assertTrue(reader.next(2));
+                assertEquals(name(i), reader.getField(0));
+                assertEquals("value\t\u00E9" + i, reader.getField(1));
+            }
+
+            assertEquals(0, mapped.search(key("")));
+            assertEquals(mapped.length(), mapped.search(key("z")));
+
+            // A missing key is positioned before the first following row.
+            RowReader reader = mapped.readRows(mapped.search(key(name(500) + "0")));
+            assertTrue(reader.next(2));
+            assertEquals(name(501), reader.getField(0));
+        }
+    }
+
+    public void testSequentialRead() throws Exception {
+        MappedFile mapped = new MappedFile(file, 6);
+        RowReader reader = mapped.readRows(0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(reader.next(2));
+            assertEquals(name(i), reader.getField(0));
+        }
+        assertFalse(reader.next(2));
+    }
+
+    private String name(final int i) {
+        return "v" + (10000 + i);
+    }
+
+    private MappedFile.RowKey key(final String name) {
+        return new MappedFile.RowKey() {
+            public int getMaxFields() {
+                return 2;
+            }
+
+            public int compareRow(final RowReader reader) {
+                return reader.getField(0).compareTo(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Compares the single-pass row codec with the regular expression codec which GitGraph used originally,
+ * for writing and reading property rows.
+ * Usage: RowFormatBenchmark [rows]
+ */
+public class RowFormatBenchmark {
+    private static final int TRIALS = 10;
+
+    public static void main(final String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.valueOf(args[0]) : 200000;
+
+        Random random = new Random(42);
+        String[] names = new String[rows];
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            names[i] = "vertex" + random.nextInt(1000000);
+            values[i] = 0 == i % 10 ? "a value\twith a tab" : "plain value number " + random.nextInt();
+        }
+
+        byte[] data = null;
+        long regexWrite = 0, regexRead = 0, rowWrite = 0, rowRead = 0;
+        // The first round is a warm-up.
+        for (int t = 0; t <= TRIALS; t++) {
+            long before = System.nanoTime();
+            data = writeRegex(names, values);
+            long regexWriteTime = System.nanoTime() - before;
+
+            before = System.nanoTime();
+            int check = readRegex(data);
+            long regexReadTime = System.nanoTime() - before;
+
+            before = System.nanoTime();
+            data = writeRows(names, values);
+            long rowWriteTime = System.nanoTime() - before;
+
+            before = System.nanoTime();
+            check -= readRows(data);
+            long rowReadTime = System.nanoTime() - before;
+
+            if (0 != check) {
+                throw new IllegalStateException("codecs disagree");
+            }
+
+            if (t > 0) {
+                regexWrite += regexWriteTime;
+                regexRead += regexReadTime;
+                rowWrite += rowWriteTime;
+                rowRead += rowReadTime;
+            }
+        }
+
+        System.out.println(rows + " rows, " + data.length + " bytes");
+        System.out.println("regex write: " + regexWrite / TRIALS / 1000000 + " ms, read: " + regexRead / TRIALS / 1000000 + " ms");
+        System.out.println("row write:   " + rowWrite / TRIALS / 1000000 + " ms, read: " + rowRead / TRIALS / 1000000 + " ms");
+    }
+
+    private static byte[] writeRegex(final String[] names,
+                                     final String[] values) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < names.length; i++) {
+            write(out, RowFormatTest.regexEscape(names[i]));
+            out.write('\t');
+            write(out, RowFormatTest.regexEscape("name"));
+            out.write('\t');
+            write(out, ("String\t" + RowFormatTest.regexEscape(values[i])));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(final OutputStream out,
+                              final String s) throws Exception {
+        out.write(s.getBytes());
+    }
+
+    private static int readRegex(final byte[] data) throws Exception {
+        java.io.BufferedReader reader = new java.io.BufferedReader(
+                new java.io.InputStreamReader(new ByteArrayInputStream(data), "UTF-8"));
+        int total = 0;
+        String l;
+        while ((l = reader.readLine()) != null) {
+            int t1 = l.indexOf('\t');
+            int t2 = l.indexOf('\t', t1 + 1);
+            int t3 = l.indexOf('\t', t2 + 1);
+            total += RowFormatTest.regexUnescape(l.substring(0, t1)).length();
+            total += RowFormatTest.regexUnescape(l.substring(t1 + 1, t2)).length();
+            total += RowFormatTest.regexUnescape(l.substring(t3 + 1)).length();
+        }
+        return total;
+    }
+
+    private static byte[] writeRows(final String[] names,
+                                    final String[] values) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowWriter writer = new RowWriter(out);
+        for (int i = 0; i < names.length; i++) {
+            writer.writeEscaped(names[i]);
+            writer.writeTab();
+            writer.writeEscaped("name");
+            writer.writeTab();
+            writer.write("String");
+            writer.writeTab();
+            writer.writeEscaped(values[i]);
+            writer.endRow();
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static int readRows(final byte[] data) throws Exception {
+        RowReader reader = new RowReader(new ByteArrayInputStream(data));
+        int total = 0;
+        while (reader.next(4)) {
+            total += reader.getField(0).length();
+            total += reader.getField(1).length();
+            total += reader.getField(3).length();
+        }
+        return total;
+    }
+}
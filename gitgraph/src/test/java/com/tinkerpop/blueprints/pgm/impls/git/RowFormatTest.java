@@ -0,0 +1,136 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Round-trip tests for the row format of GitGraph files.
+ */
+public class RowFormatTest extends TestCase {
+    private static final int TRIALS = 10000;
+
+    // A mix of delimiters, escape characters, ASCII, and multi-byte characters (including a surrogate pair).
+    private static final char[] ALPHABET = {
+            '\t', '\n', '\r', '\\', 't', 'n', 'r', 'a', ' ', '/', '0', '-', '\u00E9', '\u00DF', '\u4E2D', '\uD83D', '\uDE00'};
+
+    public void testEscapeMatchesRegexFormat() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < TRIALS; i++) {
+            String s = randomString(random);
+            // The format is unchanged for all strings which the regex codec could read back.
+            if (s.indexOf('\\') < 0 && s.indexOf('\r') < 0) {
+                assertEquals(regexEscape(s), RowWriter.escape(s));
+                assertEquals(regexUnescape(regexEscape(s)), RowReader.unescape(RowWriter.escape(s)));
+            }
+            assertEquals(s, RowReader.unescape(RowWriter.escape(s)));
+        }
+    }
+
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(42);
+        String[][] rows = new String[TRIALS][];
+        for (int i = 0; i < TRIALS; i++) {
+            rows[i] = new String[1 + random.nextInt(4)];
+            for (int j = 0; j < rows[i].length; j++) {
+                rows[i][j] = randomString(random);
+            }
+        }
+
+        // Use a small buffer, so that characters are split across buffer boundaries.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowWriter writer = new RowWriter(out, 7);
+        for (String[] row : rows) {
+            for (int j = 0; j < row.length; j++) {
+                if (j > 0) {
+                    writer.writeTab();
+                }
+                writer.writeEscaped(row[j]);
+            }
+            writer.endRow();
+        }
+        writer.close();
+
+        byte[] bytes = out.toByteArray();
+        assertEquals(bytes.length, writer.getBytesWritten());
+
+        RowReader reader = new RowReader(new ByteArrayInputStream(bytes), 5);
+        for (String[] row : rows) {
+            assertTrue(reader.next(4));
+            assertEquals(row.length, reader.getFieldCount());
+            for (int j = 0; j < row.length; j++) {
+                assertEquals(row[j], reader.getField(j));
+            }
+        }
+        assertFalse(reader.next(4));
+    }
+
+    public void testEncodingMatchesStringBytes() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < TRIALS; i++) {
+            String s = randomString(random);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            RowWriter writer = new RowWriter(out, 3);
+            writer.writeEscaped(s);
+            writer.close();
+            assertEquals(new String(RowWriter.escape(s).getBytes("UTF-8"), "UTF-8"), new String(out.toByteArray(), "UTF-8"));
+        }
+    }
+
+    public void testParseLong() throws Exception {
+        String[] values = {"0", "-1", "+7", "12345", "-9223372036854775808", "9223372036854775807"};
+        for (String v : values) {
+            RowReader reader = new RowReader(new ByteArrayInputStream(("x\t" + v + "\n").getBytes("UTF-8")));
+            assertTrue(reader.next(2));
+            assertEquals(Long.parseLong(v), reader.parseLong(1));
+        }
+
+        RowReader reader = new RowReader(new ByteArrayInputStream("1x\n".getBytes("UTF-8")));
+        assertTrue(reader.next(1));
+        try {
+            reader.parseLong(0);
+            fail();
+        } catch (NumberFormatException e) {
+            // Expected
+        }
+    }
+
+    public void testWindowsLineEndings() throws Exception {
+        RowReader reader = new RowReader(new ByteArrayInputStream("a\tb\r\nc\r\n".getBytes("UTF-8")));
+        assertTrue(reader.next(2));
+        assertEquals("b", reader.getField(1));
+        assertTrue(reader.next(2));
+        assertEquals("c", reader.getField(0));
+        assertFalse(reader.next(2));
+    }
+
+    private String randomString(final Random random) {
+        int length = random.nextInt(12);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            char c = ALPHABET[random.nextInt(ALPHABET.length)];
+            // Keep surrogates paired.
+            if ('\uD83D' == c || '\uDE00' == c) {
+                sb.append('\uD83D').append('\uDE00');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // The regular expression codec which GitGraph used originally, for comparison.
+    static String regexEscape(final String s) {
+        return s.replaceAll("\\\\", "\\\\")
+                .replaceAll("\\n", "\\\\n")
+                .replaceAll("\\t", "\\\\t");
+    }
+
+    static String regexUnescape(final String s) {
+        return s.replaceAll("\\\\t", "\t")
+                .replaceAll("\\\\n", "\n")
+                .replaceAll("\\\\", "\\");
+    }
+}
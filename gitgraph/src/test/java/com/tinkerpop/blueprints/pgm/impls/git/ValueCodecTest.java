@@ -0,0 +1,220 @@
+package com.tinkerpop.blueprints.pgm.impls.git;
+
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Round-trip tests for the encoding of property values in GitGraph files.
+ */
+public class ValueCodecTest extends TestCase {
+    private static final int TRIALS = 100000;
+
+    public void testBuiltinRoundTrip() throws Exception {
+        ValueCodecRegistry registry = new ValueCodecRegistry();
+        Object[] values = {
+                "foo\tbar", 42, -42L, true, 3.14159, 2.5f, (short) 7, (byte) -3, 'x', new Date(1304330000000L),
+                new byte[]{0, 1, -1, 127, -128}, new int[]{1, -2, 3}, new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE},
+                new double[]{0.1, -1e300, Double.NaN, Double.NEGATIVE_INFINITY}, new float[]{0.1f, 1e-40f},
+                new boolean[]{true, false}, new int[0]};
+        for (Object value : values) {
+            ValueCodec<?> codec = registry.getCodec(value.getClass());
+            assertNotNull(codec);
+            assertEquivalent(value, codec.decode(GitGraphHelper.encode(codec, value)));
+            assertSame(codec, registry.getCodec(codec.getTag()));
+        }
+
+        // A subclass is handled by the codec of its superclass.
+        assertSame(BuiltinValueCodecs.DATE, registry.getCodec(java.sql.Timestamp.class));
+        assertNull(registry.getCodec(Object.class));
+    }
+
+    public void testDecimalFastPath() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < TRIALS; i++) {
+            double d;
+            switch (random.nextInt(4)) {
+                case 0:
+                    d = random.nextDouble();
+                    break;
+                case 1:
+                    d = random.nextInt(1000000) / 1000.0;
+                    break;
+                case 2:
+                    d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(60) - 30);
+                    break;
+                default:
+                    d = Double.longBitsToDouble(random.nextLong());
+            }
+
+            String s = Double.toString(d);
+            assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)),
+                    Double.doubleToLongBits(BuiltinValueCodecs.parseDouble(s, 0, s.length())));
+
+            String f = Float.toString((float) d);
+            assertEquals(f, Float.floatToIntBits(Float.parseFloat(f)),
+                    Float.floatToIntBits(BuiltinValueCodecs.parseFloat(f, 0, f.length())));
+
+            // Shorter, hand-written decimals.
+            String h = (random.nextBoolean() ? "-" : "") + random.nextInt(100000) + "." + random.nextInt(1000)
+                    + (random.nextBoolean() ? "e" + (random.nextInt(40) - 20) : "");
+            assertEquals(h, Double.doubleToLongBits(Double.parseDouble(h)),
+                    Double.doubleToLongBits(BuiltinValueCodecs.parseDouble(h, 0, h.length())));
+            assertEquals(h, Float.floatToIntBits(Float.parseFloat(h)),
+                    Float.floatToIntBits(BuiltinValueCodecs.parseFloat(h, 0, h.length())));
+        }
+
+        for (String s : new String[]{"-0.0", "0", "1e22", "1e23", "9007199254740993", "0x1p3", "1.5d", ".5", "5."}) {
+            assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)),
+                    Double.doubleToLongBits(BuiltinValueCodecs.parseDouble(s, 0, s.length())));
+        }
+
+        try {
+            BuiltinValueCodecs.parseDouble("1.2.3", 0, 5);
+            fail();
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    public void testBase64() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            byte[] bytes = new byte[random.nextInt(20)];
+            random.nextBytes(bytes);
+            assertTrue(Arrays.equals(bytes, Base64.decode(Base64.encode(bytes))));
+        }
+        assertEquals("Zm9vYmFy", Base64.encode("foobar".getBytes("UTF-8")));
+        assertEquals("Zm9vYg==", Base64.encode("foob".getBytes("UTF-8")));
+
+        try {
+            Base64.decode("Zm9v!A==");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testGraphRoundTrip() throws Exception {
+        File baseDir = System.getProperty("os.name").toUpperCase().contains("WINDOWS")
+                ? new File("C:/temp/gitgraph-test-codecs")
+                : new File("/tmp/gitgraph-test-codecs");
+        if (baseDir.exists()) {
+            GitGraphHelper.deleteDirectory(baseDir);
+        }
+
+        GitGraphSettings settings = new GitGraphSettings();
+        settings.getCodecRegistry().register(new PointCodec());
+
+        Graph g = new GitGraph(baseDir, settings);
+        Vertex v = g.addVertex("things/v");
+        v.setProperty("embedding", new float[]{0.25f, -1.5f, 3e-7f});
+        v.setProperty("created", new Date(1304330000000L));
+        v.setProperty("thumbnail", new byte[]{1, 2, 3, 4});
+        v.setProperty("location", new Point(3, -4));
+        v.setProperty("name", "with \\\\ backslash");
+        g.shutdown();
+
+        for (boolean lazy : new boolean[]{false, true}) {
+            settings.setLazy(lazy);
+            g = new GitGraph(baseDir, settings);
+            v = g.getVertex("things/v");
+            assertTrue(Arrays.equals(new float[]{0.25f, -1.5f, 3e-7f}, (float[]) v.getProperty("embedding")));
+            assertEquals(new Date(1304330000000L), v.getProperty("created"));
+            assertTrue(Arrays.equals(new byte[]{1, 2, 3, 4}, (byte[]) v.getProperty("thumbnail")));
+            assertEquals(new Point(3, -4), v.getProperty("location"));
+            assertEquals("with \\\\ backslash", v.getProperty("name"));
+            g.shutdown();
+        }
+    }
+
+    public void testInvalidTags() throws Exception {
+        ValueCodecRegistry registry = new ValueCodecRegistry();
+        try {
+            registry.register(new PointCodec() {
+                @Override
+                public String getTag() {
+                    return "Integer";
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            registry.register(new PointCodec() {
+                @Override
+                public String getTag() {
+                    return "a\tb";
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void assertEquivalent(final Object expected,
+                                  final Object actual) {
+        if (expected instanceof byte[]) {
+            assertTrue(Arrays.equals((byte[]) expected, (byte[]) actual));
+        } else if (expected instanceof int[]) {
+            assertTrue(Arrays.equals((int[]) expected, (int[]) actual));
+        } else if (expected instanceof long[]) {
+            assertTrue(Arrays.equals((long[]) expected, (long[]) actual));
+        } else if (expected instanceof double[]) {
+            assertTrue(Arrays.equals((double[]) expected, (double[]) actual));
+        } else if (expected instanceof float[]) {
+            assertTrue(Arrays.equals((float[]) expected, (float[]) actual));
+        } else if (expected instanceof boolean[]) {
+            assertTrue(Arrays.equals((boolean[]) expected, (boolean[]) actual));
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static class Point {
+        public final int x, y;
+
+        public Point(final int x,
+                     final int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Point && ((Point) other).x == x && ((Point) other).y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * x + y;
+        }
+    }
+
+    private static class PointCodec implements ValueCodec<Point> {
+        public String getTag() {
+            return "Point";
+        }
+
+        public Class<Point> getValueClass() {
+            return Point.class;
+        }
+
+        public String encode(final Point value) {
+            return value.x + " " + value.y;
+        }
+
+        public Point decode(final CharSequence text) {
+            String s = text.toString();
+            int i = s.indexOf(' ');
+            return new Point(Integer.parseInt(s.substring(0, i)), Integer.parseInt(s.substring(i + 1)));
+        }
+    }
+}
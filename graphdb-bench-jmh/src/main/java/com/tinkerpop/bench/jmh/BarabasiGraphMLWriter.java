@@ -0,0 +1,82 @@
+package com.tinkerpop.bench.jmh;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import com.tinkerpop.bench.Bench;
+
+/**
+ * Writes a GraphML file of a scale-free graph, grown by preferential
+ * attachment (Barabasi-Albert), with the same shape as the barabasi datasets of
+ * the macro benchmarks: each vertex after the first is attached by DEGREE out
+ * edges to earlier vertices, and each vertex has its id as a property.
+ */
+public class BarabasiGraphMLWriter {
+
+	public static final int DEGREE = Integer.parseInt(Bench.benchProperties
+			.getProperty(Bench.GRAPHML_BARABASI_DEGREE));
+
+	// The first vertex has no earlier vertices to attach to
+	public static int getEdgeCount(int vertexCount) {
+		return (vertexCount - 1) * DEGREE;
+	}
+
+	public static void write(File file, int vertexCount, String idPropertyKey)
+			throws IOException {
+		(new File(file.getParent())).mkdirs();
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try {
+			String label = Bench.benchProperties.getProperty(Bench.GRAPH_LABEL);
+			Random random = new Random(42);
+
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			writer.newLine();
+			writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">");
+			writer.newLine();
+			writer.write("<key id=\"" + idPropertyKey + "\" for=\"node\" attr.name=\""
+					+ idPropertyKey + "\" attr.type=\"string\"/>");
+			writer.newLine();
+			writer.write("<graph id=\"G\" edgedefault=\"directed\">");
+			writer.newLine();
+
+			for (int v = 0; v < vertexCount; v++) {
+				writer.write("<node id=\"" + v + "\"><data key=\""
+						+ idPropertyKey + "\">" + v + "</data></node>");
+				writer.newLine();
+			}
+
+			// Each edge endpoint is recorded, so that a vertex is chosen as a
+			// target in proportion to its degree
+			int[] endpoints = new int[2 * getEdgeCount(vertexCount)];
+			int endpointCount = 0;
+			int edgeId = 0;
+
+			for (int v = 1; v < vertexCount; v++) {
+				for (int i = 0; i < DEGREE; i++) {
+					int target = (endpointCount == 0) ? 0
+							: endpoints[random.nextInt(endpointCount)];
+
+					writer.write("<edge id=\"" + edgeId++ + "\" source=\"" + v
+							+ "\" target=\"" + target + "\" label=\"" + label
+							+ "\"/>");
+					writer.newLine();
+
+					endpoints[endpointCount++] = v;
+					endpoints[endpointCount++] = target;
+				}
+			}
+
+			writer.write("</graph>");
+			writer.newLine();
+			writer.write("</graphml>");
+			writer.newLine();
+		} finally {
+			writer.close();
+		}
+	}
+
+}
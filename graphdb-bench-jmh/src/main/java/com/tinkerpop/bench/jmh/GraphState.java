@@ -0,0 +1,146 @@
+package com.tinkerpop.bench.jmh;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.tinkerpop.bench.Bench;
+import com.tinkerpop.bench.GraphDescriptor;
+import com.tinkerpop.bench.LogUtils;
+import com.tinkerpop.bench.operation.Operation;
+import com.tinkerpop.bench.operation.operations.OperationIndexPutAllElements;
+import com.tinkerpop.bench.operation.operations.OperationLoadGraphML;
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+import com.tinkerpop.blueprints.pgm.impls.neo4j.Neo4jGraph;
+import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientGraph;
+import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
+
+/**
+ * A graph shared by all threads of a benchmark, loaded once per trial.
+ * 
+ * The graph is loaded and indexed by the same Operations as the macro
+ * benchmarks use, from the same barabasi_[vertices]_[edges].graphml datasets,
+ * so that results compare directly. Where a dataset is missing, an equivalent
+ * graph is generated in its place.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+	// Number of vertices and edges whose ids are sampled for lookups
+	public static final int SAMPLE_SIZE = 1024;
+
+	private static final String GRAPHS_DIRECTORY = "target/jmh-graphs/";
+
+	@Param( { "TinkerGraph", "Neo4jGraph", "OrientGraph" })
+	public String graphType;
+
+	@Param( { "1000", "10000", "100000" })
+	public int graphSize;
+
+	public final String idPropertyKey = Bench.benchProperties
+			.getProperty(Bench.GRAPH_PROPERTY_ID);
+
+	private GraphDescriptor graphDescriptor = null;
+	private Object[] vertexIds = null;
+	private Object[] vertexIdProperties = null;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		String graphDir = GRAPHS_DIRECTORY + graphType + "-" + graphSize + "/";
+		LogUtils.deleteDir(graphDir);
+
+		graphDescriptor = createGraphDescriptor(graphDir);
+		graphDescriptor.openGraph();
+
+		execute(new OperationLoadGraphML(), getGraphMLPath());
+		execute(new OperationIndexPutAllElements(), idPropertyKey);
+
+		sampleVertices();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		graphDescriptor.deleteGraph();
+	}
+
+	//
+	// Getter methods
+	//
+	public Graph getGraph() {
+		return graphDescriptor.getGraph();
+	}
+
+	// Ids of randomly chosen vertices
+	public Object[] getVertexIds() {
+		return vertexIds;
+	}
+
+	// Values of the indexed id property of the same vertices
+	public Object[] getVertexIdProperties() {
+		return vertexIdProperties;
+	}
+
+	//
+	// Helper methods
+	//
+	private GraphDescriptor createGraphDescriptor(String graphDir) {
+		if (graphType.equals("TinkerGraph"))
+			return new GraphDescriptor(TinkerGraph.class);
+		if (graphType.equals("Neo4jGraph"))
+			return new GraphDescriptor(Neo4jGraph.class, graphDir, graphDir);
+		if (graphType.equals("OrientGraph"))
+			return new GraphDescriptor(OrientGraph.class, graphDir, "local:"
+					+ graphDir);
+		throw new IllegalArgumentException("Unknown graph type: " + graphType);
+	}
+
+	// Datasets of the macro benchmarks are named for [vertices] * degree edges,
+	// generated graphs for the edges they actually have
+	private String getGraphMLPath() throws Exception {
+		File dataset = new File(Bench.benchProperties
+				.getProperty(Bench.DATASETS_DIRECTORY)
+				+ "barabasi_" + graphSize + "_"
+				+ (graphSize * BarabasiGraphMLWriter.DEGREE) + ".graphml");
+		if (dataset.exists())
+			return dataset.getPath();
+
+		File generated = new File(GRAPHS_DIRECTORY + "barabasi_" + graphSize
+				+ "_" + BarabasiGraphMLWriter.getEdgeCount(graphSize)
+				+ ".graphml");
+		if (generated.exists() == false)
+			BarabasiGraphMLWriter.write(generated, graphSize, idPropertyKey);
+		return generated.getPath();
+	}
+
+	private void execute(Operation operation, String arg) throws Exception {
+		operation.setArgs(new String[] { arg });
+		operation.initialize(graphDescriptor);
+		operation.execute();
+	}
+
+	private void sampleVertices() {
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+		for (Vertex vertex : getGraph().getVertices())
+			vertices.add(vertex);
+
+		Collections.shuffle(vertices, new Random(42));
+
+		int sampleSize = Math.min(SAMPLE_SIZE, vertices.size());
+		vertexIds = new Object[sampleSize];
+		vertexIdProperties = new Object[sampleSize];
+		for (int i = 0; i < sampleSize; i++) {
+			vertexIds[i] = vertices.get(i).getId();
+			vertexIdProperties[i] = vertices.get(i).getProperty(idPropertyKey);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.tinkerpop.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tinkerpop.blueprints.pgm.Index;
+import com.tinkerpop.blueprints.pgm.IndexableGraph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * Index.get(key, value) on the vertex index, as in OperationIndexGetElements
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexGetBenchmark {
+
+	private Index<Vertex> vIndex = null;
+
+	@Setup
+	public void setUp(GraphState graphState) {
+		vIndex = ((IndexableGraph) graphState.getGraph()).getIndex(
+				Index.VERTICES, Vertex.class);
+	}
+
+	@Benchmark
+	public void indexGet(GraphState graphState, SampleCursor cursor,
+			Blackhole blackhole) {
+		Object[] values = graphState.getVertexIdProperties();
+		for (Vertex vertex : vIndex.get(graphState.idPropertyKey,
+				values[cursor.next(values.length)]))
+			blackhole.consume(vertex);
+	}
+
+}
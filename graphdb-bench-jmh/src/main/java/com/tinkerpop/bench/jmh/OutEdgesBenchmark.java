@@ -0,0 +1,47 @@
+package com.tinkerpop.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * Iteration over Vertex.getOutEdges(), of vertices already looked up
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutEdgesBenchmark {
+
+	private Vertex[] vertices = null;
+
+	@Setup
+	public void setUp(GraphState graphState) {
+		Object[] vertexIds = graphState.getVertexIds();
+		vertices = new Vertex[vertexIds.length];
+		for (int i = 0; i < vertexIds.length; i++)
+			vertices[i] = graphState.getGraph().getVertex(vertexIds[i]);
+	}
+
+	@Benchmark
+	public void getOutEdges(SampleCursor cursor, Blackhole blackhole) {
+		for (Edge edge : vertices[cursor.next(vertices.length)].getOutEdges())
+			blackhole.consume(edge);
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.tinkerpop.bench.jmh;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tinkerpop.bench.operation.operations.OperationPipesEchoLazy;
+import com.tinkerpop.blueprints.pgm.Vertex;
+import com.tinkerpop.pipes.Pipeline;
+
+/**
+ * The VertexEdgePipe/EdgeVertexPipe chain of OperationPipesEchoLazy, from one
+ * start vertex, for a number of steps
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipesEchoBenchmark {
+
+	@Param( { "1", "2", "3" })
+	public int steps;
+
+	// Pipelines hold the state of a traversal, so each thread has its own
+	private Pipeline pipeline = null;
+	private Vertex[] vertices = null;
+
+	@Setup
+	public void setUp(GraphState graphState) {
+		pipeline = OperationPipesEchoLazy.createPipeline(steps);
+
+		Object[] vertexIds = graphState.getVertexIds();
+		vertices = new Vertex[vertexIds.length];
+		for (int i = 0; i < vertexIds.length; i++)
+			vertices[i] = graphState.getGraph().getVertex(vertexIds[i]);
+	}
+
+	@Benchmark
+	public int echo(SampleCursor cursor, Blackhole blackhole) {
+		int counter = 0;
+		pipeline.setStarts(Arrays.asList(vertices[cursor.next(vertices.length)])
+				.iterator());
+		while (pipeline.hasNext()) {
+			blackhole.consume(pipeline.next());
+			counter++;
+		}
+		return counter;
+	}
+
+}
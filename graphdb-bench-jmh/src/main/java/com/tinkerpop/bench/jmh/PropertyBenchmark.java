@@ -0,0 +1,55 @@
+package com.tinkerpop.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * Element.getProperty(key) and Element.setProperty(key, value), of vertices
+ * already looked up. Writes go to a key of their own, so that the indexed id
+ * property read by other benchmarks is left unchanged.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertyBenchmark {
+
+	private static final String WRITE_PROPERTY_KEY = "jmh_write";
+
+	private Vertex[] vertices = null;
+
+	@Setup
+	public void setUp(GraphState graphState) {
+		Object[] vertexIds = graphState.getVertexIds();
+		vertices = new Vertex[vertexIds.length];
+		for (int i = 0; i < vertexIds.length; i++)
+			vertices[i] = graphState.getGraph().getVertex(vertexIds[i]);
+	}
+
+	@Benchmark
+	public Object getProperty(GraphState graphState, SampleCursor cursor) {
+		return vertices[cursor.next(vertices.length)]
+				.getProperty(graphState.idPropertyKey);
+	}
+
+	@Benchmark
+	public void setProperty(SampleCursor cursor) {
+		int index = cursor.next(vertices.length);
+		vertices[index].setProperty(WRITE_PROPERTY_KEY, index);
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.tinkerpop.bench.jmh;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cycles, in each thread, through the vertices sampled by GraphState, so that
+ * consecutive invocations of a benchmark touch different vertices.
+ */
+@State(Scope.Thread)
+public class SampleCursor {
+
+	private int index = 0;
+
+	public int next(int sampleSize) {
+		index = (index + 1 == sampleSize) ? 0 : index + 1;
+		return index;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.tinkerpop.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+/**
+ * Graph.getVertex(id)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexLookupBenchmark {
+
+	@Benchmark
+	public Vertex getVertex(GraphState graphState, SampleCursor cursor) {
+		Object[] vertexIds = graphState.getVertexIds();
+		return graphState.getGraph().getVertex(
+				vertexIds[cursor.next(vertexIds.length)]);
+	}
+
+}
@@ -31,6 +31,7 @@ public class Bench {
 
 	// GRAPH FILES
 	public static final String GRAPHML_BARABASI = "bench.graph.barabasi.file";
+	public static final String GRAPHML_BARABASI_DEGREE = "bench.graph.barabasi.degree";
 
 	static {
 		try {
@@ -3,17 +3,41 @@ package com.tinkerpop.bench;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import com.tinkerpop.bench.log.OperationLogEntry;
 import com.tinkerpop.bench.log.OperationLogWriter;
 import com.tinkerpop.bench.operation.Operation;
+import com.tinkerpop.bench.operation.OperationDeleteGraph;
 import com.tinkerpop.bench.operation.OperationDoGC;
 import com.tinkerpop.bench.operation.OperationOpenGraph;
 import com.tinkerpop.bench.operation.OperationShutdownGraph;
+import com.tinkerpop.bench.operation.operations.OperationLoadGraphML;
 import com.tinkerpop.bench.operationFactory.OperationFactory;
 import com.tinkerpop.bench.operationFactory.OperationFactoryGeneric;
 import com.tinkerpop.bench.operationFactory.OperationFactoryLog;
 
 /**
+ * Executes the Operations of a sequence of OperationFactories against a graph,
+ * logging each Operation as it completes.
+ * 
+ * By default, Operations are executed one at a time, in the calling thread. If
+ * more than one thread is requested, each factory is instead drained by that
+ * many worker threads, each of which takes the next Operation from the factory
+ * as soon as it has completed the previous one (closed-loop). If a target rate
+ * is also set, Operations are started at that rate, in operations per second,
+ * irrespective of how long earlier Operations take (open-loop), and the time
+ * of each is measured from when it was due rather than from when it started.
+ * Operations which open, shut down, load or delete the graph, or collect
+ * garbage, are never executed concurrently with any other Operation.
+ * 
+ * In concurrent mode each worker logs to its own file, and the worker logs are
+ * merged into the log file, in order of Operation id, once the factory has been
+ * drained. The number of threads is recorded with each logged Operation.
+ * 
  * @author Alex Averbuch (alex.averbuch@gmail.com)
  * @author Martin Neumann (m.neumann.1980@gmail.com)
  */
@@ -24,6 +48,10 @@ public class BenchRunner {
 
 	private ArrayList<OperationFactory> operationFactories = null;
 
+	private File logFile = null;
+	private int threads = 1;
+	private double targetRate = 0;
+
 	public BenchRunner(GraphDescriptor graphDescriptor, File logFile,
 			final OperationFactory operationFactory) throws IOException {
 		this(graphDescriptor, logFile, new ArrayList<OperationFactory>() {
@@ -39,10 +67,27 @@ public class BenchRunner {
 			ArrayList<OperationFactory> operationFactories) throws IOException {
 		this.graphDescriptor = graphDescriptor;
 		this.operationFactories = operationFactories;
+		this.logFile = logFile;
 
 		logWriter = LogUtils.getOperationLogWriter(logFile);
 	}
 
+	//
+	// Setter methods
+	//
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+		this.threads = threads;
+	}
+
+	// Operations per second across all threads, or 0 for closed-loop
+	public void setTargetRate(double targetRate) {
+		if (targetRate < 0)
+			throw new IllegalArgumentException("targetRate must not be negative");
+		this.targetRate = targetRate;
+	}
+
 	public void startBench() throws Exception {
 		try {
 			int startingOpId = -1;
@@ -70,19 +115,10 @@ public class BenchRunner {
 
 				System.out.println(operationFactory.getClass().getSimpleName());
 
-				for (Operation operation : operationFactory) {
-
-					operation.initialize(graphDescriptor);
-
-					System.out.printf("\tOperation[%d] Type[%s]...", operation
-							.getId(), operation.getName());
-
-					operation.execute();
-
-					System.out.println("Complete");
-
-					logWriter.logOperation(operation);
-				}
+				if (threads == 1 && targetRate == 0)
+					runSequential(operationFactory);
+				else
+					runConcurrent(operationFactory);
 
 				startingOpId = operationFactory.getCurrentOpId();
 
@@ -111,4 +147,252 @@ public class BenchRunner {
 		}
 	}
 
-}
\ No newline at end of file
+	private void runSequential(OperationFactory operationFactory)
+			throws Exception {
+		for (Operation operation : operationFactory) {
+
+			operation.initialize(graphDescriptor);
+
+			System.out.printf("\tOperation[%d] Type[%s]...", operation.getId(),
+					operation.getName());
+
+			operation.execute();
+
+			System.out.println("Complete");
+
+			logWriter.logOperation(operation);
+		}
+	}
+
+	private void runConcurrent(OperationFactory operationFactory)
+			throws Exception {
+		OperationScheduler scheduler = new OperationScheduler(operationFactory);
+
+		File[] workerLogFiles = new File[threads];
+		Worker[] workers = new Worker[threads];
+		Thread[] workerThreads = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workerLogFiles[i] = new File(logFile.getPath() + ".thread" + i);
+			workers[i] = new Worker(i, scheduler, LogUtils
+					.getOperationLogWriter(workerLogFiles[i], threads));
+			workerThreads[i] = new Thread(workers[i], "BenchRunner-worker-"
+					+ i);
+		}
+
+		for (Thread workerThread : workerThreads)
+			workerThread.start();
+
+		for (Thread workerThread : workerThreads)
+			workerThread.join();
+
+		for (Worker worker : workers)
+			if (worker.getException() != null)
+				throw worker.getException();
+
+		mergeLogs(workerLogFiles);
+
+		for (File workerLogFile : workerLogFiles)
+			workerLogFile.delete();
+	}
+
+	// Each worker log is ordered by Operation id, so they are merged in a
+	// single pass
+	private void mergeLogs(File[] workerLogFiles) throws IOException {
+		ArrayList<Iterator<OperationLogEntry>> iterators = new ArrayList<Iterator<OperationLogEntry>>();
+		ArrayList<OperationLogEntry> heads = new ArrayList<OperationLogEntry>();
+
+		for (File workerLogFile : workerLogFiles) {
+			Iterator<OperationLogEntry> iterator = LogUtils
+					.getOperationLogReader(workerLogFile).iterator();
+			if (iterator.hasNext()) {
+				iterators.add(iterator);
+				heads.add(iterator.next());
+			}
+		}
+
+		while (heads.isEmpty() == false) {
+			int min = 0;
+			for (int i = 1; i < heads.size(); i++)
+				if (heads.get(i).getOpId() < heads.get(min).getOpId())
+					min = i;
+
+			logWriter.logOperation(heads.get(min));
+
+			if (iterators.get(min).hasNext()) {
+				heads.set(min, iterators.get(min).next());
+			} else {
+				iterators.remove(min);
+				heads.remove(min);
+			}
+		}
+	}
+
+	// Operations which change the state of the whole graph
+	private static boolean isExclusive(Operation operation) {
+		return operation instanceof OperationOpenGraph
+				|| operation instanceof OperationShutdownGraph
+				|| operation instanceof OperationDeleteGraph
+				|| operation instanceof OperationDoGC
+				|| operation instanceof OperationLoadGraphML;
+	}
+
+	/**
+	 * Hands out the Operations of a factory to worker threads, along with the
+	 * lock under which each must be executed and, in open-loop mode, the time
+	 * at which it is due to start.
+	 * 
+	 * Each Operation is given a ticket in the order it is taken from the
+	 * factory, and Operations are admitted to their locks in ticket order, so
+	 * that an exclusive Operation runs after all Operations taken before it and
+	 * before all Operations taken after it. Workers wait for their Operations
+	 * to fall due before they are admitted, without holding any lock, so an
+	 * idle worker never keeps others from taking or starting Operations.
+	 */
+	private class OperationScheduler {
+		private final OperationFactory operationFactory;
+		// Fair, so that Operations admitted after an exclusive Operation wait
+		// for it to complete
+		private final ReadWriteLock executionLock = new ReentrantReadWriteLock(
+				true);
+		private final long startNanos = System.nanoTime();
+		private long scheduled = 0;
+		private final Object admission = new Object();
+		private long nextAdmission = 0;
+		private volatile boolean aborted = false;
+
+		public OperationScheduler(OperationFactory operationFactory) {
+			this.operationFactory = operationFactory;
+		}
+
+		// Returns null once the factory is drained, or a worker has failed
+		public synchronized ScheduledOperation next() {
+			if (aborted || operationFactory.hasNext() == false)
+				return null;
+
+			Operation operation = operationFactory.next();
+
+			Lock lock = isExclusive(operation) ? executionLock.writeLock()
+					: executionLock.readLock();
+
+			long dueNanos = (targetRate == 0) ? -1 : startNanos
+					+ (long) (scheduled * 1000000000d / targetRate);
+
+			return new ScheduledOperation(operation, lock, scheduled++,
+					dueNanos);
+		}
+
+		// Acquires the lock of the Operation once all Operations with earlier
+		// tickets have acquired theirs. Returns false, without acquiring it, if
+		// a worker has failed
+		public boolean admit(ScheduledOperation scheduled)
+				throws InterruptedException {
+			synchronized (admission) {
+				while (scheduled.ticket != nextAdmission) {
+					if (aborted)
+						return false;
+					admission.wait();
+				}
+			}
+
+			// Only the holder of the current ticket gets here, so the lock is
+			// requested in ticket order
+			scheduled.lock.lock();
+
+			synchronized (admission) {
+				nextAdmission++;
+				admission.notifyAll();
+			}
+			return true;
+		}
+
+		public void abort() {
+			aborted = true;
+			synchronized (admission) {
+				admission.notifyAll();
+			}
+		}
+	}
+
+	private static class ScheduledOperation {
+		private final Operation operation;
+		private final Lock lock;
+		private final long ticket;
+		// System.nanoTime() at which the Operation is due, or -1 if closed-loop
+		private final long dueNanos;
+
+		public ScheduledOperation(Operation operation, Lock lock, long ticket,
+				long dueNanos) {
+			this.operation = operation;
+			this.lock = lock;
+			this.ticket = ticket;
+			this.dueNanos = dueNanos;
+		}
+	}
+
+	private class Worker implements Runnable {
+		private final int index;
+		private final OperationScheduler scheduler;
+		private final OperationLogWriter workerLogWriter;
+		private Exception exception = null;
+
+		public Worker(int index, OperationScheduler scheduler,
+				OperationLogWriter workerLogWriter) {
+			this.index = index;
+			this.scheduler = scheduler;
+			this.workerLogWriter = workerLogWriter;
+		}
+
+		public Exception getException() {
+			return exception;
+		}
+
+		@Override
+		public void run() {
+			try {
+				ScheduledOperation scheduled = null;
+				while ((scheduled = scheduler.next()) != null) {
+					// In open-loop mode, a late Operation is started at once
+					if (scheduled.dueNanos != -1) {
+						long waitNanos = scheduled.dueNanos - System.nanoTime();
+						if (waitNanos > 0)
+							Thread.sleep(waitNanos / 1000000,
+									(int) (waitNanos % 1000000));
+					}
+
+					if (scheduler.admit(scheduled) == false)
+						break;
+					try {
+						execute(scheduled);
+					} finally {
+						scheduled.lock.unlock();
+					}
+				}
+			} catch (Exception e) {
+				exception = e;
+				scheduler.abort();
+			} finally {
+				try {
+					workerLogWriter.close();
+				} catch (IOException e) {
+					if (exception == null)
+						exception = e;
+				}
+			}
+		}
+
+		private void execute(ScheduledOperation scheduled) throws Exception {
+			Operation operation = scheduled.operation;
+
+			// In open-loop mode, time is measured from when the Operation was
+			// due, so that time spent queued behind slow Operations is counted
+			operation.initialize(graphDescriptor);
+			operation.execute(scheduled.dueNanos);
+
+			System.out.printf("\tOperation[%d] Type[%s] Thread[%d]...Complete\n",
+					operation.getId(), operation.getName(), index);
+
+			workerLogWriter.logOperation(operation);
+		}
+	}
+
+}
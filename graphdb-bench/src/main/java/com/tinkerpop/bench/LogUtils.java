@@ -2,8 +2,13 @@ package com.tinkerpop.bench;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
+import com.tinkerpop.bench.log.OperationBinaryLog;
+import com.tinkerpop.bench.log.OperationBinaryLogReader;
+import com.tinkerpop.bench.log.OperationBinaryLogWriter;
+import com.tinkerpop.bench.log.OperationLogEntry;
 import com.tinkerpop.bench.log.OperationLogReader;
 import com.tinkerpop.bench.log.OperationLogWriter;
 import com.tinkerpop.bench.log.SummaryLogWriter;
@@ -19,8 +24,33 @@ public class LogUtils {
 		summaryLogWriter.writeSummary(summaryFilePath, resultFilePaths);
 	}
 
-	public static OperationLogReader getOperationLogReader(File logFile) {
-		return new OperationLogReader(logFile);
+	// Merges the result files of each graph, e.g. of repeated runs
+	public static void makeMergedResultsSummary(String summaryFilePath,
+			Map<String, List<String>> resultFilePaths) throws IOException {
+		SummaryLogWriter summaryLogWriter = new SummaryLogWriter();
+		summaryLogWriter.writeMergedSummary(summaryFilePath, resultFilePaths);
+	}
+
+	// Reads .csv and binary operation logs alike
+	public static Iterable<OperationLogEntry> getOperationLogReader(
+			File logFile) {
+		if (OperationBinaryLog.isBinaryLog(logFile) == false)
+			return new OperationLogReader(logFile);
+
+		try {
+			return new OperationBinaryLogReader(logFile);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not open binary operation log",
+					e);
+		}
+	}
+
+	// Releases a reader of getOperationLogReader, e.g. the mapping of a binary
+	// log, before it has been read to the end
+	public static void closeOperationLogReader(
+			Iterable<OperationLogEntry> reader) {
+		if (reader instanceof OperationBinaryLogReader)
+			((OperationBinaryLogReader) reader).close();
 	}
 
 	public static OperationLogWriter getOperationLogWriter(File logFile)
@@ -28,6 +58,16 @@ public class LogUtils {
 		return new OperationLogWriter(logFile);
 	}
 
+	public static OperationLogWriter getOperationLogWriter(File logFile,
+			int threads) throws IOException {
+		return new OperationLogWriter(logFile, threads);
+	}
+
+	public static OperationBinaryLogWriter getOperationBinaryLogWriter(
+			File logFile) throws IOException {
+		return new OperationBinaryLogWriter(logFile);
+	}
+
 	// FIXME (new File(pathStr)).mkdirs(); seems to cause problems with Neo4j
 	// for some reason...
 	// public static void cleanDir(String pathStr) {
@@ -14,7 +14,13 @@ import com.tinkerpop.blueprints.pgm.Vertex;
 public class StatisticsHelper {
 
 	private static Random rand = new Random(42);
-	private static long time = -1l;
+	// Held per thread, so that concurrent stop watches do not interfere
+	private static ThreadLocal<Long> time = new ThreadLocal<Long>() {
+		@Override
+		protected Long initialValue() {
+			return -1l;
+		}
+	};
 
 	public static Object[] getSampleVertexIds(Graph db, Evaluator evaluator,
 			int sampleSize) {
@@ -55,12 +61,12 @@ public class StatisticsHelper {
 	}
 
 	public static long stopWatch() {
-		if (time == -1l) {
-			time = System.currentTimeMillis();
-			return time;
+		if (time.get() == -1l) {
+			time.set(System.currentTimeMillis());
+			return time.get();
 		} else {
-			long temp = System.currentTimeMillis() - time;
-			time = -1l;
+			long temp = System.currentTimeMillis() - time.get();
+			time.set(-1l);
 			return temp;
 		}
 	}
@@ -5,6 +5,8 @@ import java.util.ArrayList;
 
 import com.tinkerpop.bench.BenchRunner;
 import com.tinkerpop.bench.GraphDescriptor;
+import com.tinkerpop.bench.log.OperationBinaryLog;
+import com.tinkerpop.bench.log.OperationLogConverter;
 import com.tinkerpop.bench.operationFactory.OperationFactoryLog;
 import com.tinkerpop.bench.operationFactory.OperationFactory;
 import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
@@ -37,14 +39,26 @@ public abstract class Benchmark {
 
 	public final void loadOperationLogs(GraphDescriptor graphDescriptor,
 			String logOut) throws Exception {
+		loadOperationLogs(graphDescriptor, logOut, 1);
+	}
+
+	public final void loadOperationLogs(GraphDescriptor graphDescriptor,
+			String logOut, int threads) throws Exception {
 		if (new File(log).exists() == false)
 			createOperationLogs();
 
-		OperationFactory operationFactory = new OperationFactoryLog(new File(
-				log));
+		// Replay from a binary copy of the log, which needs no parsing. The copy
+		// is recognized by the length and checksum of the log it was converted
+		// from, as modification times may be too coarse to show it is stale
+		File binaryLog = new File(log + ".bin");
+		if (OperationBinaryLog.isConversionOf(binaryLog, new File(log)) == false)
+			OperationLogConverter.csvToBinary(new File(log), binaryLog);
+
+		OperationFactory operationFactory = new OperationFactoryLog(binaryLog);
 
 		BenchRunner benchRunner = new BenchRunner(graphDescriptor, new File(
 				logOut), operationFactory);
+		benchRunner.setThreads(threads);
 
 		benchRunner.startBench();
 	}
@@ -0,0 +1,207 @@
+package com.tinkerpop.bench.log;
+
+/**
+ * A fixed-memory histogram of latencies, in nanoseconds, with a bounded
+ * relative error, in the style of HdrHistogram.
+ *
+ * Values are counted in buckets whose width doubles with each power of two, and
+ * each of which is divided into enough sub-buckets to resolve values to the
+ * requested number of significant decimal digits. Memory therefore depends only
+ * on the range and precision of the histogram, not on the number of values
+ * recorded. Values above the highest trackable value are counted in the highest
+ * bucket, while the exact minimum and maximum are kept separately.
+ *
+ * Histograms with the same range and precision can be merged, e.g. to combine
+ * the latencies recorded by several threads, or several runs. A histogram is
+ * not thread-safe: each thread records to its own, and they are merged.
+ */
+public class LatencyHistogram {
+
+	// One hour
+	public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 3600L * 1000000000L;
+	public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+	private final long highestTrackableValue;
+	private final int significantDigits;
+
+	private final int subBucketHalfCountMagnitude;
+	private final int subBucketHalfCount;
+	private final long subBucketMask;
+	private final int leadingZeroCountBase;
+	private final long[] counts;
+
+	private long totalCount = 0;
+	private double sum = 0;
+	private double sumOfSquares = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = -1;
+
+	public LatencyHistogram() {
+		this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SIGNIFICANT_DIGITS);
+	}
+
+	public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+		if (highestTrackableValue < 2)
+			throw new IllegalArgumentException(
+					"highestTrackableValue must be at least 2");
+		if (significantDigits < 1 || significantDigits > 5)
+			throw new IllegalArgumentException(
+					"significantDigits must be between 1 and 5");
+
+		this.highestTrackableValue = highestTrackableValue;
+		this.significantDigits = significantDigits;
+
+		// Enough sub-buckets to tell apart values differing by one unit in the
+		// last significant digit
+		long largestSingleUnitResolution = 2 * (long) Math.pow(10,
+				significantDigits);
+		int subBucketCountMagnitude = (int) Math.ceil(Math
+				.log(largestSingleUnitResolution)
+				/ Math.log(2));
+		int subBucketCount = 1 << subBucketCountMagnitude;
+
+		this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+		this.subBucketHalfCount = subBucketCount / 2;
+		this.subBucketMask = subBucketCount - 1;
+		this.leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+		int bucketCount = 1;
+		long smallestUntrackableValue = subBucketCount;
+		while (smallestUntrackableValue <= highestTrackableValue) {
+			if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+				bucketCount++;
+				break;
+			}
+			smallestUntrackableValue <<= 1;
+			bucketCount++;
+		}
+
+		this.counts = new long[(bucketCount + 1) * subBucketHalfCount];
+	}
+
+	//
+	// Recording
+	//
+	public void record(long value) {
+		record(value, 1);
+	}
+
+	public void record(long value, long count) {
+		if (value < 0)
+			throw new IllegalArgumentException("value must not be negative");
+
+		counts[countsIndex(Math.min(value, highestTrackableValue))] += count;
+
+		totalCount += count;
+		sum += (double) value * count;
+		sumOfSquares += (double) value * value * count;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public void merge(LatencyHistogram other) {
+		if (other.highestTrackableValue != highestTrackableValue
+				|| other.significantDigits != significantDigits)
+			throw new IllegalArgumentException(
+					"Histograms have different ranges or precisions");
+
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+
+		totalCount += other.totalCount;
+		sum += other.sum;
+		sumOfSquares += other.sumOfSquares;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public void reset() {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = 0;
+
+		totalCount = 0;
+		sum = 0;
+		sumOfSquares = 0;
+		min = Long.MAX_VALUE;
+		max = -1;
+	}
+
+	//
+	// Getter methods
+	//
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	// Exact, since the sum is kept alongside the buckets
+	public double getMean() {
+		return (totalCount == 0) ? 0 : sum / totalCount;
+	}
+
+	public double getStdev() {
+		if (totalCount == 0)
+			return 0;
+		double mean = getMean();
+		return Math.sqrt(Math.max(0, sumOfSquares / totalCount - mean * mean));
+	}
+
+	// Exact, or -1 if nothing has been recorded
+	public long getMin() {
+		return (totalCount == 0) ? -1 : min;
+	}
+
+	// Exact, or -1 if nothing has been recorded
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the highest value equivalent, within the precision of this
+	 * histogram, to the value below which the given percentage of recorded
+	 * values fall. Never greater than the exact maximum.
+	 *
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the value at the percentile, or -1 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0)
+			return -1;
+
+		double fraction = Math.min(Math.max(percentile, 0), 100) / 100;
+		long countAtPercentile = Math.max(1, (long) Math.ceil(fraction
+				* totalCount));
+
+		long cumulativeCount = 0;
+		for (int i = 0; i < counts.length; i++) {
+			cumulativeCount += counts[i];
+			if (cumulativeCount >= countAtPercentile)
+				return Math.min(highestEquivalentValue(i), max);
+		}
+
+		return max;
+	}
+
+	//
+	// Bucket arithmetic
+	//
+	private int countsIndex(long value) {
+		int bucketIndex = leadingZeroCountBase
+				- Long.numberOfLeadingZeros(value | subBucketMask);
+		int subBucketIndex = (int) (value >>> bucketIndex);
+		return ((bucketIndex + 1) << subBucketHalfCountMagnitude)
+				+ (subBucketIndex - subBucketHalfCount);
+	}
+
+	private long highestEquivalentValue(int index) {
+		int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+		int subBucketIndex = (index & (subBucketHalfCount - 1))
+				+ subBucketHalfCount;
+		if (bucketIndex < 0) {
+			subBucketIndex -= subBucketHalfCount;
+			bucketIndex = 0;
+		}
+		long lowestEquivalentValue = ((long) subBucketIndex) << bucketIndex;
+		return lowestEquivalentValue + (1L << bucketIndex) - 1;
+	}
+}
@@ -0,0 +1,153 @@
+package com.tinkerpop.bench.log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of the binary operation log, shared by OperationBinaryLogWriter and
+ * OperationBinaryLogReader.
+ *
+ * A binary log is a header, followed by blocks of rows, followed by a
+ * dictionary. Within a block, each column is stored contiguously with a fixed
+ * width, so the value of any column of any row is found by arithmetic alone.
+ * Names, types, results and args are stored in the dictionary once, and are
+ * referred to from the rows by their position in it.
+ *
+ * header: magic (int), version (int), rows per block (int), row count (long),
+ * dictionary offset (long), length (long) and CRC-32 (int) of the .csv log it
+ * was converted from, or -1 and 0 if it was not, padding to HEADER_BYTES
+ *
+ * block: BLOCK_ROWS values of each column, in the order of COLUMN_WIDTHS. The
+ * last block may hold fewer rows, in which case its columns are as long as its
+ * row count
+ *
+ * dictionary: string count (int), then each string as its length (int) and
+ * UTF-8 bytes; args count (int), then each args array as its length (int) and
+ * the dictionary index of each arg (int). A null string is stored as index -1
+ */
+public class OperationBinaryLog {
+
+	// "GBOL"
+	public static final int MAGIC = 0x47424F4C;
+	public static final int VERSION = 3;
+
+	public static final int HEADER_BYTES = 48;
+
+	// Offsets of the fields of the header
+	public static final int HEADER_ROW_COUNT = 12;
+	public static final int HEADER_DICTIONARY_OFFSET = 20;
+	public static final int HEADER_SOURCE_LENGTH = 28;
+	public static final int HEADER_SOURCE_CRC = 36;
+	public static final int BLOCK_ROWS = 4096;
+
+	public static final int COL_ID = 0;
+	public static final int COL_NAME = 1;
+	public static final int COL_TYPE = 2;
+	public static final int COL_ARGS = 3;
+	public static final int COL_TIME = 4;
+	public static final int COL_RESULT = 5;
+	public static final int COL_TIME_NANOS = 6;
+	public static final int COL_CPU_TIME_NANOS = 7;
+	public static final int COL_ALLOCATED_BYTES = 8;
+	public static final int COL_THREADS = 9;
+	public static final int COL_END_NANOS = 10;
+
+	// Bytes per value of each column
+	public static final int[] COLUMN_WIDTHS = new int[] { 4, 4, 4, 4, 8, 4, 8,
+			8, 8, 4, 8 };
+
+	// Bytes per row, across all columns
+	public static final int ROW_BYTES;
+
+	// Bytes per row of the columns preceding each column
+	private static final int[] COLUMN_OFFSETS = new int[COLUMN_WIDTHS.length];
+
+	static {
+		int offset = 0;
+		for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+			COLUMN_OFFSETS[i] = offset;
+			offset += COLUMN_WIDTHS[i];
+		}
+		ROW_BYTES = offset;
+	}
+
+	public static final int BLOCK_BYTES = ROW_BYTES * BLOCK_ROWS;
+
+	// Offset of a value within a block of blockRows rows
+	public static int offsetInBlock(int blockRows, int rowInBlock, int column) {
+		return COLUMN_OFFSETS[column] * blockRows + rowInBlock
+				* COLUMN_WIDTHS[column];
+	}
+
+	// Position of a value in a file of rowCount rows
+	public static long position(long rowCount, long row, int column) {
+		long block = row / BLOCK_ROWS;
+		int blockRows = (int) Math.min(BLOCK_ROWS, rowCount - block
+				* BLOCK_ROWS);
+		return HEADER_BYTES + block * BLOCK_BYTES
+				+ offsetInBlock(blockRows, (int) (row % BLOCK_ROWS), column);
+	}
+
+	// True if the file begins with the magic number of a binary log
+	public static boolean isBinaryLog(File logFile) {
+		if (logFile.length() < HEADER_BYTES)
+			return false;
+
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(
+					logFile));
+			try {
+				return in.readInt() == MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	// True if the binary log was converted from the .csv log as it is now,
+	// judged by its length and checksum rather than by modification times,
+	// which may be too coarse to tell apart a log rewritten since
+	public static boolean isConversionOf(File binaryLogFile, File csvLogFile)
+			throws IOException {
+		if (isBinaryLog(binaryLogFile) == false)
+			return false;
+
+		DataInputStream in = new DataInputStream(new FileInputStream(
+				binaryLogFile));
+		long sourceLength;
+		int sourceCrc;
+		try {
+			in.readFully(new byte[HEADER_SOURCE_LENGTH]);
+			sourceLength = in.readLong();
+			sourceCrc = in.readInt();
+		} finally {
+			in.close();
+		}
+
+		return sourceLength == csvLogFile.length()
+				&& sourceCrc == checksum(csvLogFile);
+	}
+
+	// CRC-32 of the contents of a file
+	public static int checksum(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			byte[] bytes = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(bytes)) != -1)
+				crc.update(bytes, 0, read);
+		} finally {
+			in.close();
+		}
+		return (int) crc.getValue();
+	}
+
+}
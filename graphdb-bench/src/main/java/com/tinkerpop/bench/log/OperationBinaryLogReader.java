@@ -0,0 +1,221 @@
+package com.tinkerpop.bench.log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a binary operation log, as laid out in OperationBinaryLog, through a
+ * memory-mapped view of the file. The dictionary is decoded once, when the log
+ * is opened, after which any column of any row is read without parsing.
+ * 
+ * Logs of up to 2GB, i.e. tens of millions of operations, can be mapped. The
+ * mapping is released when the reader is closed, after which it can no longer
+ * be read.
+ */
+public class OperationBinaryLogReader implements Iterable<OperationLogEntry>,
+		Closeable {
+
+	private MappedByteBuffer buffer = null;
+	private long rowCount = -1;
+	private String[] strings = null;
+	private String[][] argsList = null;
+
+	public OperationBinaryLogReader(File logFile) throws IOException {
+		super();
+
+		RandomAccessFile file = new RandomAccessFile(logFile, "r");
+		try {
+			if (file.length() > Integer.MAX_VALUE)
+				throw new IOException("Binary log too large to map: "
+						+ logFile);
+
+			// The mapping remains valid once the file is closed
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					file.length());
+		} finally {
+			file.close();
+		}
+
+		if (buffer.limit() < OperationBinaryLog.HEADER_BYTES
+				|| buffer.getInt(0) != OperationBinaryLog.MAGIC)
+			throw new IOException("Not a binary operation log: " + logFile);
+		if (buffer.getInt(4) != OperationBinaryLog.VERSION)
+			throw new IOException("Unsupported binary operation log version: "
+					+ buffer.getInt(4));
+		if (buffer.getInt(8) != OperationBinaryLog.BLOCK_ROWS)
+			throw new IOException("Unsupported binary operation log block size: "
+					+ buffer.getInt(8));
+
+		rowCount = buffer.getLong(OperationBinaryLog.HEADER_ROW_COUNT);
+		readDictionary((int) buffer
+				.getLong(OperationBinaryLog.HEADER_DICTIONARY_OFFSET));
+	}
+
+	@Override
+	public void close() {
+		if (buffer == null)
+			return;
+
+		MappedByteBuffer mapped = buffer;
+		buffer = null;
+		unmap(mapped);
+	}
+
+	//
+	// Getter methods
+	//
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public int getOpId(long row) {
+		return getInt(row, OperationBinaryLog.COL_ID);
+	}
+
+	public String getName(long row) {
+		return getString(getInt(row, OperationBinaryLog.COL_NAME));
+	}
+
+	public String getType(long row) {
+		return getString(getInt(row, OperationBinaryLog.COL_TYPE));
+	}
+
+	public String[] getArgs(long row) {
+		int id = getInt(row, OperationBinaryLog.COL_ARGS);
+		return (id == -1) ? null : argsList[id].clone();
+	}
+
+	public long getTime(long row) {
+		return getLong(row, OperationBinaryLog.COL_TIME);
+	}
+
+	public String getResult(long row) {
+		return getString(getInt(row, OperationBinaryLog.COL_RESULT));
+	}
+
+	public long getTimeNanos(long row) {
+		return getLong(row, OperationBinaryLog.COL_TIME_NANOS);
+	}
+
+	public long getCpuTimeNanos(long row) {
+		return getLong(row, OperationBinaryLog.COL_CPU_TIME_NANOS);
+	}
+
+	public long getAllocatedBytes(long row) {
+		return getLong(row, OperationBinaryLog.COL_ALLOCATED_BYTES);
+	}
+
+	public int getThreads(long row) {
+		return getInt(row, OperationBinaryLog.COL_THREADS);
+	}
+
+	public long getEndNanos(long row) {
+		return getLong(row, OperationBinaryLog.COL_END_NANOS);
+	}
+
+	public OperationLogEntry getEntry(long row) {
+		if (row < 0 || row >= rowCount)
+			throw new IndexOutOfBoundsException("Row " + row + " of "
+					+ rowCount);
+
+		return new OperationLogEntry(getOpId(row), getName(row), getType(row),
+				getArgs(row), getTime(row), getResult(row), getTimeNanos(row),
+				getCpuTimeNanos(row), getAllocatedBytes(row), getThreads(row),
+				getEndNanos(row));
+	}
+
+	@Override
+	public Iterator<OperationLogEntry> iterator() {
+		return new Iterator<OperationLogEntry>() {
+			private long row = 0;
+
+			@Override
+			public boolean hasNext() {
+				return row < rowCount;
+			}
+
+			@Override
+			public OperationLogEntry next() {
+				if (hasNext() == false)
+					throw new NoSuchElementException();
+				return getEntry(row++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	//
+	// Helper methods
+	//
+	private int getInt(long row, int column) {
+		return openBuffer().getInt((int) OperationBinaryLog.position(rowCount, row,
+				column));
+	}
+
+	private long getLong(long row, int column) {
+		return openBuffer().getLong((int) OperationBinaryLog.position(rowCount,
+				row, column));
+	}
+
+	private MappedByteBuffer openBuffer() {
+		if (buffer == null)
+			throw new IllegalStateException("Binary log reader is closed");
+		return buffer;
+	}
+
+	// Unmaps the buffer at once where the JVM allows it. Otherwise it is
+	// unmapped once garbage collected, as no reference to it remains
+	private static void unmap(MappedByteBuffer mapped) {
+		try {
+			Method cleanerMethod = mapped.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(mapped);
+			if (cleaner != null)
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+		} catch (Exception e) {
+			// Left to the garbage collector
+		}
+	}
+
+	private String getString(int id) {
+		return (id == -1) ? null : strings[id];
+	}
+
+	private void readDictionary(int offset) throws IOException {
+		int position = offset;
+
+		strings = new String[buffer.getInt(position)];
+		position += 4;
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[buffer.getInt(position)];
+			position += 4;
+			for (int j = 0; j < bytes.length; j++)
+				bytes[j] = buffer.get(position + j);
+			position += bytes.length;
+			strings[i] = new String(bytes, "UTF-8");
+		}
+
+		argsList = new String[buffer.getInt(position)][];
+		position += 4;
+		for (int i = 0; i < argsList.length; i++) {
+			argsList[i] = new String[buffer.getInt(position)];
+			position += 4;
+			for (int j = 0; j < argsList[i].length; j++) {
+				argsList[i][j] = getString(buffer.getInt(position));
+				position += 4;
+			}
+		}
+	}
+
+}
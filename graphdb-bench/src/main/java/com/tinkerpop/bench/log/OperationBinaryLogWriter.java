@@ -0,0 +1,212 @@
+package com.tinkerpop.bench.log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.tinkerpop.bench.operation.Operation;
+
+/**
+ * Writes operations to a binary operation log, as laid out in
+ * OperationBinaryLog. Rows are buffered one block at a time, and the last,
+ * partial block, the dictionary and the header are written when the writer is
+ * closed.
+ */
+public class OperationBinaryLogWriter {
+	private RandomAccessFile file = null;
+	private FileChannel channel = null;
+	private ByteBuffer block = ByteBuffer.allocate(OperationBinaryLog.BLOCK_BYTES);
+	private long rowCount = 0;
+
+	// The .csv log this log is converted from, if any
+	private long sourceLength = -1;
+	private int sourceCrc = 0;
+
+	// Number of threads executing the operations logged by this writer
+	private int threads = 1;
+
+	private HashMap<String, Integer> stringIds = new HashMap<String, Integer>();
+	private ArrayList<String> strings = new ArrayList<String>();
+	private HashMap<List<String>, Integer> argsIds = new HashMap<List<String>, Integer>();
+	// Each args array as the dictionary index of each arg
+	private ArrayList<int[]> argsList = new ArrayList<int[]>();
+
+	public OperationBinaryLogWriter(File logFile) throws IOException {
+		this(logFile, 1);
+	}
+
+	public OperationBinaryLogWriter(File logFile, int threads)
+			throws IOException {
+		super();
+		this.threads = threads;
+		(new File(logFile.getAbsoluteFile().getParent())).mkdirs();
+		file = new RandomAccessFile(logFile, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		channel.position(OperationBinaryLog.HEADER_BYTES);
+	}
+
+	// Records the length and checksum of the .csv log being converted, so
+	// that a stale conversion can be recognized
+	public void setSource(long sourceLength, int sourceCrc) {
+		this.sourceLength = sourceLength;
+		this.sourceCrc = sourceCrc;
+	}
+
+	public void logOperation(Operation op) throws IOException {
+		logRow(op.getId(), op.getName(), op.getType(), op.getArgs(), op
+				.getTime(), op.getResult().toString(), op.getTimeNanos(), op
+				.getCpuTimeNanos(), op.getAllocatedBytes(), threads, op
+				.getEndNanos());
+	}
+
+	public void logOperation(OperationLogEntry entry) throws IOException {
+		logRow(entry.getOpId(), entry.getName(), entry.getType(), entry
+				.getArgs(), entry.getTime(), entry.getResult(), entry
+				.getTimeNanos(), entry.getCpuTimeNanos(), entry
+				.getAllocatedBytes(), entry.getThreads(), entry.getEndNanos());
+	}
+
+	public void close() throws IOException {
+		try {
+			int lastBlockRows = (int) (rowCount % OperationBinaryLog.BLOCK_ROWS);
+			if (lastBlockRows != 0)
+				writeLastBlock(lastBlockRows);
+
+			long dictionaryOffset = channel.position();
+			writeDictionary();
+
+			ByteBuffer header = ByteBuffer
+					.allocate(OperationBinaryLog.HEADER_BYTES);
+			header.putInt(OperationBinaryLog.MAGIC);
+			header.putInt(OperationBinaryLog.VERSION);
+			header.putInt(OperationBinaryLog.BLOCK_ROWS);
+			header.putLong(rowCount);
+			header.putLong(dictionaryOffset);
+			header.putLong(sourceLength);
+			header.putInt(sourceCrc);
+			header.rewind();
+			channel.write(header, 0);
+		} finally {
+			file.close();
+		}
+	}
+
+	private void logRow(int opId, String name, String type, String[] args,
+			long time, String result, long timeNanos, long cpuTimeNanos,
+			long allocatedBytes, int threads, long endNanos) throws IOException {
+		int row = (int) (rowCount % OperationBinaryLog.BLOCK_ROWS);
+
+		putInt(OperationBinaryLog.COL_ID, row, opId);
+		putInt(OperationBinaryLog.COL_NAME, row, stringId(name));
+		putInt(OperationBinaryLog.COL_TYPE, row, stringId(type));
+		putInt(OperationBinaryLog.COL_ARGS, row, argsId(args));
+		putLong(OperationBinaryLog.COL_TIME, row, time);
+		putInt(OperationBinaryLog.COL_RESULT, row, stringId(result));
+		putLong(OperationBinaryLog.COL_TIME_NANOS, row, timeNanos);
+		putLong(OperationBinaryLog.COL_CPU_TIME_NANOS, row, cpuTimeNanos);
+		putLong(OperationBinaryLog.COL_ALLOCATED_BYTES, row, allocatedBytes);
+		putInt(OperationBinaryLog.COL_THREADS, row, threads);
+		putLong(OperationBinaryLog.COL_END_NANOS, row, endNanos);
+
+		rowCount++;
+
+		if (rowCount % OperationBinaryLog.BLOCK_ROWS == 0)
+			writeBlock();
+	}
+
+	private void putInt(int column, int row, int value) {
+		block.putInt(OperationBinaryLog.offsetInBlock(
+				OperationBinaryLog.BLOCK_ROWS, row, column), value);
+	}
+
+	private void putLong(int column, int row, long value) {
+		block.putLong(OperationBinaryLog.offsetInBlock(
+				OperationBinaryLog.BLOCK_ROWS, row, column), value);
+	}
+
+	private void writeBlock() throws IOException {
+		block.clear();
+		while (block.hasRemaining())
+			channel.write(block);
+		block.clear();
+	}
+
+	// Only the rows in use of each column are written
+	private void writeLastBlock(int blockRows) throws IOException {
+		for (int column = 0; column < OperationBinaryLog.COLUMN_WIDTHS.length; column++) {
+			block.limit(OperationBinaryLog.offsetInBlock(
+					OperationBinaryLog.BLOCK_ROWS, blockRows, column));
+			block.position(OperationBinaryLog.offsetInBlock(
+					OperationBinaryLog.BLOCK_ROWS, 0, column));
+			while (block.hasRemaining())
+				channel.write(block);
+		}
+		block.clear();
+	}
+
+	private int stringId(String string) {
+		if (string == null)
+			return -1;
+
+		Integer id = stringIds.get(string);
+		if (id == null) {
+			id = strings.size();
+			strings.add(string);
+			stringIds.put(string, id);
+		}
+		return id;
+	}
+
+	private int argsId(String[] args) {
+		if (args == null)
+			return -1;
+
+		List<String> key = Arrays.asList(args);
+		Integer id = argsIds.get(key);
+		if (id == null) {
+			int[] argStringIds = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				argStringIds[i] = stringId(args[i]);
+
+			id = argsList.size();
+			argsList.add(argStringIds);
+			// Keyed on a copy, in case the caller reuses its array
+			argsIds.put(Arrays.asList(args.clone()), id);
+		}
+		return id;
+	}
+
+	private void writeDictionary() throws IOException {
+		// Not closed, as that would close the channel before the header is
+		// written
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				Channels.newOutputStream(channel)));
+
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			byte[] bytes = string.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		out.writeInt(argsList.size());
+		for (int[] argStringIds : argsList) {
+			out.writeInt(argStringIds.length);
+			for (int argStringId : argStringIds)
+				out.writeInt(argStringId);
+		}
+
+		out.flush();
+	}
+
+}
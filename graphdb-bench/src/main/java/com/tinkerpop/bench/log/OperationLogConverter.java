@@ -0,0 +1,61 @@
+package com.tinkerpop.bench.log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts operation logs between the .csv format of OperationLogWriter and
+ * the binary format of OperationBinaryLogWriter, in either direction.
+ * 
+ * Usage: OperationLogConverter [in] [out], where the direction is given by the
+ * format of the input file
+ */
+public class OperationLogConverter {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: OperationLogConverter [in] [out]");
+			System.exit(1);
+		}
+
+		File in = new File(args[0]);
+		File out = new File(args[1]);
+
+		if (OperationBinaryLog.isBinaryLog(in))
+			binaryToCsv(in, out);
+		else
+			csvToBinary(in, out);
+	}
+
+	public static void csvToBinary(File csvLogFile, File binaryLogFile)
+			throws IOException {
+		OperationBinaryLogWriter writer = new OperationBinaryLogWriter(
+				binaryLogFile);
+		writer.setSource(csvLogFile.length(), OperationBinaryLog
+				.checksum(csvLogFile));
+		try {
+			for (OperationLogEntry entry : new OperationLogReader(csvLogFile))
+				writer.logOperation(entry);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public static void binaryToCsv(File binaryLogFile, File csvLogFile)
+			throws IOException {
+		OperationBinaryLogReader reader = new OperationBinaryLogReader(
+				binaryLogFile);
+		try {
+			OperationLogWriter writer = new OperationLogWriter(csvLogFile);
+			try {
+				for (OperationLogEntry entry : reader)
+					writer.logOperation(entry);
+			} finally {
+				writer.close();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+}
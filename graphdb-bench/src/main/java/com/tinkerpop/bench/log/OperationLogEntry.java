@@ -8,9 +8,20 @@ public class OperationLogEntry {
 	private String[] args = null;
 	private long time = -1;
 	private String result = null;
+	private long timeNanos = -1;
+	private long cpuTimeNanos = -1;
+	private long allocatedBytes = -1;
+	private int threads = 1;
+	private long endNanos = -1;
 
 	public OperationLogEntry(int opId, String name, String type, String[] args,
 			long time, String result) {
+		this(opId, name, type, args, time, result, -1, -1, -1, 1, -1);
+	}
+
+	public OperationLogEntry(int opId, String name, String type, String[] args,
+			long time, String result, long timeNanos, long cpuTimeNanos,
+			long allocatedBytes, int threads, long endNanos) {
 		super();
 		this.opId = opId;
 		this.name = name;
@@ -18,6 +29,11 @@ public class OperationLogEntry {
 		this.args = args;
 		this.time = time;
 		this.result = result;
+		this.timeNanos = timeNanos;
+		this.cpuTimeNanos = cpuTimeNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.threads = threads;
+		this.endNanos = endNanos;
 	}
 
 	public int getOpId() {
@@ -44,4 +60,30 @@ public class OperationLogEntry {
 		return result;
 	}
 
+	// -1 if the log predates nanosecond timing
+	public long getTimeNanos() {
+		return timeNanos;
+	}
+
+	// -1 if unsupported by the JVM, or if the log predates CPU timing
+	public long getCpuTimeNanos() {
+		return cpuTimeNanos;
+	}
+
+	// -1 if unsupported by the JVM, or if the log predates allocation counting
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	// Number of threads which were executing operations concurrently
+	public int getThreads() {
+		return threads;
+	}
+
+	// System.nanoTime() at which the operation completed, or -1 if the log
+	// predates it. Only comparable within the log of one run
+	public long getEndNanos() {
+		return endNanos;
+	}
+
 }
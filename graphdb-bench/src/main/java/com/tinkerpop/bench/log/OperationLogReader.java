@@ -70,6 +70,9 @@ public class OperationLogReader implements Iterable<OperationLogEntry> {
 		}
 
 		private OperationLogEntry parseLogEntry() {
+			if (logScanner == null)
+				return null;
+
 			if (logScanner.hasNextLine() == false) {
 				logScanner.close();
 				logScanner = null;
@@ -86,6 +89,12 @@ public class OperationLogReader implements Iterable<OperationLogEntry> {
 			String[] args = null;
 			long time = -1;
 			String result = null;
+			// Columns absent from logs written before nanosecond timing
+			long timeNanos = -1;
+			long cpuTimeNanos = -1;
+			long allocatedBytes = -1;
+			int threads = 1;
+			long endNanos = -1;
 
 			int index = -1;
 			String token = null;
@@ -110,15 +119,31 @@ public class OperationLogReader implements Iterable<OperationLogEntry> {
 					args = extractArgs(token);
 					break;
 				case 4:
-					time = Integer.parseInt(token);
+					time = Long.parseLong(token);
 					break;
 				case 5:
 					result = token;
 					break;
+				case 6:
+					timeNanos = Long.parseLong(token);
+					break;
+				case 7:
+					cpuTimeNanos = Long.parseLong(token);
+					break;
+				case 8:
+					allocatedBytes = Long.parseLong(token);
+					break;
+				case 9:
+					threads = Integer.parseInt(token);
+					break;
+				case 10:
+					endNanos = Long.parseLong(token);
+					break;
 				}
 			}
 
-			return new OperationLogEntry(opId, name, type, args, time, result);
+			return new OperationLogEntry(opId, name, type, args, time, result,
+					timeNanos, cpuTimeNanos, allocatedBytes, threads, endNanos);
 		}
 
 		private String[] extractArgs(String argsStr) {
@@ -12,9 +12,16 @@ import com.tinkerpop.bench.operation.Operation;
 public class OperationLogWriter {
 	private final String logDelim = LogUtils.LOG_DELIMITER;
 	private BufferedWriter bufferedLogWriter = null;
+	// Number of threads executing the operations logged by this writer
+	private int threads = 1;
 
 	public OperationLogWriter(File logFile) throws IOException {
+		this(logFile, 1);
+	}
+
+	public OperationLogWriter(File logFile, int threads) throws IOException {
 		super();
+		this.threads = threads;
 		(new File(logFile.getParent())).mkdirs();
 		bufferedLogWriter = new BufferedWriter(new FileWriter(logFile));
 		writeHeaders();
@@ -40,6 +47,21 @@ public class OperationLogWriter {
 		bufferedLogWriter.write("result");
 		bufferedLogWriter.write(logDelim);
 
+		bufferedLogWriter.write("time_ns");
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write("cpu_time_ns");
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write("allocated_bytes");
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write("threads");
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write("end_ns");
+		bufferedLogWriter.write(logDelim);
+
 		bufferedLogWriter.newLine();
 	}
 
@@ -63,6 +85,59 @@ public class OperationLogWriter {
 		bufferedLogWriter.write(op.getResult().toString());
 		bufferedLogWriter.write(logDelim);
 
+		bufferedLogWriter.write(Long.toString(op.getTimeNanos()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(op.getCpuTimeNanos()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(op.getAllocatedBytes()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Integer.toString(threads));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(op.getEndNanos()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.newLine();
+	}
+
+	// Copy a .csv log data row, e.g. when merging the logs of several threads
+	public void logOperation(OperationLogEntry entry) throws IOException {
+		bufferedLogWriter.write(Integer.toString(entry.getOpId()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(entry.getName());
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(entry.getType());
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Arrays.toString(entry.getArgs()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(entry.getTime()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(entry.getResult());
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(entry.getTimeNanos()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(entry.getCpuTimeNanos()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(entry.getAllocatedBytes()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Integer.toString(entry.getThreads()));
+		bufferedLogWriter.write(logDelim);
+
+		bufferedLogWriter.write(Long.toString(entry.getEndNanos()));
+		bufferedLogWriter.write(logDelim);
+
 		bufferedLogWriter.newLine();
 	}
 
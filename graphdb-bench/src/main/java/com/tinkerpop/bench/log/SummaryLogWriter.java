@@ -7,14 +7,35 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import com.tinkerpop.bench.LogUtils;
 
+/**
+ * Summarizes the run times of each Operation, for each Graph, in a .csv file.
+ * 
+ * Run times are recorded in a fixed-memory LatencyHistogram per Graph and
+ * Operation, so the summary of any number of Operations, and of any number of
+ * result files, takes the same memory. For each Graph, the summary gives the
+ * mean, standard deviation, minimum and maximum, then the 50th, 90th, 99th and
+ * 99.9th percentiles, all in milliseconds, and then the throughput in
+ * Operations per second.
+ * 
+ * Throughput is the number of Operations divided by the wall-clock time from
+ * the start of the first to the end of the last, summed over the result files.
+ * Logs written before the end of each Operation was recorded only allow an
+ * estimate: the total run time, divided by the number of threads.
+ * 
+ * @author Alex Averbuch (alex.averbuch@gmail.com)
+ */
 public class SummaryLogWriter {
 	private final String logDelim = LogUtils.LOG_DELIMITER;
 
+	private static final double[] PERCENTILES = new double[] { 50, 90, 99,
+			99.9 };
+
 	/*
 	 * summaryFilePath = "path/to/summary/file.csv"
 	 * 
@@ -22,6 +43,26 @@ public class SummaryLogWriter {
 	 */
 	public void writeSummary(String summaryFilePath,
 			Map<String, String> resultFilePaths) throws IOException {
+		LinkedHashMap<String, List<String>> mergedFilePaths = new LinkedHashMap<String, List<String>>();
+		for (Entry<String, String> fileEntry : resultFilePaths.entrySet()) {
+			ArrayList<String> paths = new ArrayList<String>();
+			paths.add(fileEntry.getValue());
+			mergedFilePaths.put(fileEntry.getKey(), paths);
+		}
+
+		writeMergedSummary(summaryFilePath, mergedFilePaths);
+	}
+
+	/*
+	 * summaryFilePath = "path/to/summary/file.csv"
+	 * 
+	 * resultFiles = ["graphName"->["path/to/result/file.csv"]]
+	 * 
+	 * The run times in all result files of one Graph, e.g. of repeated runs,
+	 * are merged before being summarized
+	 */
+	public void writeMergedSummary(String summaryFilePath,
+			Map<String, List<String>> resultFilePaths) throws IOException {
 		// summarizedResults = ["operation" -> ["graphRuntimes"]]
 		LinkedHashMap<String, ArrayList<GraphRunTimes>> summarizedFiles = summarizeFiles(resultFilePaths);
 
@@ -29,20 +70,21 @@ public class SummaryLogWriter {
 	}
 
 	private LinkedHashMap<String, ArrayList<GraphRunTimes>> summarizeFiles(
-			Map<String, String> resultFilePaths) {
+			Map<String, List<String>> resultFilePaths) {
 		// summarizedResults = ["operation" -> ["graphRuntimes"]]
 		LinkedHashMap<String, ArrayList<GraphRunTimes>> resultFiles = new LinkedHashMap<String, ArrayList<GraphRunTimes>>();
 
 		// Get total time taken for each operation, for each result file
-		for (Entry<String, String> fileEntry : resultFilePaths.entrySet()) {
+		for (Entry<String, List<String>> fileEntry : resultFilePaths
+				.entrySet()) {
 
 			String graphName = fileEntry.getKey();
-			String path = fileEntry.getValue();
 
-			// Load Operations' runtimes from 1 .csv (for 1 Graph) into memory
+			// Load Operations' runtimes from the .csv files of 1 Graph
 			// fileOperationTimes= ["operation" -> "graphRuntimes"]
-			LinkedHashMap<String, GraphRunTimes> fileOperationTimes = getFileOperationTimes(
-					graphName, path);
+			LinkedHashMap<String, GraphRunTimes> fileOperationTimes = new LinkedHashMap<String, GraphRunTimes>();
+			for (String path : fileEntry.getValue())
+				addFileOperationTimes(graphName, path, fileOperationTimes);
 
 			for (Entry<String, GraphRunTimes> fileOperationTimesEntry : fileOperationTimes
 					.entrySet()) {
@@ -62,27 +104,31 @@ public class SummaryLogWriter {
 		return resultFiles;
 	}
 
-	private LinkedHashMap<String, GraphRunTimes> getFileOperationTimes(
-			String graphName, String path) {
-		// summarizedResults = ["operation" -> "graphRuntimes"]
-		LinkedHashMap<String, GraphRunTimes> fileOperationTimes = new LinkedHashMap<String, GraphRunTimes>();
+	// fileOperationTimes = ["operation" -> "graphRuntimes"]
+	private void addFileOperationTimes(String graphName, String path,
+			LinkedHashMap<String, GraphRunTimes> fileOperationTimes) {
+		Iterable<OperationLogEntry> reader = LogUtils
+				.getOperationLogReader(new File(path));
 
-		OperationLogReader reader = new OperationLogReader(new File(path));
+		try {
+			for (OperationLogEntry opLogEntry : reader) {
+				GraphRunTimes graphRunTimes = fileOperationTimes.get(opLogEntry
+						.getName());
 
-		for (OperationLogEntry opLogEntry : reader) {
-			GraphRunTimes graphRunTimes = fileOperationTimes.get(opLogEntry
-					.getName());
+				if (graphRunTimes == null)
+					graphRunTimes = new GraphRunTimes(graphName);
 
-			if (graphRunTimes == null)
-				graphRunTimes = new GraphRunTimes(graphName);
+				fileOperationTimes.put(opLogEntry.getName(), graphRunTimes);
 
-			fileOperationTimes.put(opLogEntry.getName(), graphRunTimes);
-
-			fileOperationTimes.get(opLogEntry.getName()).add(
-					opLogEntry.getTime());
+				fileOperationTimes.get(opLogEntry.getName()).add(opLogEntry);
+			}
+		} finally {
+			LogUtils.closeOperationLogReader(reader);
 		}
 
-		return fileOperationTimes;
+		// Wall-clock times are not comparable across files
+		for (GraphRunTimes graphRunTimes : fileOperationTimes.values())
+			graphRunTimes.endFile();
 	}
 
 	// summarizedResults = ["operation" -> ["graphRunTime"]]
@@ -113,6 +159,14 @@ public class SummaryLogWriter {
 				bufferedLogWriter.write(logDelim);
 				bufferedLogWriter.write(graphRunTimes.getGraphName() + "-max");
 				bufferedLogWriter.write(logDelim);
+				for (double percentile : PERCENTILES) {
+					bufferedLogWriter.write(graphRunTimes.getGraphName()
+							+ "-p" + percentileToStr(percentile));
+					bufferedLogWriter.write(logDelim);
+				}
+				bufferedLogWriter.write(graphRunTimes.getGraphName()
+						+ "-throughput");
+				bufferedLogWriter.write(logDelim);
 			}
 			break;
 		}
@@ -135,6 +189,14 @@ public class SummaryLogWriter {
 				bufferedLogWriter.write(logDelim);
 				bufferedLogWriter.write(graphRunTimes.getMax().toString());
 				bufferedLogWriter.write(logDelim);
+				for (double percentile : PERCENTILES) {
+					bufferedLogWriter.write(graphRunTimes.getPercentile(
+							percentile).toString());
+					bufferedLogWriter.write(logDelim);
+				}
+				bufferedLogWriter.write(graphRunTimes.getThroughput()
+						.toString());
+				bufferedLogWriter.write(logDelim);
 			}
 
 			bufferedLogWriter.newLine();
@@ -144,25 +206,58 @@ public class SummaryLogWriter {
 		bufferedLogWriter.close();
 	}
 
+	// 99.9 -> "99.9", 50 -> "50"
+	private static String percentileToStr(double percentile) {
+		return (percentile == Math.floor(percentile)) ? Long
+				.toString((long) percentile) : Double.toString(percentile);
+	}
+
 	// Encapsulates the run times for one Graph & one Operation
 	private class GraphRunTimes implements Comparable<GraphRunTimes> {
 		private String graphName = null;
-		private ArrayList<Long> runTimes = new ArrayList<Long>();
-		private Double mean = null;
-		private Double stdev = null;
-		private Double min = null;
-		private Double max = null;
+		private LatencyHistogram runTimes = new LatencyHistogram();
+		// Wall-clock time spanned by the Operations, summed over result files
+		private double elapsedNanos = 0;
+
+		// Span of the Operations of the current result file
+		private long fileStartNanos = Long.MAX_VALUE;
+		private long fileEndNanos = Long.MIN_VALUE;
+		// Sum of run times in the current result file, each divided by the
+		// number of concurrent threads, for logs without end times
+		private double fileEstimatedNanos = 0;
+		private boolean fileHasEndTimes = true;
 
 		public GraphRunTimes(String graphName) {
 			this.graphName = graphName;
 		}
 
-		public void add(long runTime) {
-			mean = null;
-			stdev = null;
-			min = null;
-			max = null;
-			runTimes.add(runTime);
+		public void add(OperationLogEntry opLogEntry) {
+			// Logs written before nanosecond timing only have milliseconds
+			long runTime = (opLogEntry.getTimeNanos() == -1) ? opLogEntry
+					.getTime() * 1000000 : opLogEntry.getTimeNanos();
+			runTimes.record(runTime);
+
+			if (opLogEntry.getEndNanos() == -1)
+				fileHasEndTimes = false;
+			else {
+				fileStartNanos = Math.min(fileStartNanos, opLogEntry
+						.getEndNanos()
+						- runTime);
+				fileEndNanos = Math.max(fileEndNanos, opLogEntry.getEndNanos());
+			}
+			fileEstimatedNanos += (double) runTime / opLogEntry.getThreads();
+		}
+
+		public void endFile() {
+			if (fileHasEndTimes && fileEndNanos != Long.MIN_VALUE)
+				elapsedNanos += fileEndNanos - fileStartNanos;
+			else
+				elapsedNanos += fileEstimatedNanos;
+
+			fileStartNanos = Long.MAX_VALUE;
+			fileEndNanos = Long.MIN_VALUE;
+			fileEstimatedNanos = 0;
+			fileHasEndTimes = true;
 		}
 
 		public String getGraphName() {
@@ -170,58 +265,33 @@ public class SummaryLogWriter {
 		}
 
 		public Double getMean() {
-			return (null == mean) ? calcMean() : mean;
+			return nanosToMs(runTimes.getMean());
 		}
 
 		public Double getStdev() {
-			return (null == stdev) ? calcStdev() : stdev;
+			return nanosToMs(runTimes.getStdev());
 		}
 
 		public Double getMin() {
-			return (null == min) ? calcMin() : min;
+			return nanosToMs(runTimes.getMin());
 		}
 
 		public Double getMax() {
-			return (null == max) ? calcMax() : max;
+			return nanosToMs(runTimes.getMax());
 		}
 
-		private double calcMean() {
-			double runTimesSum = 0;
-			for (Long runTime : runTimes)
-				runTimesSum += runTime;
-
-			return (mean = runTimesSum / (double) runTimes.size());
+		public Double getPercentile(double percentile) {
+			return nanosToMs(runTimes.getValueAtPercentile(percentile));
 		}
 
-		private double calcStdev() {
-			mean = getMean();
-
-			double diffFromMeanSum = 0;
-			for (Long runTime : runTimes)
-				diffFromMeanSum += Math.pow(runTime - mean, 2);
-
-			return (stdev = Math.sqrt(diffFromMeanSum
-					/ (double) runTimes.size()));
-		}
-
-		private double calcMin() {
-			calcMinMax();
-			return min;
+		// Operations per second
+		public Double getThroughput() {
+			return (elapsedNanos == 0) ? 0d : runTimes.getTotalCount()
+					/ (elapsedNanos / 1000000000d);
 		}
 
-		private double calcMax() {
-			calcMinMax();
-			return max;
-		}
-
-		private void calcMinMax() {
-			min = Double.MAX_VALUE;
-			max = -1d;
-
-			for (Long runTime : runTimes) {
-				min = (runTime < min) ? runTime : min;
-				max = (runTime > max) ? runTime : max;
-			}
+		private double nanosToMs(double nanos) {
+			return nanos / 1000000d;
 		}
 
 		@Override
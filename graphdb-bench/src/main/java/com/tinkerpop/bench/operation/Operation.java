@@ -1,7 +1,6 @@
 package com.tinkerpop.bench.operation;
 
 import com.tinkerpop.bench.GraphDescriptor;
-import com.tinkerpop.bench.StatisticsHelper;
 import com.tinkerpop.blueprints.pgm.Graph;
 
 /**
@@ -13,6 +12,7 @@ public abstract class Operation {
 	private int opId = -1;
 	private String[] args = null;
 	private long time = -1;
+	private final OperationTimer timer = new OperationTimer();
 	private Object result = null;
 	private GraphDescriptor graphDescriptor = null;
 	private String name = null;
@@ -49,10 +49,32 @@ public abstract class Operation {
 		return args;
 	}
 
+	// Wall time in milliseconds
 	public final long getTime() {
 		return time;
 	}
 
+	// Wall time in nanoseconds
+	public final long getTimeNanos() {
+		return timer.getElapsedNanos();
+	}
+
+	// System.nanoTime() at which the Operation completed, only comparable with
+	// those of Operations executed by the same JVM
+	public final long getEndNanos() {
+		return timer.getEndNanos();
+	}
+
+	// CPU time of the executing thread in nanoseconds, or -1 if unsupported
+	public final long getCpuTimeNanos() {
+		return timer.getCpuNanos();
+	}
+
+	// Bytes allocated by the executing thread, or -1 if unsupported
+	public final long getAllocatedBytes() {
+		return timer.getAllocatedBytes();
+	}
+
 	public final Object getResult() {
 		return result;
 	}
@@ -83,9 +105,17 @@ public abstract class Operation {
 	}
 
 	public final void execute() throws Exception {
-		StatisticsHelper.stopWatch();
+		execute(-1);
+	}
+
+	// Times the Operation from intendedStartNanos, a System.nanoTime() at
+	// which it was due to start, if that is earlier than its actual start, or
+	// from its actual start if intendedStartNanos is -1
+	public final void execute(long intendedStartNanos) throws Exception {
+		timer.start(intendedStartNanos);
 		onExecute();
-		time = StatisticsHelper.stopWatch();
+		timer.stop();
+		time = timer.getElapsedNanos() / 1000000;
 	}
 
 	protected abstract void onInitialize(String[] args);
@@ -0,0 +1,117 @@
+package com.tinkerpop.bench.operation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the wall time, CPU time and heap allocation of one execution of an
+ * Operation, in the thread which executes it.
+ * 
+ * Wall time is measured with System.nanoTime(). CPU time and allocation are
+ * measured through the ThreadMXBean, where the JVM supports it, and are
+ * reported as -1 otherwise. Each Operation owns its own timer, so Operations
+ * executing concurrently in different threads do not interfere.
+ */
+public final class OperationTimer {
+
+	private static final ThreadMXBean threadBean = ManagementFactory
+			.getThreadMXBean();
+	private static final boolean cpuTimeSupported = enableCpuTime();
+	private static final boolean allocationSupported = enableAllocation();
+
+	private long startNanos = -1;
+	private long startCpuNanos = -1;
+	private long startAllocatedBytes = -1;
+
+	private long endNanos = -1;
+	private long elapsedNanos = -1;
+	private long cpuNanos = -1;
+	private long allocatedBytes = -1;
+
+	public void start() {
+		start(-1);
+	}
+
+	// Measures wall time from intendedStartNanos, if it is given and earlier
+	// than now, e.g. to include the time an Operation spent waiting to start
+	public void start(long intendedStartNanos) {
+		startAllocatedBytes = currentAllocatedBytes();
+		startCpuNanos = currentCpuNanos();
+		startNanos = System.nanoTime();
+		if (intendedStartNanos != -1 && intendedStartNanos - startNanos < 0)
+			startNanos = intendedStartNanos;
+	}
+
+	public void stop() {
+		// Read in reverse order of start(), so that each measurement encloses
+		// as little of the others' overhead as possible
+		endNanos = System.nanoTime();
+		elapsedNanos = endNanos - startNanos;
+		cpuNanos = (startCpuNanos == -1) ? -1 : currentCpuNanos()
+				- startCpuNanos;
+		allocatedBytes = (startAllocatedBytes == -1) ? -1
+				: currentAllocatedBytes() - startAllocatedBytes;
+	}
+
+	// System.nanoTime() at which the Operation completed
+	public long getEndNanos() {
+		return endNanos;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	private static long currentCpuNanos() {
+		return (cpuTimeSupported) ? threadBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	private static long currentAllocatedBytes() {
+		return (allocationSupported) ? ((com.sun.management.ThreadMXBean) threadBean)
+				.getThreadAllocatedBytes(Thread.currentThread().getId())
+				: -1;
+	}
+
+	private static boolean enableCpuTime() {
+		try {
+			if (threadBean.isCurrentThreadCpuTimeSupported() == false)
+				return false;
+			if (threadBean.isThreadCpuTimeEnabled() == false)
+				threadBean.setThreadCpuTimeEnabled(true);
+			return true;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		} catch (SecurityException e) {
+			return false;
+		}
+	}
+
+	// Allocation counters are a HotSpot extension of ThreadMXBean
+	private static boolean enableAllocation() {
+		try {
+			if ((threadBean instanceof com.sun.management.ThreadMXBean) == false)
+				return false;
+			com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (hotspotBean.isThreadAllocatedMemorySupported() == false)
+				return false;
+			if (hotspotBean.isThreadAllocatedMemoryEnabled() == false)
+				hotspotBean.setThreadAllocatedMemoryEnabled(true);
+			return true;
+		} catch (LinkageError e) {
+			// Not a HotSpot JVM
+			return false;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		} catch (SecurityException e) {
+			return false;
+		}
+	}
+}
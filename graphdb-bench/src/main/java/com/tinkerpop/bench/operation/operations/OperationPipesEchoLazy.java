@@ -75,7 +75,8 @@ public class OperationPipesEchoLazy extends Operation {
 		}
 	}
 
-	private Pipeline createPipeline(final Integer steps) {
+	// Also used by the micro-benchmarks of graphdb-bench-jmh
+	public static Pipeline createPipeline(final Integer steps) {
 		final ArrayList<Pipe> pipes = new ArrayList<Pipe>();
 		for (int i = 0; i < steps; i++) {
 			pipes.add(new VertexEdgePipe(VertexEdgePipe.Step.OUT_EDGES));
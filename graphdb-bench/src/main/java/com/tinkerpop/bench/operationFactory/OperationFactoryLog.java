@@ -13,10 +13,12 @@ import com.tinkerpop.bench.operation.Operation;
  */
 public final class OperationFactoryLog extends OperationFactory {
 
+	private Iterable<OperationLogEntry> operationLogReader = null;
 	private Iterator<OperationLogEntry> operationLogIterator = null;
 
 	public OperationFactoryLog(File file) {
-		operationLogIterator = LogUtils.getOperationLogReader(file).iterator();
+		operationLogReader = LogUtils.getOperationLogReader(file);
+		operationLogIterator = operationLogReader.iterator();
 	}
 
 	@Override
@@ -29,7 +31,11 @@ public final class OperationFactoryLog extends OperationFactory {
 
 	@Override
 	public boolean hasNext() {
-		return operationLogIterator.hasNext();
+		if (operationLogIterator.hasNext())
+			return true;
+
+		LogUtils.closeOperationLogReader(operationLogReader);
+		return false;
 	}
 
 	@Override
@@ -0,0 +1,162 @@
+package com.tinkerpop.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tinkerpop.bench.log.OperationLogEntry;
+import com.tinkerpop.bench.operation.Operation;
+import com.tinkerpop.bench.operation.OperationOpenGraph;
+import com.tinkerpop.bench.operationFactory.OperationArgs;
+import com.tinkerpop.bench.operationFactory.OperationFactoryBase;
+import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
+
+public class BenchRunnerTest {
+
+	private static final AtomicInteger running = new AtomicInteger();
+	private static final AtomicInteger maxRunning = new AtomicInteger();
+	private static final AtomicBoolean exclusiveRunning = new AtomicBoolean();
+	private static final AtomicBoolean overlapped = new AtomicBoolean();
+
+	private File logFile = null;
+
+	@Before
+	public void setUp() throws Exception {
+		running.set(0);
+		maxRunning.set(0);
+		exclusiveRunning.set(false);
+		overlapped.set(false);
+		logFile = File.createTempFile("benchrunner", ".csv");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		logFile.delete();
+	}
+
+	@Test
+	public void testClosedLoop() throws Exception {
+		// 20 Operations, then an exclusive Operation, then 20 more
+		BenchRunner runner = new BenchRunner(new GraphDescriptor(
+				TinkerGraph.class), logFile, new OperationFactoryMixed(20, 10));
+		runner.setThreads(4);
+		runner.startBench();
+
+		ArrayList<OperationLogEntry> entries = readLog();
+		// Open, 41 Operations, shutdown and garbage collection
+		assertEquals(44, entries.size());
+		for (int i = 0; i < entries.size(); i++)
+			assertEquals(i, entries.get(i).getOpId());
+		assertEquals(4, entries.get(1).getThreads());
+
+		assertTrue(maxRunning.get() > 1);
+		assertTrue(maxRunning.get() <= 4);
+		assertFalse(overlapped.get());
+	}
+
+	@Test
+	public void testOpenLoop() throws Exception {
+		// 10 Operations of 50ms, due every 10ms, in a single thread
+		BenchRunner runner = new BenchRunner(new GraphDescriptor(
+				TinkerGraph.class), logFile, new OperationFactoryMixed(10, 50));
+		runner.setThreads(1);
+		runner.setTargetRate(100);
+		runner.startBench();
+
+		ArrayList<OperationLogEntry> entries = readLog();
+		assertEquals(24, entries.size());
+		assertEquals(1, maxRunning.get());
+		assertFalse(overlapped.get());
+
+		// Time is measured from when each Operation was due, so each takes
+		// about 40ms longer than the last, from queueing behind the others
+		long first = entries.get(1).getTimeNanos();
+		long last = entries.get(10).getTimeNanos();
+		assertTrue(first >= 50 * 1000000L);
+		assertTrue(last >= first + 9 * 30 * 1000000L);
+	}
+
+	private ArrayList<OperationLogEntry> readLog() {
+		ArrayList<OperationLogEntry> entries = new ArrayList<OperationLogEntry>();
+		for (OperationLogEntry entry : LogUtils.getOperationLogReader(logFile))
+			entries.add(entry);
+		return entries;
+	}
+
+	// count sleeping Operations, an exclusive Operation, then count more
+	public static class OperationFactoryMixed extends OperationFactoryBase {
+		private final int count;
+		private final String sleepMs;
+		private int created = 0;
+
+		public OperationFactoryMixed(int count, int sleepMs) {
+			this.count = count;
+			this.sleepMs = Integer.toString(sleepMs);
+		}
+
+		@Override
+		protected void onInitialize() {
+		}
+
+		@Override
+		public boolean hasNext() {
+			return created < 2 * count + 1;
+		}
+
+		@Override
+		protected OperationArgs onCreateOperation() throws Exception {
+			return (created++ == count) ? new OperationArgs(new String[] {},
+					OperationExclusive.class) : new OperationArgs(
+					new String[] { sleepMs }, OperationSleep.class);
+		}
+	}
+
+	public static class OperationSleep extends Operation {
+		private long sleepMs = 0;
+
+		@Override
+		protected void onInitialize(String[] args) {
+			sleepMs = Long.parseLong(args[0]);
+		}
+
+		@Override
+		protected void onExecute() throws Exception {
+			int now = running.incrementAndGet();
+			while (maxRunning.get() < now)
+				maxRunning.compareAndSet(maxRunning.get(), now);
+			if (exclusiveRunning.get())
+				overlapped.set(true);
+
+			Thread.sleep(sleepMs);
+
+			running.decrementAndGet();
+			setResult("DONE");
+		}
+	}
+
+	// Exclusive, since it opens the graph
+	public static class OperationExclusive extends OperationOpenGraph {
+		@Override
+		protected void onExecute() throws Exception {
+			exclusiveRunning.set(true);
+			if (running.get() != 0)
+				overlapped.set(true);
+
+			Thread.sleep(20);
+
+			if (running.get() != 0)
+				overlapped.set(true);
+			exclusiveRunning.set(false);
+			super.onExecute();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.tinkerpop.bench.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	// Relative error allowed at 3 significant digits
+	private static final double PRECISION = 0.001;
+
+	private static final double[] PERCENTILES = { 0, 1, 10, 25, 50, 75, 90,
+			99, 99.9, 99.99, 100 };
+
+	@Test
+	public void testUniformPercentiles() throws Exception {
+		long[] values = new long[100000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = i + 1;
+		assertPercentiles(values);
+
+		// The same, at microsecond scale
+		for (int i = 0; i < values.length; i++)
+			values[i] = (i + 1) * 1000L;
+		assertPercentiles(values);
+	}
+
+	@Test
+	public void testSkewedPercentiles() throws Exception {
+		// Log-normal, from tens of nanoseconds to tens of seconds
+		Random random = new Random(42);
+		long[] values = new long[100000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = 1 + (long) Math.exp(12 + 3 * random.nextGaussian());
+		assertPercentiles(values);
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		LatencyHistogram all = new LatencyHistogram();
+		LatencyHistogram low = new LatencyHistogram();
+		LatencyHistogram high = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			all.record(i * 997);
+			(i <= 500 ? low : high).record(i * 997);
+		}
+
+		low.merge(high);
+		assertEquals(all.getTotalCount(), low.getTotalCount());
+		assertEquals(all.getMin(), low.getMin());
+		assertEquals(all.getMax(), low.getMax());
+		assertEquals(all.getMean(), low.getMean(), 0.001);
+		assertEquals(all.getStdev(), low.getStdev(), 0.001);
+		for (double p : PERCENTILES)
+			assertEquals(all.getValueAtPercentile(p), low
+					.getValueAtPercentile(p));
+
+		// Merging an empty histogram changes nothing
+		low.merge(new LatencyHistogram());
+		assertEquals(1, low.getMin() / 997);
+		assertEquals(1000, low.getMax() / 997);
+	}
+
+	@Test
+	public void testMergeDifferentRanges() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram(1000000, 3);
+		try {
+			histogram.merge(new LatencyHistogram(2000000, 3));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			histogram.merge(new LatencyHistogram(1000000, 2));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testClamping() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram(1000000, 3);
+		histogram.record(10);
+		histogram.record(5000000000L);
+
+		// Exact, although the largest value is counted in the highest bucket
+		assertEquals(10, histogram.getMin());
+		assertEquals(5000000000L, histogram.getMax());
+		assertEquals((5000000000L + 10) / 2d, histogram.getMean(), 0.001);
+		assertEquals(2, histogram.getTotalCount());
+
+		assertEquals(10, histogram.getValueAtPercentile(50));
+		long p100 = histogram.getValueAtPercentile(100);
+		assertTrue(p100 >= 1000000);
+		assertTrue(p100 <= 1000000 * (1 + PRECISION));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getTotalCount());
+		assertEquals(-1, histogram.getMin());
+		assertEquals(-1, histogram.getMax());
+		assertEquals(-1, histogram.getValueAtPercentile(50));
+		assertEquals(-1, histogram.getValueAtPercentile(100));
+		assertEquals(0, histogram.getMean(), 0);
+
+		// As is a histogram which has been reset
+		histogram.record(42);
+		histogram.reset();
+		assertEquals(-1, histogram.getValueAtPercentile(50));
+		assertEquals(-1, histogram.getMin());
+	}
+
+	// Each percentile is within the precision of the exact value, and never
+	// below it
+	private void assertPercentiles(long[] values) {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value : values)
+			histogram.record(value);
+
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		assertEquals(sorted[0], histogram.getMin());
+		assertEquals(sorted[sorted.length - 1], histogram.getMax());
+
+		for (double p : PERCENTILES) {
+			int rank = (int) Math.max(1, Math.ceil(p / 100 * sorted.length));
+			long exact = sorted[rank - 1];
+			long actual = histogram.getValueAtPercentile(p);
+			assertTrue(p + ": " + actual + " < " + exact, actual >= exact);
+			assertTrue(p + ": " + actual + " > " + exact,
+					actual <= exact * (1 + PRECISION));
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.tinkerpop.bench.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationBinaryLogTest {
+
+	private File csvLog = null;
+	private File binaryLog = null;
+	private File csvCopy = null;
+
+	@Before
+	public void setUp() throws Exception {
+		csvLog = File.createTempFile("operations", ".csv");
+		binaryLog = File.createTempFile("operations", ".csv.bin");
+		csvCopy = File.createTempFile("operations", ".copy.csv");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		csvLog.delete();
+		binaryLog.delete();
+		csvCopy.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		writeCsvLog(100, 10);
+		assertRoundTrip(100);
+	}
+
+	@Test
+	public void testMultipleBlocks() throws Exception {
+		// Two full blocks and a partial one
+		int rows = 2 * OperationBinaryLog.BLOCK_ROWS + 17;
+		writeCsvLog(rows, 10);
+		assertRoundTrip(rows);
+
+		// Any column of any row is read directly
+		OperationBinaryLogReader reader = new OperationBinaryLogReader(
+				binaryLog);
+		try {
+			assertEquals(rows, reader.getRowCount());
+			assertEquals(rows - 1, reader.getOpId(rows - 1));
+			assertEquals(OperationBinaryLog.BLOCK_ROWS, reader
+					.getOpId(OperationBinaryLog.BLOCK_ROWS));
+			assertEquals(3L * (rows - 1), reader.getTimeNanos(rows - 1));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testEmptyLog() throws Exception {
+		writeCsvLog(0, 1);
+		assertRoundTrip(0);
+	}
+
+	@Test
+	public void testLargeDictionary() throws Exception {
+		// More distinct args than fit in 16 bits, each in its own row
+		int rows = 70000;
+		writeCsvLog(rows, rows);
+		assertRoundTrip(rows);
+	}
+
+	@Test
+	public void testStaleConversion() throws Exception {
+		writeCsvLog(100, 10);
+		OperationLogConverter.csvToBinary(csvLog, binaryLog);
+		assertTrue(OperationBinaryLog.isConversionOf(binaryLog, csvLog));
+
+		// Rewritten in place, at the same length and modification time
+		long lastModified = csvLog.lastModified();
+		RandomAccessFile file = new RandomAccessFile(csvLog, "rw");
+		try {
+			file.seek(file.length() - 4);
+			file.write('7');
+		} finally {
+			file.close();
+		}
+		csvLog.setLastModified(lastModified);
+		assertFalse(OperationBinaryLog.isConversionOf(binaryLog, csvLog));
+
+		// Nor is a .csv log a conversion of itself
+		assertFalse(OperationBinaryLog.isConversionOf(csvLog, csvLog));
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		writeCsvLog(10, 10);
+		OperationLogConverter.csvToBinary(csvLog, binaryLog);
+
+		OperationBinaryLogReader reader = new OperationBinaryLogReader(
+				binaryLog);
+		assertEquals(0, reader.getOpId(0));
+		reader.close();
+		reader.close();
+		try {
+			reader.getOpId(0);
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	// rows operations, with distinctArgs distinct args among them
+	private void writeCsvLog(int rows, int distinctArgs) throws Exception {
+		OperationLogWriter writer = new OperationLogWriter(csvLog, 2);
+		for (int i = 0; i < rows; i++) {
+			writer.logOperation(new OperationLogEntry(i, "op" + (i % 3),
+					"com.tinkerpop.bench.operation.Operation" + (i % 2),
+					new String[] { "arg" + (i % distinctArgs), "x" }, i,
+					"result" + (i % 5), 3L * i, 2L * i, i, 2, 1000L + i));
+		}
+		writer.close();
+	}
+
+	// .csv -> binary -> entries is the same as .csv -> entries, and the
+	// binary log converts back to the same .csv log
+	private void assertRoundTrip(int rows) throws Exception {
+		OperationLogConverter.csvToBinary(csvLog, binaryLog);
+		assertTrue(OperationBinaryLog.isBinaryLog(binaryLog));
+
+		ArrayList<OperationLogEntry> expected = new ArrayList<OperationLogEntry>();
+		for (OperationLogEntry entry : new OperationLogReader(csvLog))
+			expected.add(entry);
+		assertEquals(rows, expected.size());
+
+		OperationBinaryLogReader reader = new OperationBinaryLogReader(
+				binaryLog);
+		try {
+			assertEquals(rows, reader.getRowCount());
+			Iterator<OperationLogEntry> actual = reader.iterator();
+			for (OperationLogEntry entry : expected) {
+				assertTrue(actual.hasNext());
+				assertEntryEquals(entry, actual.next());
+			}
+			assertFalse(actual.hasNext());
+		} finally {
+			reader.close();
+		}
+
+		OperationLogConverter.binaryToCsv(binaryLog, csvCopy);
+		assertEquals(OperationBinaryLog.checksum(csvLog), OperationBinaryLog
+				.checksum(csvCopy));
+	}
+
+	private void assertEntryEquals(OperationLogEntry expected,
+			OperationLogEntry actual) {
+		assertEquals(expected.getOpId(), actual.getOpId());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getType(), actual.getType());
+		assertArrayEquals(expected.getArgs(), actual.getArgs());
+		assertEquals(expected.getTime(), actual.getTime());
+		assertEquals(expected.getResult(), actual.getResult());
+		assertEquals(expected.getTimeNanos(), actual.getTimeNanos());
+		assertEquals(expected.getCpuTimeNanos(), actual.getCpuTimeNanos());
+		assertEquals(expected.getAllocatedBytes(), actual.getAllocatedBytes());
+		assertEquals(expected.getThreads(), actual.getThreads());
+		assertEquals(expected.getEndNanos(), actual.getEndNanos());
+	}
+}
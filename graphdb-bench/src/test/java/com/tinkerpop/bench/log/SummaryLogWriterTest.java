@@ -0,0 +1,87 @@
+package com.tinkerpop.bench.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tinkerpop.bench.LogUtils;
+
+public class SummaryLogWriterTest {
+
+	private File logFile = null;
+	private File summaryFile = null;
+
+	@Before
+	public void setUp() throws Exception {
+		logFile = File.createTempFile("summary", ".csv");
+		summaryFile = File.createTempFile("summary", ".summary.csv");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		logFile.delete();
+		summaryFile.delete();
+	}
+
+	@Test
+	public void testColumns() throws Exception {
+		writeLog(new long[] { 100 }, new long[] { 1000 });
+
+		String[] header = summarize()[0];
+		assertArrayEquals(new String[] { "operation", "g-mean", "g-stdev",
+				"g-min", "g-max", "g-p50", "g-p90", "g-p99", "g-p99.9",
+				"g-throughput" }, header);
+	}
+
+	@Test
+	public void testThroughput() throws Exception {
+		// 10 Operations of 100ms, ending every 50ms: 550ms from the start of
+		// the first to the end of the last
+		long[] timesMs = new long[10];
+		long[] endsMs = new long[10];
+		for (int i = 0; i < 10; i++) {
+			timesMs[i] = 100;
+			endsMs[i] = 1000 + (i + 1) * 50;
+		}
+		writeLog(timesMs, endsMs);
+
+		String[] row = summarize()[1];
+		assertEquals("op", row[0]);
+		assertEquals(100d, Double.parseDouble(row[1]), 0.001);
+		assertEquals(10 / 0.55, Double.parseDouble(row[9]), 0.001);
+	}
+
+	private void writeLog(long[] timesMs, long[] endsMs) throws Exception {
+		OperationLogWriter writer = new OperationLogWriter(logFile, 4);
+		for (int i = 0; i < timesMs.length; i++)
+			writer.logOperation(new OperationLogEntry(i, "op", "type",
+					new String[] {}, timesMs[i], "DONE",
+					timesMs[i] * 1000000, -1, -1, 4, endsMs[i] * 1000000));
+		writer.close();
+	}
+
+	private String[][] summarize() throws Exception {
+		Map<String, String> resultFilePaths = new HashMap<String, String>();
+		resultFilePaths.put("g", logFile.getPath());
+		new SummaryLogWriter().writeSummary(summaryFile.getPath(),
+				resultFilePaths);
+
+		BufferedReader reader = new BufferedReader(new FileReader(summaryFile));
+		try {
+			return new String[][] {
+					reader.readLine().split(LogUtils.LOG_DELIMITER),
+					reader.readLine().split(LogUtils.LOG_DELIMITER) };
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+/**
+ * The treatment of a base graph which fails, or does not answer in time, when a <code>MultiGraph</code> consults its
+ * base graphs concurrently.
+ */
+public enum BaseFailurePolicy {
+    /**
+     * Fail the entire operation with a <code>RuntimeException</code>
+     */
+    FAIL,
+
+    /**
+     * Ignore the base graph, answering from the remaining base graphs as if it did not contain the element
+     */
+    SKIP
+}
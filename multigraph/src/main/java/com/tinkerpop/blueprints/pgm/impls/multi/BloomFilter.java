@@ -0,0 +1,89 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter: a compact, probabilistic set of objects, keyed on their hash codes.
+ * A filter may report that it contains an object which was never added (a false positive), but never the reverse.
+ * Objects may be added concurrently with each other and with lookups.
+ */
+class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions the number of objects expected to be added to the filter
+     * @param falsePositiveRate  the desired rate of false positives, once the expected number of objects has been added
+     */
+    public BloomFilter(final long expectedInsertions,
+                       final double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bitCount = Math.max(64, (m + 63) / 64 * 64);
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+
+    public void add(final Object o) {
+        long h = mix(o.hashCode());
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            set((int) (bit >>> 6), 1L << bit);
+        }
+    }
+
+    /**
+     * @return false if the object has certainly not been added to the filter, or true if it may have been
+     */
+    public boolean mightContain(final Object o) {
+        long h = mix(o.hashCode());
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if (0 == (bits.get((int) (bit >>> 6)) & (1L << bit))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the size of the filter, in bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    // Sets a bit without losing the bits set concurrently by other threads in the same word.
+    private void set(final int word,
+                     final long mask) {
+        long current;
+        do {
+            current = bits.get(word);
+            if (mask == (current & mask)) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    private long index(final int combined) {
+        return (combined & 0x7FFFFFFFL) % bitCount;
+    }
+
+    // The finalization step of MurmurHash3, which spreads the bits of a hash code over a long.
+    private static long mix(final int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
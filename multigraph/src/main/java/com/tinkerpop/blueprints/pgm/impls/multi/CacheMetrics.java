@@ -0,0 +1,57 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+/**
+ * Counters of the hits, misses and evictions of the element cache of a <code>MultiGraph</code>.
+ * A miss is followed by a lookup of the element in each base graph.
+ */
+public class CacheMetrics {
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the fraction of lookups which were answered from the cache, or 0 if there have been no lookups
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return 0 == lookups ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public synchronized void reset() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    synchronized void hit() {
+        hits++;
+    }
+
+    synchronized void missed() {
+        misses++;
+    }
+
+    synchronized void evicted() {
+        evictions++;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions;
+    }
+}
@@ -0,0 +1,20 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+/**
+ * The means by which a <code>MultiGraph</code> recognizes, while iterating over all vertices or edges, those elements
+ * which it has already returned from an earlier base graph.
+ */
+public enum DedupStrategy {
+    /**
+     * Keep the id of each element returned, in a compact in-memory set.
+     * This is the fastest strategy, but its memory use grows with the number of distinct elements.
+     */
+    ID_SET,
+
+    /**
+     * Keep the ids of elements returned in a Bloom filter of fixed size.
+     * Only when the filter reports that an id may have been seen are the earlier base graphs consulted, to rule out
+     * false positives.  Memory use is bounded, at the cost of some additional lookups.
+     */
+    BLOOM_FILTER
+}
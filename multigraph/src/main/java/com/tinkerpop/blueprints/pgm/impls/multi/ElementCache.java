@@ -0,0 +1,87 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of merged elements, keyed by id, which evicts the least recently used element when it is full.
+ * Each element is cached together with the number of the epoch of base graphs in which it was merged, and is only
+ * returned for lookups in the same epoch.  An element merged in an epoch which was replaced while it was being looked up
+ * is therefore never returned, even if it is put after the cache was cleared.
+ */
+class ElementCache<T> {
+    private final Map<Object, CachedElement<T>> elements;
+    private final CacheMetrics metrics;
+
+    /**
+     * @param capacity the maximum number of elements to cache
+     * @param metrics  counters of the hits, misses and evictions of the cache
+     */
+    public ElementCache(final int capacity,
+                        final CacheMetrics metrics) {
+        this.metrics = metrics;
+        this.elements = new LinkedHashMap<Object, CachedElement<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Object, CachedElement<T>> eldest) {
+                if (size() > capacity) {
+                    metrics.evicted();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param epoch the number of the epoch in which the element is looked up
+     * @return the cached element with the given id, or null if there is none, or if it was cached in another epoch
+     */
+    public synchronized T get(final Object id,
+                              final long epoch) {
+        CachedElement<T> entry = elements.get(id);
+        if (null != entry && entry.epoch != epoch) {
+            elements.remove(id);
+            entry = null;
+        }
+
+        if (null == entry) {
+            metrics.missed();
+            return null;
+        } else {
+            metrics.hit();
+            return entry.element;
+        }
+    }
+
+    /**
+     * @param epoch the number of the epoch in which the element was merged
+     */
+    public synchronized void put(final Object id,
+                                 final T element,
+                                 final long epoch) {
+        elements.put(id, new CachedElement<T>(element, epoch));
+    }
+
+    public synchronized void remove(final Object id) {
+        elements.remove(id);
+    }
+
+    public synchronized void clear() {
+        elements.clear();
+    }
+
+    public synchronized int size() {
+        return elements.size();
+    }
+
+    private static class CachedElement<T> {
+        private final T element;
+        private final long epoch;
+
+        public CachedElement(final T element,
+                     final long epoch) {
+            this.element = element;
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+/**
+ * A compact set of element ids.
+ * Ids are kept in a single open-addressing table, without the per-entry objects of a <code>HashSet</code>, so that the
+ * ids of large graphs may be tracked in a fraction of the memory.
+ */
+class IdSet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Object[] table = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * @return whether the id was not already in the set
+     */
+    public boolean add(final Object id) {
+        // Keep the table at most half full, so that probe sequences remain short.
+        if (2 * (size + 1) > table.length) {
+            resize(table.length * 2);
+        }
+
+        int i = insert(table, id);
+        if (null == table[i]) {
+            table[i] = id;
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(final Object id) {
+        int mask = table.length - 1;
+        int i = hash(id) & mask;
+        Object o;
+        while (null != (o = table[i])) {
+            if (o.equals(id)) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean remove(final Object id) {
+        int mask = table.length - 1;
+        int i = hash(id) & mask;
+        Object o;
+        while (null != (o = table[i])) {
+            if (o.equals(id)) {
+                table[i] = null;
+                size--;
+
+                // Re-insert the rest of the cluster, so that no id is cut off from its home slot.
+                i = (i + 1) & mask;
+                while (null != (o = table[i])) {
+                    table[i] = null;
+                    table[insert(table, o)] = o;
+                    i = (i + 1) & mask;
+                }
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        table = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    // Finds the slot which holds the id, or the empty slot where it belongs.
+    private static int insert(final Object[] table,
+                              final Object id) {
+        int mask = table.length - 1;
+        int i = hash(id) & mask;
+        Object o;
+        while (null != (o = table[i]) && !o.equals(id)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize(final int capacity) {
+        Object[] newTable = new Object[capacity];
+        for (Object o : table) {
+            if (null != o) {
+                newTable[insert(newTable, o)] = o;
+            }
+        }
+        table = newTable;
+    }
+
+    private static int hash(final Object id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
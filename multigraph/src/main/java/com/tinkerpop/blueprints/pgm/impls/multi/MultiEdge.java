@@ -4,34 +4,80 @@ import com.tinkerpop.blueprints.pgm.Edge;
 import com.tinkerpop.blueprints.pgm.Element;
 import com.tinkerpop.blueprints.pgm.Vertex;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author Joshua Shinavier (http://fortytwo.net)
  */
 class MultiEdge extends MultiElement implements Edge {
+    // The edges of the read-only base graphs
     private final Collection<Edge> bases;
 
+    // The merged vertices of this edge, which are found when first requested.
+    private Vertex outVertex, inVertex;
+
     public MultiEdge(final MultiGraph graph,
                      final Object id,
-                     final Collection<Edge> bases) {
-        super(graph, id);
+                     final Collection<Edge> bases,
+                     final boolean complete) {
+        super(graph, id, complete);
         this.bases = bases;
     }
 
     protected Collection<Element> getBases() {
-        return (Collection<Element>) (Collection) bases;
+        return (Collection<Element>) (Collection) getCurrentBases();
+    }
+
+    protected OverlayIndex getOverlayIndex() {
+        return graph.getEdgeIndex();
+    }
+
+    protected Element getOverlayCopy() {
+        return graph.copyEdge(id);
     }
 
     public Vertex getOutVertex() {
-        return graph.getVertex(bases.iterator().next().getOutVertex().getId());
+        if (null == outVertex) {
+            outVertex = graph.getVertex(getCurrentBases().iterator().next().getOutVertex().getId());
+        }
+        return outVertex;
     }
 
     public Vertex getInVertex() {
-        return graph.getVertex(bases.iterator().next().getInVertex().getId());
+        if (null == inVertex) {
+            inVertex = graph.getVertex(getCurrentBases().iterator().next().getInVertex().getId());
+        }
+        return inVertex;
     }
 
     public String getLabel() {
-        return bases.iterator().next().getLabel();
+        return getCurrentBases().iterator().next().getLabel();
+    }
+
+    /**
+     * @return the base edges, beginning with the edge in the overlay, if any
+     */
+    private Collection<Edge> getCurrentBases() {
+        OverlayIndex index = graph.getEdgeIndex();
+        if (null == index) {
+            return bases;
+        }
+
+        boolean member = index.isMember(id);
+        boolean deleted = index.isDeleted(id);
+        if (!member && !deleted) {
+            return bases;
+        }
+
+        List<Edge> current = new ArrayList<Edge>(bases.size() + 1);
+        if (member) {
+            current.add(graph.getOverlay().getEdge(id));
+        }
+        if (!deleted) {
+            current.addAll(bases);
+        }
+        return current;
     }
 }
\ No newline at end of file
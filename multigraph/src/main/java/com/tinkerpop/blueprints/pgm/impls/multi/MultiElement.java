@@ -4,36 +4,89 @@ import com.tinkerpop.blueprints.pgm.Element;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * @author Joshua Shinavier (http://fortytwo.net)
  */
-abstract class MultiElement implements Element {
+abstract class MultiElement implements ProjectableElement {
     protected final Object id;
     protected final MultiGraph graph;
+    // Whether no base graph was skipped, after a failure or timeout, when this element was looked up
+    private final boolean complete;
 
     public MultiElement(final MultiGraph graph,
-                        final Object id) {
+                        final Object id,
+                        final boolean complete) {
         this.id = id;
         this.graph = graph;
+        this.complete = complete;
     }
 
+    /**
+     * @return whether this element merges every base graph which may contain it.  An element which is not complete
+     *         lacks the properties and edges of a base graph which was skipped, and is not cached.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the corresponding elements of the base graphs, in order of precedence
+     */
     protected abstract Collection<Element> getBases();
 
+    /**
+     * @return the overlay state of elements of this type, or null if the graph is read-only
+     */
+    protected abstract OverlayIndex getOverlayIndex();
+
+    /**
+     * @return the corresponding element of the overlay graph, which is created if necessary
+     */
+    protected abstract Element getOverlayCopy();
+
     public Object getId() {
         return id;
     }
 
-    public void setProperty(String key, Object value) {
-        throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+    public void setProperty(final String key,
+                            final Object value) {
+        OverlayIndex index = getOverlayIndex();
+        if (null == index) {
+            throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+        }
+
+        // The value in the overlay shadows any value in the read-only base graphs.
+        getOverlayCopy().setProperty(key, value);
+        index.restoreKey(id, key);
     }
 
-    public Object removeProperty(String key) {
-        throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+    public Object removeProperty(final String key) {
+        OverlayIndex index = getOverlayIndex();
+        if (null == index) {
+            throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+        }
+
+        Object value = getProperty(key);
+        if (null != value) {
+            if (index.isMember(id)) {
+                getOverlayCopy().removeProperty(key);
+            }
+            // Any value in the read-only base graphs is hidden.
+            index.removeKey(id, key);
+        }
+
+        return value;
     }
 
-    public Object getProperty(String key) {
+    public Object getProperty(final String key) {
+        OverlayIndex index = getOverlayIndex();
+        if (null != index && index.isRemovedKey(id, key)) {
+            return null;
+        }
+
         for (Element e : getBases()) {
             Object o = e.getProperty(key);
             if (null != o) {
@@ -44,6 +97,73 @@ abstract class MultiElement implements Element {
         return null;
     }
 
+    /**
+     * Reads a number of properties, consulting each base element at most once, and only until all of the properties
+     * have been found.  A base element which is itself a <code>ProjectableElement</code> is asked for all of the
+     * properties not yet found in a single call.
+     */
+    public Map<String, Object> getProperties(final String... keys) {
+        String[] found = new String[keys.length];
+        Object[] values = new Object[keys.length];
+        int size = 0;
+
+        // Keys which are resolved, either by a value or by having been removed through the overlay.
+        boolean[] resolved = new boolean[keys.length];
+        int remaining = keys.length;
+
+        OverlayIndex index = getOverlayIndex();
+        if (null != index) {
+            for (int i = 0; i < keys.length; i++) {
+                if (index.isRemovedKey(id, keys[i])) {
+                    resolved[i] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        for (Element e : getBases()) {
+            if (0 == remaining) {
+                break;
+            }
+
+            if (e instanceof ProjectableElement) {
+                String[] unresolved = new String[remaining];
+                for (int i = 0, j = 0; i < keys.length; i++) {
+                    if (!resolved[i]) {
+                        unresolved[j++] = keys[i];
+                    }
+                }
+
+                Map<String, Object> m = ((ProjectableElement) e).getProperties(unresolved);
+                for (int i = 0; i < keys.length && !m.isEmpty(); i++) {
+                    if (!resolved[i]) {
+                        Object o = m.get(keys[i]);
+                        if (null != o) {
+                            found[size] = keys[i];
+                            values[size++] = o;
+                            resolved[i] = true;
+                            remaining--;
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < keys.length; i++) {
+                    if (!resolved[i]) {
+                        Object o = e.getProperty(keys[i]);
+                        if (null != o) {
+                            found[size] = keys[i];
+                            values[size++] = o;
+                            resolved[i] = true;
+                            remaining--;
+                        }
+                    }
+                }
+            }
+        }
+
+        return new PropertyArrayMap(found, values, size);
+    }
+
     public Set<String> getPropertyKeys() {
         Set<String> keys = new HashSet<String>();
 
@@ -51,6 +171,11 @@ abstract class MultiElement implements Element {
             keys.addAll(e.getPropertyKeys());
         }
 
+        OverlayIndex index = getOverlayIndex();
+        if (null != index) {
+            keys.removeAll(index.getRemovedKeys(id));
+        }
+
         return keys;
     }
 }
@@ -1,25 +1,84 @@
 package com.tinkerpop.blueprints.pgm.impls.multi;
 
 import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.AutomaticIndex;
 import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Index;
+import com.tinkerpop.blueprints.pgm.IndexableGraph;
 import com.tinkerpop.blueprints.pgm.Vertex;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A read-only Graph implementation which wraps multiple lower-level graphs,
  * providing a unified view of their vertices and edges.
  * Vertices with corresponding ids are unified into single vertices,
  * while edges with corresponding ids are unified to single edges.
+ * Optionally, the first graph may serve as a writable overlay over the others
+ * (see <code>MultiGraphSettings.setWritableOverlay</code>).
  *
  * @author Joshua Shinavier (http://fortytwo.net)
  */
-public class MultiGraph implements Graph {
+public class MultiGraph implements IndexableGraph, ProjectableGraph {
     static final String READONLY_MSG = "MultiGraph is read-only";
+    static final String INDICES_MSG
+            = "MultiGraph does not create or drop indices; its indices are those of its base graphs";
 
-    private final Graph[] bases;
+    // The current base graphs, which are replaced as a whole whenever a base graph is added, removed or replaced.
+    private volatile BaseEpoch epoch;
+
+    private final DedupStrategy dedupStrategy;
+    private final long expectedElements;
+    private final double falsePositiveRate;
+
+    // Concurrent lookups, if an executor has been supplied.
+    private final ExecutorService executor;
+    private final long lookupTimeout;
+    private final BaseFailurePolicy failurePolicy;
+
+    private final int adjacencyDedupLimit;
+
+    // The writable overlay and its state, or null if the graph is read-only.
+    private final Graph overlay;
+    private final OverlayIndex vertexIndex;
+    private final OverlayIndex edgeIndex;
+    // The index of the first read-only base graph
+    private final int firstReadOnly;
+
+    // Whether filters of the vertex and edge ids of each read-only base graph are kept
+    private final boolean baseFilters;
+
+    // Filters of the property keys and values of base graphs which are scanned for index queries, built on demand
+    private final Map<Graph, BloomFilter> vertexPropertyFilters
+            = Collections.synchronizedMap(new IdentityHashMap<Graph, BloomFilter>());
+    private final Map<Graph, BloomFilter> edgePropertyFilters
+            = Collections.synchronizedMap(new IdentityHashMap<Graph, BloomFilter>());
+    // Incremented whenever the property filters are cleared, so that a filter built from stale base graphs is discarded
+    private final AtomicLong propertyFilterGeneration = new AtomicLong();
+
+    // Caches of merged elements, or null if caching is disabled.
+    private final ElementCache<Vertex> vertexCache;
+    private final ElementCache<Edge> edgeCache;
+    private final CacheMetrics cacheMetrics = new CacheMetrics();
+
+    // The current projection hint, which is also passed on to base graphs added later
+    private String[] projection = new String[0];
 
     /**
      * Constructs a unified, read-only view of the given graphs.
@@ -32,190 +91,1074 @@ public class MultiGraph implements Graph {
      *              then the vertices in the first graph takes precedence.
      */
     public MultiGraph(final Graph... bases) {
-        this.bases = bases;
+        this(new MultiGraphSettings(), bases);
+    }
+
+    /**
+     * Constructs a unified, read-only view of the given graphs.
+     *
+     * @param settings settings which control the behavior of the view
+     * @param bases    the lower-level graphs which are unified in the view, in order of precedence
+     */
+    public MultiGraph(final MultiGraphSettings settings,
+                      final Graph... bases) {
+        this.dedupStrategy = settings.getDedupStrategy();
+        this.expectedElements = settings.getExpectedElements();
+        this.falsePositiveRate = settings.getFalsePositiveRate();
+        this.executor = settings.getExecutor();
+        this.lookupTimeout = settings.getLookupTimeout();
+        this.failurePolicy = settings.getFailurePolicy();
+        this.adjacencyDedupLimit = settings.getAdjacencyDedupLimit();
+
+        if (settings.getCacheSize() > 0) {
+            vertexCache = new ElementCache<Vertex>(settings.getCacheSize(), cacheMetrics);
+            edgeCache = new ElementCache<Edge>(settings.getCacheSize(), cacheMetrics);
+        } else {
+            vertexCache = null;
+            edgeCache = null;
+        }
+
+        if (settings.getWritableOverlay()) {
+            if (0 == bases.length) {
+                throw new IllegalArgumentException("a writable overlay requires at least one base graph");
+            }
+
+            overlay = bases[0];
+            checkSuppliedIds(overlay);
+            vertexIndex = new OverlayIndex();
+            edgeIndex = new OverlayIndex();
+            for (Vertex v : overlay.getVertices()) {
+                vertexIndex.addMember(v.getId());
+            }
+            for (Edge e : overlay.getEdges()) {
+                edgeIndex.addMember(e.getId());
+            }
+            firstReadOnly = 1;
+        } else {
+            overlay = null;
+            vertexIndex = null;
+            edgeIndex = null;
+            firstReadOnly = 0;
+        }
+
+        baseFilters = settings.getBaseFilters();
+        epoch = createEpoch(0, bases.clone(), null);
     }
 
-    public Vertex addVertex(Object id) {
-        throw new UnsupportedOperationException(READONLY_MSG);
+    /**
+     * Removes any cached vertex or edge with the given id, and adds the id to any base graph filters.
+     * This should be called when the element is modified (or added) directly in a base graph.
+     *
+     * @param id the id of a vertex or edge
+     */
+    public void invalidate(final Object id) {
+        BaseEpoch ep = epoch;
+        if (baseFilters) {
+            // The base graph is not known, so the id is added to the filters of all base graphs.
+            // The filters are updated first, so that a lookup which misses the cache also finds the element in its base.
+            for (int i = firstReadOnly; i < ep.bases.length; i++) {
+                ep.vertexFilters[i].add(id);
+                ep.edgeFilters[i].add(id);
+            }
+        }
+
+        uncache(id);
+        clearPropertyFilters();
     }
 
-    public Vertex getVertex(Object id) {
-        Collection<Vertex> baseVertices = new LinkedList<Vertex>();
+    /**
+     * Removes all cached elements, and rebuilds any base graph filters.
+     * This should be called when the base graphs are modified directly.
+     */
+    public synchronized void invalidateAll() {
+        // A new epoch, even without filters, so that elements merged before the change are not cached afterwards.
+        epoch = createEpoch(epoch.number + 1, epoch.bases, null);
 
-        // TODO: allow bases to be refreshed
-        for (Graph g : bases) {
-            Vertex v = g.getVertex(id);
-            if (null != v) {
-                baseVertices.add(v);
+        uncacheAll();
+        clearPropertyFilters();
+    }
+
+    /**
+     * @return the current base graphs, in order of precedence
+     */
+    public List<Graph> getBases() {
+        return Collections.unmodifiableList(Arrays.asList(epoch.bases));
+    }
+
+    /**
+     * @return the number of times the base graphs have been changed (or their filters rebuilt) since the graph was
+     *         created.  Iterators and elements created before a change continue to see the base graphs of the epoch in
+     *         which they were created.
+     */
+    public long getEpoch() {
+        return epoch.number;
+    }
+
+    /**
+     * Adds a base graph, with lower precedence than all others.
+     * Readers are not blocked, and see either the old or the new base graphs.
+     *
+     * @param base the graph to add
+     */
+    public synchronized void addBase(final Graph base) {
+        BaseEpoch ep = epoch;
+        Graph[] bases = new Graph[ep.bases.length + 1];
+        System.arraycopy(ep.bases, 0, bases, 0, ep.bases.length);
+        bases[ep.bases.length] = base;
+
+        swap(bases, ep);
+    }
+
+    /**
+     * Removes a base graph.  The graph is not shut down, as iterators over the previous base graphs may still be in
+     * use: this is left to the caller.
+     *
+     * @param base the graph to remove
+     * @throws IllegalArgumentException if the graph is not a read-only base graph of this graph
+     */
+    public synchronized void removeBase(final Graph base) {
+        BaseEpoch ep = epoch;
+        int i = indexOfBase(ep, base);
+        Graph[] bases = new Graph[ep.bases.length - 1];
+        System.arraycopy(ep.bases, 0, bases, 0, i);
+        System.arraycopy(ep.bases, i + 1, bases, i, bases.length - i);
+
+        swap(bases, ep);
+    }
+
+    /**
+     * Replaces a base graph with another, at the same precedence, for instance to roll over to a newer snapshot.
+     * The old graph is not shut down (see <code>removeBase</code>).
+     *
+     * @param oldBase the graph to replace
+     * @param newBase the graph to put in its place
+     * @throws IllegalArgumentException if the old graph is not a read-only base graph of this graph
+     */
+    public synchronized void replaceBase(final Graph oldBase,
+                                         final Graph newBase) {
+        BaseEpoch ep = epoch;
+        int i = indexOfBase(ep, oldBase);
+        Graph[] bases = ep.bases.clone();
+        bases[i] = newBase;
+
+        swap(bases, ep);
+    }
+
+    /**
+     * @return counters of the hits and misses of the element cache
+     */
+    public CacheMetrics getCacheMetrics() {
+        return cacheMetrics;
+    }
+
+    public Vertex addVertex(final Object id) {
+        checkWritable();
+
+        if (null != id && null != getVertex(id)) {
+            throw new IllegalArgumentException("vertex with id already exists: " + id);
+        }
+
+        Object newId = overlay.addVertex(id).getId();
+        vertexIndex.addMember(newId);
+        // A generated id must not reveal a vertex of the same id in the read-only base graphs.
+        if (null == id && isInReadOnlyBases(newId, true)) {
+            vertexIndex.delete(newId);
+        }
+
+        uncache(newId);
+        return getVertex(newId);
+    }
+
+    public Vertex getVertex(final Object id) {
+        return getVertex(epoch, id);
+    }
+
+    /**
+     * Finds a vertex among the base graphs of the given epoch, using the cache only if the epoch is current
+     */
+    private Vertex getVertex(final BaseEpoch ep,
+                             final Object id) {
+        if (null != vertexCache && ep == epoch) {
+            Vertex v = vertexCache.get(id, ep.number);
+            if (null == v) {
+                MultiVertex found = findVertex(ep, id);
+                v = found;
+                // Tagged with the epoch, so that an element found among base graphs which have since been changed is
+                // never returned from the cache.  An element merged without a skipped base graph is not cached at all.
+                if (null != found && found.isComplete()) {
+                    vertexCache.put(id, v, ep.number);
+                }
             }
+            return v;
         }
 
-        if (baseVertices.size() > 0) {
-            return new MultiVertex(this, id, baseVertices);
-        } else {
-            return null;
+        return findVertex(ep, id);
+    }
+
+    private MultiVertex findVertex(final BaseEpoch ep,
+                              final Object id) {
+        Graph[] bases = ep.bases;
+        BloomFilter[] vertexFilters = ep.vertexFilters;
+
+        // The lists are only allocated once a base vertex is found.
+        List<Graph> baseGraphs = null;
+        List<Vertex> baseVertices = null;
+        boolean complete = true;
+
+        // A vertex in the overlay is not kept in the lists, but is found by the merged vertex itself.
+        if (null == vertexIndex || !vertexIndex.isDeleted(id)) {
+            if (isConcurrent()) {
+                List<Graph> candidates = new ArrayList<Graph>(bases.length);
+                List<Callable<Vertex>> lookups = new ArrayList<Callable<Vertex>>(bases.length);
+                for (int i = firstReadOnly; i < bases.length; i++) {
+                    if (mayContain(vertexFilters, i, id)) {
+                        final Graph g = bases[i];
+                        candidates.add(g);
+                        lookups.add(new Callable<Vertex>() {
+                            public Vertex call() {
+                                return g.getVertex(id);
+                            }
+                        });
+                    }
+                }
+
+                LookupResults<Vertex> lookupResults = fanOut(lookups, candidates);
+                List<Vertex> results = lookupResults.getValues();
+                complete = !lookupResults.isDegraded();
+                for (int i = 0; i < results.size(); i++) {
+                    Vertex v = results.get(i);
+                    if (null != v) {
+                        if (null == baseVertices) {
+                            baseGraphs = new ArrayList<Graph>(bases.length);
+                            baseVertices = new ArrayList<Vertex>(bases.length);
+                        }
+                        baseGraphs.add(candidates.get(i));
+                        baseVertices.add(v);
+                    }
+                }
+            } else {
+                for (int i = firstReadOnly; i < bases.length; i++) {
+                    if (!mayContain(vertexFilters, i, id)) {
+                        continue;
+                    }
+
+                    Vertex v = bases[i].getVertex(id);
+                    if (null != v) {
+                        if (null == baseVertices) {
+                            baseGraphs = new ArrayList<Graph>(bases.length);
+                            baseVertices = new ArrayList<Vertex>(bases.length);
+                        }
+                        baseGraphs.add(bases[i]);
+                        baseVertices.add(v);
+                    }
+                }
+            }
+        }
+
+        if (null == baseVertices) {
+            if (null == vertexIndex || !vertexIndex.isMember(id)) {
+                return null;
+            }
+
+            baseGraphs = new ArrayList<Graph>(0);
+            baseVertices = new ArrayList<Vertex>(0);
+        }
+
+        return new MultiVertex(this, id, baseGraphs, baseVertices, complete);
+    }
+
+    public void removeVertex(final Vertex vertex) {
+        checkWritable();
+
+        Object id = vertex.getId();
+        Vertex v = getVertex(id);
+        if (null == v) {
+            return;
+        }
+
+        // Edges are collected before they are removed, so as not to modify the adjacency being iterated over.
+        List<Edge> edges = new ArrayList<Edge>();
+        for (Edge e : v.getOutEdges()) {
+            edges.add(e);
+        }
+        for (Edge e : v.getInEdges()) {
+            edges.add(e);
+        }
+        for (Edge e : edges) {
+            removeEdge(e);
+        }
+
+        if (vertexIndex.removeMember(id)) {
+            overlay.removeVertex(overlay.getVertex(id));
+        }
+        vertexIndex.delete(id);
+
+        uncache(id);
+    }
+
+    public Edge addEdge(final Object id,
+                        final Vertex outVertex,
+                        final Vertex inVertex,
+                        final String label) {
+        checkWritable();
+
+        if (null != id && null != getEdge(id)) {
+            throw new IllegalArgumentException("edge with id already exists: " + id);
+        }
+
+        Vertex out = copyVertex(outVertex.getId());
+        Vertex in = copyVertex(inVertex.getId());
+        Object newId = overlay.addEdge(id, out, in, label).getId();
+        edgeIndex.addMember(newId);
+        if (null == id && isInReadOnlyBases(newId, false)) {
+            edgeIndex.delete(newId);
         }
+
+        uncache(newId);
+        return getEdge(newId);
     }
 
-    public void removeVertex(Vertex vertex) {
-        throw new UnsupportedOperationException(READONLY_MSG);
+    public Edge getEdge(final Object id) {
+        return getEdge(epoch, id);
     }
 
-    public Edge addEdge(Object id, Vertex outVertex, Vertex inVertex, String label) {
-        throw new UnsupportedOperationException(READONLY_MSG);
+    /**
+     * Finds a edge among the base graphs of the given epoch, using the cache only if the epoch is current
+     */
+    private Edge getEdge(final BaseEpoch ep,
+                         final Object id) {
+        if (null != edgeCache && ep == epoch) {
+            Edge e = edgeCache.get(id, ep.number);
+            if (null == e) {
+                MultiEdge found = findEdge(ep, id);
+                e = found;
+                // Tagged with the epoch, so that an element found among base graphs which have since been changed is
+                // never returned from the cache.  An element merged without a skipped base graph is not cached at all.
+                if (null != found && found.isComplete()) {
+                    edgeCache.put(id, e, ep.number);
+                }
+            }
+            return e;
+        }
+
+        return findEdge(ep, id);
     }
 
-    public Edge getEdge(Object id) {
-        Collection<Edge> baseEdges = new LinkedList<Edge>();
+    private MultiEdge findEdge(final BaseEpoch ep,
+                          final Object id) {
+        Graph[] bases = ep.bases;
+        BloomFilter[] edgeFilters = ep.edgeFilters;
 
-        // TODO: allow bases to be refreshed
-        for (Graph g : bases) {
-            Edge e = g.getEdge(id);
-            if (null != e) {
-                baseEdges.add(e);
+        List<Edge> baseEdges = null;
+        boolean complete = true;
+
+        if (null == edgeIndex || !edgeIndex.isDeleted(id)) {
+            if (isConcurrent()) {
+                List<Graph> candidates = new ArrayList<Graph>(bases.length);
+                List<Callable<Edge>> lookups = new ArrayList<Callable<Edge>>(bases.length);
+                for (int i = firstReadOnly; i < bases.length; i++) {
+                    if (mayContain(edgeFilters, i, id)) {
+                        final Graph g = bases[i];
+                        candidates.add(g);
+                        lookups.add(new Callable<Edge>() {
+                            public Edge call() {
+                                return g.getEdge(id);
+                            }
+                        });
+                    }
+                }
+
+                LookupResults<Edge> lookupResults = fanOut(lookups, candidates);
+                List<Edge> results = withoutNulls(lookupResults.getValues());
+                complete = !lookupResults.isDegraded();
+                if (!results.isEmpty()) {
+                    baseEdges = results;
+                }
+            } else {
+                for (int i = firstReadOnly; i < bases.length; i++) {
+                    if (!mayContain(edgeFilters, i, id)) {
+                        continue;
+                    }
+
+                    Edge e = bases[i].getEdge(id);
+                    if (null != e) {
+                        if (null == baseEdges) {
+                            baseEdges = new ArrayList<Edge>(bases.length);
+                        }
+                        baseEdges.add(e);
+                    }
+                }
             }
         }
 
-        if (baseEdges.size() > 0) {
-            return new MultiEdge(this, id, baseEdges);
-        } else {
-            return null;
+        if (null == baseEdges) {
+            if (null == edgeIndex || !edgeIndex.isMember(id)) {
+                return null;
+            }
+
+            baseEdges = new ArrayList<Edge>(0);
         }
+
+        return new MultiEdge(this, id, baseEdges, complete);
     }
 
-    public void removeEdge(Edge edge) {
-        throw new UnsupportedOperationException(READONLY_MSG);
+    public void removeEdge(final Edge edge) {
+        checkWritable();
+
+        Object id = edge.getId();
+        if (null == getEdge(id)) {
+            return;
+        }
+
+        if (edgeIndex.removeMember(id)) {
+            overlay.removeEdge(overlay.getEdge(id));
+        }
+        edgeIndex.delete(id);
+
+        uncache(id);
     }
 
     public Iterable<Vertex> getVertices() {
-        Collection<Iterable<Vertex>> base = new LinkedList<Iterable<Vertex>>();
+        return new MultiElementIterable<Vertex>(vertexIndex) {
+            protected Iterable<Vertex> getElements(final Graph base) {
+                return base.getVertices();
+            }
 
-        for (int pos = 0; pos < bases.length; pos++) {
-            base.add(new MultiVertexIterable(pos));
-        }
+            protected boolean contains(final BaseEpoch ep,
+                                       final int base,
+                                       final Object id) {
+                return mayContain(ep.vertexFilters, base, id) && null != ep.bases[base].getVertex(id);
+            }
 
-        return new MultiIterable<Vertex>(base);
+            protected Vertex merge(final BaseEpoch ep,
+                                  final Object id) {
+                return getVertex(ep, id);
+            }
+        };
     }
 
     public Iterable<Edge> getEdges() {
-        Collection<Iterable<Edge>> base = new LinkedList<Iterable<Edge>>();
+        return new MultiElementIterable<Edge>(edgeIndex) {
+            protected Iterable<Edge> getElements(final Graph base) {
+                return base.getEdges();
+            }
 
-        for (int pos = 0; pos < bases.length; pos++) {
-            base.add(new MultiEdgeIterable(pos));
-        }
+            protected boolean contains(final BaseEpoch ep,
+                                       final int base,
+                                       final Object id) {
+                return mayContain(ep.edgeFilters, base, id) && null != ep.bases[base].getEdge(id);
+            }
 
-        return new MultiIterable<Edge>(base);
+            protected Edge merge(final BaseEpoch ep,
+                                  final Object id) {
+                return getEdge(ep, id);
+            }
+        };
     }
 
     public void clear() {
-        throw new UnsupportedOperationException(READONLY_MSG);
+        checkWritable();
+
+        // Everything in the read-only base graphs is hidden, without visiting it, and the overlay is emptied.
+        overlay.clear();
+        vertexIndex.hideBases();
+        edgeIndex.hideBases();
+
+        uncacheAll();
     }
 
-    public void shutdown() {
+    public <T extends Element> Index<T> createManualIndex(final String indexName,
+                                                          final Class<T> indexClass) {
+        throw new UnsupportedOperationException(INDICES_MSG);
+    }
+
+    public <T extends Element> AutomaticIndex<T> createAutomaticIndex(final String indexName,
+                                                                      final Class<T> indexClass,
+                                                                      final Set<String> indexKeys) {
+        throw new UnsupportedOperationException(INDICES_MSG);
+    }
+
+    /**
+     * Finds an index which merges the indices of the given name in each base graph.
+     * The default vertex and edge indices are always available, even if no base graph is indexable.
+     *
+     * @return the merged index, or null if no base graph has such an index
+     */
+    public <T extends Element> Index<T> getIndex(final String indexName,
+                                                 final Class<T> indexClass) {
+        for (Graph g : epoch.bases) {
+            Index<T> index = MultiIndex.getBaseIndex(g, indexName, indexClass);
+            if (null != index) {
+                return new MultiIndex<T>(this, indexName, indexClass, index.getIndexType());
+            }
+        }
+
+        if (Index.VERTICES.equals(indexName) && Vertex.class.equals(indexClass)
+                || Index.EDGES.equals(indexName) && Edge.class.equals(indexClass)) {
+            return new MultiIndex<T>(this, indexName, indexClass, Index.Type.AUTOMATIC);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return a merged index for each distinct index name among the base graphs, as well as the default vertex and edge
+     *         indices
+     */
+    public Iterable<Index<? extends Element>> getIndices() {
+        Map<String, Index<? extends Element>> indices = new LinkedHashMap<String, Index<? extends Element>>();
+        for (Graph g : epoch.bases) {
+            if (g instanceof IndexableGraph) {
+                for (Index<? extends Element> index : ((IndexableGraph) g).getIndices()) {
+                    if (!indices.containsKey(index.getIndexName())) {
+                        indices.put(index.getIndexName(), mergedIndex(index));
+                    }
+                }
+            }
+        }
+
+        if (!indices.containsKey(Index.VERTICES)) {
+            indices.put(Index.VERTICES, new MultiIndex<Vertex>(this, Index.VERTICES, Vertex.class, Index.Type.AUTOMATIC));
+        }
+        if (!indices.containsKey(Index.EDGES)) {
+            indices.put(Index.EDGES, new MultiIndex<Edge>(this, Index.EDGES, Edge.class, Index.Type.AUTOMATIC));
+        }
+
+        return indices.values();
+    }
+
+    /**
+     * @return the merged index of the same name, class and type as an index of a base graph
+     */
+    private <T extends Element> MultiIndex<T> mergedIndex(final Index<T> index) {
+        return new MultiIndex<T>(this, index.getIndexName(), index.getIndexClass(), index.getIndexType());
+    }
+
+    public void dropIndex(final String indexName) {
+        throw new UnsupportedOperationException(INDICES_MSG);
+    }
+
+    /**
+     * Passes a projection hint on to each base graph which accepts one, including base graphs added later.
+     *
+     * @param keys the keys of the only properties which will be read, or no keys at all, if any property may be read
+     */
+    public synchronized void setProjection(final String... keys) {
+        projection = keys.clone();
+        applyProjection(epoch.bases);
+    }
+
+    private void applyProjection(final Graph[] bases) {
         for (Graph g : bases) {
+            if (g instanceof ProjectableGraph) {
+                ((ProjectableGraph) g).setProjection(projection.clone());
+            }
+        }
+    }
+
+    public void shutdown() {
+        for (Graph g : epoch.bases) {
             g.shutdown();
         }
     }
 
-    private class MultiVertexIterable implements Iterable<Vertex> {
-        private final int pos;
+    /**
+     * @return the maximum number of edge ids remembered while iterating over the edges of a vertex
+     */
+    int getAdjacencyDedupLimit() {
+        return adjacencyDedupLimit;
+    }
+
+    /**
+     * @return whether lookups in the read-only base graphs are to be made concurrently
+     */
+    boolean isConcurrent() {
+        return null != executor && epoch.bases.length - firstReadOnly > 1;
+    }
+
+    /**
+     * @return the overlay state of vertices, or null if the graph is read-only
+     */
+    OverlayIndex getVertexIndex() {
+        return vertexIndex;
+    }
+
+    /**
+     * @return the overlay state of edges, or null if the graph is read-only
+     */
+    OverlayIndex getEdgeIndex() {
+        return edgeIndex;
+    }
+
+    /**
+     * @return the writable overlay graph, or null if the graph is read-only
+     */
+    Graph getOverlay() {
+        return overlay;
+    }
 
-        public MultiVertexIterable(int pos) {
-            this.pos = pos;
+    /**
+     * Finds or creates a vertex in the overlay, to which properties and edges of a merged vertex may be written.
+     * The new vertex has no properties: those of the read-only base graphs remain visible until they are shadowed.
+     */
+    Vertex copyVertex(final Object id) {
+        checkWritable();
+
+        if (vertexIndex.isMember(id)) {
+            return overlay.getVertex(id);
         }
 
-        public Iterator<Vertex> iterator() {
-            return new Iterator<Vertex>() {
-                private Iterator<Vertex> iter = bases[pos].getVertices().iterator();
-                private Vertex next;
+        if (null == getVertex(id)) {
+            throw new IllegalArgumentException("no such vertex: " + id);
+        }
 
-                public boolean hasNext() {
-                    while (null == next) {
-                        if (iter.hasNext()) {
-                            Object id = iter.next().getId();
-
-                            boolean repeat = false;
-                            for (int i = 0; i < pos; i++) {
-                                if (null != bases[i].getVertex(id)) {
-                                    repeat = true;
-                                    break;
-                                }
-                            }
+        Vertex v = overlay.addVertex(id);
+        vertexIndex.addMember(id);
+        return v;
+    }
 
-                            if (!repeat) {
-                                next = getVertex(id);
-                                return true;
-                            }
-                        } else {
-                            return false;
-                        }
-                    }
+    /**
+     * Finds or creates an edge in the overlay, to which properties of a merged edge may be written.
+     */
+    Edge copyEdge(final Object id) {
+        checkWritable();
 
-                    return true;
+        if (edgeIndex.isMember(id)) {
+            return overlay.getEdge(id);
+        }
+
+        Edge e = getEdge(id);
+        if (null == e) {
+            throw new IllegalArgumentException("no such edge: " + id);
+        }
+
+        Edge copy = overlay.addEdge(id,
+                copyVertex(e.getOutVertex().getId()),
+                copyVertex(e.getInVertex().getId()),
+                e.getLabel());
+        edgeIndex.addMember(id);
+        return copy;
+    }
+
+    private void uncache(final Object id) {
+        if (null != vertexCache) {
+            vertexCache.remove(id);
+            edgeCache.remove(id);
+        }
+    }
+
+    private void uncacheAll() {
+        if (null != vertexCache) {
+            vertexCache.clear();
+            edgeCache.clear();
+        }
+    }
+
+    /**
+     * @return whether the base graph at the given position may contain the id, according to its filter
+     */
+    private boolean mayContain(final BloomFilter[] filters,
+                               final int base,
+                               final Object id) {
+        // The overlay, if any, has no filter.
+        return null == filters || null == filters[base] || filters[base].mightContain(id);
+    }
+
+    /**
+     * Creates an epoch of the given base graphs.  If filters are kept, then the filters of base graphs which were also
+     * in the previous epoch are carried over, while those of new base graphs are built.
+     *
+     * @param previous the previous epoch, or null if all filters are to be built
+     */
+    private BaseEpoch createEpoch(final long number,
+                                  final Graph[] bases,
+                                  final BaseEpoch previous) {
+        if (!baseFilters) {
+            return new BaseEpoch(number, bases, null, null);
+        }
+
+        BloomFilter[] vf = new BloomFilter[bases.length];
+        BloomFilter[] ef = new BloomFilter[bases.length];
+        for (int i = firstReadOnly; i < bases.length; i++) {
+            int j = null == previous ? -1 : indexOf(previous.bases, bases[i]);
+            if (j >= 0) {
+                vf[i] = previous.vertexFilters[j];
+                ef[i] = previous.edgeFilters[j];
+            } else {
+                vf[i] = buildFilter(bases[i].getVertices());
+                ef[i] = buildFilter(bases[i].getEdges());
+            }
+        }
+
+        return new BaseEpoch(number, bases, vf, ef);
+    }
+
+    /**
+     * Builds a filter of the ids of the given elements.
+     * The filter is sized to the number of elements, which requires two passes over them.
+     */
+    private BloomFilter buildFilter(final Iterable<? extends Element> elements) {
+        long count = 0;
+        for (Element e : elements) {
+            count++;
+        }
+
+        BloomFilter filter = new BloomFilter(count, falsePositiveRate);
+        for (Element e : elements) {
+            filter.add(e.getId());
+        }
+        return filter;
+    }
+
+    private void swap(final Graph[] bases,
+                      final BaseEpoch previous) {
+        epoch = createEpoch(previous.number + 1, bases, previous);
+
+        // Cached elements refer to the base elements of the previous epoch.
+        uncacheAll();
+        clearPropertyFilters();
+
+        applyProjection(bases);
+    }
+
+    private int indexOfBase(final BaseEpoch ep,
+                            final Graph base) {
+        int i = indexOf(ep.bases, base);
+        if (i < firstReadOnly) {
+            throw new IllegalArgumentException(i < 0
+                    ? "not a base graph of this graph: " + base
+                    : "the writable overlay cannot be removed or replaced");
+        }
+        return i;
+    }
+
+    private static int indexOf(final Graph[] bases,
+                               final Graph base) {
+        for (int i = 0; i < bases.length; i++) {
+            if (bases[i] == base) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return a filter of the property keys and values of the vertices or edges of a base graph, which is built when
+     *         first requested, and discarded when the base graphs are invalidated or changed
+     */
+    BloomFilter getPropertyFilter(final Graph base,
+                                  final boolean edges) {
+        Map<Graph, BloomFilter> filters = edges ? edgePropertyFilters : vertexPropertyFilters;
+        BloomFilter filter = filters.get(base);
+        if (null == filter) {
+            long generation = propertyFilterGeneration.get();
+            Iterable<? extends Element> elements = edges ? base.getEdges() : base.getVertices();
+
+            long count = 0;
+            for (Element e : elements) {
+                count += e.getPropertyKeys().size();
+            }
+
+            filter = new BloomFilter(count, falsePositiveRate);
+            for (Element e : elements) {
+                for (String key : e.getPropertyKeys()) {
+                    filter.add(propertyFilterKey(key, e.getProperty(key)));
                 }
+            }
 
-                public Vertex next() {
-                    // Note: requires hasNext to have been called
-                    Vertex v = next;
-                    next = null;
-                    return v;
+            // The filter is still used for this query, but not kept if the filters were cleared while it was built.
+            synchronized (filters) {
+                if (generation == propertyFilterGeneration.get()) {
+                    filters.put(base, filter);
                 }
+            }
+        }
 
-                public void remove() {
-                    throw new UnsupportedOperationException();
+        return filter;
+    }
+
+    /**
+     * @return the object which represents a property key and value in a property filter
+     */
+    static Object propertyFilterKey(final String key,
+                                    final Object value) {
+        return Arrays.asList(key, value);
+    }
+
+    private void clearPropertyFilters() {
+        propertyFilterGeneration.incrementAndGet();
+        vertexPropertyFilters.clear();
+        edgePropertyFilters.clear();
+    }
+
+    /**
+     * Elements are copied into the overlay under the ids they have in the read-only base graphs,
+     * so the overlay must be a graph which honors the ids supplied to it.
+     */
+    private static void checkSuppliedIds(final Graph overlay) {
+        String probeId = MultiGraph.class.getName() + "-id-probe-" + System.nanoTime();
+        Vertex probe = overlay.addVertex(probeId);
+        boolean honored = probeId.equals(probe.getId());
+        overlay.removeVertex(probe);
+        if (!honored) {
+            throw new IllegalArgumentException("a writable overlay must be a graph which honors supplied ids");
+        }
+    }
+
+    private void checkWritable() {
+        if (null == vertexIndex) {
+            throw new UnsupportedOperationException(READONLY_MSG);
+        }
+    }
+
+    private boolean isInReadOnlyBases(final Object id,
+                                      final boolean vertex) {
+        BaseEpoch ep = epoch;
+        Graph[] bases = ep.bases;
+        BloomFilter[] vertexFilters = ep.vertexFilters, edgeFilters = ep.edgeFilters;
+        for (int i = firstReadOnly; i < bases.length; i++) {
+            if (vertex
+                    ? mayContain(vertexFilters, i, id) && null != bases[i].getVertex(id)
+                    : mayContain(edgeFilters, i, id) && null != bases[i].getEdge(id)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Performs lookups concurrently, waiting for all of them to complete or for the lookup timeout to expire.
+     * A lookup which fails or times out is handled according to the failure policy.
+     *
+     * @param lookups lookups in each of a list of base graphs or base elements
+     * @param graphs  the base graph of each lookup, by which a failure is reported
+     * @return the results of the lookups
+     */
+    <T> LookupResults<T> fanOut(final List<Callable<T>> lookups,
+                                final List<Graph> graphs) {
+        List<Future<T>> futures = new ArrayList<Future<T>>(lookups.size());
+        List<T> results = new ArrayList<T>(lookups.size());
+        boolean degraded = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeout);
+
+        try {
+            for (Callable<T> c : lookups) {
+                futures.add(executor.submit(c));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                Future<T> f = futures.get(i);
+                T result;
+                try {
+                    result = lookupTimeout > 0
+                            ? f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            : f.get();
+                } catch (ExecutionException e) {
+                    if (BaseFailurePolicy.FAIL == failurePolicy) {
+                        throw new RuntimeException("lookup in " + describeBase(graphs.get(i)) + " failed", e.getCause());
+                    }
+                    result = null;
+                    degraded = true;
+                } catch (TimeoutException e) {
+                    if (BaseFailurePolicy.FAIL == failurePolicy) {
+                        throw new RuntimeException("lookup in " + describeBase(graphs.get(i)) + " timed out after "
+                                + lookupTimeout + "ms");
+                    }
+                    result = null;
+                    degraded = true;
                 }
-            };
+                results.add(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for base graphs", e);
+        } finally {
+            // Abandon any lookups which are still running, e.g. after a timeout.
+            for (Future<T> f : futures) {
+                f.cancel(true);
+            }
         }
+
+        return new LookupResults<T>(results, degraded);
     }
 
-    private class MultiEdgeIterable implements Iterable<Edge> {
-        private final int pos;
+    /**
+     * @return the position of a base graph among the base graphs of this graph, or the graph itself if it has since
+     *         been removed
+     */
+    private String describeBase(final Graph base) {
+        int i = indexOf(epoch.bases, base);
+        return i < 0 ? "base graph " + base : "base graph #" + i;
+    }
+
+    static <T> List<T> withoutNulls(final List<T> results) {
+        List<T> l = new ArrayList<T>(results.size());
+        for (T t : results) {
+            if (null != t) {
+                l.add(t);
+            }
+        }
+        return l;
+    }
+
+    /**
+     * An iteration over the merged elements of all base graphs, which returns each element once: from the first base
+     * graph which contains it.
+     */
+    private abstract class MultiElementIterable<T extends Element> implements Iterable<T> {
+        // The overlay state of the elements, or null if the graph is read-only
+        private final OverlayIndex index;
 
-        public MultiEdgeIterable(int pos) {
-            this.pos = pos;
+        public MultiElementIterable(final OverlayIndex index) {
+            this.index = index;
         }
 
-        public Iterator<Edge> iterator() {
-            return new Iterator<Edge>() {
-                private Iterator<Edge> iter = bases[pos].getEdges().iterator();
-                private Edge next;
+        /**
+         * @return all elements of a base graph
+         */
+        protected abstract Iterable<T> getElements(Graph base);
+
+        /**
+         * @return whether the base graph at the given position contains an element with the given id
+         */
+        protected abstract boolean contains(BaseEpoch ep,
+                                            int base,
+                                            Object id);
+
+        /**
+         * @return the merged element with the given id, among the base graphs of the given epoch
+         */
+        protected abstract T merge(BaseEpoch ep,
+                                   Object id);
+
+        public Iterator<T> iterator() {
+            // The iterator sees the base graphs of the current epoch, even if they are changed while it is in use.
+            final BaseEpoch ep = epoch;
+            final Graph[] bases = ep.bases;
+
+            return new Iterator<T>() {
+                private final IdSet seenIds = DedupStrategy.ID_SET == dedupStrategy ? new IdSet() : null;
+                private final BloomFilter seenFilter = DedupStrategy.BLOOM_FILTER == dedupStrategy
+                        ? new BloomFilter(expectedElements, falsePositiveRate)
+                        : null;
+
+                private int pos = -1;
+                private Iterator<T> iter;
+                private T next;
 
                 public boolean hasNext() {
                     while (null == next) {
-                        if (iter.hasNext()) {
-                            Object id = iter.next().getId();
-
-                            boolean repeat = false;
-                            for (int i = 0; i < pos; i++) {
-                                if (null != bases[i].getEdge(id)) {
-                                    repeat = true;
-                                    break;
-                                }
+                        if (null == iter || !iter.hasNext()) {
+                            if (++pos == bases.length) {
+                                return false;
                             }
+                            // Once the graph has been cleared, the read-only base graphs are skipped altogether.
+                            iter = null != index && pos >= firstReadOnly && index.isBasesHidden()
+                                    ? Collections.<T>emptyList().iterator()
+                                    : getElements(bases[pos]).iterator();
+                            continue;
+                        }
 
-                            if (!repeat) {
-                                next = getEdge(id);
-                                return true;
-                            }
-                        } else {
-                            return false;
+                        Object id = iter.next().getId();
+                        if (!isHidden(id) && !isRepeat(id)) {
+                            next = merge(ep, id);
                         }
                     }
 
                     return true;
                 }
 
-                public Edge next() {
+                public T next() {
                     // Note: requires hasNext to have been called
-                    Edge v = next;
+                    T t = next;
                     next = null;
-                    return v;
+                    return t;
                 }
 
                 public void remove() {
                     throw new UnsupportedOperationException();
                 }
+
+                /**
+                 * Checks whether an element of a read-only base graph has been removed through the overlay
+                 */
+                private boolean isHidden(final Object id) {
+                    return null != index && pos >= firstReadOnly && index.isDeleted(id);
+                }
+
+                /**
+                 * Checks whether an element of the current base graph has already been returned from an earlier base
+                 * graph, and remembers it if the base graphs which remain may also contain it.
+                 */
+                private boolean isRepeat(final Object id) {
+                    boolean last = pos == bases.length - 1;
+
+                    if (null != seenIds) {
+                        return last ? seenIds.contains(id) : !seenIds.add(id);
+                    }
+
+                    if (seenFilter.mightContain(id)) {
+                        for (int i = 0; i < pos; i++) {
+                            if (contains(ep, i, id)) {
+                                return true;
+                            }
+                        }
+                    } else if (!last) {
+                        seenFilter.add(id);
+                    }
+                    return false;
+                }
             };
         }
     }
+
+    /**
+     * The results of lookups made concurrently, together with whether any of them was skipped under the failure policy.
+     */
+    static class LookupResults<T> {
+        private final List<T> values;
+        private final boolean degraded;
+
+        public LookupResults(final List<T> values,
+                             final boolean degraded) {
+            this.values = values;
+            this.degraded = degraded;
+        }
+
+        /**
+         * @return the result of each lookup, in the order of the lookups, with null in place of any which was skipped
+         */
+        public List<T> getValues() {
+            return values;
+        }
+
+        /**
+         * @return whether any lookup failed or timed out, and was skipped
+         */
+        public boolean isDegraded() {
+            return degraded;
+        }
+    }
+
+    /**
+     * An immutable set of base graphs, together with their filters.
+     */
+    private static class BaseEpoch {
+        private final long number;
+        private final Graph[] bases;
+        // Filters of each read-only base graph, or null if no filters are kept
+        private final BloomFilter[] vertexFilters;
+        private final BloomFilter[] edgeFilters;
+
+        public BaseEpoch(final long number,
+                         final Graph[] bases,
+                         final BloomFilter[] vertexFilters,
+                         final BloomFilter[] edgeFilters) {
+            this.number = number;
+            this.bases = bases;
+            this.vertexFilters = vertexFilters;
+            this.edgeFilters = edgeFilters;
+        }
+    }
 }
@@ -0,0 +1,212 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Optional settings which control the behavior of a <code>MultiGraph</code>.
+ * The default settings reproduce the behavior of a <code>MultiGraph</code> created without settings.
+ */
+public class MultiGraphSettings {
+    private DedupStrategy dedupStrategy = DedupStrategy.ID_SET;
+    private long expectedElements = 1000000;
+    private double falsePositiveRate = 0.01;
+    private int cacheSize = 0;
+    private ExecutorService executor = null;
+    private long lookupTimeout = 0;
+    private BaseFailurePolicy failurePolicy = BaseFailurePolicy.FAIL;
+    private int adjacencyDedupLimit = 100000;
+    private boolean writableOverlay = false;
+    private boolean baseFilters = false;
+
+    /**
+     * @return the means by which elements already returned are recognized while iterating over all vertices or edges
+     */
+    public DedupStrategy getDedupStrategy() {
+        return dedupStrategy;
+    }
+
+    /**
+     * @param dedupStrategy the means by which elements already returned are recognized while iterating over all
+     *                      vertices or edges
+     */
+    public void setDedupStrategy(final DedupStrategy dedupStrategy) {
+        if (null == dedupStrategy) {
+            throw new IllegalArgumentException("null dedup strategy");
+        }
+
+        this.dedupStrategy = dedupStrategy;
+    }
+
+    /**
+     * @return the number of distinct vertices or edges for which Bloom filters are sized
+     */
+    public long getExpectedElements() {
+        return expectedElements;
+    }
+
+    /**
+     * @param expectedElements the number of distinct vertices or edges for which Bloom filters are sized.
+     *                         If more elements are added to a filter, its false positive rate rises above the
+     *                         configured rate.
+     */
+    public void setExpectedElements(final long expectedElements) {
+        if (expectedElements < 1) {
+            throw new IllegalArgumentException("expected element count must be positive: " + expectedElements);
+        }
+
+        this.expectedElements = expectedElements;
+    }
+
+    /**
+     * @return the rate of false positives for which Bloom filters are sized
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * @param falsePositiveRate the rate of false positives for which Bloom filters are sized, between 0 and 1
+     */
+    public void setFalsePositiveRate(final double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * @return the maximum number of merged vertices, and of merged edges, which are cached, or 0 if there is no cache
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize the maximum number of merged vertices, and of merged edges, to cache, or 0 for no cache.
+     *                  Cached elements are returned without consulting the base graphs, so that a traversal looks up
+     *                  each element in the bases only once.  If the base graphs are modified directly, the affected
+     *                  elements must be invalidated (see <code>MultiGraph.invalidate</code>).
+     */
+    public void setCacheSize(final int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cache size must not be negative: " + cacheSize);
+        }
+
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return the executor with which base graphs are consulted concurrently, or null if they are consulted in turn
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor an executor with which to consult base graphs concurrently when looking up vertices, edges and
+     *                 adjacent edges, or null to consult them one after another.
+     *                 This reduces latency when base graphs are remote or disk-based.  Results are merged in the order
+     *                 of the base graphs, as in sequential lookups.  The executor is not shut down with the graph.
+     */
+    public void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the time, in milliseconds, within which all base graphs must answer a concurrent lookup, or 0 for no limit
+     */
+    public long getLookupTimeout() {
+        return lookupTimeout;
+    }
+
+    /**
+     * @param lookupTimeout the time, in milliseconds, within which all base graphs must answer a concurrent lookup, or
+     *                      0 for no limit.  A base graph which does not answer in time is treated according to the
+     *                      failure policy.
+     */
+    public void setLookupTimeout(final long lookupTimeout) {
+        if (lookupTimeout < 0) {
+            throw new IllegalArgumentException("lookup timeout must not be negative: " + lookupTimeout);
+        }
+
+        this.lookupTimeout = lookupTimeout;
+    }
+
+    /**
+     * @return the treatment of base graphs which fail or time out during concurrent lookups
+     */
+    public BaseFailurePolicy getFailurePolicy() {
+        return failurePolicy;
+    }
+
+    /**
+     * @param failurePolicy the treatment of base graphs which fail or time out during concurrent lookups
+     */
+    public void setFailurePolicy(final BaseFailurePolicy failurePolicy) {
+        if (null == failurePolicy) {
+            throw new IllegalArgumentException("null failure policy");
+        }
+
+        this.failurePolicy = failurePolicy;
+    }
+
+    /**
+     * @return the maximum number of edge ids which are remembered while iterating over the edges of a vertex
+     */
+    public int getAdjacencyDedupLimit() {
+        return adjacencyDedupLimit;
+    }
+
+    /**
+     * @param adjacencyDedupLimit the maximum number of edge ids which are remembered while iterating over the edges of
+     *                            a vertex, in order to skip edges already returned from an earlier base graph.
+     *                            Beyond this limit, memory use stays constant, and an edge is instead checked against
+     *                            the earlier base graphs, at the cost of a lookup per base graph.
+     */
+    public void setAdjacencyDedupLimit(final int adjacencyDedupLimit) {
+        if (adjacencyDedupLimit < 0) {
+            throw new IllegalArgumentException("adjacency dedup limit must not be negative: " + adjacencyDedupLimit);
+        }
+
+        this.adjacencyDedupLimit = adjacencyDedupLimit;
+    }
+
+    /**
+     * @return whether the first base graph is a writable overlay over the remaining, read-only base graphs
+     */
+    public boolean getWritableOverlay() {
+        return writableOverlay;
+    }
+
+    /**
+     * @param writableOverlay whether the first base graph is to be a writable overlay over the remaining base graphs.
+     *                        Mutations of the <code>MultiGraph</code> are then applied to the overlay alone:
+     *                        modified elements are copied into the overlay (without their properties, which are
+     *                        shadowed one by one as they are set), while removed elements and properties are hidden
+     *                        by tombstones kept in memory.  The other base graphs are never modified.
+     *                        Otherwise, the <code>MultiGraph</code> is read-only.
+     */
+    public void setWritableOverlay(final boolean writableOverlay) {
+        this.writableOverlay = writableOverlay;
+    }
+
+    /**
+     * @return whether a Bloom filter of vertex and edge ids is kept for each read-only base graph
+     */
+    public boolean getBaseFilters() {
+        return baseFilters;
+    }
+
+    /**
+     * @param baseFilters whether to keep a Bloom filter of the vertex ids, and another of the edge ids, of each
+     *                    read-only base graph, so that a base graph is only consulted for an id which it may contain.
+     *                    This saves most lookups when elements are found in only a few of many base graphs.
+     *                    The filters are built, at the configured false positive rate, when the graph is created,
+     *                    and are extended or rebuilt when the base graphs are invalidated
+     *                    (see <code>MultiGraph.invalidate</code> and <code>MultiGraph.invalidateAll</code>).
+     */
+    public void setBaseFilters(final boolean baseFilters) {
+        this.baseFilters = baseFilters;
+    }
+}
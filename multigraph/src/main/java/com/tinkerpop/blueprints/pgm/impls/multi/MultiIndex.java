@@ -0,0 +1,245 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import com.tinkerpop.blueprints.pgm.CloseableSequence;
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Index;
+import com.tinkerpop.blueprints.pgm.IndexableGraph;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only index which merges the indices of the same name in each base graph.
+ * Queries are answered lazily, base graph by base graph, and each element is returned once, merged as in
+ * <code>MultiGraph.getVertex</code> and <code>MultiGraph.getEdge</code>.
+ * In an automatic index, a merged element is only returned if its merged property value matches, so that values
+ * shadowed by a base graph of higher precedence are not found.  Base graphs which are not indexable, or which lack the
+ * index, are scanned instead, unless a filter of their property keys and values shows that there can be no match.
+ */
+class MultiIndex<T extends Element> implements Index<T> {
+    private final MultiGraph graph;
+    private final String indexName;
+    private final Class<T> indexClass;
+    private final Type indexType;
+
+    public MultiIndex(final MultiGraph graph,
+                      final String indexName,
+                      final Class<T> indexClass,
+                      final Type indexType) {
+        this.graph = graph;
+        this.indexName = indexName;
+        this.indexClass = indexClass;
+        this.indexType = indexType;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public Class<T> getIndexClass() {
+        return indexClass;
+    }
+
+    public Type getIndexType() {
+        return indexType;
+    }
+
+    public void put(final String key,
+                    final Object value,
+                    final T element) {
+        throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+    }
+
+    public CloseableSequence<T> get(final String key,
+                                    final Object value) {
+        return new MergedSequence(graph.getBases(), key, value);
+    }
+
+    public long count(final String key,
+                      final Object value) {
+        long count = 0;
+        CloseableSequence<T> seq = get(key, value);
+        try {
+            while (seq.hasNext()) {
+                seq.next();
+                count++;
+            }
+        } finally {
+            seq.close();
+        }
+        return count;
+    }
+
+    public void remove(final String key,
+                       final Object value,
+                       final T element) {
+        throw new UnsupportedOperationException(MultiGraph.READONLY_MSG);
+    }
+
+    /**
+     * @return the index of the given name and class in a base graph, or null if the graph is not indexable or has no
+     *         such index
+     */
+    static <T extends Element> Index<T> getBaseIndex(final Graph base,
+                                                     final String indexName,
+                                                     final Class<T> indexClass) {
+        if (!(base instanceof IndexableGraph)) {
+            return null;
+        }
+
+        try {
+            Index<T> index = ((IndexableGraph) base).getIndex(indexName, indexClass);
+            return null != index && indexClass.isAssignableFrom(index.getIndexClass())
+                    ? index
+                    : null;
+        } catch (RuntimeException e) {
+            // Some implementations throw an exception, rather than returning null, for a missing index.
+            return null;
+        }
+    }
+
+    private boolean isEdgeIndex() {
+        return Edge.class.isAssignableFrom(indexClass);
+    }
+
+    private class MergedSequence implements CloseableSequence<T> {
+        private final List<Graph> bases;
+        private final String key;
+        private final Object value;
+
+        private final IdSet seenIds = new IdSet();
+
+        private int pos = -1;
+        private Iterator<? extends Element> iter;
+        private CloseableSequence<T> baseSequence;
+        private T next;
+
+        public MergedSequence(final List<Graph> bases,
+                              final String key,
+                              final Object value) {
+            this.bases = bases;
+            this.key = key;
+            this.value = value;
+        }
+
+        public Iterator<T> iterator() {
+            return this;
+        }
+
+        public boolean hasNext() {
+            while (null == next) {
+                if (null == iter || !iter.hasNext()) {
+                    closeBaseSequence();
+                    if (++pos == bases.size()) {
+                        return false;
+                    }
+                    iter = getCandidates(bases.get(pos));
+                    continue;
+                }
+
+                Object id = iter.next().getId();
+                // Elements of the last base graph need not be remembered.
+                if (pos < bases.size() - 1 ? seenIds.add(id) : !seenIds.contains(id)) {
+                    next = merge(id);
+                }
+            }
+
+            return true;
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T t = next;
+            next = null;
+            return t;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            closeBaseSequence();
+            pos = bases.size();
+            iter = null;
+        }
+
+        private void closeBaseSequence() {
+            if (null != baseSequence) {
+                baseSequence.close();
+                baseSequence = null;
+            }
+        }
+
+        /**
+         * @return the merged element, or null if it is not visible or (in an automatic index) its merged value for the
+         *         key does not match
+         */
+        private T merge(final Object id) {
+            Element e = isEdgeIndex() ? graph.getEdge(id) : graph.getVertex(id);
+            if (null == e || Type.AUTOMATIC == indexType && !value.equals(e.getProperty(key))) {
+                return null;
+            }
+
+            return indexClass.cast(e);
+        }
+
+        private Iterator<? extends Element> getCandidates(final Graph base) {
+            Index<T> index = getBaseIndex(base, indexName, indexClass);
+            if (null != index) {
+                baseSequence = index.get(key, value);
+                return baseSequence;
+            }
+
+            // A base graph without a manual index has no entries for it.
+            if (Type.MANUAL == indexType) {
+                return Collections.<T>emptyList().iterator();
+            }
+
+            // The overlay, which changes as the graph is written to, is not filtered.
+            if (base != graph.getOverlay() && !graph.getPropertyFilter(base, isEdgeIndex()).mightContain(
+                    MultiGraph.propertyFilterKey(key, value))) {
+                return Collections.<T>emptyList().iterator();
+            }
+
+            final Iterator<? extends Element> elements = isEdgeIndex()
+                    ? base.getEdges().iterator()
+                    : base.getVertices().iterator();
+            return new Iterator<Element>() {
+                private Element next;
+
+                public boolean hasNext() {
+                    while (null == next && elements.hasNext()) {
+                        Element e = elements.next();
+                        if (value.equals(e.getProperty(key))) {
+                            next = e;
+                        }
+                    }
+
+                    return null != next;
+                }
+
+                public Element next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Element e = next;
+                    next = null;
+                    return e;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -2,61 +2,295 @@ package com.tinkerpop.blueprints.pgm.impls.multi;
 
 import com.tinkerpop.blueprints.pgm.Edge;
 import com.tinkerpop.blueprints.pgm.Element;
+import com.tinkerpop.blueprints.pgm.Graph;
 import com.tinkerpop.blueprints.pgm.Vertex;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
 
 /**
  * @author Joshua Shinavier (http://fortytwo.net)
  */
 class MultiVertex extends MultiElement implements Vertex {
-    private final Collection<Vertex> bases;
+    // The number of adjacent edges of each base vertex which are fetched concurrently, before the rest are streamed
+    private static final int PREFETCH_LIMIT = 256;
 
+    private final List<Graph> baseGraphs;
+    private final List<Vertex> bases;
+
+    /**
+     * @param baseGraphs the read-only base graphs which contain this vertex, in order of precedence
+     * @param bases      the corresponding vertex of each of the base graphs
+     * @param complete   whether every base graph which may contain the vertex was consulted
+     */
     public MultiVertex(final MultiGraph graph,
                        final Object id,
-                       final Collection<Vertex> bases) {
-        super(graph, id);
+                       final List<Graph> baseGraphs,
+                       final List<Vertex> bases,
+                       final boolean complete) {
+        super(graph, id, complete);
+        this.baseGraphs = baseGraphs;
         this.bases = bases;
     }
 
-    public Iterable<Edge> getOutEdges(String... labels) {
-        // TODO: the hashmap is time-efficient but not scalable
-        Map<Object, Edge> results = new HashMap<Object, Edge>();
+    public Iterable<Edge> getOutEdges(final String... labels) {
+        return new AdjacentEdgeIterable(true, labels);
+    }
 
-        for (Vertex v : bases) {
-            for (Edge e : v.getOutEdges(labels)) {
-                Object id = e.getId();
+    public Iterable<Edge> getInEdges(final String... labels) {
+        return new AdjacentEdgeIterable(false, labels);
+    }
 
-                if (null == results.get(id)) {
-                    results.put(id, graph.getEdge(id));
-                }
-            }
-        }
+    protected Collection<Element> getBases() {
+        return (Collection<Element>) (Collection) getCurrentBases(null);
+    }
 
-        return results.values();
+    protected OverlayIndex getOverlayIndex() {
+        return graph.getVertexIndex();
     }
 
-    public Iterable<Edge> getInEdges(String... labels) {
-        // TODO: the hashmap is time-efficient but not scalable
-        Map<Object, Edge> results = new HashMap<Object, Edge>();
+    protected Element getOverlayCopy() {
+        return graph.copyVertex(id);
+    }
 
-        for (Vertex v : bases) {
-            for (Edge e : v.getInEdges(labels)) {
-                Object id = e.getId();
+    /**
+     * @param graphs a list to receive the base graph of each base vertex, or null
+     * @return the base vertices, beginning with the vertex in the overlay, if any
+     */
+    private List<Vertex> getCurrentBases(final List<Graph> graphs) {
+        OverlayIndex index = graph.getVertexIndex();
+        boolean member = null != index && index.isMember(id);
+        boolean deleted = null != index && index.isDeleted(id);
 
-                if (null == results.get(id)) {
-                    results.put(id, graph.getEdge(id));
-                }
+        if (!member && !deleted) {
+            if (null != graphs) {
+                graphs.addAll(baseGraphs);
             }
+            return bases;
         }
 
-        return results.values();
+        List<Vertex> current = new ArrayList<Vertex>(bases.size() + 1);
+        if (member) {
+            Graph overlay = graph.getOverlay();
+            current.add(overlay.getVertex(id));
+            if (null != graphs) {
+                graphs.add(overlay);
+            }
+        }
+        if (!deleted) {
+            current.addAll(bases);
+            if (null != graphs) {
+                graphs.addAll(baseGraphs);
+            }
+        }
+        return current;
     }
 
-    protected Collection<Element> getBases() {
-        return (Collection<Element>) (Collection) bases;
+    /**
+     * @return the adjacent edges of each base vertex, in order, or null in place of a base vertex which was skipped.
+     *         If the graph makes concurrent lookups, the first edges of all base vertices are fetched concurrently,
+     *         and the rest are retrieved lazily, so that memory use does not grow with the degree of the vertex.
+     *         Otherwise, all of the edges are retrieved lazily.
+     */
+    private List<Iterable<Edge>> getBaseEdges(final List<Vertex> bases,
+                                              final List<Graph> graphs,
+                                              final boolean out,
+                                              final String... labels) {
+        if (graph.isConcurrent() && bases.size() > 1) {
+            List<Callable<Iterable<Edge>>> lookups = new ArrayList<Callable<Iterable<Edge>>>(bases.size());
+            for (final Vertex v : bases) {
+                lookups.add(new Callable<Iterable<Edge>>() {
+                    public Iterable<Edge> call() {
+                        // Begin iterating in the worker thread, as the first edges may also be expensive to reach.
+                        Iterator<Edge> iter = (out ? v.getOutEdges(labels) : v.getInEdges(labels)).iterator();
+                        List<Edge> first = new ArrayList<Edge>();
+                        while (first.size() < PREFETCH_LIMIT && iter.hasNext()) {
+                            first.add(iter.next());
+                        }
+                        return new PrefetchedEdgeIterable(first, iter);
+                    }
+                });
+            }
+
+            return graph.fanOut(lookups, graphs).getValues();
+        } else {
+            List<Iterable<Edge>> results = new ArrayList<Iterable<Edge>>(bases.size());
+            for (Vertex v : bases) {
+                results.add(out ? v.getOutEdges(labels) : v.getInEdges(labels));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * The merged out- or in-edges of this vertex.  The adjacent edges of the base vertices are streamed in order of
+     * precedence, so that the first edge is available as soon as the first base vertex provides it.
+     * An edge found in more than one base vertex is returned only once.  To recognize it, the ids of edges returned
+     * from all but the last base vertex are remembered, up to a limit, after which an edge not among those remembered
+     * is checked against the earlier base graphs instead.
+     */
+    private class AdjacentEdgeIterable implements Iterable<Edge> {
+        private final boolean out;
+        private final String[] labels;
+
+        public AdjacentEdgeIterable(final boolean out,
+                                    final String[] labels) {
+            this.out = out;
+            this.labels = labels;
+        }
+
+        public Iterator<Edge> iterator() {
+            final List<Graph> graphs = new ArrayList<Graph>(baseGraphs.size() + 1);
+            final List<Vertex> vertices = getCurrentBases(graphs);
+            final List<Iterable<Edge>> baseEdges = getBaseEdges(vertices, graphs, out, labels);
+            // Edges removed through the overlay are hidden in the read-only base graphs.
+            final OverlayIndex index = graph.getEdgeIndex();
+            final int firstReadOnly = graphs.size() > 0 && graphs.get(0) == graph.getOverlay() ? 1 : 0;
+
+            return new Iterator<Edge>() {
+                // Only needed if there is more than one base vertex.
+                private final IdSet seenIds = vertices.size() > 1 ? new IdSet() : null;
+                private final int limit = graph.getAdjacencyDedupLimit();
+                private boolean overflowed = false;
+
+                private int pos = -1;
+                private Iterator<Edge> iter;
+                private Edge next;
+
+                public boolean hasNext() {
+                    while (null == next) {
+                        if (null == iter || !iter.hasNext()) {
+                            if (++pos == baseEdges.size()) {
+                                return false;
+                            }
+                            Iterable<Edge> edges = baseEdges.get(pos);
+                            iter = null == edges ? null : edges.iterator();
+                            continue;
+                        }
+
+                        Object id = iter.next().getId();
+                        if (!isHidden(id) && !isRepeat(id)) {
+                            // The edge may be absent if a base graph failed the lookup and was skipped.
+                            next = graph.getEdge(id);
+                        }
+                    }
+
+                    return true;
+                }
+
+                public Edge next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Edge e = next;
+                    next = null;
+                    return e;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private boolean isHidden(final Object id) {
+                    return null != index && pos >= firstReadOnly && index.isDeleted(id);
+                }
+
+                private boolean isRepeat(final Object id) {
+                    if (null == seenIds) {
+                        return false;
+                    }
+
+                    if (pos > 0) {
+                        if (seenIds.contains(id)) {
+                            return true;
+                        }
+                        if (overflowed && isAdjacentInEarlierBase(id)) {
+                            return true;
+                        }
+                    }
+
+                    // Edges from the last base vertex need not be remembered.
+                    if (pos < baseEdges.size() - 1) {
+                        if (seenIds.size() < limit) {
+                            seenIds.add(id);
+                        } else {
+                            overflowed = true;
+                        }
+                    }
+
+                    return false;
+                }
+
+                private boolean isAdjacentInEarlierBase(final Object id) {
+                    for (int i = 0; i < pos; i++) {
+                        // Edges of a base vertex which was skipped have not been returned.
+                        if (null == baseEdges.get(i)) {
+                            continue;
+                        }
+
+                        Edge e = graphs.get(i).getEdge(id);
+                        if (null != e
+                                && getId().equals((out ? e.getOutVertex() : e.getInVertex()).getId())
+                                && hasLabel(e)) {
+                            return true;
+                        }
+                    }
+
+                    return false;
+                }
+
+                private boolean hasLabel(final Edge e) {
+                    if (0 == labels.length) {
+                        return true;
+                    }
+
+                    for (String label : labels) {
+                        if (label.equals(e.getLabel())) {
+                            return true;
+                        }
+                    }
+
+                    return false;
+                }
+            };
+        }
     }
 
+    /**
+     * The edges of a base vertex: those which have already been fetched, followed by those which remain.
+     * It may be iterated over only once.
+     */
+    private static class PrefetchedEdgeIterable implements Iterable<Edge> {
+        private final List<Edge> first;
+        private final Iterator<Edge> rest;
+
+        public PrefetchedEdgeIterable(final List<Edge> first,
+                                      final Iterator<Edge> rest) {
+            this.first = first;
+            this.rest = rest;
+        }
+
+        public Iterator<Edge> iterator() {
+            final Iterator<Edge> firstIter = first.iterator();
+
+            return new Iterator<Edge>() {
+                public boolean hasNext() {
+                    return firstIter.hasNext() || rest.hasNext();
+                }
+
+                public Edge next() {
+                    return firstIter.hasNext() ? firstIter.next() : rest.next();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
 }
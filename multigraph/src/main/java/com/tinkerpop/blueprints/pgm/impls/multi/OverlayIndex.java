@@ -0,0 +1,122 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The in-memory state of a writable overlay, for either vertices or edges.
+ * The index records which elements are present in the overlay graph, so that lookups of the (typically many) elements
+ * which have not been modified may skip the overlay altogether.  It also records tombstones for elements which have
+ * been removed, and which are therefore hidden in the read-only base graphs, as well as the properties which have been
+ * removed from elements, and which are therefore hidden in the read-only base graphs.
+ */
+class OverlayIndex {
+    private final IdSet members = new IdSet();
+    private final IdSet tombstones = new IdSet();
+    private final Map<Object, Set<String>> removedKeys = new HashMap<Object, Set<String>>();
+    // Whether every element of the read-only base graphs is hidden, as it is once the graph has been cleared
+    private volatile boolean basesHidden = false;
+
+    /**
+     * @return whether an element with the given id is present in the overlay graph
+     */
+    public boolean isMember(final Object id) {
+        return members.contains(id);
+    }
+
+    public void addMember(final Object id) {
+        members.add(id);
+    }
+
+    /**
+     * @return whether the element was present in the overlay graph
+     */
+    public boolean removeMember(final Object id) {
+        return members.remove(id);
+    }
+
+    /**
+     * @return whether the element with the given id has been removed from the read-only base graphs
+     */
+    public boolean isDeleted(final Object id) {
+        return basesHidden || tombstones.contains(id);
+    }
+
+    /**
+     * @return whether all elements of the read-only base graphs have been hidden
+     */
+    public boolean isBasesHidden() {
+        return basesHidden;
+    }
+
+    /**
+     * Hides all elements of the read-only base graphs, and records that the overlay graph has been cleared.
+     * Individual tombstones and removed properties are no longer needed, and are discarded.
+     */
+    public void hideBases() {
+        basesHidden = true;
+        members.clear();
+        tombstones.clear();
+        removedKeys.clear();
+    }
+
+    /**
+     * Hides the element with the given id in the read-only base graphs
+     */
+    public void delete(final Object id) {
+        tombstones.add(id);
+        removedKeys.remove(id);
+    }
+
+    /**
+     * @return whether the given property has been removed from the element with the given id
+     */
+    public boolean isRemovedKey(final Object id,
+                                final String key) {
+        if (removedKeys.isEmpty()) {
+            return false;
+        }
+
+        Set<String> keys = removedKeys.get(id);
+        return null != keys && keys.contains(key);
+    }
+
+    /**
+     * @return the properties which have been removed from the element with the given id
+     */
+    public Set<String> getRemovedKeys(final Object id) {
+        Set<String> keys = removedKeys.isEmpty() ? null : removedKeys.get(id);
+        return null == keys ? Collections.<String>emptySet() : keys;
+    }
+
+    /**
+     * Hides the given property of an element in the read-only base graphs
+     */
+    public void removeKey(final Object id,
+                          final String key) {
+        Set<String> keys = removedKeys.get(id);
+        if (null == keys) {
+            keys = new HashSet<String>();
+            removedKeys.put(id, keys);
+        }
+        keys.add(key);
+    }
+
+    /**
+     * Records that the given property of an element has been given a new value
+     */
+    public void restoreKey(final Object id,
+                           final String key) {
+        Set<String> keys = removedKeys.isEmpty() ? null : removedKeys.get(id);
+        if (null != keys) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                removedKeys.remove(id);
+            }
+        }
+    }
+
+}
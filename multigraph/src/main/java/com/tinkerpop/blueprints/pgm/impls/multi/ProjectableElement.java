@@ -0,0 +1,18 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import com.tinkerpop.blueprints.pgm.Element;
+
+import java.util.Map;
+
+/**
+ * An element which can read a number of properties at once.
+ * The elements of a <code>MultiGraph</code> implement this interface, and a <code>MultiGraph</code> makes use of it in
+ * base graphs whose elements implement it.
+ */
+public interface ProjectableElement extends Element {
+    /**
+     * @param keys the keys of the properties to read
+     * @return a read-only map of those of the given keys for which this element has a value, to their values
+     */
+    Map<String, Object> getProperties(String... keys);
+}
@@ -0,0 +1,15 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import com.tinkerpop.blueprints.pgm.Graph;
+
+/**
+ * A graph which can be told in advance which properties will be read, so that it need not load the others.
+ * A <code>MultiGraph</code> passes the hint on to those of its base graphs which implement this interface.
+ */
+public interface ProjectableGraph extends Graph {
+    /**
+     * @param keys the keys of the only properties which will be read from elements of this graph,
+     *             or no keys at all, if any property may be read
+     */
+    void setProjection(String... keys);
+}
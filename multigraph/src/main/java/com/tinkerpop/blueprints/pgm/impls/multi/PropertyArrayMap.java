@@ -0,0 +1,91 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only map of property keys to values, backed by a pair of arrays.
+ * Lookups are linear, which is fast for the handful of properties typically read at once, and the map has none of the
+ * per-entry overhead of a <code>HashMap</code>.
+ */
+class PropertyArrayMap extends AbstractMap<String, Object> {
+    private final String[] keys;
+    private final Object[] values;
+    private final int size;
+
+    /**
+     * @param keys   property keys, the first <code>size</code> of which are used
+     * @param values the corresponding values, none of which may be null
+     * @param size   the number of properties in the map
+     */
+    public PropertyArrayMap(final String[] keys,
+                            final Object[] values,
+                            final int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int i = 0;
+
+                    public boolean hasNext() {
+                        return i < size;
+                    }
+
+                    public Entry<String, Object> next() {
+                        if (i >= size) {
+                            throw new NoSuchElementException();
+                        }
+
+                        Entry<String, Object> e = new SimpleImmutableEntry<String, Object>(keys[i], values[i]);
+                        i++;
+                        return e;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(final Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import com.tinkerpop.blueprints.pgm.Edge;
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A wrapper for a base graph which counts lookups, and which simulates a slow or failing graph, for testing.
+ */
+class InstrumentedGraph implements Graph {
+    private final Graph base;
+
+    private long delay = 0;
+    private boolean failing = false;
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    public InstrumentedGraph(final Graph base) {
+        this.base = base;
+    }
+
+    /**
+     * @param delay a time, in milliseconds, to wait before each lookup
+     */
+    public void setDelay(final long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * @param failing whether lookups are to fail with an exception
+     */
+    public void setFailing(final boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * @return the number of vertices and edges looked up by id
+     */
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    public void resetLookupCount() {
+        lookupCount.set(0);
+    }
+
+    public Vertex addVertex(final Object id) {
+        return base.addVertex(id);
+    }
+
+    public Vertex getVertex(final Object id) {
+        lookup();
+        return base.getVertex(id);
+    }
+
+    public void removeVertex(final Vertex vertex) {
+        base.removeVertex(vertex);
+    }
+
+    public Iterable<Vertex> getVertices() {
+        return base.getVertices();
+    }
+
+    public Edge addEdge(final Object id, final Vertex outVertex, final Vertex inVertex, final String label) {
+        return base.addEdge(id, outVertex, inVertex, label);
+    }
+
+    public Edge getEdge(final Object id) {
+        lookup();
+        return base.getEdge(id);
+    }
+
+    public void removeEdge(final Edge edge) {
+        base.removeEdge(edge);
+    }
+
+    public Iterable<Edge> getEdges() {
+        return base.getEdges();
+    }
+
+    public void clear() {
+        base.clear();
+    }
+
+    public void shutdown() {
+        base.shutdown();
+    }
+
+    private void lookup() {
+        lookupCount.incrementAndGet();
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("interrupted", e);
+            }
+        }
+
+        if (failing) {
+            throw new IllegalStateException("base graph is unavailable");
+        }
+    }
+}
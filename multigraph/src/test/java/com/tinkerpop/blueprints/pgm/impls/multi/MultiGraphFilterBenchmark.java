@@ -0,0 +1,90 @@
+package com.tinkerpop.blueprints.pgm.impls.multi;
+
+import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Vertex;
+import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
+
+import java.util.Random;
+
+/**
+ * Compares random vertex and edge lookups in a MultiGraph with and without per-base id filters.
+ * Each base graph overlaps the next by 10% of its elements.
+ * Usage: MultiGraphFilterBenchmark [base graphs] [vertices per base graph] [lookups]
+ */
+public class MultiGraphFilterBenchmark {
+    private static final int TRIALS = 5;
+
+    public static void main(final String[] args) throws Exception {
+        int baseCount = args.length > 0 ? Integer.valueOf(args[0]) : 8;
+        int verticesPerBase = args.length > 1 ? Integer.valueOf(args[1]) : 100000;
+        int lookups = args.length > 2 ? Integer.valueOf(args[2]) : 100000;
+
+        System.out.println("generating " + baseCount + " base graphs of " + verticesPerBase + " vertices each");
+        InstrumentedGraph[] bases = new InstrumentedGraph[baseCount];
+        int stride = verticesPerBase - verticesPerBase / 10;
+        for (int i = 0; i < baseCount; i++) {
+            bases[i] = new InstrumentedGraph(new TinkerGraph());
+            Vertex prev = null;
+            for (int j = i * stride; j < i * stride + verticesPerBase; j++) {
+                Vertex v = bases[i].addVertex("" + j);
+                if (null != prev) {
+                    bases[i].addEdge("e" + j, prev, v, "next");
+                }
+                prev = v;
+            }
+        }
+        int idRange = (baseCount - 1) * stride + verticesPerBase;
+
+        MultiGraphSettings filterSettings = new MultiGraphSettings();
+        filterSettings.setBaseFilters(true);
+        long before = System.currentTimeMillis();
+        Graph filtered = new MultiGraph(filterSettings, bases);
+        System.out.println("built filters in " + (System.currentTimeMillis() - before) + " ms");
+        Graph unfiltered = new MultiGraph(bases);
+
+        // Warm up
+        time(unfiltered, bases, idRange, lookups);
+        time(filtered, bases, idRange, lookups);
+
+        long unfilteredTime = 0, filteredTime = 0;
+        long unfilteredCalls = 0, filteredCalls = 0;
+        for (int i = 0; i < TRIALS; i++) {
+            unfilteredTime += time(unfiltered, bases, idRange, lookups);
+            unfilteredCalls += countLookups(bases);
+            filteredTime += time(filtered, bases, idRange, lookups);
+            filteredCalls += countLookups(bases);
+        }
+
+        System.out.println("without filters: " + unfilteredTime / TRIALS + " ms, "
+                + unfilteredCalls / TRIALS + " base lookups");
+        System.out.println("with filters:    " + filteredTime / TRIALS + " ms, "
+                + filteredCalls / TRIALS + " base lookups");
+    }
+
+    /**
+     * Looks up random vertices and edges, a few of which do not exist.
+     */
+    private static long time(final Graph graph,
+                             final InstrumentedGraph[] bases,
+                             final int idRange,
+                             final int lookups) {
+        countLookups(bases);
+        Random random = new Random(42);
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < lookups; i++) {
+            int id = random.nextInt(idRange + idRange / 100);
+            graph.getVertex("" + id);
+            graph.getEdge("e" + id);
+        }
+        return System.currentTimeMillis() - before;
+    }
+
+    private static long countLookups(final InstrumentedGraph[] bases) {
+        long count = 0;
+        for (InstrumentedGraph g : bases) {
+            count += g.getLookupCount();
+            g.resetLookupCount();
+        }
+        return count;
+    }
+}
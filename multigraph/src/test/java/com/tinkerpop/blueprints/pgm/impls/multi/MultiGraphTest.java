@@ -2,19 +2,32 @@ package com.tinkerpop.blueprints.pgm.impls.multi;
 
 import com.tinkerpop.blueprints.pgm.Edge;
 import com.tinkerpop.blueprints.pgm.Graph;
+import com.tinkerpop.blueprints.pgm.Index;
+import com.tinkerpop.blueprints.pgm.IndexableGraph;
 import com.tinkerpop.blueprints.pgm.Vertex;
 import com.tinkerpop.blueprints.pgm.impls.tg.TinkerGraph;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 /**
  * @author Joshua Shinavier (http://fortytwo.net)
@@ -184,6 +197,590 @@ public class MultiGraphTest {
         e.removeProperty("comment");
     }
 
+    @Test
+    public void testDedupStrategies() throws Exception {
+        // Five overlapping bases: base i contains the vertices i*100 .. i*100+199, and an edge to each from vertex 0.
+        Graph[] bases = new Graph[5];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = new TinkerGraph();
+            Vertex hub = bases[i].addVertex("0");
+            for (int j = i * 100; j < i * 100 + 200; j++) {
+                Vertex v = null == bases[i].getVertex("" + j) ? bases[i].addVertex("" + j) : hub;
+                bases[i].addEdge("e" + j, hub, v, "link");
+            }
+        }
+
+        for (DedupStrategy strategy : DedupStrategy.values()) {
+            MultiGraphSettings settings = new MultiGraphSettings();
+            settings.setDedupStrategy(strategy);
+            // A tiny filter, to force false positives.
+            settings.setExpectedElements(10);
+            Graph multi = new MultiGraph(settings, bases);
+
+            Set<Object> ids = new HashSet<Object>();
+            int count = 0;
+            for (Vertex v : multi.getVertices()) {
+                ids.add(v.getId());
+                count++;
+            }
+            assertEquals(600, count);
+            assertEquals(600, ids.size());
+
+            ids.clear();
+            count = 0;
+            for (Edge e : multi.getEdges()) {
+                ids.add(e.getId());
+                count++;
+            }
+            assertEquals(600, count);
+            assertEquals(600, ids.size());
+        }
+    }
+
+    @Test
+    public void testAdjacentEdges() throws Exception {
+        Graph[] bases = new Graph[3];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = new TinkerGraph();
+            Vertex hub = bases[i].addVertex("hub");
+            for (int j = i * 100; j < i * 100 + 200; j++) {
+                Vertex v = bases[i].addVertex("" + j);
+                bases[i].addEdge("e" + j, hub, v, 0 == j % 2 ? "even" : "odd");
+            }
+        }
+
+        // With a limit of 0, every edge is checked against the earlier base graphs.
+        for (int limit : new int[]{0, 50, 100000}) {
+            MultiGraphSettings settings = new MultiGraphSettings();
+            settings.setAdjacencyDedupLimit(limit);
+            Graph multi = new MultiGraph(settings, bases);
+            Vertex hub = multi.getVertex("hub");
+
+            Set<Object> ids = new HashSet<Object>();
+            int count = 0;
+            for (Edge e : hub.getOutEdges()) {
+                assertTrue(e instanceof MultiEdge);
+                ids.add(e.getId());
+                count++;
+            }
+            assertEquals(400, count);
+            assertEquals(400, ids.size());
+
+            assertEquals(200, asCollection(hub.getOutEdges("even")).size());
+            assertEquals(0, asCollection(hub.getInEdges()).size());
+            assertEquals(1, asCollection(multi.getVertex("150").getInEdges()).size());
+        }
+
+        // The first edge is returned without iterating over the rest.
+        Iterator<Edge> iter = new MultiGraph(bases).getVertex("hub").getOutEdges().iterator();
+        assertTrue(iter.hasNext());
+        assertTrue(iter.next().getId().toString().startsWith("e"));
+    }
+
+    @Test
+    public void testWritableOverlay() throws Exception {
+        Graph overlay = new TinkerGraph();
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setWritableOverlay(true);
+        Graph multi = new MultiGraph(settings, overlay, base1, base2);
+
+        // Properties are shadowed in the overlay.
+        Vertex arthur = multi.getVertex("Arthur");
+        arthur.setProperty("comment", "a complete kneebiter");
+        assertEquals("a complete kneebiter", arthur.getProperty("comment"));
+        assertEquals("a complete kneebiter", multi.getVertex("Arthur").getProperty("comment"));
+        assertEquals("he's a jerk", base1.getVertex("Arthur").getProperty("comment"));
+        assertEquals(2, asCollection(arthur.getOutEdges("knows")).size());
+
+        Vertex ford = multi.getVertex("Ford");
+        assertEquals("a little odd", ford.removeProperty("comment"));
+        assertNull(ford.getProperty("comment"));
+        assertEquals(0, ford.getPropertyKeys().size());
+        assertEquals("a little odd", base1.getVertex("Ford").getProperty("comment"));
+        ford.setProperty("comment", "hoopy");
+        assertEquals("hoopy", multi.getVertex("Ford").getProperty("comment"));
+
+        Edge e = multi.getEdge("Arthur knows Ford");
+        e.setProperty("comment", "since school");
+        assertEquals("since school", multi.getEdge("Arthur knows Ford").getProperty("comment"));
+        assertEquals("Ford", multi.getEdge("Arthur knows Ford").getInVertex().getId());
+        assertEquals("but not very well", base1.getEdge("Arthur knows Ford").getProperty("comment"));
+        assertEquals(2, asCollection(arthur.getOutEdges("knows")).size());
+
+        // New elements are added to the overlay.
+        Vertex marvin = multi.addVertex("Marvin");
+        multi.addEdge("Marvin knows Arthur", marvin, arthur, "knows");
+        assertEquals(6, asCollection(multi.getVertices()).size());
+        assertEquals(1, asCollection(arthur.getInEdges("knows")).size());
+        assertNull(base1.getVertex("Marvin"));
+        try {
+            multi.addVertex("Arthur");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        // Removed elements are hidden, together with their edges.
+        multi.removeVertex(multi.getVertex("Zaphod"));
+        assertNull(multi.getVertex("Zaphod"));
+        assertNull(multi.getEdge("Arthur knows Zaphod"));
+        assertNull(multi.getEdge("Ford knows Zaphod"));
+        assertEquals(1, asCollection(arthur.getOutEdges("knows")).size());
+        assertEquals(5, asCollection(multi.getVertices()).size());
+        assertEquals(4, asCollection(multi.getEdges()).size());
+        assertTrue(null != base1.getVertex("Zaphod"));
+
+        multi.removeEdge(multi.getEdge("Ford's home planet"));
+        assertNull(multi.getEdge("Ford's home planet"));
+        assertEquals(0, asCollection(multi.getVertex("Ford").getOutEdges("home planet")).size());
+
+        // A removed vertex may be added again, without its former edges or properties.
+        Vertex zaphod = multi.addVertex("Zaphod");
+        assertEquals(0, asCollection(zaphod.getInEdges()).size());
+        assertEquals(0, zaphod.getPropertyKeys().size());
+
+        multi.clear();
+        assertEquals(0, asCollection(multi.getVertices()).size());
+        assertEquals(0, asCollection(multi.getEdges()).size());
+        assertEquals(4, asCollection(base1.getVertices()).size());
+        assertNull(multi.getVertex("Ford"));
+        assertNull(multi.getEdge("Arthur knows Ford"));
+
+        // Elements added after clearing are visible, but those of the read-only base graphs are not.
+        Vertex trillian = multi.addVertex("Trillian");
+        multi.addEdge("Trillian knows herself", trillian, trillian, "knows");
+        assertEquals(1, asCollection(multi.getVertices()).size());
+        assertEquals(1, asCollection(multi.getEdges()).size());
+        assertEquals(1, asCollection(multi.getVertex("Trillian").getOutEdges()).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlayIgnoringSuppliedIds() throws Exception {
+        // Like a Neo4j graph, this overlay generates its own ids.
+        Graph overlay = new TinkerGraph() {
+            @Override
+            public Vertex addVertex(final Object id) {
+                return super.addVertex(null);
+            }
+        };
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setWritableOverlay(true);
+        new MultiGraph(settings, overlay, base1, base2);
+    }
+
+    @Test
+    public void testBaseFilters() throws Exception {
+        InstrumentedGraph[] bases = new InstrumentedGraph[4];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = new InstrumentedGraph(new TinkerGraph());
+            Vertex prev = null;
+            for (int j = i * 100; j < i * 100 + 100; j++) {
+                Vertex v = bases[i].addVertex("" + j);
+                if (null != prev) {
+                    bases[i].addEdge("e" + j, prev, v, "next");
+                }
+                prev = v;
+            }
+        }
+
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setBaseFilters(true);
+        settings.setFalsePositiveRate(0.001);
+        MultiGraph multi = new MultiGraph(settings, bases);
+
+        for (int j = 0; j < 400; j++) {
+            assertEquals("" + j, multi.getVertex("" + j).getId());
+        }
+        assertEquals(396, asCollection(multi.getEdges()).size());
+        assertNull(multi.getVertex("Marvin"));
+        long lookups = 0;
+        for (InstrumentedGraph g : bases) {
+            lookups += g.getLookupCount();
+        }
+        // Nearly every vertex is looked up in a single base graph, rather than in all four.
+        assertTrue(lookups < 2 * 400 + 2 * 396);
+
+        // Elements added directly to a base graph are found once invalidated.
+        bases[2].addVertex("Marvin");
+        multi.invalidate("Marvin");
+        assertEquals("Marvin", multi.getVertex("Marvin").getId());
+        bases[3].addVertex("Trillian");
+        multi.invalidateAll();
+        assertEquals("Trillian", multi.getVertex("Trillian").getId());
+    }
+
+    @Test
+    public void testConcurrentInvalidate() throws Exception {
+        final int threads = 8, idsPerThread = 2000;
+
+        Graph base = new TinkerGraph();
+        base.addVertex("Arthur");
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setBaseFilters(true);
+        final MultiGraph multi = new MultiGraph(settings, base);
+
+        // Vertices added directly to the base graph, and invalidated by many threads at once.
+        for (int i = 0; i < threads * idsPerThread; i++) {
+            base.addVertex("v" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new LinkedList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                final int first = t * idsPerThread;
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        start.await();
+                        for (int i = first; i < first + idsPerThread; i++) {
+                            multi.invalidate("v" + i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // No invalidation is lost.
+        for (int i = 0; i < threads * idsPerThread; i++) {
+            assertEquals("v" + i, multi.getVertex("v" + i).getId());
+        }
+    }
+
+    @Test
+    public void testGetProperties() throws Exception {
+        base2.getVertex("Ford").setProperty("towel", "yes");
+
+        // The inner MultiGraph is a base whose elements read properties in bulk.
+        for (Graph multi : new Graph[]{graph, new MultiGraph(new MultiGraph(base1), base2)}) {
+            ((ProjectableGraph) multi).setProjection("comment", "towel");
+            ProjectableElement ford = (ProjectableElement) multi.getVertex("Ford");
+            Map<String, Object> props = ford.getProperties("comment", "towel", "age");
+            assertEquals(2, props.size());
+            assertEquals("a little odd", props.get("comment"));
+            assertEquals("yes", props.get("towel"));
+            assertTrue(!props.containsKey("age"));
+            assertEquals(0, ford.getProperties().size());
+        }
+
+        // The hint is passed on to base graphs which accept it, including those added later.
+        ProjectionRecordingGraph recording1 = new ProjectionRecordingGraph();
+        ProjectionRecordingGraph recording2 = new ProjectionRecordingGraph();
+        MultiGraph hinted = new MultiGraph(base1, recording1);
+        hinted.setProjection("comment", "towel");
+        assertEquals(Arrays.asList("comment", "towel"), Arrays.asList(recording1.keys));
+        hinted.addBase(recording2);
+        assertEquals(Arrays.asList("comment", "towel"), Arrays.asList(recording2.keys));
+        hinted.setProjection();
+        assertEquals(0, recording1.keys.length);
+        assertEquals(0, recording2.keys.length);
+
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setWritableOverlay(true);
+        Graph multi = new MultiGraph(settings, new TinkerGraph(), base1, base2);
+        ProjectableElement ford = (ProjectableElement) multi.getVertex("Ford");
+        ford.removeProperty("comment");
+        ford.setProperty("age", 42);
+        Map<String, Object> props = ford.getProperties("comment", "towel", "age");
+        assertEquals(2, props.size());
+        assertEquals(42, props.get("age"));
+        assertNull(props.get("comment"));
+    }
+
+    @Test
+    public void testChangeBases() throws Exception {
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setCacheSize(10);
+        settings.setBaseFilters(true);
+        MultiGraph multi = new MultiGraph(settings, base1, base2);
+        assertEquals(0, multi.getEpoch());
+        assertEquals("Betelgeuse", multi.getVertex("Betelgeuse").getId());
+
+        Iterator<Vertex> before = multi.getVertices().iterator();
+        assertTrue(before.hasNext());
+        before.next();
+
+        Graph base3 = new TinkerGraph();
+        base3.addVertex("Magrathea");
+        multi.addBase(base3);
+        multi.removeBase(base2);
+        assertEquals(2, multi.getEpoch());
+        assertEquals(2, multi.getBases().size());
+        assertNull(multi.getVertex("Betelgeuse"));
+        assertEquals("Magrathea", multi.getVertex("Magrathea").getId());
+        assertEquals(5, asCollection(multi.getVertices()).size());
+
+        // An iterator created before the change still sees the old base graphs.
+        int count = 1;
+        while (before.hasNext()) {
+            before.next();
+            count++;
+        }
+        assertEquals(5, count);
+
+        // A newer snapshot of a base graph replaces the old one.
+        Graph snapshot = new TinkerGraph();
+        snapshot.addVertex("Magrathea").setProperty("comment", "open for business");
+        multi.replaceBase(base3, snapshot);
+        assertEquals("open for business", multi.getVertex("Magrathea").getProperty("comment"));
+        assertTrue(base1 == multi.getBases().get(0));
+        assertTrue(snapshot == multi.getBases().get(1));
+
+        try {
+            multi.removeBase(base2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIndices() throws Exception {
+        IndexableGraph multi = (IndexableGraph) graph;
+        Index<Vertex> vertices = multi.getIndex(Index.VERTICES, Vertex.class);
+        assertEquals(Index.Type.AUTOMATIC, vertices.getIndexType());
+
+        Collection<Vertex> results = asCollection(vertices.get("comment", "a little odd"));
+        assertEquals(1, results.size());
+        assertEquals("Ford", results.iterator().next().getId());
+        // The value in base graph #2 is shadowed by that in base graph #1.
+        assertEquals(0, vertices.count("comment", "he really knows where his towel is"));
+
+        Index<Edge> edges = multi.getIndex(Index.EDGES, Edge.class);
+        assertEquals(1, edges.count("comment", "but not very well"));
+
+        Index<Vertex> people = ((IndexableGraph) base2).createManualIndex("people", Vertex.class);
+        people.put("species", "human", base2.getVertex("Ford"));
+        people.put("species", "human", base2.getVertex("Zaphod"));
+        assertNull(multi.getIndex("planets", Vertex.class));
+        people = multi.getIndex("people", Vertex.class);
+        assertEquals(Index.Type.MANUAL, people.getIndexType());
+        assertEquals(2, people.count("species", "human"));
+        Set<String> names = new HashSet<String>();
+        for (Index<?> index : multi.getIndices()) {
+            names.add(index.getIndexName());
+        }
+        assertEquals(3, names.size());
+
+        // A base graph which is not indexable is scanned, unless its filter rules out a match.
+        Graph base3 = new TinkerGraph();
+        base3.addVertex("Marvin").setProperty("comment", "paranoid");
+        multi = new MultiGraph(base1, base2, new InstrumentedGraph(base3));
+        vertices = multi.getIndex(Index.VERTICES, Vertex.class);
+        assertEquals("Marvin", vertices.get("comment", "paranoid").next().getId());
+        assertEquals(1, vertices.count("comment", "a little odd"));
+        assertEquals(0, vertices.count("comment", "depressed"));
+
+        try {
+            multi.createManualIndex("planets", Vertex.class);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals(MultiGraph.INDICES_MSG, e.getMessage());
+        }
+
+        // Even with a writable overlay, indices are those of the base graphs.
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setWritableOverlay(true);
+        MultiGraph writable = new MultiGraph(settings, new TinkerGraph(), base1, base2);
+        try {
+            writable.dropIndex("people");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals(MultiGraph.INDICES_MSG, e.getMessage());
+        }
+        assertEquals(2, writable.getIndex("people", Vertex.class).count("species", "human"));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        MultiGraphSettings settings = new MultiGraphSettings();
+        settings.setCacheSize(3);
+        MultiGraph multi = new MultiGraph(settings, base1, base2);
+        CacheMetrics metrics = multi.getCacheMetrics();
+
+        Vertex arthur = multi.getVertex("Arthur");
+        assertEquals(0, metrics.getHits());
+        assertEquals(1, metrics.getMisses());
+        assertTrue(arthur == multi.getVertex("Arthur"));
+        assertEquals(1, metrics.getHits());
+
+        // Traversing an edge finds its vertices in the cache.
+        Edge e = multi.getEdge("Arthur knows Ford");
+        assertTrue(arthur == e.getOutVertex());
+        assertEquals(2, metrics.getHits());
+
+        // Least recently used elements are evicted.
+        multi.getVertex("Ford");
+        multi.getVertex("Zaphod");
+        multi.getVertex("Earth");
+        assertEquals(1, metrics.getEvictions());
+        assertTrue(arthur != multi.getVertex("Arthur"));
+
+        // A modification of a base graph is seen once the element is invalidated.
+        base2.addVertex("Earth").setProperty("comment", "mostly harmless");
+        Vertex earth = multi.getVertex("Earth");
+        assertEquals(null, earth.getProperty("comment"));
+        multi.invalidate("Earth");
+        assertEquals("mostly harmless", multi.getVertex("Earth").getProperty("comment"));
+
+        assertNull(multi.getVertex("Marvin"));
+        assertNull(multi.getVertex("Marvin"));
+
+        // An element merged in an epoch which has since been replaced is never returned from the cache.
+        ElementCache<String> cache = new ElementCache<String>(3, new CacheMetrics());
+        cache.put("Earth", "demolished", 1);
+        assertNull(cache.get("Earth", 2));
+        assertNull(cache.get("Earth", 1));
+        cache.put("Earth", "rebuilt", 2);
+        assertEquals("rebuilt", cache.get("Earth", 2));
+
+        multi.replaceBase(base2, base2);
+        assertEquals("mostly harmless", multi.getVertex("Earth").getProperty("comment"));
+    }
+
+    @Test
+    public void testIdSet() throws Exception {
+        IdSet set = new IdSet();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add(i));
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(set.remove(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1 == i % 2, set.contains(i));
+            assertEquals(0 == i % 2, set.add(i));
+        }
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    public void testBloomFilter() throws Exception {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("v" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("v" + (i % 1000)));
+            if (filter.mightContain("x" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300);
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            InstrumentedGraph base3 = new InstrumentedGraph(new TinkerGraph());
+            base3.addVertex("Arthur").setProperty("comment", "he's a jerk");
+
+            MultiGraphSettings settings = new MultiGraphSettings();
+            settings.setExecutor(executor);
+            settings.setLookupTimeout(200);
+            settings.setFailurePolicy(BaseFailurePolicy.FAIL);
+            Graph multi = new MultiGraph(settings, base1, base2, base3);
+
+            // Results are merged in the order of the base graphs.
+            assertEquals("a little odd", multi.getVertex("Ford").getProperty("comment"));
+            assertEquals("Earth", multi.getEdge("Ford's home planet").getInVertex().getId());
+            Collection<Edge> edges = asCollection(multi.getVertex("Ford").getOutEdges("home planet"));
+            assertEquals(1, edges.size());
+            assertEquals("Earth", edges.iterator().next().getInVertex().getId());
+            assertEquals(2, asCollection(multi.getVertex("Zaphod").getInEdges("knows")).size());
+            assertNull(multi.getVertex("Marvin"));
+
+            // The edges of a vertex of high degree are fetched concurrently in part, and streamed thereafter.
+            Graph hubs1 = new TinkerGraph(), hubs2 = new TinkerGraph();
+            Vertex hub1 = hubs1.addVertex("hub"), hub2 = hubs2.addVertex("hub");
+            for (int i = 0; i < 1000; i++) {
+                hubs1.addEdge("e" + i, hub1, hubs1.addVertex("" + i), "link");
+                hubs2.addEdge("e" + (i + 500), hub2, hubs2.addVertex("" + (i + 500)), "link");
+            }
+            Graph hubs = new MultiGraph(settings, hubs1, hubs2);
+            assertEquals(1500, asCollection(hubs.getVertex("hub").getOutEdges()).size());
+
+            // A slow base graph fails the lookup...
+            base3.setDelay(2000);
+            try {
+                multi.getVertex("Arthur");
+                fail();
+            } catch (RuntimeException e) {
+                // expected
+            }
+
+            // ...unless it is skipped.
+            settings.setFailurePolicy(BaseFailurePolicy.SKIP);
+            multi = new MultiGraph(settings, base1, base2, base3);
+            assertEquals("he's a jerk", multi.getVertex("Arthur").getProperty("comment"));
+            assertEquals(2, asCollection(multi.getVertex("Zaphod").getInEdges("knows")).size());
+
+            base3.setDelay(0);
+            base3.setFailing(true);
+            assertEquals("Arthur", multi.getVertex("Arthur").getId());
+            settings.setFailurePolicy(BaseFailurePolicy.FAIL);
+            multi = new MultiGraph(settings, base1, base2, base3);
+            try {
+                multi.getVertex("Arthur");
+                fail();
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                assertEquals("lookup in base graph #2 failed", e.getMessage());
+            }
+
+            // A failure names the base graph, even where base graphs without the vertex are not consulted.
+            settings.setBaseFilters(true);
+            multi = new MultiGraph(settings, base1, base2, base3);
+            try {
+                multi.getVertex("Arthur");
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals("lookup in base graph #2 failed", e.getMessage());
+            }
+
+            // An element merged while a base graph was skipped is not cached.
+            Vertex ford3 = base3.addVertex("Ford");
+            ford3.setProperty("towel", "yes");
+            base3.addEdge("Ford's home planet", ford3, base3.addVertex("Earth"), "home planet")
+                    .setProperty("distance", 0);
+            settings.setFailurePolicy(BaseFailurePolicy.SKIP);
+            settings.setBaseFilters(false);
+            settings.setCacheSize(100);
+            multi = new MultiGraph(settings, base1, base2, base3);
+            assertNull(multi.getVertex("Ford").getProperty("towel"));
+            assertNull(multi.getEdge("Ford's home planet").getProperty("distance"));
+            base3.setFailing(false);
+            assertEquals("yes", multi.getVertex("Ford").getProperty("towel"));
+            assertEquals(0, multi.getEdge("Ford's home planet").getProperty("distance"));
+
+            // Once complete, it is.
+            base3.resetLookupCount();
+            assertEquals("yes", multi.getVertex("Ford").getProperty("towel"));
+            assertEquals(0, multi.getEdge("Ford's home planet").getProperty("distance"));
+            assertEquals(0, base3.getLookupCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // A base graph which records the projection hints it receives
+    private static class ProjectionRecordingGraph extends TinkerGraph implements ProjectableGraph {
+        private String[] keys = null;
+
+        public void setProjection(final String... keys) {
+            this.keys = keys;
+        }
+    }
+
     private <T> Collection<T> asCollection(Iterable<T> iter) {
         Collection<T> c = new LinkedList<T>();
         for (T t : iter) {